@@ -1,10 +1,11 @@
 package com.cgvsu;
 
+import com.cgvsu.batch.BatchCommand;
+import com.cgvsu.metrics.MeasuredPipeline;
+import com.cgvsu.metrics.PipelineMetrics;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.TriangulatedModel;
-import com.cgvsu.objreader.ObjReader;
-import com.cgvsu.objwriter.ObjWriter;
-import com.cgvsu.triangulation.ModelTriangulator;
+import com.cgvsu.validation.ValidationReport;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -12,6 +13,11 @@ import java.nio.file.Path;
 
 public class Main {
     public static void main(String[] args) throws IOException {
+        // с аргументами - пакетное преобразование файлов и каталогов (см. BatchCommand)
+        if (args.length > 0) {
+            System.exit(BatchCommand.run(args, System.out));
+        }
+
         Path fileName = Path.of("keytruck.obj");
 
         if (!Files.exists(fileName)) {
@@ -29,20 +35,20 @@ public class Main {
             }
         }
 
-        System.out.println("Loading model from: " + fileName.toAbsolutePath());
-        String fileContent = Files.readString(fileName);
+        // события JFR пишутся, только если запись JFR включает com.cgvsu.ObjStage
+        PipelineMetrics metrics = new PipelineMetrics(fileName.toString(), true);
 
-        System.out.println("Loading model ...");
-        Model originalModel = ObjReader.read(fileContent);
+        System.out.println("Loading model from: " + fileName.toAbsolutePath());
+        Model originalModel = MeasuredPipeline.read(fileName, metrics);
 
         System.out.println("\n=== Original Model ===");
         printModelInfo(originalModel);
 
         System.out.println("\nSaving original model to 'original_model.obj'...");
-        ObjWriter.write(originalModel, "original_model.obj");
+        MeasuredPipeline.write(originalModel, Path.of("original_model.obj"), metrics);
 
         System.out.println("\n=== Triangulating Model ===");
-        TriangulatedModel triangulatedModel = new TriangulatedModel(originalModel);
+        TriangulatedModel triangulatedModel = MeasuredPipeline.triangulate(originalModel, metrics);
         printModelInfo(triangulatedModel);
 
         boolean allTriangles = triangulatedModel.allPolygonsAreTriangles();
@@ -54,16 +60,17 @@ public class Main {
 
         // проверяем индексы перед сохранением
         System.out.println("\nValidating model indices...");
-        boolean isValid = ObjWriter.validateModelIndices(triangulatedModel);
-        System.out.println("Model indices are valid: " + isValid);
+        ValidationReport validation = MeasuredPipeline.validate(triangulatedModel, metrics);
+        System.out.println("Model indices are valid: " + validation.isValid());
 
-        if (!isValid) {
+        if (!validation.isValid()) {
             System.out.println("Warning: Model has invalid indices!");
+            System.out.print(validation);
         }
 
         // сохраняем триангулированную модель
         System.out.println("\nSaving triangulated model to 'triangulated_model.obj'...");
-        ObjWriter.write(triangulatedModel, "triangulated_model.obj");
+        MeasuredPipeline.write(triangulatedModel, Path.of("triangulated_model.obj"), metrics);
 
         System.out.println("\nDone! Files saved:");
         System.out.println("  - original_model.obj");
@@ -81,6 +88,9 @@ public class Main {
         } catch (IOException e) {
             System.err.println("Could not compare file sizes: " + e.getMessage());
         }
+
+        System.out.println("\n=== Metrics ===");
+        System.out.print(metrics);
     }
 
     private static void printModelInfo(Model model) {
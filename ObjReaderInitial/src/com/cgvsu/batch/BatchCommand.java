@@ -0,0 +1,67 @@
+package com.cgvsu.batch;
+
+import com.cgvsu.triangulation.TriangulationMode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Разбор аргументов командной строки для пакетного режима Main
+public class BatchCommand {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILURES = 1;
+    public static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = """
+            Usage: Main -o <output directory> [-m fan|ear_clipping|constrained_delaunay] [-j <threads>]
+                        [--memory <megabytes>] [--force] <file | directory | glob>...
+            Converts OBJ files to triangulated OBJ files, skipping files that haven't changed since the last run.""";
+
+    // Возвращает код завершения: EXIT_FAILURES, если хотя бы один файл не преобразован
+    public static int run(String[] args, PrintStream out) throws IOException {
+        Path outputDirectory = null;
+        TriangulationMode mode = TriangulationMode.FAN;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        long memoryBudget = BatchConverter.defaultMemoryBudget();
+        boolean force = false;
+        List<String> inputs = new ArrayList<>();
+        BatchConverter converter;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-o" -> outputDirectory = Path.of(value(args, ++i));
+                    case "-m" -> mode = TriangulationMode.valueOf(value(args, ++i).toUpperCase(Locale.ROOT));
+                    case "-j" -> threadCount = Integer.parseInt(value(args, ++i));
+                    case "--memory" -> memoryBudget = Long.parseLong(value(args, ++i)) << 20;
+                    case "--force" -> force = true;
+                    default -> inputs.add(args[i]);
+                }
+            }
+            if (outputDirectory == null || inputs.isEmpty()) {
+                throw new IllegalArgumentException("Output directory and at least one input are required");
+            }
+            converter = new BatchConverter(outputDirectory, mode, threadCount, memoryBudget, force);
+        } catch (IllegalArgumentException e) {
+            // сюда же попадают NumberFormatException и неизвестный режим из valueOf
+            out.println(e.getMessage());
+            out.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        BatchReport report = converter.convert(inputs);
+        out.print(report);
+        return report.getCount(BatchReport.Status.FAILED) == 0 ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
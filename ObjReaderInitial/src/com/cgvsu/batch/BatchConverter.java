@@ -0,0 +1,352 @@
+package com.cgvsu.batch;
+
+import com.cgvsu.compression.GzipFiles;
+import com.cgvsu.pipeline.StreamingConverter;
+import com.cgvsu.triangulation.TriangulationMode;
+import com.cgvsu.triangulation.TriangulationStatistics;
+import com.cgvsu.validation.IndexViolation;
+import com.cgvsu.validation.ParseValidator;
+import com.cgvsu.validation.ValidationReport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Преобразование множества OBJ-файлов в триангулированные OBJ через StreamingConverter, в несколько потоков.
+// Файлов обрабатывается одновременно столько, сколько помещается в бюджет памяти: каждый занимает оценку
+// StreamingConverter.estimateMemory, поэтому мелкие файлы идут по числу потоков, а крупные в режимах
+// с координатами вершин - по одному.
+// Рядом с каждым результатом лежит файл .hash с размером, CRC32C исходника и режимом. Если при следующем
+// запуске они совпадают, а результат на месте и того же размера, файл пропускается.
+// Ошибка в одном файле попадает в отчет и не останавливает остальные. Индексы граней проверяются во время
+// разбора (ParseValidator): файл с индексом вне модели считается ошибкой, и результат для него не остается.
+public class BatchConverter {
+
+    public static final String EXTENSION = ".obj";
+    // сжатые файлы и преобразуются в сжатые (см. GzipFiles)
+    public static final String COMPRESSED_EXTENSION = EXTENSION + GzipFiles.EXTENSION;
+    public static final String HASH_EXTENSION = ".hash";
+
+    private static final int HASH_BUFFER_SIZE = 1 << 20;
+    // Оценка памяти считается по размеру текста, а gzip сжимает OBJ в 4-7 раз: берется верхняя граница
+    private static final int COMPRESSION_RATIO = 8;
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final Path outputDirectory;
+    private final TriangulationMode mode;
+    private final int threadCount;
+    private final long memoryBudget;
+    private final boolean force;
+
+    public BatchConverter(Path outputDirectory) {
+        this(outputDirectory, TriangulationMode.FAN, Runtime.getRuntime().availableProcessors(),
+                defaultMemoryBudget(), false);
+    }
+
+    // force - преобразовывать и неизменившиеся файлы
+    public BatchConverter(Path outputDirectory, TriangulationMode mode, int threadCount, long memoryBudget,
+                          boolean force) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (memoryBudget < 1 << 20) {
+            throw new IllegalArgumentException("Memory budget must be at least 1 MB");
+        }
+        this.outputDirectory = outputDirectory;
+        this.mode = mode;
+        this.threadCount = threadCount;
+        this.memoryBudget = memoryBudget;
+        this.force = force;
+    }
+
+    // Три четверти кучи, которая еще может быть занята, с учетом роста кучи до maxMemory
+    public static long defaultMemoryBudget() {
+        final Runtime runtime = Runtime.getRuntime();
+        return (runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) / 4 * 3;
+    }
+
+    // inputs - файлы, каталоги (все файлы .obj и .obj.gz в них, рекурсивно) и маски вида assets/**/*.obj.
+    // Выходные пути повторяют пути файлов относительно каталога или неизменяемой части маски.
+    public BatchReport convert(List<String> inputs) throws IOException {
+        final long start = System.nanoTime();
+        final List<Job> jobs = findJobs(inputs);
+
+        // разрешения семафора - мегабайты бюджета
+        final int memoryPermits = (int) Math.min(Integer.MAX_VALUE, memoryBudget >> 20);
+        // честный семафор: иначе крупный файл ждал бы, пока не кончатся мелкие
+        final Semaphore memory = new Semaphore(memoryPermits, true);
+        final ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<BatchReport.FileResult>> futures = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                futures.add(pool.submit(() -> process(job, memory, memoryPermits)));
+            }
+            final List<BatchReport.FileResult> results = new ArrayList<>(jobs.size());
+            for (Future<BatchReport.FileResult> future : futures) {
+                results.add(future.get());
+            }
+            return new BatchReport(results, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting OBJ files", e);
+        } catch (ExecutionException e) {
+            // process сам превращает ошибки файлов в результаты, сюда доходят только Error
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private BatchReport.FileResult process(Job job, Semaphore memory, int memoryPermits) {
+        if (job.error != null) {
+            return new BatchReport.FileResult(job.input, job.output, BatchReport.Status.FAILED, 0, 0, 0, job.error);
+        }
+        final long start = System.nanoTime();
+        long inputSize = 0;
+        try {
+            inputSize = Files.size(job.input);
+            final String stamp = stamp(job.input);
+            final Path hashFile = hashPath(job.output);
+            if (!force && isUpToDate(job.output, hashFile, stamp)) {
+                return new BatchReport.FileResult(job.input, job.output, BatchReport.Status.SKIPPED, inputSize,
+                        Files.size(job.output), System.nanoTime() - start, null);
+            }
+
+            // старая отметка удаляется до записи: если запуск оборвется, файл будет преобразован заново
+            Files.deleteIfExists(hashFile);
+            final long textSize = GzipFiles.isCompressed(job.input) ? inputSize * COMPRESSION_RATIO : inputSize;
+            final int permits = (int) Math.min(memoryPermits,
+                    (StreamingConverter.estimateMemory(textSize, mode) >> 20) + 1);
+            memory.acquire(permits);
+            final String violations;
+            try {
+                violations = convert(job.input, job.output);
+            } finally {
+                memory.release(permits);
+            }
+            if (violations != null) {
+                return new BatchReport.FileResult(job.input, job.output, BatchReport.Status.FAILED, inputSize, 0,
+                        System.nanoTime() - start, violations);
+            }
+            final long outputSize = Files.size(job.output);
+            Files.writeString(hashFile, stamp + ' ' + outputSize + '\n', StandardCharsets.US_ASCII);
+            return new BatchReport.FileResult(job.input, job.output, BatchReport.Status.CONVERTED, inputSize,
+                    outputSize, System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new BatchReport.FileResult(job.input, job.output, BatchReport.Status.FAILED, inputSize, 0,
+                    System.nanoTime() - start, e.getClass().getSimpleName() + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            // прерывание приходит только от convert, когда остановлен вызывающий поток
+            Thread.currentThread().interrupt();
+            return new BatchReport.FileResult(job.input, job.output, BatchReport.Status.FAILED, inputSize, 0,
+                    System.nanoTime() - start, "Interrupted");
+        }
+    }
+
+    // Результат пишется во временный файл и подменяется целиком, поэтому после ошибки или обрыва
+    // под именем результата не остается недописанный файл. Временный файл создается не createTempFile:
+    // у того права только для владельца, а результат должен получить обычные права.
+    // Возвращает описание индексов вне модели или null, если их нет и результат записан.
+    private String convert(Path input, Path output) throws IOException {
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        // StreamingConverter сжимает результат по расширению, поэтому у временного файла оно то же
+        final Path temporary = output.resolveSibling(output.getFileName() + "."
+                + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp"
+                + (GzipFiles.isCompressed(output) ? GzipFiles.EXTENSION : ""));
+        try {
+            final ParseValidator validator = new ParseValidator();
+            StreamingConverter.convert(input, temporary, mode, new TriangulationStatistics(), validator);
+            final String violations = describeOutOfRange(validator.getReport());
+            if (violations == null) {
+                Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return violations;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Ошибкой считаются только индексы вне модели: с ними результат ссылается на несуществующие элементы.
+    // Несовпадение числа атрибутов и повтор вершины конвейер переносит так же, как ObjReader и ModelTriangulator.
+    private static String describeOutOfRange(ValidationReport report) {
+        long count = 0;
+        for (IndexViolation.Kind kind : IndexViolation.Kind.values()) {
+            if (isOutOfRange(kind)) {
+                count += report.getCount(kind);
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder().append(count).append(" indices out of range");
+        // среди сохраненных нарушений первого индекса вне модели может не оказаться, если до него много других
+        for (IndexViolation violation : report.getViolations()) {
+            if (isOutOfRange(violation.getKind())) {
+                return result.append(", first at ").append(violation).toString();
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean isOutOfRange(IndexViolation.Kind kind) {
+        return kind == IndexViolation.Kind.VERTEX_INDEX_OUT_OF_RANGE
+                || kind == IndexViolation.Kind.TEXTURE_INDEX_OUT_OF_RANGE
+                || kind == IndexViolation.Kind.NORMAL_INDEX_OUT_OF_RANGE;
+    }
+
+    static Path hashPath(Path output) {
+        return output.resolveSibling(output.getFileName() + HASH_EXTENSION);
+    }
+
+    private static boolean isUpToDate(Path output, Path hashFile, String stamp) throws IOException {
+        final String saved;
+        try {
+            saved = Files.readString(hashFile, StandardCharsets.US_ASCII).trim();
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        // результат могли удалить или подменить после прошлого запуска
+        return Files.isRegularFile(output) && saved.equals(stamp + ' ' + Files.size(output));
+    }
+
+    // Размер, CRC32C всего содержимого и режим триангуляции. CRC32C считается аппаратно и на порядок быстрее
+    // разбора, поэтому проверка неизменившихся файлов почти ничего не стоит по сравнению с преобразованием.
+    private String stamp(Path input) throws IOException {
+        final CRC32C crc = new CRC32C();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                size += buffer.remaining();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return size + " " + Long.toHexString(crc.getValue()) + ' ' + mode.name();
+    }
+
+    private List<Job> findJobs(List<String> inputs) throws IOException {
+        final Path excluded = outputDirectory.toAbsolutePath().normalize();
+        final List<Job> jobs = new ArrayList<>();
+        // один выходной файл - один входной; повтор того же входного файла просто пропускается
+        final Map<Path, Path> outputs = new HashMap<>();
+        for (String input : inputs) {
+            final List<Job> found = expand(input, excluded);
+            if (found.isEmpty()) {
+                jobs.add(new Job(Path.of(input), null,
+                        "No " + EXTENSION + " or " + COMPRESSED_EXTENSION + " files found"));
+            }
+            for (Job job : found) {
+                final Path key = job.output.toAbsolutePath().normalize();
+                final Path previous = outputs.putIfAbsent(key, job.input.toAbsolutePath().normalize());
+                if (previous == null) {
+                    jobs.add(job);
+                } else if (!previous.equals(job.input.toAbsolutePath().normalize())) {
+                    jobs.add(new Job(job.input, job.output, "Output is already produced from " + previous));
+                }
+            }
+        }
+        return jobs;
+    }
+
+    private List<Job> expand(String input, Path excluded) throws IOException {
+        final String[] parts = input.split("[/\\\\]");
+        int globStart = 0;
+        while (globStart < parts.length && !isGlob(parts[globStart])) {
+            globStart++;
+        }
+
+        final List<Job> jobs = new ArrayList<>();
+        if (globStart == parts.length) {
+            final Path path = Path.of(input);
+            if (Files.isRegularFile(path)) {
+                jobs.add(new Job(path, outputDirectory.resolve(path.getFileName().toString()), null));
+            } else if (Files.isDirectory(path)) {
+                for (Path file : walk(path, null, excluded)) {
+                    jobs.add(new Job(file, outputDirectory.resolve(path.relativize(file).toString()), null));
+                }
+            }
+            return jobs;
+        }
+
+        // маска применяется к путям относительно своей неизменяемой части
+        final List<String> partList = List.of(parts);
+        final Path base = globStart == 0 ? Path.of(".") : Path.of(String.join("/", partList.subList(0, globStart)));
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:"
+                + String.join("/", partList.subList(globStart, parts.length)));
+        if (Files.isDirectory(base)) {
+            for (Path file : walk(base, matcher, excluded)) {
+                jobs.add(new Job(file, outputDirectory.resolve(base.relativize(file).toString()), null));
+            }
+        }
+        return jobs;
+    }
+
+    // Подходящие файлы каталога по порядку путей. Файлы выходного каталога внутри входного пропускаются:
+    // иначе результаты прошлых запусков становились бы новыми входными файлами.
+    private static List<Path> walk(Path directory, PathMatcher matcher, Path excluded) throws IOException {
+        final boolean exclude = !directory.toAbsolutePath().normalize().startsWith(excluded);
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> matcher == null ? hasObjExtension(file)
+                            : matcher.matches(directory.relativize(file)))
+                    .filter(file -> !exclude || !file.toAbsolutePath().normalize().startsWith(excluded))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean hasObjExtension(Path file) {
+        final String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(EXTENSION) || name.endsWith(COMPRESSED_EXTENSION);
+    }
+
+    private static boolean isGlob(String part) {
+        for (int i = 0; i < part.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(part.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // error не null - файл не обрабатывается и сразу попадает в отчет как FAILED
+    private static final class Job {
+        final Path input;
+        final Path output;
+        final String error;
+
+        Job(Path input, Path output, String error) {
+            this.input = input;
+            this.output = output;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.cgvsu.batch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Итог BatchConverter.convert: результат по каждому файлу и общая скорость
+public class BatchReport {
+
+    public enum Status {
+        CONVERTED, SKIPPED, FAILED
+    }
+
+    public static final class FileResult {
+
+        private final Path input;
+        private final Path output;
+        private final Status status;
+        private final long inputBytes;
+        private final long outputBytes;
+        private final long nanos;
+        private final String error;
+
+        FileResult(Path input, Path output, Status status, long inputBytes, long outputBytes, long nanos,
+                   String error) {
+            this.input = input;
+            this.output = output;
+            this.status = status;
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public Path getInput() {
+            return input;
+        }
+
+        // null, если входной путь не удалось сопоставить выходному
+        public Path getOutput() {
+            return output;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getInputBytes() {
+            return inputBytes;
+        }
+
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        // Сообщение об ошибке для FAILED, иначе null
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final List<FileResult> results;
+    private final long wallNanos;
+
+    BatchReport(List<FileResult> results, long wallNanos) {
+        this.results = Collections.unmodifiableList(new ArrayList<>(results));
+        this.wallNanos = wallNanos;
+    }
+
+    // В порядке входных путей
+    public List<FileResult> getResults() {
+        return results;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public int getCount(Status status) {
+        int count = 0;
+        for (FileResult result : results) {
+            if (result.status == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public List<FileResult> getFailures() {
+        List<FileResult> failures = new ArrayList<>();
+        for (FileResult result : results) {
+            if (result.status == Status.FAILED) {
+                failures.add(result);
+            }
+        }
+        return failures;
+    }
+
+    // Байты прочитанных и записанных файлов, только для CONVERTED
+    public long getInputBytes() {
+        long total = 0;
+        for (FileResult result : results) {
+            if (result.status == Status.CONVERTED) {
+                total += result.inputBytes;
+            }
+        }
+        return total;
+    }
+
+    public long getOutputBytes() {
+        long total = 0;
+        for (FileResult result : results) {
+            if (result.status == Status.CONVERTED) {
+                total += result.outputBytes;
+            }
+        }
+        return total;
+    }
+
+    // Скорость по общему времени работы, а не по сумме времен файлов: файлы обрабатываются одновременно
+    public double getInputBytesPerSecond() {
+        return wallNanos == 0 ? 0 : getInputBytes() * 1e9 / wallNanos;
+    }
+
+    public double getFilesPerSecond() {
+        return wallNanos == 0 ? 0 : getCount(Status.CONVERTED) * 1e9 / wallNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (FileResult failure : getFailures()) {
+            result.append("FAILED ").append(failure.input).append(": ").append(failure.error).append('\n');
+        }
+        result.append(String.format(Locale.US, "%d files: %d converted, %d skipped, %d failed%n", results.size(),
+                getCount(Status.CONVERTED), getCount(Status.SKIPPED), getCount(Status.FAILED)));
+        result.append(String.format(Locale.US, "%,d bytes read, %,d bytes written in %.3f s", getInputBytes(),
+                getOutputBytes(), wallNanos / 1e9));
+        result.append(String.format(Locale.US, " (%.1f MB/s, %.1f files/s)%n", getInputBytesPerSecond() / (1 << 20),
+                getFilesPerSecond()));
+        return result.toString();
+    }
+}
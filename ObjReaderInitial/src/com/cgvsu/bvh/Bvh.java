@@ -0,0 +1,494 @@
+package com.cgvsu.bvh;
+
+// Иерархия ограничивающих боксов над треугольниками модели (строится в BvhBuilder).
+// Узлы лежат в плоских массивах в порядке обхода в глубину: левый потомок внутреннего узла идет сразу за ним,
+// номер правого записан в узле. Треугольники листа занимают непрерывный диапазон, их координаты скопированы
+// в том же порядке, поэтому индекс не зависит от модели, по которой построен, и не меняется после построения.
+// Запросы только читают массивы: один индекс можно использовать из многих потоков, у каждого свой BvhQuery.
+public class Bvh {
+
+    public interface TriangleVisitor {
+        void visit(int triangle);
+    }
+
+    // minX, minY, minZ, maxX, maxY, maxZ для каждого узла
+    private final float[] nodeBounds;
+    // для каждого узла два числа: у листа - начало диапазона треугольников и их количество,
+    // у внутреннего узла - номер правого потомка и 0
+    private final int[] nodes;
+    // номер треугольника в исходной модели по месту в порядке листьев
+    private final int[] triangleIndices;
+    // координаты трех вершин каждого треугольника в порядке листьев
+    private final float[] triangles;
+    private final int depth;
+
+    // t входа для луча, который не проходит через бокс
+    private static final float MISS = Float.POSITIVE_INFINITY;
+
+    Bvh(float[] nodeBounds, int[] nodes, int[] triangleIndices, float[] triangles, int depth) {
+        this.nodeBounds = nodeBounds;
+        this.nodes = nodes;
+        this.triangleIndices = triangleIndices;
+        this.triangles = triangles;
+        this.depth = depth;
+    }
+
+    public int getNodeCount() {
+        return nodes.length / 2;
+    }
+
+    public int getTriangleCount() {
+        return triangleIndices.length;
+    }
+
+    // Число узлов на самом длинном пути от корня до листа
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean intersectRay(float originX, float originY, float originZ,
+                                float directionX, float directionY, float directionZ, BvhQuery query) {
+        return intersectRay(originX, originY, originZ, directionX, directionY, directionZ,
+                Float.POSITIVE_INFINITY, query);
+    }
+
+    // Ближайшее пересечение луча с треугольниками при 0 <= t <= maxDistance. Треугольники двусторонние.
+    // Результат в query: треугольник, t, барицентрические координаты и точка пересечения.
+    public boolean intersectRay(float originX, float originY, float originZ,
+                                float directionX, float directionY, float directionZ,
+                                float maxDistance, BvhQuery query) {
+        query.prepare(depth);
+        if (triangleIndices.length == 0) {
+            return false;
+        }
+        final float inverseX = 1 / directionX;
+        final float inverseY = 1 / directionY;
+        final float inverseZ = 1 / directionZ;
+        final int[] stack = query.stack;
+        final float[] stackDistances = query.stackDistances;
+        float best = maxDistance;
+        int found = -1;
+        int top = 0;
+
+        int node = 0;
+        float entry = rayBoxEntry(0, originX, originY, originZ, directionX, directionY, directionZ,
+                inverseX, inverseY, inverseZ, best);
+        while (true) {
+            if (entry != MISS && entry <= best) {
+                final int count = nodes[2 * node + 1];
+                if (count > 0) {
+                    final int first = nodes[2 * node];
+                    for (int i = first; i < first + count; i++) {
+                        final float t = rayTriangle(i, originX, originY, originZ, directionX, directionY, directionZ,
+                                best, query);
+                        if (t >= 0) {
+                            best = t;
+                            found = i;
+                        }
+                    }
+                } else {
+                    final int left = node + 1;
+                    final int right = nodes[2 * node];
+                    final float leftEntry = rayBoxEntry(left, originX, originY, originZ,
+                            directionX, directionY, directionZ, inverseX, inverseY, inverseZ, best);
+                    final float rightEntry = rayBoxEntry(right, originX, originY, originZ,
+                            directionX, directionY, directionZ, inverseX, inverseY, inverseZ, best);
+                    // сначала ближний потомок: найденное в нем пересечение отсекает дальний
+                    if (leftEntry <= rightEntry) {
+                        if (rightEntry != MISS) {
+                            stack[top] = right;
+                            stackDistances[top++] = rightEntry;
+                        }
+                        node = left;
+                        entry = leftEntry;
+                    } else {
+                        if (leftEntry != MISS) {
+                            stack[top] = left;
+                            stackDistances[top++] = leftEntry;
+                        }
+                        node = right;
+                        entry = rightEntry;
+                    }
+                    continue;
+                }
+            }
+            if (top == 0) {
+                break;
+            }
+            node = stack[--top];
+            entry = stackDistances[top];
+        }
+
+        if (found < 0) {
+            return false;
+        }
+        // u и v последнего принятого треугольника уже в query
+        query.triangle = triangleIndices[found];
+        query.distance = best;
+        query.x = originX + best * directionX;
+        query.y = originY + best * directionY;
+        query.z = originZ + best * directionZ;
+        return true;
+    }
+
+    // t входа луча в бокс узла или MISS, если луч не проходит через бокс до maxDistance.
+    // При нулевой компоненте направления луч проходит через бокс, только если начало внутри его слоя
+    // (иначе 0 * бесконечность дало бы NaN).
+    private float rayBoxEntry(int node, float originX, float originY, float originZ,
+                              float directionX, float directionY, float directionZ,
+                              float inverseX, float inverseY, float inverseZ, float maxDistance) {
+        final int offset = 6 * node;
+        float near = 0;
+        float far = maxDistance;
+        if (directionX != 0) {
+            final float t1 = (nodeBounds[offset] - originX) * inverseX;
+            final float t2 = (nodeBounds[offset + 3] - originX) * inverseX;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        } else if (originX < nodeBounds[offset] || originX > nodeBounds[offset + 3]) {
+            return MISS;
+        }
+        if (directionY != 0) {
+            final float t1 = (nodeBounds[offset + 1] - originY) * inverseY;
+            final float t2 = (nodeBounds[offset + 4] - originY) * inverseY;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        } else if (originY < nodeBounds[offset + 1] || originY > nodeBounds[offset + 4]) {
+            return MISS;
+        }
+        if (directionZ != 0) {
+            final float t1 = (nodeBounds[offset + 2] - originZ) * inverseZ;
+            final float t2 = (nodeBounds[offset + 5] - originZ) * inverseZ;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        } else if (originZ < nodeBounds[offset + 2] || originZ > nodeBounds[offset + 5]) {
+            return MISS;
+        }
+        return near <= far ? near : MISS;
+    }
+
+    // Пересечение луча с треугольником (Моллер - Трумбор). Возвращает t, если пересечение ближе maxDistance,
+    // и пишет u, v в query; иначе -1.
+    private float rayTriangle(int triangle, float originX, float originY, float originZ,
+                              float directionX, float directionY, float directionZ, float maxDistance,
+                              BvhQuery query) {
+        final int offset = 9 * triangle;
+        final float ax = triangles[offset];
+        final float ay = triangles[offset + 1];
+        final float az = triangles[offset + 2];
+        final float e1x = triangles[offset + 3] - ax;
+        final float e1y = triangles[offset + 4] - ay;
+        final float e1z = triangles[offset + 5] - az;
+        final float e2x = triangles[offset + 6] - ax;
+        final float e2y = triangles[offset + 7] - ay;
+        final float e2z = triangles[offset + 8] - az;
+
+        final float px = directionY * e2z - directionZ * e2y;
+        final float py = directionZ * e2x - directionX * e2z;
+        final float pz = directionX * e2y - directionY * e2x;
+        final float determinant = e1x * px + e1y * py + e1z * pz;
+        // луч параллелен плоскости треугольника или треугольник вырожден
+        if (determinant == 0) {
+            return -1;
+        }
+        final float inverse = 1 / determinant;
+        final float sx = originX - ax;
+        final float sy = originY - ay;
+        final float sz = originZ - az;
+        final float u = (sx * px + sy * py + sz * pz) * inverse;
+        if (u < 0 || u > 1) {
+            return -1;
+        }
+        final float qx = sy * e1z - sz * e1y;
+        final float qy = sz * e1x - sx * e1z;
+        final float qz = sx * e1y - sy * e1x;
+        final float v = (directionX * qx + directionY * qy + directionZ * qz) * inverse;
+        if (v < 0 || u + v > 1) {
+            return -1;
+        }
+        final float t = (e2x * qx + e2y * qy + e2z * qz) * inverse;
+        if (t < 0 || t > maxDistance) {
+            return -1;
+        }
+        query.u = u;
+        query.v = v;
+        return t;
+    }
+
+    public boolean closestPoint(float pointX, float pointY, float pointZ, BvhQuery query) {
+        return closestPoint(pointX, pointY, pointZ, Float.POSITIVE_INFINITY, query);
+    }
+
+    // Ближайшая к точке точка поверхности не дальше maxDistance. Результат в query: треугольник, расстояние
+    // и сама точка.
+    public boolean closestPoint(float pointX, float pointY, float pointZ, float maxDistance, BvhQuery query) {
+        query.prepare(depth);
+        if (triangleIndices.length == 0) {
+            return false;
+        }
+        final int[] stack = query.stack;
+        final float[] stackDistances = query.stackDistances;
+        // сравниваются квадраты расстояний
+        float best = maxDistance * maxDistance;
+        int found = -1;
+        float bestX = 0;
+        float bestY = 0;
+        float bestZ = 0;
+        int top = 0;
+
+        int node = 0;
+        float lowerBound = boxDistanceSquared(0, pointX, pointY, pointZ);
+        while (true) {
+            if (lowerBound <= best) {
+                final int count = nodes[2 * node + 1];
+                if (count > 0) {
+                    final int first = nodes[2 * node];
+                    for (int i = first; i < first + count; i++) {
+                        // ближайшая точка треугольника пишется в query.x, y, z
+                        closestPointOnTriangle(i, pointX, pointY, pointZ, query);
+                        final float dx = query.x - pointX;
+                        final float dy = query.y - pointY;
+                        final float dz = query.z - pointZ;
+                        final float distance = dx * dx + dy * dy + dz * dz;
+                        if (distance <= best) {
+                            best = distance;
+                            found = i;
+                            bestX = query.x;
+                            bestY = query.y;
+                            bestZ = query.z;
+                        }
+                    }
+                } else {
+                    final int left = node + 1;
+                    final int right = nodes[2 * node];
+                    final float leftBound = boxDistanceSquared(left, pointX, pointY, pointZ);
+                    final float rightBound = boxDistanceSquared(right, pointX, pointY, pointZ);
+                    if (leftBound <= rightBound) {
+                        stack[top] = right;
+                        stackDistances[top++] = rightBound;
+                        node = left;
+                        lowerBound = leftBound;
+                    } else {
+                        stack[top] = left;
+                        stackDistances[top++] = leftBound;
+                        node = right;
+                        lowerBound = rightBound;
+                    }
+                    continue;
+                }
+            }
+            if (top == 0) {
+                break;
+            }
+            node = stack[--top];
+            lowerBound = stackDistances[top];
+        }
+
+        if (found < 0) {
+            return false;
+        }
+        query.triangle = triangleIndices[found];
+        query.distance = (float) Math.sqrt(best);
+        query.x = bestX;
+        query.y = bestY;
+        query.z = bestZ;
+        return true;
+    }
+
+    private float boxDistanceSquared(int node, float pointX, float pointY, float pointZ) {
+        final int offset = 6 * node;
+        final float dx = Math.max(0, Math.max(nodeBounds[offset] - pointX, pointX - nodeBounds[offset + 3]));
+        final float dy = Math.max(0, Math.max(nodeBounds[offset + 1] - pointY, pointY - nodeBounds[offset + 4]));
+        final float dz = Math.max(0, Math.max(nodeBounds[offset + 2] - pointZ, pointZ - nodeBounds[offset + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Ближайшая точка треугольника (Эриксон, "Real-Time Collision Detection", 5.1.5): точка проецируется
+    // на плоскость треугольника, если проекция вне его - на ближайшую вершину или сторону
+    private void closestPointOnTriangle(int triangle, float pointX, float pointY, float pointZ, BvhQuery query) {
+        final int offset = 9 * triangle;
+        final float ax = triangles[offset];
+        final float ay = triangles[offset + 1];
+        final float az = triangles[offset + 2];
+        final float bx = triangles[offset + 3];
+        final float by = triangles[offset + 4];
+        final float bz = triangles[offset + 5];
+        final float cx = triangles[offset + 6];
+        final float cy = triangles[offset + 7];
+        final float cz = triangles[offset + 8];
+        final float abx = bx - ax;
+        final float aby = by - ay;
+        final float abz = bz - az;
+        final float acx = cx - ax;
+        final float acy = cy - ay;
+        final float acz = cz - az;
+
+        final float apx = pointX - ax;
+        final float apy = pointY - ay;
+        final float apz = pointZ - az;
+        final float d1 = abx * apx + aby * apy + abz * apz;
+        final float d2 = acx * apx + acy * apy + acz * apz;
+        if (d1 <= 0 && d2 <= 0) {
+            setPoint(query, ax, ay, az);
+            return;
+        }
+
+        final float bpx = pointX - bx;
+        final float bpy = pointY - by;
+        final float bpz = pointZ - bz;
+        final float d3 = abx * bpx + aby * bpy + abz * bpz;
+        final float d4 = acx * bpx + acy * bpy + acz * bpz;
+        if (d3 >= 0 && d4 <= d3) {
+            setPoint(query, bx, by, bz);
+            return;
+        }
+
+        final float vc = d1 * d4 - d3 * d2;
+        if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+            final float s = d1 / (d1 - d3);
+            setPoint(query, ax + s * abx, ay + s * aby, az + s * abz);
+            return;
+        }
+
+        final float cpx = pointX - cx;
+        final float cpy = pointY - cy;
+        final float cpz = pointZ - cz;
+        final float d5 = abx * cpx + aby * cpy + abz * cpz;
+        final float d6 = acx * cpx + acy * cpy + acz * cpz;
+        if (d6 >= 0 && d5 <= d6) {
+            setPoint(query, cx, cy, cz);
+            return;
+        }
+
+        final float vb = d5 * d2 - d1 * d6;
+        if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+            final float s = d2 / (d2 - d6);
+            setPoint(query, ax + s * acx, ay + s * acy, az + s * acz);
+            return;
+        }
+
+        final float va = d3 * d6 - d5 * d4;
+        if (va <= 0 && d4 - d3 >= 0 && d5 - d6 >= 0) {
+            final float s = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            setPoint(query, bx + s * (cx - bx), by + s * (cy - by), bz + s * (cz - bz));
+            return;
+        }
+
+        final float denominator = 1 / (va + vb + vc);
+        final float v = vb * denominator;
+        final float w = vc * denominator;
+        setPoint(query, ax + abx * v + acx * w, ay + aby * v + acy * w, az + abz * v + acz * w);
+    }
+
+    private static void setPoint(BvhQuery query, float x, float y, float z) {
+        query.x = x;
+        query.y = y;
+        query.z = z;
+    }
+
+    // Вызывает visitor для каждого треугольника, пересекающего бокс (visitor может быть null),
+    // и возвращает их количество. Порядок треугольников - порядок листьев.
+    public int overlapBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                          BvhQuery query, TriangleVisitor visitor) {
+        query.prepare(depth);
+        if (triangleIndices.length == 0) {
+            return 0;
+        }
+        final int[] stack = query.stack;
+        final float centerX = (minX + maxX) / 2;
+        final float centerY = (minY + maxY) / 2;
+        final float centerZ = (minZ + maxZ) / 2;
+        final float halfX = (maxX - minX) / 2;
+        final float halfY = (maxY - minY) / 2;
+        final float halfZ = (maxZ - minZ) / 2;
+        int found = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            final int node = stack[--top];
+            final int offset = 6 * node;
+            if (nodeBounds[offset] > maxX || nodeBounds[offset + 3] < minX
+                    || nodeBounds[offset + 1] > maxY || nodeBounds[offset + 4] < minY
+                    || nodeBounds[offset + 2] > maxZ || nodeBounds[offset + 5] < minZ) {
+                continue;
+            }
+            final int count = nodes[2 * node + 1];
+            if (count == 0) {
+                // правый потомок откладывается, левый разбирается следующим
+                stack[top++] = nodes[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            final int first = nodes[2 * node];
+            for (int i = first; i < first + count; i++) {
+                if (triangleOverlapsBox(i, centerX, centerY, centerZ, halfX, halfY, halfZ)) {
+                    found++;
+                    if (visitor != null) {
+                        visitor.visit(triangleIndices[i]);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Теорема о разделяющей оси для треугольника и бокса (Акенине-Мёллер): 3 оси бокса, нормаль треугольника
+    // и 9 произведений сторон треугольника на оси бокса
+    private boolean triangleOverlapsBox(int triangle, float centerX, float centerY, float centerZ,
+                                        float halfX, float halfY, float halfZ) {
+        final int offset = 9 * triangle;
+        final float v0x = triangles[offset] - centerX;
+        final float v0y = triangles[offset + 1] - centerY;
+        final float v0z = triangles[offset + 2] - centerZ;
+        final float v1x = triangles[offset + 3] - centerX;
+        final float v1y = triangles[offset + 4] - centerY;
+        final float v1z = triangles[offset + 5] - centerZ;
+        final float v2x = triangles[offset + 6] - centerX;
+        final float v2y = triangles[offset + 7] - centerY;
+        final float v2z = triangles[offset + 8] - centerZ;
+
+        // оси бокса: боксы треугольника и запроса
+        if (Math.min(v0x, Math.min(v1x, v2x)) > halfX || Math.max(v0x, Math.max(v1x, v2x)) < -halfX
+                || Math.min(v0y, Math.min(v1y, v2y)) > halfY || Math.max(v0y, Math.max(v1y, v2y)) < -halfY
+                || Math.min(v0z, Math.min(v1z, v2z)) > halfZ || Math.max(v0z, Math.max(v1z, v2z)) < -halfZ) {
+            return false;
+        }
+
+        final float e0x = v1x - v0x;
+        final float e0y = v1y - v0y;
+        final float e0z = v1z - v0z;
+        final float e1x = v2x - v1x;
+        final float e1y = v2y - v1y;
+        final float e1z = v2z - v1z;
+        final float e2x = v0x - v2x;
+        final float e2y = v0y - v2y;
+        final float e2z = v0z - v2z;
+
+        // нормаль треугольника
+        if (separates(e0y * e1z - e0z * e1y, e0z * e1x - e0x * e1z, e0x * e1y - e0y * e1x,
+                v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)) {
+            return false;
+        }
+        // сторона x ось X = (0, e.z, -e.y), x ось Y = (-e.z, 0, e.x), x ось Z = (e.y, -e.x, 0)
+        return !separates(0, e0z, -e0y, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)
+                && !separates(-e0z, 0, e0x, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)
+                && !separates(e0y, -e0x, 0, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)
+                && !separates(0, e1z, -e1y, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)
+                && !separates(-e1z, 0, e1x, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)
+                && !separates(e1y, -e1x, 0, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)
+                && !separates(0, e2z, -e2y, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)
+                && !separates(-e2z, 0, e2x, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ)
+                && !separates(e2y, -e2x, 0, v0x, v0y, v0z, v1x, v1y, v1z, v2x, v2y, v2z, halfX, halfY, halfZ);
+    }
+
+    // Разделяет ли ось проекции треугольника и бокса с центром в начале координат
+    private static boolean separates(float axisX, float axisY, float axisZ,
+                                     float v0x, float v0y, float v0z, float v1x, float v1y, float v1z,
+                                     float v2x, float v2y, float v2z, float halfX, float halfY, float halfZ) {
+        final float p0 = axisX * v0x + axisY * v0y + axisZ * v0z;
+        final float p1 = axisX * v1x + axisY * v1y + axisZ * v1z;
+        final float p2 = axisX * v2x + axisY * v2y + axisZ * v2z;
+        final float radius = halfX * Math.abs(axisX) + halfY * Math.abs(axisY) + halfZ * Math.abs(axisZ);
+        return Math.min(p0, Math.min(p1, p2)) > radius || Math.max(p0, Math.max(p1, p2)) < -radius;
+    }
+}
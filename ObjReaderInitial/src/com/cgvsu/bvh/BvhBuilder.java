@@ -0,0 +1,391 @@
+package com.cgvsu.bvh;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.util.IntArrayList;
+import com.cgvsu.util.ParallelBlocks;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Построение Bvh по триангулированной модели (например, результату ModelTriangulator).
+// Узел делится по эвристике площади поверхности (SAH): центры треугольников раскладываются по корзинам вдоль
+// каждой оси, и из границ между корзинами выбирается та, у которой меньше ожидаемая стоимость обхода.
+// Поддеревья строятся параллельно задачами fork/join. Номера узлов заранее известны без синхронизации:
+// поддерево из n треугольников занимает не больше 2n - 1 узлов, и левое поддерево получает столько мест,
+// сколько ему может понадобиться. Оставшиеся пропуски убираются после построения.
+// Номера треугольников в запросах - номера граней MeshData или полигонов Model.
+public class BvhBuilder {
+
+    // Лист, который SAH не советует делить, содержит не больше стольких треугольников
+    public static final int MAX_LEAF_SIZE = 8;
+
+    private static final int BIN_COUNT = 16;
+    // стоимость обхода узла относительно проверки одного треугольника
+    private static final float TRAVERSAL_COST = 1f;
+    // Узлы меньше этого строятся в текущей задаче, без fork
+    private static final int TRIANGLES_PER_TASK = 1 << 12;
+    // Треугольников в одной задаче параллельного прохода по массивам
+    private static final int ELEMENTS_PER_TASK = 1 << 14;
+
+    public static Bvh build(MeshData mesh) {
+        return build(mesh, ForkJoinPool.commonPool());
+    }
+
+    // Если pool равен null, индекс строится в текущем потоке. Результат не зависит от пула.
+    public static Bvh build(MeshData mesh, ForkJoinPool pool) {
+        if (!mesh.allFacesAreTriangles()) {
+            throw new IllegalArgumentException("BVH is built over triangulated models only");
+        }
+        return build(mesh.positions, mesh.vertexIndices, pool);
+    }
+
+    public static Bvh build(Model model) {
+        return build(model, ForkJoinPool.commonPool());
+    }
+
+    public static Bvh build(Model model, ForkJoinPool pool) {
+        return build(MeshData.fromModel(model), pool);
+    }
+
+    private static Bvh build(float[] positions, int[] vertexIndices, ForkJoinPool pool) {
+        final int triangleCount = vertexIndices.length / 3;
+        final int vertexCount = positions.length / 3;
+        for (int index : vertexIndices) {
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalArgumentException("Vertex index out of range: " + index);
+            }
+        }
+        if (triangleCount == 0) {
+            return new Bvh(new float[0], new int[0], new int[0], new float[0], 0);
+        }
+
+        final Build build = new Build(triangleCount, pool != null);
+        ParallelBlocks.forEach(triangleCount, ELEMENTS_PER_TASK, pool,
+                (from, to) -> build.computeBounds(positions, vertexIndices, from, to));
+        if (pool == null) {
+            build.build(0, 0, triangleCount, new Bins());
+        } else {
+            pool.invoke(new BuildTask(build, 0, 0, triangleCount));
+        }
+
+        final int[] order = build.order;
+        final float[] triangles = new float[9 * triangleCount];
+        ParallelBlocks.forEach(triangleCount, ELEMENTS_PER_TASK, pool, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int k = 0; k < 3; k++) {
+                    System.arraycopy(positions, 3 * vertexIndices[3 * order[i] + k], triangles, 9 * i + 3 * k, 3);
+                }
+            }
+        });
+        return build.compact(triangles);
+    }
+
+    // Корзины одного узла; у каждой задачи свои, внутри задачи переиспользуются всеми ее узлами
+    private static final class Bins {
+        final int[] counts = new int[3 * BIN_COUNT];
+        // бокс треугольников каждой корзины, как у узлов
+        final float[] bounds = new float[6 * 3 * BIN_COUNT];
+        // площадь и число треугольников корзин справа от границы
+        final float[] rightAreas = new float[BIN_COUNT];
+        final int[] rightCounts = new int[BIN_COUNT];
+        // бокс центров треугольников узла, множители корзин по осям и бокс для прохода по корзинам
+        final float[] centroidBounds = new float[6];
+        final float[] scales = new float[3];
+        final float[] sweep = new float[6];
+    }
+
+    // Задачи fork/join сериализуемы только формально: они никогда не сериализуются
+    private static final class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Build build;
+        private final int node;
+        private final int start;
+        private final int end;
+
+        BuildTask(Build build, int node, int start, int end) {
+            this.build = build;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            build.build(node, start, end, new Bins());
+        }
+    }
+
+    private static final class Build {
+
+        final boolean parallel;
+        // боксы треугольников, как у узлов; центр бокса - центр треугольника для SAH
+        final float[] triangleBounds;
+        // треугольники в порядке листьев; узел владеет диапазоном этого массива
+        final int[] order;
+        // узлы с пропусками: не больше 2n - 1 для n треугольников
+        final float[] nodeBounds;
+        final int[] nodes;
+
+        Build(int triangleCount, boolean parallel) {
+            this.parallel = parallel;
+            this.triangleBounds = new float[6 * triangleCount];
+            this.order = new int[triangleCount];
+            for (int i = 0; i < triangleCount; i++) {
+                order[i] = i;
+            }
+            this.nodeBounds = new float[6 * (2 * triangleCount - 1)];
+            this.nodes = new int[2 * (2 * triangleCount - 1)];
+        }
+
+        void computeBounds(float[] positions, int[] vertexIndices, int from, int to) {
+            for (int triangle = from; triangle < to; triangle++) {
+                final int offset = 6 * triangle;
+                for (int axis = 0; axis < 3; axis++) {
+                    final float a = positions[3 * vertexIndices[3 * triangle] + axis];
+                    final float b = positions[3 * vertexIndices[3 * triangle + 1] + axis];
+                    final float c = positions[3 * vertexIndices[3 * triangle + 2] + axis];
+                    triangleBounds[offset + axis] = Math.min(a, Math.min(b, c));
+                    triangleBounds[offset + 3 + axis] = Math.max(a, Math.max(b, c));
+                }
+            }
+        }
+
+        // Строит поддерево треугольников order[start, end) с корнем в node. Правое поддерево разбирается
+        // в том же вызове, поэтому глубина рекурсии растет только по левым потомкам.
+        void build(int node, int start, int end, Bins bins) {
+            while (true) {
+                final int count = end - start;
+                final float[] centroidBounds = bins.centroidBounds;
+                computeNodeBounds(node, start, end, centroidBounds);
+                if (count == 1) {
+                    makeLeaf(node, start, count);
+                    return;
+                }
+
+                int middle = split(node, start, end, centroidBounds, bins);
+                if (middle < 0) {
+                    if (count <= MAX_LEAF_SIZE) {
+                        makeLeaf(node, start, count);
+                        return;
+                    }
+                    // все центры совпадают, делить по ним нечего: делим диапазон пополам, чтобы листья
+                    // оставались маленькими
+                    middle = start + count / 2;
+                }
+
+                final int left = node + 1;
+                final int right = node + 2 * (middle - start);
+                nodes[2 * node] = right;
+                nodes[2 * node + 1] = 0;
+                if (parallel && count > TRIANGLES_PER_TASK) {
+                    ForkJoinTask.invokeAll(new BuildTask(this, left, start, middle),
+                            new BuildTask(this, right, middle, end));
+                    return;
+                }
+                build(left, start, middle, bins);
+                node = right;
+                start = middle;
+            }
+        }
+
+        private void makeLeaf(int node, int start, int count) {
+            nodes[2 * node] = start;
+            nodes[2 * node + 1] = count;
+        }
+
+        // Пишет бокс узла и возвращает бокс центров треугольников в centroidBounds
+        private void computeNodeBounds(int node, int start, int end, float[] centroidBounds) {
+            final int offset = 6 * node;
+            for (int axis = 0; axis < 3; axis++) {
+                nodeBounds[offset + axis] = Float.POSITIVE_INFINITY;
+                nodeBounds[offset + 3 + axis] = Float.NEGATIVE_INFINITY;
+                centroidBounds[axis] = Float.POSITIVE_INFINITY;
+                centroidBounds[3 + axis] = Float.NEGATIVE_INFINITY;
+            }
+            for (int i = start; i < end; i++) {
+                final int triangle = 6 * order[i];
+                for (int axis = 0; axis < 3; axis++) {
+                    final float min = triangleBounds[triangle + axis];
+                    final float max = triangleBounds[triangle + 3 + axis];
+                    final float centroid = (min + max) / 2;
+                    nodeBounds[offset + axis] = Math.min(nodeBounds[offset + axis], min);
+                    nodeBounds[offset + 3 + axis] = Math.max(nodeBounds[offset + 3 + axis], max);
+                    centroidBounds[axis] = Math.min(centroidBounds[axis], centroid);
+                    centroidBounds[3 + axis] = Math.max(centroidBounds[3 + axis], centroid);
+                }
+            }
+        }
+
+        // Выбирает границу по SAH и переставляет order[start, end) так, чтобы левая часть шла первой.
+        // Возвращает начало правой части или -1, если делить не выгодно (для узлов до MAX_LEAF_SIZE)
+        // или нельзя (все центры в одной точке).
+        private int split(int node, int start, int end, float[] centroidBounds, Bins bins) {
+            final int[] counts = bins.counts;
+            final float[] binBounds = bins.bounds;
+            final float[] scales = bins.scales;
+            for (int axis = 0; axis < 3; axis++) {
+                final float extent = centroidBounds[3 + axis] - centroidBounds[axis];
+                // множитель чуть меньше BIN_COUNT, чтобы максимальный центр попал в последнюю корзину
+                scales[axis] = extent > 0 ? BIN_COUNT * (1 - 1e-6f) / extent : 0;
+            }
+            Arrays.fill(counts, 0);
+            for (int bin = 0; bin < 3 * BIN_COUNT; bin++) {
+                resetBounds(binBounds, bin);
+            }
+            for (int i = start; i < end; i++) {
+                final int triangle = 6 * order[i];
+                for (int axis = 0; axis < 3; axis++) {
+                    if (scales[axis] == 0) {
+                        continue;
+                    }
+                    final int bin = axis * BIN_COUNT + binOf(triangle, axis, centroidBounds[axis], scales[axis]);
+                    counts[bin]++;
+                    growBounds(binBounds, bin, triangleBounds, triangle);
+                }
+            }
+
+            final int count = end - start;
+            final float nodeArea = halfArea(nodeBounds, 6 * node);
+            // стоимость листа - проверка всех его треугольников
+            float bestCost = count <= MAX_LEAF_SIZE ? count : Float.POSITIVE_INFINITY;
+            int bestAxis = -1;
+            int bestSplit = 0;
+            final float[] sweep = bins.sweep;
+            for (int axis = 0; axis < 3; axis++) {
+                if (scales[axis] == 0) {
+                    continue;
+                }
+                final int base = axis * BIN_COUNT;
+                resetBounds(sweep, 0);
+                int rightCount = 0;
+                for (int bin = BIN_COUNT - 1; bin > 0; bin--) {
+                    if (counts[base + bin] > 0) {
+                        growBounds(sweep, 0, binBounds, 6 * (base + bin));
+                        rightCount += counts[base + bin];
+                    }
+                    bins.rightAreas[bin] = halfArea(sweep, 0);
+                    bins.rightCounts[bin] = rightCount;
+                }
+                resetBounds(sweep, 0);
+                int leftCount = 0;
+                for (int split = 1; split < BIN_COUNT; split++) {
+                    if (counts[base + split - 1] > 0) {
+                        growBounds(sweep, 0, binBounds, 6 * (base + split - 1));
+                        leftCount += counts[base + split - 1];
+                    }
+                    if (leftCount == 0 || bins.rightCounts[split] == 0) {
+                        continue;
+                    }
+                    final float cost = TRAVERSAL_COST + (halfArea(sweep, 0) * leftCount
+                            + bins.rightAreas[split] * bins.rightCounts[split]) / nodeArea;
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestSplit = split;
+                    }
+                }
+            }
+            if (bestAxis < 0) {
+                return -1;
+            }
+
+            // разбиение на месте: слева треугольники корзин до bestSplit
+            int i = start;
+            int j = end - 1;
+            while (i <= j) {
+                if (binOf(6 * order[i], bestAxis, centroidBounds[bestAxis], scales[bestAxis]) < bestSplit) {
+                    i++;
+                } else {
+                    final int swap = order[i];
+                    order[i] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            return i;
+        }
+
+        private int binOf(int triangle, int axis, float min, float scale) {
+            final float centroid = (triangleBounds[triangle + axis] + triangleBounds[triangle + 3 + axis]) / 2;
+            return Math.min(BIN_COUNT - 1, (int) ((centroid - min) * scale));
+        }
+
+        // Убирает пропуски: узлы перенумеровываются в порядке обхода в глубину, левый потомок остается
+        // сразу за родителем
+        Bvh compact(float[] triangles) {
+            final IntArrayList stack = new IntArrayList();
+            int nodeCount = 0;
+            int depth = 0;
+            // пары (узел, глубина)
+            stack.add(0);
+            stack.add(1);
+            while (!stack.isEmpty()) {
+                final int level = stack.removeLast();
+                final int node = stack.removeLast();
+                nodeCount++;
+                depth = Math.max(depth, level);
+                if (nodes[2 * node + 1] == 0) {
+                    stack.add(nodes[2 * node]);
+                    stack.add(level + 1);
+                    stack.add(node + 1);
+                    stack.add(level + 1);
+                }
+            }
+
+            final float[] compactBounds = new float[6 * nodeCount];
+            final int[] compactNodes = new int[2 * nodeCount];
+            // пары (старый узел, новый родитель, которому нужен номер правого потомка, или -1)
+            int next = 0;
+            stack.add(0);
+            stack.add(-1);
+            while (!stack.isEmpty()) {
+                final int parent = stack.removeLast();
+                final int node = stack.removeLast();
+                final int index = next++;
+                if (parent >= 0) {
+                    compactNodes[2 * parent] = index;
+                }
+                System.arraycopy(nodeBounds, 6 * node, compactBounds, 6 * index, 6);
+                compactNodes[2 * index] = nodes[2 * node];
+                compactNodes[2 * index + 1] = nodes[2 * node + 1];
+                if (nodes[2 * node + 1] == 0) {
+                    // правый кладется первым, чтобы левый получил следующий номер
+                    stack.add(nodes[2 * node]);
+                    stack.add(index);
+                    stack.add(node + 1);
+                    stack.add(-1);
+                }
+            }
+            return new Bvh(compactBounds, compactNodes, order, triangles, depth);
+        }
+    }
+
+    private static void resetBounds(float[] bounds, int box) {
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[6 * box + axis] = Float.POSITIVE_INFINITY;
+            bounds[6 * box + 3 + axis] = Float.NEGATIVE_INFINITY;
+        }
+    }
+
+    private static void growBounds(float[] bounds, int box, float[] source, int offset) {
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[6 * box + axis] = Math.min(bounds[6 * box + axis], source[offset + axis]);
+            bounds[6 * box + 3 + axis] = Math.max(bounds[6 * box + 3 + axis], source[offset + 3 + axis]);
+        }
+    }
+
+    // Половина площади поверхности бокса; для SAH важны только отношения площадей
+    private static float halfArea(float[] bounds, int offset) {
+        final float x = bounds[offset + 3] - bounds[offset];
+        final float y = bounds[offset + 4] - bounds[offset + 1];
+        final float z = bounds[offset + 5] - bounds[offset + 2];
+        if (x < 0) {
+            return 0;
+        }
+        return x * y + y * z + z * x;
+    }
+}
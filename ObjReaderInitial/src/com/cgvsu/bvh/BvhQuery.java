@@ -0,0 +1,60 @@
+package com.cgvsu.bvh;
+
+// Рабочее состояние и результат запроса к Bvh. Запросы к одному Bvh из разных потоков безопасны, если у каждого
+// потока свой BvhQuery. Объект переиспользуется между запросами, поэтому сами запросы памяти не выделяют
+// (стек обхода растет только при первом запросе к более глубокому дереву).
+public class BvhQuery {
+
+    // узлы, отложенные при обходе, и нижние оценки расстояния до них
+    int[] stack = new int[64];
+    float[] stackDistances = new float[64];
+
+    int triangle = -1;
+    float distance;
+    float u;
+    float v;
+    float x;
+    float y;
+    float z;
+
+    void prepare(int depth) {
+        if (stack.length <= depth) {
+            stack = new int[depth + 1];
+            stackDistances = new float[depth + 1];
+        }
+        triangle = -1;
+        distance = Float.POSITIVE_INFINITY;
+    }
+
+    // Номер найденного треугольника в исходной модели или -1, если ничего не найдено
+    public int getTriangle() {
+        return triangle;
+    }
+
+    // Для луча - параметр t точки пересечения (в длинах направления луча), для ближайшей точки - расстояние
+    public float getDistance() {
+        return distance;
+    }
+
+    // Барицентрические координаты точки пересечения луча: точка = (1 - u - v) * a + u * b + v * c
+    public float getU() {
+        return u;
+    }
+
+    public float getV() {
+        return v;
+    }
+
+    // Найденная точка: точка пересечения луча или ближайшая точка поверхности
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getZ() {
+        return z;
+    }
+}
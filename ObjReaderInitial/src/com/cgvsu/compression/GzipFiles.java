@@ -0,0 +1,36 @@
+package com.cgvsu.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+// Сжатые файлы узнаются по расширению: model.obj.gz
+public class GzipFiles {
+
+    public static final String EXTENSION = ".gz";
+
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+    public static boolean isCompressed(Path path) {
+        final Path fileName = path.getFileName();
+        return fileName != null && fileName.toString().toLowerCase(Locale.ROOT).endsWith(EXTENSION);
+    }
+
+    // Поток распакованных данных для сжатого файла и обычный поток для остальных.
+    // GZIPInputStream читает и файлы из нескольких склеенных gzip-потоков.
+    public static InputStream newInputStream(Path path) throws IOException {
+        final InputStream input = Files.newInputStream(path);
+        if (!isCompressed(path)) {
+            return input;
+        }
+        try {
+            return new GZIPInputStream(input, INPUT_BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.cgvsu.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Сжатие в gzip на нескольких потоках, как в pigz. Данные делятся на блоки, каждый блок сжимается отдельно
+// со словарем из последних 32 КБ предыдущего блока, поэтому степень сжатия почти та же, что у обычного gzip.
+// Блоки, кроме последнего, заканчиваются SYNC_FLUSH (выравнивание по байту без признака конца), и сжатые блоки
+// подряд образуют один обычный deflate-поток, который читает любой gzip.
+// Канал пишется из одного потока. close дописывает последний блок и заголовок конца gzip,
+// но целевой канал не закрывает.
+public class ParallelGzipOutputChannel implements WritableByteChannel {
+
+    // Как в pigz: блок 128 КБ
+    static final int DEFAULT_BLOCK_SIZE = 1 << 17;
+    // Окно deflate
+    private static final int DICTIONARY_SIZE = 1 << 15;
+    // Сколько блоков на поток может одновременно сжиматься или ждать записи
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+
+    // Заголовок gzip: deflate, без имени файла и времени, ОС неизвестна
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    // Deflater держит память вне кучи, поэтому создается один раз на поток и уровень сжатия и переиспользуется.
+    // Уровень не меняется через setLevel: новый уровень применился бы только после первого вызова deflate.
+    private static final ThreadLocal<Deflater[]> DEFLATERS =
+            ThreadLocal.withInitial(() -> new Deflater[Deflater.BEST_COMPRESSION + 2]);
+
+    private final WritableByteChannel target;
+    private final ForkJoinPool pool;
+    private final int level;
+    private final int blockSize;
+    private final int window;
+
+    private final ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+    private final ConcurrentLinkedQueue<byte[]> freeBlocks = new ConcurrentLinkedQueue<>();
+    // CRC32 несжатых данных считается в пишущем потоке: это на порядок быстрее сжатия
+    private final CRC32 crc = new CRC32();
+    private long uncompressedSize;
+
+    private byte[] block;
+    private int blockLength;
+    // последние DICTIONARY_SIZE байт предыдущего блока, null для первого блока
+    private byte[] dictionary;
+    private boolean headerWritten;
+    private boolean closed;
+
+    public ParallelGzipOutputChannel(WritableByteChannel target, ForkJoinPool pool) {
+        this(target, pool, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+
+    // pool - потоки для сжатия, null - сжатие в пишущем потоке
+    public ParallelGzipOutputChannel(WritableByteChannel target, ForkJoinPool pool, int level, int blockSize) {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Block size must be at least " + DICTIONARY_SIZE);
+        }
+        if (level != Deflater.DEFAULT_COMPRESSION
+                && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.target = target;
+        this.pool = pool;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.window = pool == null ? 1 : Math.max(2, pool.getParallelism() * BLOCKS_IN_FLIGHT_PER_THREAD);
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        final int written = source.remaining();
+        while (source.hasRemaining()) {
+            final int count = Math.min(source.remaining(), blockSize - blockLength);
+            source.get(block, blockLength, count);
+            blockLength += count;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // последний блок может быть пустым: признак конца deflate-потока нужен все равно
+            submitBlock(true);
+            while (!pending.isEmpty()) {
+                writeFully(getResult(pending.poll()));
+            }
+            final ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) crc.getValue());
+            trailer.putInt((int) uncompressedSize);
+            trailer.flip();
+            writeFully(trailer);
+        } finally {
+            for (Future<ByteBuffer> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        if (!headerWritten) {
+            writeFully(ByteBuffer.wrap(HEADER));
+            headerWritten = true;
+        }
+        final byte[] input = block;
+        final int length = blockLength;
+        final byte[] blockDictionary = dictionary;
+        crc.update(input, 0, length);
+        uncompressedSize += length;
+        // все блоки, кроме последнего, полные и не короче словаря
+        dictionary = last ? null : Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+
+        if (pool == null) {
+            writeFully(compress(input, length, blockDictionary, last));
+        } else {
+            // готовые блоки уходят в канал сразу, а при полном окне пишущий поток ждет самый старый
+            while (!pending.isEmpty() && (pending.size() >= window || pending.peek().isDone())) {
+                writeFully(getResult(pending.poll()));
+            }
+            pending.add(pool.submit(() -> compress(input, length, blockDictionary, last)));
+        }
+
+        final byte[] free = freeBlocks.poll();
+        block = free != null ? free : new byte[blockSize];
+        blockLength = 0;
+    }
+
+    private ByteBuffer compress(byte[] input, int length, byte[] blockDictionary, boolean last) {
+        final Deflater[] deflaters = DEFLATERS.get();
+        // DEFAULT_COMPRESSION равен -1
+        Deflater deflater = deflaters[level + 1];
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+            deflaters[level + 1] = deflater;
+        }
+        deflater.reset();
+        if (blockDictionary != null) {
+            deflater.setDictionary(blockDictionary);
+        }
+        deflater.setInput(input, 0, length);
+        if (last) {
+            deflater.finish();
+        }
+
+        // несжимаемые данные deflate увеличивает не больше чем на несколько байт на 16 КБ
+        byte[] output = new byte[length + (length >> 10) + 64];
+        int size = 0;
+        while (true) {
+            size += deflater.deflate(output, size, output.length - size,
+                    last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+            // SYNC_FLUSH закончен, если deflate не заполнил выходной буфер целиком
+            if (last ? deflater.finished() : size < output.length) {
+                break;
+            }
+            if (size == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+        }
+        freeBlocks.add(input);
+        return ByteBuffer.wrap(output, 0, size);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
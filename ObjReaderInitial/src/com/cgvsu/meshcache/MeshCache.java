@@ -0,0 +1,400 @@
+package com.cgvsu.meshcache;
+
+import com.cgvsu.model.MeshData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+// Двоичный кеш разобранного OBJ-файла, который лежит рядом с ним (model.obj -> model.obj.meshcache).
+// Файл кеша - это заголовок и сырые массивы MeshData в порядке little-endian: координаты, смещения граней,
+// индексы и, если сохранена, триангулированная модель. Повторное чтение - это отображение файла в память
+// и копирование массивов, без разбора текста.
+// Кеш считается устаревшим, если у исходного файла изменился размер, время изменения или хеш содержимого.
+public class MeshCache {
+
+    public static final String EXTENSION = ".meshcache";
+
+    private static final byte[] MAGIC = "OBJCACHE".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int FLAG_TRIANGULATED = 1;
+    // Заголовок с запасом под новые поля
+    private static final int HEADER_SIZE = 128;
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Массивы отображаются кусками: одно отображение не может быть больше 2 ГБ
+    private static final int MAP_CHUNK_SIZE = 1 << 30;
+
+    private final MeshData mesh;
+    private final MeshData triangulatedMesh;
+
+    private MeshCache(MeshData mesh, MeshData triangulatedMesh) {
+        this.mesh = mesh;
+        this.triangulatedMesh = triangulatedMesh;
+    }
+
+    public MeshData getMesh() {
+        return mesh;
+    }
+
+    // null, если триангулированная модель не сохранялась.
+    // Она ссылается на те же массивы вершин, что и getMesh().
+    public MeshData getTriangulatedMesh() {
+        return triangulatedMesh;
+    }
+
+    public static Path cachePath(Path source) {
+        return source.resolveSibling(source.getFileName() + EXTENSION);
+    }
+
+    // Возвращает null, если кеша нет, он устарел или поврежден
+    public static MeshCache load(Path source) throws IOException {
+        final Path path = cachePath(source);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+            Header fields = Header.read(header);
+            if (fields == null || fields.fileSize() != channel.size()) {
+                return null;
+            }
+            if (!fields.stamp.equals(SourceStamp.of(source))) {
+                return null;
+            }
+
+            long position = HEADER_SIZE;
+            float[] positions = new float[fields.positionCount];
+            position = readFloats(channel, position, positions);
+            float[] textureVertices = new float[fields.textureVertexCount];
+            position = readFloats(channel, position, textureVertices);
+            float[] normals = new float[fields.normalCount];
+            position = readFloats(channel, position, normals);
+            int[] faceOffsets = new int[fields.faceCount + 1];
+            position = readInts(channel, position, faceOffsets);
+            int[] vertexIndices = new int[fields.cornerCount];
+            position = readInts(channel, position, vertexIndices);
+            int[] textureVertexIndices = new int[fields.textureIndexCount];
+            position = readInts(channel, position, textureVertexIndices);
+            int[] normalIndices = new int[fields.normalIndexCount];
+            position = readInts(channel, position, normalIndices);
+            MeshData mesh = new MeshData(positions, textureVertices, normals,
+                    faceOffsets, vertexIndices, textureVertexIndices, normalIndices);
+
+            MeshData triangulatedMesh = null;
+            if ((fields.flags & FLAG_TRIANGULATED) != 0) {
+                int[] triangleVertexIndices = new int[fields.triangleCornerCount];
+                position = readInts(channel, position, triangleVertexIndices);
+                int[] triangleTextureVertexIndices = new int[fields.triangleTextureIndexCount];
+                position = readInts(channel, position, triangleTextureVertexIndices);
+                int[] triangleNormalIndices = new int[fields.triangleNormalIndexCount];
+                readInts(channel, position, triangleNormalIndices);
+                triangulatedMesh = new MeshData(positions, textureVertices, normals,
+                        MeshData.triangleFaceOffsets(fields.triangleCornerCount / 3),
+                        triangleVertexIndices, triangleTextureVertexIndices, triangleNormalIndices);
+            }
+            return new MeshCache(mesh, triangulatedMesh);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            // массивы не согласуются между собой: файл испорчен
+            return null;
+        }
+    }
+
+    public static void save(Path source, MeshData mesh, MeshData triangulatedMesh) throws IOException {
+        save(source, SourceStamp.of(source), mesh, triangulatedMesh);
+    }
+
+    // stamp снимается до чтения исходного файла: если файл изменится во время разбора,
+    // кеш сразу окажется устаревшим, а не запомнит старые данные под новой отметкой
+    public static void save(Path source, SourceStamp stamp, MeshData mesh, MeshData triangulatedMesh)
+            throws IOException {
+        if (triangulatedMesh != null && (triangulatedMesh.positions.length != mesh.positions.length
+                || triangulatedMesh.textureVertices.length != mesh.textureVertices.length
+                || triangulatedMesh.normals.length != mesh.normals.length
+                || !triangulatedMesh.allFacesAreTriangles())) {
+            throw new IllegalArgumentException("Triangulated mesh doesn't match the mesh");
+        }
+        final Path path = cachePath(source);
+        // Кеш пишется во временный файл и подменяется целиком, поэтому читатели
+        // в других процессах никогда не видят недописанный файл
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                new Header(stamp, mesh, triangulatedMesh).write(buffer);
+                writeFloats(channel, buffer, mesh.positions);
+                writeFloats(channel, buffer, mesh.textureVertices);
+                writeFloats(channel, buffer, mesh.normals);
+                writeInts(channel, buffer, mesh.faceOffsets);
+                writeInts(channel, buffer, mesh.vertexIndices);
+                writeInts(channel, buffer, mesh.textureVertexIndices);
+                writeInts(channel, buffer, mesh.normalIndices);
+                if (triangulatedMesh != null) {
+                    writeInts(channel, buffer, triangulatedMesh.vertexIndices);
+                    writeInts(channel, buffer, triangulatedMesh.textureVertexIndices);
+                    writeInts(channel, buffer, triangulatedMesh.normalIndices);
+                }
+                drain(channel, buffer);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static void delete(Path source) throws IOException {
+        Files.deleteIfExists(cachePath(source));
+    }
+
+    private static long readFloats(FileChannel channel, long position, float[] target) throws IOException {
+        int offset = 0;
+        while (offset < target.length) {
+            final int count = Math.min(target.length - offset, MAP_CHUNK_SIZE / Float.BYTES);
+            FloatBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            chunk.get(target, offset, count);
+            offset += count;
+            position += (long) count * Float.BYTES;
+        }
+        return position;
+    }
+
+    private static long readInts(FileChannel channel, long position, int[] target) throws IOException {
+        int offset = 0;
+        while (offset < target.length) {
+            final int count = Math.min(target.length - offset, MAP_CHUNK_SIZE / Integer.BYTES);
+            IntBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            chunk.get(target, offset, count);
+            offset += count;
+            position += (long) count * Integer.BYTES;
+        }
+        return position;
+    }
+
+    private static void writeFloats(FileChannel channel, ByteBuffer buffer, float[] values) throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            if (buffer.remaining() < Float.BYTES) {
+                drain(channel, buffer);
+            }
+            final int count = Math.min(values.length - offset, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Float.BYTES);
+            offset += count;
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            if (buffer.remaining() < Integer.BYTES) {
+                drain(channel, buffer);
+            }
+            final int count = Math.min(values.length - offset, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            offset += count;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Отметка исходного файла: размер, время изменения и хеш CRC32C содержимого.
+    // Большой файл хешируется не целиком, а по SAMPLE_COUNT равномерно разнесенным блокам, включая первый
+    // и последний: иначе проверка кеша читала бы весь файл, а кеш нужен как раз чтобы его не читать.
+    // Правку без изменения размера и времени изменения, не задевшую ни одного блока, такая проверка пропустит.
+    public static final class SourceStamp {
+
+        private static final int SAMPLE_COUNT = 64;
+        private static final int SAMPLE_SIZE = 1 << 16;
+
+        final long size;
+        final long modifiedMillis;
+        final long hash;
+
+        // Для отметок, сохраненных в других файлах рядом с исходным (например, в ObjIndex)
+        public SourceStamp(long size, long modifiedMillis, long hash) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.hash = hash;
+        }
+
+        public static SourceStamp of(Path source) throws IOException {
+            final long modifiedMillis = Files.getLastModifiedTime(source).toMillis();
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                final long size = channel.size();
+                CRC32C crc = new CRC32C();
+                ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_SIZE);
+                if (size <= (long) SAMPLE_COUNT * SAMPLE_SIZE) {
+                    hashRange(channel, 0, size, buffer, crc);
+                } else {
+                    final long step = (size - SAMPLE_SIZE) / (SAMPLE_COUNT - 1);
+                    for (int i = 0; i < SAMPLE_COUNT; i++) {
+                        final long start = i == SAMPLE_COUNT - 1 ? size - SAMPLE_SIZE : i * step;
+                        hashRange(channel, start, start + SAMPLE_SIZE, buffer, crc);
+                    }
+                }
+                return new SourceStamp(size, modifiedMillis, crc.getValue());
+            }
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModifiedMillis() {
+            return modifiedMillis;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        private static void hashRange(FileChannel channel, long from, long to, ByteBuffer buffer, CRC32C crc)
+                throws IOException {
+            long position = from;
+            while (position < to) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), to - position));
+                final int read = channel.read(buffer, position);
+                if (read < 0) {
+                    // файл укоротили во время чтения: хеш все равно не совпадет с новой отметкой
+                    return;
+                }
+                buffer.flip();
+                crc.update(buffer);
+                position += read;
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SourceStamp)) {
+                return false;
+            }
+            SourceStamp stamp = (SourceStamp) other;
+            return size == stamp.size && modifiedMillis == stamp.modifiedMillis && hash == stamp.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 * 31 + Long.hashCode(modifiedMillis) * 31 + Long.hashCode(hash);
+        }
+    }
+
+    // Поля заголовка. Размеры массивов - в элементах.
+    private static final class Header {
+        final int flags;
+        final SourceStamp stamp;
+        final int positionCount;
+        final int textureVertexCount;
+        final int normalCount;
+        final int faceCount;
+        final int cornerCount;
+        final int textureIndexCount;
+        final int normalIndexCount;
+        final int triangleCornerCount;
+        final int triangleTextureIndexCount;
+        final int triangleNormalIndexCount;
+
+        Header(SourceStamp stamp, MeshData mesh, MeshData triangulatedMesh) {
+            this.flags = triangulatedMesh == null ? 0 : FLAG_TRIANGULATED;
+            this.stamp = stamp;
+            this.positionCount = mesh.positions.length;
+            this.textureVertexCount = mesh.textureVertices.length;
+            this.normalCount = mesh.normals.length;
+            this.faceCount = mesh.getFaceCount();
+            this.cornerCount = mesh.vertexIndices.length;
+            this.textureIndexCount = mesh.textureVertexIndices.length;
+            this.normalIndexCount = mesh.normalIndices.length;
+            this.triangleCornerCount = triangulatedMesh == null ? 0 : triangulatedMesh.vertexIndices.length;
+            this.triangleTextureIndexCount =
+                    triangulatedMesh == null ? 0 : triangulatedMesh.textureVertexIndices.length;
+            this.triangleNormalIndexCount = triangulatedMesh == null ? 0 : triangulatedMesh.normalIndices.length;
+        }
+
+        private Header(ByteBuffer buffer) {
+            this.flags = buffer.getInt();
+            this.stamp = new SourceStamp(buffer.getLong(), buffer.getLong(), buffer.getLong());
+            this.positionCount = buffer.getInt();
+            this.textureVertexCount = buffer.getInt();
+            this.normalCount = buffer.getInt();
+            this.faceCount = buffer.getInt();
+            this.cornerCount = buffer.getInt();
+            this.textureIndexCount = buffer.getInt();
+            this.normalIndexCount = buffer.getInt();
+            this.triangleCornerCount = buffer.getInt();
+            this.triangleTextureIndexCount = buffer.getInt();
+            this.triangleNormalIndexCount = buffer.getInt();
+        }
+
+        // null, если это не файл кеша или кеш другой версии
+        static Header read(ByteBuffer buffer) {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || buffer.getInt() != VERSION) {
+                return null;
+            }
+            Header header = new Header(buffer);
+            if (header.positionCount < 0 || header.textureVertexCount < 0 || header.normalCount < 0
+                    || header.faceCount < 0 || header.faceCount == Integer.MAX_VALUE || header.cornerCount < 0
+                    || header.textureIndexCount < 0 || header.normalIndexCount < 0
+                    || header.triangleCornerCount < 0 || header.triangleCornerCount % 3 != 0
+                    || header.triangleTextureIndexCount < 0 || header.triangleNormalIndexCount < 0) {
+                return null;
+            }
+            return header;
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(flags);
+            buffer.putLong(stamp.size);
+            buffer.putLong(stamp.modifiedMillis);
+            buffer.putLong(stamp.hash);
+            buffer.putInt(positionCount);
+            buffer.putInt(textureVertexCount);
+            buffer.putInt(normalCount);
+            buffer.putInt(faceCount);
+            buffer.putInt(cornerCount);
+            buffer.putInt(textureIndexCount);
+            buffer.putInt(normalIndexCount);
+            buffer.putInt(triangleCornerCount);
+            buffer.putInt(triangleTextureIndexCount);
+            buffer.putInt(triangleNormalIndexCount);
+            while (buffer.position() < HEADER_SIZE) {
+                buffer.put((byte) 0);
+            }
+        }
+
+        long fileSize() {
+            final long floats = (long) positionCount + textureVertexCount + normalCount;
+            final long ints = (long) faceCount + 1 + cornerCount + textureIndexCount + normalIndexCount
+                    + triangleCornerCount + triangleTextureIndexCount + triangleNormalIndexCount;
+            return HEADER_SIZE + floats * Float.BYTES + ints * Integer.BYTES;
+        }
+    }
+}
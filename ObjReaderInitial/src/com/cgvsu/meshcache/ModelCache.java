@@ -0,0 +1,420 @@
+package com.cgvsu.meshcache;
+
+import com.cgvsu.meshcache.MeshCache.SourceStamp;
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.model.TriangulatedModel;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objreader.ParallelObjReader;
+import com.cgvsu.triangulation.ModelTriangulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Кеш разобранных и триангулированных моделей в памяти процесса для долгоживущего сервиса.
+// Ключ - путь, отметка содержимого файла (SourceStamp) и вид результата, поэтому измененный файл
+// загружается заново. Одновременные запросы одного ключа ждут одну загрузку, а не разбирают файл каждый сам.
+// Записи вытесняются по политике Policy, пока оценка занятой памяти больше бюджета.
+// Модели из кеша общие для всех потоков: изменять их нельзя.
+public class ModelCache {
+
+    public enum Policy {
+        // вытесняется запись, к которой дольше всего не обращались
+        LRU,
+        // вытесняется запись с наименьшим числом обращений, при равенстве - самая давняя
+        LFU
+    }
+
+    private enum Form {
+        MODEL,
+        TRIANGULATED_MODEL,
+        MESH,
+        TRIANGULATED_MESH
+    }
+
+    // Оценки размеров объектов для 64-битной JVM со сжатыми указателями
+    private static final long OBJECT_HEADER_BYTES = 16;
+    private static final long REFERENCE_BYTES = 4;
+    private static final long VECTOR_BYTES = 24;
+    private static final long INTEGER_BYTES = 16;
+    private static final long ARRAY_LIST_BYTES = 24 + OBJECT_HEADER_BYTES;
+    private static final long POLYGON_BYTES = 24 + 3 * ARRAY_LIST_BYTES;
+
+    private final long budgetBytes;
+    private final Policy policy;
+    private final ForkJoinPool pool;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    // Последняя отметка каждого файла: хеш содержимого пересчитывается, только если изменились размер
+    // или время изменения, поэтому попадание в кеш стоит одного чтения атрибутов файла
+    private final ConcurrentHashMap<Path, SourceStamp> stamps = new ConcurrentHashMap<>();
+    // часы для LRU: номер последнего обращения
+    private final AtomicLong clock = new AtomicLong();
+
+    // Защищено this
+    private long weightBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong loadFailureCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong evictedBytes = new AtomicLong();
+
+    public ModelCache(long budgetBytes) {
+        this(budgetBytes, Policy.LRU, null);
+    }
+
+    // pool - потоки для разбора и триангуляции, null - загрузка в вызывающем потоке
+    public ModelCache(long budgetBytes, Policy policy, ForkJoinPool pool) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("Budget must be non-negative");
+        }
+        this.budgetBytes = budgetBytes;
+        this.policy = policy;
+        this.pool = pool;
+    }
+
+    public Model getModel(Path path) throws IOException {
+        return (Model) get(path, Form.MODEL);
+    }
+
+    // Триангуляция веером. Исходная модель тоже остается в кеше, вершины у них общие:
+    // пока исходная модель в кеше, вершины учтены в ее весе, а вытесняются обе записи вместе.
+    public TriangulatedModel getTriangulatedModel(Path path) throws IOException {
+        return (TriangulatedModel) get(path, Form.TRIANGULATED_MODEL);
+    }
+
+    public MeshData getMesh(Path path) throws IOException {
+        return (MeshData) get(path, Form.MESH);
+    }
+
+    public MeshData getTriangulatedMesh(Path path) throws IOException {
+        return (MeshData) get(path, Form.TRIANGULATED_MESH);
+    }
+
+    // Убирает все записи файла. Загрузки, которые уже идут, завершатся, но в кеше не останутся.
+    public synchronized void invalidate(Path path) {
+        final Path normalized = path.toAbsolutePath().normalize();
+        stamps.remove(normalized);
+        entries.values().removeIf(entry -> entry.key.path.equals(normalized) && release(entry));
+    }
+
+    public synchronized void clear() {
+        stamps.clear();
+        entries.values().removeIf(this::release);
+    }
+
+    public synchronized ModelCacheStatistics getStatistics() {
+        int residentCount = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.resident) {
+                residentCount++;
+            }
+        }
+        return new ModelCacheStatistics(hitCount.get(), missCount.get(), coalescedCount.get(),
+                loadFailureCount.get(), evictionCount.get(), evictedBytes.get(), residentCount,
+                weightBytes, budgetBytes);
+    }
+
+    private Object get(Path path, Form form) throws IOException {
+        final Path normalized = path.toAbsolutePath().normalize();
+        final Key key = new Key(normalized, stamp(normalized), form);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final Entry created = new Entry(key);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                missCount.incrementAndGet();
+                created.touch(clock.incrementAndGet());
+                return load(created);
+            }
+        }
+        if (entry.value.isDone()) {
+            hitCount.incrementAndGet();
+        } else {
+            coalescedCount.incrementAndGet();
+        }
+        entry.touch(clock.incrementAndGet());
+        return await(entry);
+    }
+
+    private SourceStamp stamp(Path path) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        SourceStamp stamp = stamps.get(path);
+        if (stamp != null && stamp.getSize() == attributes.size()
+                && stamp.getModifiedMillis() == attributes.lastModifiedTime().toMillis()) {
+            return stamp;
+        }
+        stamp = SourceStamp.of(path);
+        stamps.put(path, stamp);
+        return stamp;
+    }
+
+    // Загрузка идет вне блокировок: другие ключи в это время читаются и загружаются независимо
+    private Object load(Entry entry) throws IOException {
+        final Path path = entry.key.path;
+        final Object value;
+        final long weight;
+        // данные, общие с исходной записью source, и их вес
+        Entry source = null;
+        long sharedWeight = 0;
+        try {
+            switch (entry.key.form) {
+                case MODEL -> {
+                    final Model model = pool == null ? ObjReader.read(path) : ParallelObjReader.read(path, pool);
+                    value = model;
+                    weight = estimateBytes(model, true);
+                }
+                case TRIANGULATED_MODEL -> {
+                    final Model model = getModel(path);
+                    final TriangulatedModel triangulated = pool == null
+                            ? ModelTriangulator.triangulate(model)
+                            : ModelTriangulator.triangulate(model, pool);
+                    value = triangulated;
+                    // вершины те же объекты, что и в исходной модели: считаются только ссылки на них
+                    weight = estimateBytes(triangulated, false);
+                    sharedWeight = estimateBytes(triangulated, true) - weight;
+                    source = entries.get(new Key(path, entry.key.stamp, Form.MODEL));
+                }
+                case MESH -> {
+                    final MeshData mesh = pool == null
+                            ? ObjReader.readMesh(path)
+                            : ParallelObjReader.readMesh(path, pool);
+                    value = mesh;
+                    weight = estimateBytes(mesh, true);
+                }
+                default -> {
+                    final MeshData mesh = getMesh(path);
+                    final MeshData triangulated = pool == null
+                            ? ModelTriangulator.triangulate(mesh)
+                            : ModelTriangulator.triangulate(mesh, pool);
+                    value = triangulated;
+                    weight = estimateBytes(triangulated, false);
+                    sharedWeight = estimateBytes(triangulated, true) - weight;
+                    if (triangulated.positions == mesh.positions) {
+                        source = entries.get(new Key(path, entry.key.stamp, Form.MESH));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            // неудачная загрузка не кешируется: следующий запрос попробует снова
+            loadFailureCount.incrementAndGet();
+            entries.remove(entry.key, entry);
+            entry.value.completeExceptionally(e);
+            throw e;
+        }
+        entry.value.complete(value);
+        admit(entry, weight, source, sharedWeight);
+        return value;
+    }
+
+    private static Object await(Entry entry) throws IOException {
+        try {
+            return entry.value.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a model to load", e);
+        } catch (ExecutionException e) {
+            // исключение загрузившего потока передается всем, кто ее ждал
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // source - запись, с которой у новой общие данные весом sharedWeight. Если source уже нет в кеше,
+    // общие данные учитываются в весе новой записи.
+    private synchronized void admit(Entry entry, long weight, Entry source, long sharedWeight) {
+        // запись успели убрать через invalidate или clear, пока шла загрузка
+        if (entries.get(entry.key) != entry) {
+            return;
+        }
+        // результаты для прежнего содержимого файла больше никто не запросит
+        for (Entry other : entries.values()) {
+            if (other.key.form == entry.key.form && other.key.path.equals(entry.key.path)
+                    && !other.key.stamp.equals(entry.key.stamp)) {
+                remove(other, false);
+            }
+        }
+
+        if (source != null && source.resident && entries.get(source.key) == source) {
+            entry.source = source;
+        } else {
+            weight += sharedWeight;
+        }
+        if (weight > budgetBytes) {
+            // модель больше всего бюджета не вытесняет остальные, а сразу уходит из кеша
+            entries.remove(entry.key, entry);
+            evictionCount.incrementAndGet();
+            evictedBytes.addAndGet(weight);
+            return;
+        }
+        entry.weight = weight;
+        entry.resident = true;
+        weightBytes += weight;
+        while (weightBytes > budgetBytes) {
+            final Entry victim = selectVictim(entry);
+            // кроме новой записи и ее источника в кеше ничего нет, а вместе они больше бюджета:
+            // источник вытесняется и уводит за собой новую запись
+            remove(victim != null ? victim : entry.source, true);
+        }
+    }
+
+    // Убирает запись вместе с зависимыми от нее: иначе общие с ней данные остались бы в памяти без учета
+    private void remove(Entry entry, boolean evicted) {
+        entries.remove(entry.key, entry);
+        final boolean wasResident = entry.resident;
+        release(entry);
+        if (evicted && wasResident) {
+            evictionCount.incrementAndGet();
+            evictedBytes.addAndGet(entry.weight);
+        }
+        for (Entry dependent : entries.values()) {
+            if (dependent.source == entry) {
+                remove(dependent, evicted);
+            }
+        }
+    }
+
+    // Перебор всех записей: моделей в кеше десятки или сотни, а вытеснение редкое по сравнению с загрузкой.
+    // Только что загруженная запись не вытесняет сама себя, иначе при LFU новые модели никогда бы не оставались.
+    // По той же причине не вытесняется и ее источник. null - вытеснять больше нечего.
+    private Entry selectVictim(Entry admitted) {
+        Entry victim = null;
+        for (Entry entry : entries.values()) {
+            if (!entry.resident || entry == admitted || entry == admitted.source) {
+                continue;
+            }
+            if (victim == null) {
+                victim = entry;
+                continue;
+            }
+            final boolean older = entry.lastAccess < victim.lastAccess;
+            if (policy == Policy.LRU) {
+                if (older) {
+                    victim = entry;
+                }
+            } else {
+                final long hits = entry.accessCount.get();
+                final long victimHits = victim.accessCount.get();
+                if (hits < victimHits || (hits == victimHits && older)) {
+                    victim = entry;
+                }
+            }
+        }
+        return victim;
+    }
+
+    // Вычитает вес записи, если она была учтена. Всегда возвращает true, чтобы использоваться в removeIf.
+    private boolean release(Entry entry) {
+        if (entry.resident) {
+            entry.resident = false;
+            weightBytes -= entry.weight;
+        }
+        return true;
+    }
+
+    static long estimateBytes(MeshData mesh, boolean countVertices) {
+        long bytes = OBJECT_HEADER_BYTES + 7 * REFERENCE_BYTES;
+        if (countVertices) {
+            bytes += arrayBytes(mesh.positions.length) + arrayBytes(mesh.textureVertices.length)
+                    + arrayBytes(mesh.normals.length);
+        }
+        return bytes + arrayBytes(mesh.faceOffsets.length) + arrayBytes(mesh.vertexIndices.length)
+                + arrayBytes(mesh.textureVertexIndices.length) + arrayBytes(mesh.normalIndices.length);
+    }
+
+    static long estimateBytes(Model model, boolean countVertices) {
+        final long elementCount = model.vertices.size() + model.textureVertices.size() + model.normals.size();
+        long bytes = OBJECT_HEADER_BYTES + 4 * (ARRAY_LIST_BYTES + REFERENCE_BYTES)
+                + REFERENCE_BYTES * (elementCount + model.polygons.size());
+        if (countVertices) {
+            bytes += VECTOR_BYTES * elementCount;
+        }
+        for (Polygon polygon : model.polygons) {
+            bytes += POLYGON_BYTES + indexListBytes(polygon.getVertexIndices())
+                    + indexListBytes(polygon.getTextureVertexIndices()) + indexListBytes(polygon.getNormalIndices());
+        }
+        return bytes;
+    }
+
+    private static long indexListBytes(ArrayList<Integer> indices) {
+        long bytes = OBJECT_HEADER_BYTES + REFERENCE_BYTES * indices.size();
+        for (Integer index : indices) {
+            // Integer.valueOf кеширует значения от -128 до 127
+            if (index < -128 || index > 127) {
+                bytes += INTEGER_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    private static long arrayBytes(int length) {
+        return OBJECT_HEADER_BYTES + 4L * length;
+    }
+
+    private static final class Key {
+        final Path path;
+        final SourceStamp stamp;
+        final Form form;
+
+        Key(Path path, SourceStamp stamp, Form form) {
+            this.path = path;
+            this.stamp = stamp;
+            this.form = form;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return form == key.form && path.equals(key.path) && stamp.equals(key.stamp);
+        }
+
+        @Override
+        public int hashCode() {
+            return (path.hashCode() * 31 + stamp.hashCode()) * 31 + form.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final CompletableFuture<Object> value = new CompletableFuture<>();
+        final AtomicLong accessCount = new AtomicLong();
+        volatile long lastAccess;
+        // Вес учтен в weightBytes. Поля ниже защищены ModelCache.this.
+        boolean resident;
+        long weight;
+        // запись, вес общих данных с которой учтен в ней, а не здесь
+        Entry source;
+
+        Entry(Key key) {
+            this.key = key;
+        }
+
+        void touch(long time) {
+            lastAccess = time;
+            accessCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.cgvsu.meshcache;
+
+import java.util.Locale;
+
+// Снимок счетчиков ModelCache. Счетчики снимаются по одному, поэтому при одновременных запросах
+// они могут немного не согласовываться между собой.
+public class ModelCacheStatistics {
+    private final long hitCount;
+    private final long missCount;
+    private final long coalescedCount;
+    private final long loadFailureCount;
+    private final long evictionCount;
+    private final long evictedBytes;
+    private final int entryCount;
+    private final long weightBytes;
+    private final long budgetBytes;
+
+    ModelCacheStatistics(long hitCount, long missCount, long coalescedCount, long loadFailureCount,
+                         long evictionCount, long evictedBytes, int entryCount, long weightBytes, long budgetBytes) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.coalescedCount = coalescedCount;
+        this.loadFailureCount = loadFailureCount;
+        this.evictionCount = evictionCount;
+        this.evictedBytes = evictedBytes;
+        this.entryCount = entryCount;
+        this.weightBytes = weightBytes;
+        this.budgetBytes = budgetBytes;
+    }
+
+    // Запросы, получившие уже загруженную модель
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    // Запросы, которые сами загружали модель
+    public long getMissCount() {
+        return missCount;
+    }
+
+    // Запросы, которые дождались загрузки, начатой другим потоком
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    // Вытесненные записи, включая модели больше всего бюджета, которые не остались в кеше вовсе
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEvictedBytes() {
+        return evictedBytes;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    // Оценка памяти, занятой моделями в кеше
+    public long getWeightBytes() {
+        return weightBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public double getHitRate() {
+        final long requests = hitCount + missCount + coalescedCount;
+        return requests == 0 ? 0 : (double) (hitCount + coalescedCount) / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%d hits, %d misses, %d coalesced, %d failures, %d evictions (%d bytes), %d entries, %d/%d bytes",
+                hitCount, missCount, coalescedCount, loadFailureCount, evictionCount, evictedBytes,
+                entryCount, weightBytes, budgetBytes);
+    }
+}
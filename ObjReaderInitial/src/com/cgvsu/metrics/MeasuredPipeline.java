@@ -0,0 +1,63 @@
+package com.cgvsu.metrics;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.TriangulatedModel;
+import com.cgvsu.objreader.ParallelObjReader;
+import com.cgvsu.objwriter.ParallelObjWriter;
+import com.cgvsu.triangulation.ModelTriangulator;
+import com.cgvsu.validation.IndexValidator;
+import com.cgvsu.validation.ValidationReport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+// Стадии обработки модели с замерами в PipelineMetrics: те же вызовы, что и без замеров, и пара begin/end вокруг.
+// Если стадия упала, замер не записывается.
+public class MeasuredPipeline {
+
+    public static Model read(Path path, PipelineMetrics metrics) throws IOException {
+        return read(path, ForkJoinPool.commonPool(), metrics);
+    }
+
+    public static Model read(Path path, ForkJoinPool pool, PipelineMetrics metrics) throws IOException {
+        metrics.begin(PipelineMetrics.Stage.PARSE, pool);
+        final Model model = ParallelObjReader.read(path, pool);
+        metrics.end(PipelineMetrics.Stage.PARSE, Files.size(path), model.polygons.size());
+        return model;
+    }
+
+    public static TriangulatedModel triangulate(Model model, PipelineMetrics metrics) {
+        return triangulate(model, ForkJoinPool.commonPool(), metrics);
+    }
+
+    // Гранями стадии считаются исходные полигоны
+    public static TriangulatedModel triangulate(Model model, ForkJoinPool pool, PipelineMetrics metrics) {
+        metrics.begin(PipelineMetrics.Stage.TRIANGULATE, pool);
+        final TriangulatedModel triangulated = ModelTriangulator.triangulate(model, pool);
+        metrics.end(PipelineMetrics.Stage.TRIANGULATE, 0, model.polygons.size());
+        return triangulated;
+    }
+
+    public static ValidationReport validate(Model model, PipelineMetrics metrics) {
+        return validate(model, ForkJoinPool.commonPool(), metrics);
+    }
+
+    public static ValidationReport validate(Model model, ForkJoinPool pool, PipelineMetrics metrics) {
+        metrics.begin(PipelineMetrics.Stage.VALIDATE, pool);
+        final ValidationReport report = IndexValidator.validate(model, IndexValidator.DEFAULT_MAX_VIOLATIONS, pool);
+        metrics.end(PipelineMetrics.Stage.VALIDATE, 0, model.polygons.size());
+        return report;
+    }
+
+    public static void write(Model model, Path path, PipelineMetrics metrics) throws IOException {
+        write(model, path, ForkJoinPool.commonPool(), metrics);
+    }
+
+    public static void write(Model model, Path path, ForkJoinPool pool, PipelineMetrics metrics) throws IOException {
+        metrics.begin(PipelineMetrics.Stage.WRITE, pool);
+        ParallelObjWriter.write(model, path, pool);
+        metrics.end(PipelineMetrics.Stage.WRITE, Files.size(path), model.polygons.size());
+    }
+}
@@ -0,0 +1,35 @@
+package com.cgvsu.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Событие JFR для одной стадии PipelineMetrics. Длительность - от begin до end стадии.
+// В записи включается как любое событие: jfr configure или настройка com.cgvsu.ObjStage в .jfc
+@Name("com.cgvsu.ObjStage")
+@Label("OBJ Pipeline Stage")
+@Category("OBJ")
+@Description("Parse, triangulation, validation or write of one OBJ model")
+@StackTrace(false)
+class ObjStageEvent extends jdk.jfr.Event {
+
+    @Label("Model")
+    String model;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Faces")
+    long elements;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,244 @@
+package com.cgvsu.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Время, объем данных, выделенная память и пиковая куча по стадиям обработки одной модели.
+// Замер - это пара begin/end вокруг вызова ObjReader, ModelTriangulator или ObjWriter.
+// Каждая стадия замеряется из одного потока (begin и end в одном потоке), разные стадии - из разных.
+// Стадия без пула (begin с pool == null) идет в вызывающем потоке, и выделенная память читается только у него:
+// два System.nanoTime и два чтения счетчика текущего потока, без выделений - такие замеры можно держать
+// включенными всегда.
+// Стадия на пуле выделяет память в его потоках, а в JDK 17 нет счетчика на весь процесс, поэтому begin и end
+// читают счетчики всех живых потоков: это O(числа потоков), и каждый конец выделяет несколько массивов
+// по числу потоков - они сами попадают в замер (сотни байт при десятках потоков). Если стадии идут одновременно,
+// в каждую попадает память и другой, а память потока, завершившегося внутри стадии, теряется.
+// Если задан jfrEvents, end дополнительно пишет событие ObjStageEvent - оно стоит чего-то,
+// только когда идет запись JFR с включенным событием com.cgvsu.ObjStage.
+public class PipelineMetrics {
+
+    public enum Stage {
+        PARSE, TRIANGULATE, VALIDATE, WRITE
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    // null, если JVM не считает выделенную память потоков
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final String modelName;
+    private final boolean jfrEvents;
+
+    private final int[] counts = new int[STAGES.length];
+    private final long[] nanos = new long[STAGES.length];
+    private final long[] bytes = new long[STAGES.length];
+    private final long[] elements = new long[STAGES.length];
+    private final long[] allocatedBytes = new long[STAGES.length];
+    private final long[] startNanos = new long[STAGES.length];
+    // память, выделенная вызывающим потоком к begin, для стадий без пула; иначе -1
+    private final long[] startThreadAllocatedBytes = new long[STAGES.length];
+    // потоки на begin по возрастанию номеров и выделенная ими к тому моменту память
+    private final long[][] startThreadIds = new long[STAGES.length][];
+    private final long[][] startAllocatedBytes = new long[STAGES.length][];
+    private final ObjStageEvent[] events = new ObjStageEvent[STAGES.length];
+    // стадии могут заканчиваться в разных потоках одновременно
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+
+    public PipelineMetrics(String modelName) {
+        this(modelName, false);
+    }
+
+    public PipelineMetrics(String modelName, boolean jfrEvents) {
+        this.modelName = modelName;
+        this.jfrEvents = jfrEvents;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    // Стадия, которая может работать на потоках пула: память считается по всем потокам
+    public void begin(Stage stage) {
+        begin(stage, ForkJoinPool.commonPool());
+    }
+
+    // pool - пул, на котором идет стадия; null - стадия целиком в вызывающем потоке
+    public void begin(Stage stage, ForkJoinPool pool) {
+        final int index = stage.ordinal();
+        if (jfrEvents) {
+            final ObjStageEvent event = new ObjStageEvent();
+            event.begin();
+            events[index] = event;
+        }
+        startThreadAllocatedBytes[index] = -1;
+        startThreadIds[index] = null;
+        if (THREADS != null && pool == null) {
+            startThreadAllocatedBytes[index] = THREADS.getCurrentThreadAllocatedBytes();
+        } else if (THREADS != null) {
+            final long[] threadIds = THREADS.getAllThreadIds();
+            Arrays.sort(threadIds);
+            startThreadIds[index] = threadIds;
+            startAllocatedBytes[index] = THREADS.getThreadAllocatedBytes(threadIds);
+        }
+        startNanos[index] = System.nanoTime();
+    }
+
+    // bytes - прочитанные или записанные байты, elements - обработанные грани (0, если неизвестно)
+    public void end(Stage stage, long bytes, long elements) {
+        final long now = System.nanoTime();
+        final int index = stage.ordinal();
+        final long allocated = startThreadAllocatedBytes[index] >= 0
+                ? THREADS.getCurrentThreadAllocatedBytes() - startThreadAllocatedBytes[index]
+                : allocatedSince(startThreadIds[index], startAllocatedBytes[index]);
+        counts[index]++;
+        nanos[index] += now - startNanos[index];
+        this.bytes[index] += bytes;
+        this.elements[index] += elements;
+        this.allocatedBytes[index] += allocated;
+        updatePeakHeap();
+
+        final ObjStageEvent event = events[index];
+        if (event != null) {
+            events[index] = null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.model = modelName;
+                event.stage = stage.name();
+                event.bytes = bytes;
+                event.elements = elements;
+                event.allocatedBytes = allocated;
+                event.commit();
+            }
+        }
+    }
+
+    public int getCount(Stage stage) {
+        return counts[stage.ordinal()];
+    }
+
+    public long getNanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public long getBytes(Stage stage) {
+        return bytes[stage.ordinal()];
+    }
+
+    public long getElements(Stage stage) {
+        return elements[stage.ordinal()];
+    }
+
+    // Память, выделенная за время стадии (см. begin); -1, если JVM не считает выделенную память потоков
+    public long getAllocatedBytes(Stage stage) {
+        return THREADS == null ? -1 : allocatedBytes[stage.ordinal()];
+    }
+
+    public double getBytesPerSecond(Stage stage) {
+        return perSecond(bytes[stage.ordinal()], nanos[stage.ordinal()]);
+    }
+
+    public double getElementsPerSecond(Stage stage) {
+        return perSecond(elements[stage.ordinal()], nanos[stage.ordinal()]);
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long stageNanos : nanos) {
+            total += stageNanos;
+        }
+        return total;
+    }
+
+    // Наибольшая занятая куча на концах стадий. Модель к концу стадии еще в памяти, поэтому это близко
+    // к настоящему пику, но мусор, собранный внутри стадии, сюда не попадает.
+    public long getPeakHeapBytes() {
+        return peakHeapBytes.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < STAGES.length; i++) {
+            counts[i] = 0;
+            nanos[i] = 0;
+            bytes[i] = 0;
+            elements[i] = 0;
+            allocatedBytes[i] = 0;
+            events[i] = null;
+        }
+        peakHeapBytes.set(0);
+    }
+
+    private static double perSecond(long amount, long nanos) {
+        return nanos == 0 ? 0 : amount * 1e9 / nanos;
+    }
+
+    // Сумма прироста по потокам, живым на end. Поток, появившийся после begin, выделил все свое за стадию.
+    private static long allocatedSince(long[] startIds, long[] startBytes) {
+        if (THREADS == null || startIds == null) {
+            return 0;
+        }
+        final long[] threadIds = THREADS.getAllThreadIds();
+        final long[] allocated = THREADS.getThreadAllocatedBytes(threadIds);
+        long total = 0;
+        for (int i = 0; i < threadIds.length; i++) {
+            // -1 - поток завершился между двумя вызовами
+            if (allocated[i] < 0) {
+                continue;
+            }
+            final int start = Arrays.binarySearch(startIds, threadIds[i]);
+            total += allocated[i] - (start >= 0 && startBytes[start] > 0 ? startBytes[start] : 0);
+        }
+        return total;
+    }
+
+    // Занятая куча читается без MemoryMXBean: Runtime не создает объектов
+    private void updatePeakHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        final long used = runtime.totalMemory() - runtime.freeMemory();
+        peakHeapBytes.accumulateAndGet(used, Math::max);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported()) {
+                if (!threads.isThreadAllocatedMemoryEnabled()) {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                }
+                return threads;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // без счетчика выделенной памяти замеры времени все равно работают
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(modelName).append(":\n");
+        for (Stage stage : STAGES) {
+            final int index = stage.ordinal();
+            if (counts[index] == 0) {
+                continue;
+            }
+            result.append(String.format(Locale.US, "  %-11s %10.3f ms", stage.name().toLowerCase(Locale.ROOT),
+                    nanos[index] / 1e6));
+            if (bytes[index] != 0) {
+                result.append(String.format(Locale.US, ", %,d bytes (%.1f MB/s)", bytes[index],
+                        getBytesPerSecond(stage) / (1 << 20)));
+            }
+            if (elements[index] != 0) {
+                result.append(String.format(Locale.US, ", %,d faces (%,.0f faces/s)", elements[index],
+                        getElementsPerSecond(stage)));
+            }
+            if (THREADS != null) {
+                result.append(String.format(Locale.US, ", %,d bytes allocated", allocatedBytes[index]));
+            }
+            result.append('\n');
+        }
+        result.append(String.format(Locale.US, "  total       %10.3f ms, peak heap %,d bytes%n",
+                getTotalNanos() / 1e6, peakHeapBytes.get()));
+        return result.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package com.cgvsu.model;
+
+// Доступ к модели на примитивах, независимо от того, где лежат ее данные: в куче (MeshData) или вне ее (OffHeapMesh).
+// Координаты адресуются плоско: у вершины i компоненты x, y, z лежат по индексам 3i, 3i+1, 3i+2.
+// Углы граней адресуются типом long, чтобы модели больше 2^31 углов тоже помещались.
+public interface Mesh {
+
+    int getVertexCount();
+
+    int getTextureVertexCount();
+
+    int getNormalCount();
+
+    int getFaceCount();
+
+    long getFaceStart(int face);
+
+    int getFaceSize(int face);
+
+    float getPosition(long component);
+
+    float getTextureVertex(long component);
+
+    float getNormal(long component);
+
+    int getVertexIndex(long corner);
+
+    // MeshData.NO_INDEX, если у грани нет текстурных координат
+    int getTextureVertexIndex(long corner);
+
+    // MeshData.NO_INDEX, если у грани нет нормалей
+    int getNormalIndex(long corner);
+
+    boolean hasTextureCoordinates(int face);
+
+    boolean hasNormals(int face);
+
+    // есть ли текстурные индексы хотя бы у одной грани
+    boolean hasAnyTextureCoordinates();
+
+    boolean hasAnyNormals();
+}
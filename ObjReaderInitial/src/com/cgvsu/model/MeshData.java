@@ -0,0 +1,271 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Компактное представление модели на примитивных массивах.
+// В Model каждый полигон - это несколько объектов и упакованные Integer, а здесь вся модель - это
+// несколько плоских массивов, поэтому она занимает в разы меньше памяти и не нагружает сборщик мусора.
+public class MeshData implements Mesh {
+
+    // Значение в массивах индексов текстур и нормалей для углов граней, у которых этого атрибута нет
+    public static final int NO_INDEX = Integer.MIN_VALUE;
+
+    private static final int[] EMPTY_INDICES = new int[0];
+
+    // x, y, z подряд для каждой вершины
+    public float[] positions;
+    // u, v подряд для каждой текстурной вершины
+    public float[] textureVertices;
+    // x, y, z подряд для каждой нормали
+    public float[] normals;
+
+    // Углы грани f занимают диапазон [faceOffsets[f], faceOffsets[f + 1]) в массивах индексов
+    public int[] faceOffsets;
+    public int[] vertexIndices;
+    // Либо пустой массив (атрибута нет ни у одной грани), либо той же длины, что и vertexIndices
+    public int[] textureVertexIndices;
+    public int[] normalIndices;
+
+    public MeshData(float[] positions, float[] textureVertices, float[] normals,
+                    int[] faceOffsets, int[] vertexIndices, int[] textureVertexIndices, int[] normalIndices) {
+        if (faceOffsets.length == 0 || faceOffsets[faceOffsets.length - 1] != vertexIndices.length) {
+            throw new IllegalArgumentException("Face offsets don't match vertex indices count");
+        }
+        if (textureVertexIndices.length != 0 && textureVertexIndices.length != vertexIndices.length) {
+            throw new IllegalArgumentException("Texture indices count doesn't match vertex indices count");
+        }
+        if (normalIndices.length != 0 && normalIndices.length != vertexIndices.length) {
+            throw new IllegalArgumentException("Normal indices count doesn't match vertex indices count");
+        }
+        this.positions = positions;
+        this.textureVertices = textureVertices;
+        this.normals = normals;
+        this.faceOffsets = faceOffsets;
+        this.vertexIndices = vertexIndices;
+        this.textureVertexIndices = textureVertexIndices;
+        this.normalIndices = normalIndices;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    @Override
+    public int getTextureVertexCount() {
+        return textureVertices.length / 2;
+    }
+
+    @Override
+    public int getNormalCount() {
+        return normals.length / 3;
+    }
+
+    @Override
+    public int getFaceCount() {
+        return faceOffsets.length - 1;
+    }
+
+    @Override
+    public long getFaceStart(int face) {
+        return faceOffsets[face];
+    }
+
+    @Override
+    public int getFaceSize(int face) {
+        return faceOffsets[face + 1] - faceOffsets[face];
+    }
+
+    @Override
+    public float getPosition(long component) {
+        return positions[(int) component];
+    }
+
+    @Override
+    public float getTextureVertex(long component) {
+        return textureVertices[(int) component];
+    }
+
+    @Override
+    public float getNormal(long component) {
+        return normals[(int) component];
+    }
+
+    @Override
+    public int getVertexIndex(long corner) {
+        return vertexIndices[(int) corner];
+    }
+
+    @Override
+    public int getTextureVertexIndex(long corner) {
+        return textureVertexIndices.length == 0 ? NO_INDEX : textureVertexIndices[(int) corner];
+    }
+
+    @Override
+    public int getNormalIndex(long corner) {
+        return normalIndices.length == 0 ? NO_INDEX : normalIndices[(int) corner];
+    }
+
+    @Override
+    public boolean hasTextureCoordinates(int face) {
+        return textureVertexIndices.length != 0 && textureVertexIndices[faceOffsets[face]] != NO_INDEX;
+    }
+
+    @Override
+    public boolean hasNormals(int face) {
+        return normalIndices.length != 0 && normalIndices[faceOffsets[face]] != NO_INDEX;
+    }
+
+    @Override
+    public boolean hasAnyTextureCoordinates() {
+        return textureVertexIndices.length != 0;
+    }
+
+    @Override
+    public boolean hasAnyNormals() {
+        return normalIndices.length != 0;
+    }
+
+    public boolean allFacesAreTriangles() {
+        for (int face = 0; face < getFaceCount(); face++) {
+            if (getFaceSize(face) != 3) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Смещения граней для модели, в которой все грани - треугольники
+    public static int[] triangleFaceOffsets(int triangleCount) {
+        int[] offsets = new int[triangleCount + 1];
+        for (int i = 0; i <= triangleCount; i++) {
+            offsets[i] = 3 * i;
+        }
+        return offsets;
+    }
+
+    // Текстурные индексы и нормали полигона, у которого их количество не совпадает с количеством вершин,
+    // не переносятся: ни запись, ни триангуляция их все равно не используют.
+    public static MeshData fromModel(Model model) {
+        final int faceCount = model.polygons.size();
+        int[] faceOffsets = new int[faceCount + 1];
+        boolean anyTextures = false;
+        boolean anyNormals = false;
+        for (int face = 0; face < faceCount; face++) {
+            Polygon polygon = model.polygons.get(face);
+            final int size = polygon.getVertexIndices().size();
+            faceOffsets[face + 1] = faceOffsets[face] + size;
+            anyTextures |= polygon.getTextureVertexIndices().size() == size;
+            anyNormals |= polygon.getNormalIndices().size() == size;
+        }
+
+        final int cornerCount = faceOffsets[faceCount];
+        int[] vertexIndices = new int[cornerCount];
+        int[] textureVertexIndices = anyTextures ? new int[cornerCount] : EMPTY_INDICES;
+        int[] normalIndices = anyNormals ? new int[cornerCount] : EMPTY_INDICES;
+        for (int face = 0; face < faceCount; face++) {
+            Polygon polygon = model.polygons.get(face);
+            final int offset = faceOffsets[face];
+            copyIndices(polygon.getVertexIndices(), vertexIndices, offset, polygon.getVertexIndices().size());
+            if (anyTextures) {
+                copyIndices(polygon.getTextureVertexIndices(), textureVertexIndices, offset,
+                        polygon.getVertexIndices().size());
+            }
+            if (anyNormals) {
+                copyIndices(polygon.getNormalIndices(), normalIndices, offset, polygon.getVertexIndices().size());
+            }
+        }
+
+        return new MeshData(
+                toArray3(model.vertices), toArray2(model.textureVertices), toArray3(model.normals),
+                faceOffsets, vertexIndices, textureVertexIndices, normalIndices);
+    }
+
+    public Model toModel() {
+        Model result = new Model();
+        result.vertices = toVectors3(positions);
+        result.textureVertices = toVectors2(textureVertices);
+        result.normals = toVectors3(normals);
+
+        result.polygons = new ArrayList<>(getFaceCount());
+        for (int face = 0; face < getFaceCount(); face++) {
+            final int start = faceOffsets[face];
+            final int end = faceOffsets[face + 1];
+
+            Polygon polygon = new Polygon();
+            polygon.setVertexIndices(toIndexList(vertexIndices, start, end));
+            if (hasTextureCoordinates(face)) {
+                polygon.setTextureVertexIndices(toIndexList(textureVertexIndices, start, end));
+            }
+            if (hasNormals(face)) {
+                polygon.setNormalIndices(toIndexList(normalIndices, start, end));
+            }
+            result.polygons.add(polygon);
+        }
+        return result;
+    }
+
+    private static void copyIndices(ArrayList<Integer> source, int[] target, int offset, int expectedSize) {
+        if (source.size() != expectedSize) {
+            Arrays.fill(target, offset, offset + expectedSize, NO_INDEX);
+            return;
+        }
+        for (int i = 0; i < expectedSize; i++) {
+            target[offset + i] = source.get(i);
+        }
+    }
+
+    private static float[] toArray3(ArrayList<Vector3f> vectors) {
+        float[] result = new float[vectors.size() * 3];
+        for (int i = 0; i < vectors.size(); i++) {
+            Vector3f vector = vectors.get(i);
+            result[3 * i] = vector.x;
+            result[3 * i + 1] = vector.y;
+            result[3 * i + 2] = vector.z;
+        }
+        return result;
+    }
+
+    private static float[] toArray2(ArrayList<Vector2f> vectors) {
+        float[] result = new float[vectors.size() * 2];
+        for (int i = 0; i < vectors.size(); i++) {
+            Vector2f vector = vectors.get(i);
+            result[2 * i] = vector.x;
+            result[2 * i + 1] = vector.y;
+        }
+        return result;
+    }
+
+    private static ArrayList<Vector3f> toVectors3(float[] values) {
+        ArrayList<Vector3f> result = new ArrayList<>(values.length / 3);
+        for (int i = 0; i + 2 < values.length; i += 3) {
+            result.add(new Vector3f(values[i], values[i + 1], values[i + 2]));
+        }
+        return result;
+    }
+
+    private static ArrayList<Vector2f> toVectors2(float[] values) {
+        ArrayList<Vector2f> result = new ArrayList<>(values.length / 2);
+        for (int i = 0; i + 1 < values.length; i += 2) {
+            result.add(new Vector2f(values[i], values[i + 1]));
+        }
+        return result;
+    }
+
+    private static ArrayList<Integer> toIndexList(int[] indices, int start, int end) {
+        ArrayList<Integer> result = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            result.add(indices[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MeshData[" + getVertexCount() + " vertices, " + getFaceCount() + " faces]";
+    }
+}
@@ -0,0 +1,147 @@
+package com.cgvsu.model;
+
+import com.cgvsu.offheap.OffHeapFloatArray;
+import com.cgvsu.offheap.OffHeapIntArray;
+import com.cgvsu.offheap.OffHeapLongArray;
+
+// Модель, данные которой лежат вне кучи Java, в массивах из OffHeapStorage.
+// Куча не растет с размером модели, и сборщику мусора почти нечего обходить.
+// Временем жизни данных управляет хранилище: после его закрытия модель использовать нельзя.
+public class OffHeapMesh implements Mesh {
+
+    public final OffHeapFloatArray positions;
+    public final OffHeapFloatArray textureVertices;
+    public final OffHeapFloatArray normals;
+
+    // null, если все грани - треугольники: тогда грань f начинается с угла 3f
+    public final OffHeapLongArray faceOffsets;
+    private final int faceCount;
+
+    public final OffHeapIntArray vertexIndices;
+    // Либо пустые, либо той же длины, что и vertexIndices (как в MeshData)
+    public final OffHeapIntArray textureVertexIndices;
+    public final OffHeapIntArray normalIndices;
+
+    public OffHeapMesh(OffHeapFloatArray positions, OffHeapFloatArray textureVertices, OffHeapFloatArray normals,
+                       OffHeapLongArray faceOffsets, OffHeapIntArray vertexIndices,
+                       OffHeapIntArray textureVertexIndices, OffHeapIntArray normalIndices) {
+        final long cornerCount = vertexIndices.size();
+        if (faceOffsets == null ? cornerCount % 3 != 0
+                : faceOffsets.size() == 0 || faceOffsets.get(faceOffsets.size() - 1) != cornerCount) {
+            throw new IllegalArgumentException("Face offsets don't match vertex indices count");
+        }
+        if (textureVertexIndices.size() != 0 && textureVertexIndices.size() != cornerCount) {
+            throw new IllegalArgumentException("Texture indices count doesn't match vertex indices count");
+        }
+        if (normalIndices.size() != 0 && normalIndices.size() != cornerCount) {
+            throw new IllegalArgumentException("Normal indices count doesn't match vertex indices count");
+        }
+        final long faces = faceOffsets == null ? cornerCount / 3 : faceOffsets.size() - 1;
+        if (faces > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many faces: " + faces);
+        }
+
+        this.positions = positions;
+        this.textureVertices = textureVertices;
+        this.normals = normals;
+        this.faceOffsets = faceOffsets;
+        this.faceCount = (int) faces;
+        this.vertexIndices = vertexIndices;
+        this.textureVertexIndices = textureVertexIndices;
+        this.normalIndices = normalIndices;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return (int) (positions.size() / 3);
+    }
+
+    @Override
+    public int getTextureVertexCount() {
+        return (int) (textureVertices.size() / 2);
+    }
+
+    @Override
+    public int getNormalCount() {
+        return (int) (normals.size() / 3);
+    }
+
+    @Override
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    @Override
+    public long getFaceStart(int face) {
+        return faceOffsets == null ? 3L * face : faceOffsets.get(face);
+    }
+
+    @Override
+    public int getFaceSize(int face) {
+        return faceOffsets == null ? 3 : (int) (faceOffsets.get(face + 1) - faceOffsets.get(face));
+    }
+
+    @Override
+    public float getPosition(long component) {
+        return positions.get(component);
+    }
+
+    @Override
+    public float getTextureVertex(long component) {
+        return textureVertices.get(component);
+    }
+
+    @Override
+    public float getNormal(long component) {
+        return normals.get(component);
+    }
+
+    @Override
+    public int getVertexIndex(long corner) {
+        return vertexIndices.get(corner);
+    }
+
+    @Override
+    public int getTextureVertexIndex(long corner) {
+        return textureVertexIndices.size() == 0 ? MeshData.NO_INDEX : textureVertexIndices.get(corner);
+    }
+
+    @Override
+    public int getNormalIndex(long corner) {
+        return normalIndices.size() == 0 ? MeshData.NO_INDEX : normalIndices.get(corner);
+    }
+
+    @Override
+    public boolean hasTextureCoordinates(int face) {
+        return getTextureVertexIndex(getFaceStart(face)) != MeshData.NO_INDEX;
+    }
+
+    @Override
+    public boolean hasNormals(int face) {
+        return getNormalIndex(getFaceStart(face)) != MeshData.NO_INDEX;
+    }
+
+    @Override
+    public boolean hasAnyTextureCoordinates() {
+        return textureVertexIndices.size() != 0;
+    }
+
+    @Override
+    public boolean hasAnyNormals() {
+        return normalIndices.size() != 0;
+    }
+
+    public boolean allFacesAreTriangles() {
+        for (int face = 0; face < faceCount; face++) {
+            if (getFaceSize(face) != 3) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapMesh[" + getVertexCount() + " vertices, " + getFaceCount() + " faces]";
+    }
+}
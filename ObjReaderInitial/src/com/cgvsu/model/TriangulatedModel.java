@@ -1,6 +1,9 @@
 package com.cgvsu.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class TriangulatedModel extends Model {
 
@@ -14,33 +17,80 @@ public class TriangulatedModel extends Model {
         this.polygons = triangulatePolygons(originalModel.polygons);
     }
 
+    // Параллельная триангуляция на потоках pool. Результат тот же, что и у последовательной.
+    public TriangulatedModel(Model originalModel, ForkJoinPool pool) {
+        this.vertices = new ArrayList<>(originalModel.vertices);
+        this.textureVertices = new ArrayList<>(originalModel.textureVertices);
+        this.normals = new ArrayList<>(originalModel.normals);
+
+        this.polygons = triangulatePolygons(originalModel.polygons, pool);
+    }
+
+    // Модель из уже триангулированных полигонов (например, разбитых отсечением ушей в ModelTriangulator)
+    public TriangulatedModel(Model originalModel, ArrayList<Polygon> triangles) {
+        this.vertices = new ArrayList<>(originalModel.vertices);
+        this.textureVertices = new ArrayList<>(originalModel.textureVertices);
+        this.normals = new ArrayList<>(originalModel.normals);
+
+        this.polygons = triangles;
+    }
+
     private ArrayList<Polygon> triangulatePolygons(ArrayList<Polygon> originalPolygons) {
-        ArrayList<Polygon> triangulated = new ArrayList<>();
+        int triangleCount = 0;
+        for (Polygon polygon : originalPolygons) {
+            triangleCount += getTriangleCount(polygon);
+        }
 
+        Polygon[] triangulated = new Polygon[triangleCount];
+        int offset = 0;
         for (Polygon polygon : originalPolygons) {
-            triangulated.addAll(triangulateSinglePolygon(polygon));
+            triangulateSinglePolygon(polygon, triangulated, offset);
+            offset += polygon.getVertexIndices().size() - 2;
         }
 
-        return triangulated;
+        return new ArrayList<>(Arrays.asList(triangulated));
+    }
+
+    // Полигон из n вершин дает n-2 треугольника, поэтому место каждого полигона в результате известно заранее:
+    // это префиксная сумма количеств треугольников. Потоки пишут каждый в свой диапазон массива без блокировок.
+    private ArrayList<Polygon> triangulatePolygons(ArrayList<Polygon> originalPolygons, ForkJoinPool pool) {
+        final int polygonCount = originalPolygons.size();
+        final int[] offsets = new int[polygonCount + 1];
+        final Polygon[] triangulated = pool.submit(() -> {
+            IntStream.range(0, polygonCount).parallel()
+                    .forEach(i -> offsets[i + 1] = getTriangleCount(originalPolygons.get(i)));
+            // вызванный из задачи пула, parallelPrefix тоже выполняется в этом пуле
+            Arrays.parallelPrefix(offsets, Integer::sum);
+
+            final Polygon[] target = new Polygon[offsets[polygonCount]];
+            IntStream.range(0, polygonCount).parallel()
+                    .forEach(i -> triangulateSinglePolygon(originalPolygons.get(i), target, offsets[i]));
+            return target;
+        }).join();
+
+        return new ArrayList<>(Arrays.asList(triangulated));
     }
 
-    private ArrayList<Polygon> triangulateSinglePolygon(Polygon polygon) {
-        ArrayList<Polygon> triangles = new ArrayList<>();
+    private static int getTriangleCount(Polygon polygon) {
+        // проверка на минимальное количество вершин
+        if (polygon.getVertexIndices().size() < 3) {
+            throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+        }
+        return polygon.getVertexIndices().size() - 2;
+    }
+
+    // Записывает n-2 треугольника полигона в target, начиная с offset
+    private static void triangulateSinglePolygon(Polygon polygon, Polygon[] target, int offset) {
         ArrayList<Integer> vertexIndices = polygon.getVertexIndices();
         ArrayList<Integer> textureIndices = polygon.getTextureVertexIndices();
         ArrayList<Integer> normalIndices = polygon.getNormalIndices();
 
         int vertexCount = vertexIndices.size();
 
-        // проверка на минимальное количество вершин
-        if (vertexCount < 3) {
-            throw new IllegalArgumentException("Polygon must have at least 3 vertices");
-        }
-
         // если полигон уже треугольник — возвращаем его как есть
         if (vertexCount == 3) {
-            triangles.add(polygon);
-            return triangles;
+            target[offset] = polygon;
+            return;
         }
 
         // соединяем вершину 0 с вершинами i и i+1
@@ -73,10 +123,8 @@ public class TriangulatedModel extends Model {
                 triangle.setNormalIndices(triNormalIndices);
             }
 
-            triangles.add(triangle);
+            target[offset + i - 1] = triangle;
         }
-
-        return triangles;
     }
 
     // дополнительный метод для проверки, что все полигоны — треугольники
@@ -0,0 +1,260 @@
+package com.cgvsu.normals;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.util.FloatArrayList;
+import com.cgvsu.util.ParallelBlocks;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+// Сглаженные нормали вершин для триангулированной модели, например прочитанной из файла без строк vn.
+// Нормаль угла - сумма нормалей треугольников вокруг его вершины с весом по площади или по углу при вершине.
+// В сумму входят только треугольники, нормаль которых отличается от нормали треугольника угла не больше чем
+// на угол излома, поэтому вдоль острых ребер вершина получает несколько нормалей. Углы одной вершины
+// с одинаковой суммой делят одну нормаль.
+// Проходы параллельны и пишут каждый в свою часть массивов: нормали треугольников считаются по диапазонам
+// треугольников, суммы - по диапазонам вершин. Результат не зависит от пула.
+public class NormalGenerator {
+
+    public enum Weighting {
+        // вес треугольника - его площадь: крупные грани сильнее влияют на нормаль
+        AREA,
+        // вес - угол треугольника при вершине: нормаль не зависит от того, как грань разбита на треугольники
+        ANGLE
+    }
+
+    // Угол излома в градусах, при котором все треугольники вокруг вершины сглаживаются вместе
+    public static final float SMOOTH_ALL = 180f;
+
+    // Треугольников или вершин в одной задаче параллельного прохода
+    private static final int ELEMENTS_PER_TASK = 1 << 14;
+
+    public static void generate(MeshData mesh) {
+        generate(mesh, Weighting.ANGLE, SMOOTH_ALL, ForkJoinPool.commonPool());
+    }
+
+    // Заменяет нормали и индексы нормалей модели. Массивы заменяются новыми: старые могут быть общими
+    // с другими моделями. Если pool равен null, все проходы идут в текущем потоке.
+    public static void generate(MeshData mesh, Weighting weighting, float creaseAngle, ForkJoinPool pool) {
+        if (!mesh.allFacesAreTriangles()) {
+            throw new IllegalArgumentException("Normals are generated for triangulated models only");
+        }
+        final Result result = generate(mesh.positions, mesh.vertexIndices, weighting, creaseAngle, pool);
+        mesh.normals = result.normals;
+        mesh.normalIndices = result.normalIndices;
+    }
+
+    public static void generate(Model model) {
+        generate(model, Weighting.ANGLE, SMOOTH_ALL, ForkJoinPool.commonPool());
+    }
+
+    // Заменяет model.normals и индексы нормалей всех полигонов. Полигоны заменяются новыми: триангуляция
+    // переносит треугольники исходной модели как есть, и они могут быть общими с ней.
+    public static void generate(Model model, Weighting weighting, float creaseAngle, ForkJoinPool pool) {
+        final MeshData mesh = MeshData.fromModel(model);
+        if (!mesh.allFacesAreTriangles()) {
+            throw new IllegalArgumentException("Normals are generated for triangulated models only");
+        }
+        final int triangleCount = mesh.getFaceCount();
+        final Result result = generate(mesh.positions, mesh.vertexIndices, weighting, creaseAngle, pool);
+
+        final int normalCount = result.normals.length / 3;
+        model.normals = new ArrayList<>(normalCount);
+        for (int i = 0; i < normalCount; i++) {
+            model.normals.add(new Vector3f(result.normals[3 * i], result.normals[3 * i + 1],
+                    result.normals[3 * i + 2]));
+        }
+        final int[] normalIndices = result.normalIndices;
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            final Polygon source = model.polygons.get(triangle);
+            final Polygon polygon = new Polygon();
+            polygon.setVertexIndices(new ArrayList<>(source.getVertexIndices()));
+            polygon.setTextureVertexIndices(new ArrayList<>(source.getTextureVertexIndices()));
+            polygon.setNormalIndices(normalIndices[3 * triangle], normalIndices[3 * triangle + 1],
+                    normalIndices[3 * triangle + 2]);
+            model.polygons.set(triangle, polygon);
+        }
+    }
+
+    private static final class Result {
+        final float[] normals;
+        final int[] normalIndices;
+
+        Result(float[] normals, int[] normalIndices) {
+            this.normals = normals;
+            this.normalIndices = normalIndices;
+        }
+    }
+
+    private static Result generate(float[] positions, int[] vertexIndices, Weighting weighting, float creaseAngle,
+                                   ForkJoinPool pool) {
+        if (!(creaseAngle >= 0)) {
+            throw new IllegalArgumentException("Crease angle must not be negative");
+        }
+        final int cornerCount = vertexIndices.length;
+        final int triangleCount = cornerCount / 3;
+        final int vertexCount = positions.length / 3;
+        for (int index : vertexIndices) {
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalArgumentException("Vertex index out of range: " + index);
+            }
+        }
+        final float creaseCos = (float) Math.cos(Math.toRadians(Math.min(creaseAngle, SMOOTH_ALL)));
+
+        // единичные нормали треугольников и веса их углов
+        final float[] faceNormals = new float[3 * triangleCount];
+        final float[] cornerWeights = new float[cornerCount];
+        ParallelBlocks.forEach(triangleCount, ELEMENTS_PER_TASK, pool, (from, to) ->
+                computeFaceNormals(positions, vertexIndices, weighting, from, to, faceNormals, cornerWeights));
+
+        // углы каждой вершины: углы вершины v - это vertexCorners[vertexStarts[v]..vertexStarts[v + 1])
+        // в порядке возрастания, поэтому суммы складываются в одном и том же порядке при любом пуле
+        final int[] vertexStarts = new int[vertexCount + 1];
+        for (int index : vertexIndices) {
+            vertexStarts[index + 1]++;
+        }
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            vertexStarts[vertex + 1] += vertexStarts[vertex];
+        }
+        final int[] vertexCorners = new int[cornerCount];
+        final int[] fill = new int[vertexCount];
+        for (int corner = 0; corner < cornerCount; corner++) {
+            final int vertex = vertexIndices[corner];
+            vertexCorners[vertexStarts[vertex] + fill[vertex]++] = corner;
+        }
+
+        // нормали каждого блока вершин собираются отдельно и получают номера относительно начала блока
+        final int blockCount = (vertexCount + ELEMENTS_PER_TASK - 1) / ELEMENTS_PER_TASK;
+        final FloatArrayList[] blockNormals = new FloatArrayList[blockCount];
+        final int[] normalIndices = new int[cornerCount];
+        final boolean smoothAll = creaseAngle >= SMOOTH_ALL;
+        ParallelBlocks.forEach(vertexCount, ELEMENTS_PER_TASK, pool, (from, to) ->
+                blockNormals[from / ELEMENTS_PER_TASK] = smoothVertices(vertexStarts, vertexCorners, faceNormals,
+                        cornerWeights, smoothAll, creaseCos, from, to, normalIndices));
+
+        final int[] blockOffsets = new int[blockCount + 1];
+        for (int block = 0; block < blockCount; block++) {
+            blockOffsets[block + 1] = blockOffsets[block] + blockNormals[block].size();
+        }
+        final float[] normals = new float[blockOffsets[blockCount]];
+        ParallelBlocks.forEach(vertexCount, ELEMENTS_PER_TASK, pool, (from, to) -> {
+            final int block = from / ELEMENTS_PER_TASK;
+            System.arraycopy(blockNormals[block].elements(), 0, normals, blockOffsets[block],
+                    blockNormals[block].size());
+            final int offset = blockOffsets[block] / 3;
+            for (int i = vertexStarts[from]; i < vertexStarts[to]; i++) {
+                normalIndices[vertexCorners[i]] += offset;
+            }
+        });
+        return new Result(normals, normalIndices);
+    }
+
+    private static void computeFaceNormals(float[] positions, int[] vertexIndices, Weighting weighting,
+                                           int from, int to, float[] faceNormals, float[] cornerWeights) {
+        for (int triangle = from; triangle < to; triangle++) {
+            final int a = 3 * vertexIndices[3 * triangle];
+            final int b = 3 * vertexIndices[3 * triangle + 1];
+            final int c = 3 * vertexIndices[3 * triangle + 2];
+            final float abx = positions[b] - positions[a];
+            final float aby = positions[b + 1] - positions[a + 1];
+            final float abz = positions[b + 2] - positions[a + 2];
+            final float acx = positions[c] - positions[a];
+            final float acy = positions[c + 1] - positions[a + 1];
+            final float acz = positions[c + 2] - positions[a + 2];
+            final float nx = aby * acz - abz * acy;
+            final float ny = abz * acx - abx * acz;
+            final float nz = abx * acy - aby * acx;
+            // длина векторного произведения - удвоенная площадь
+            final float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length > 0) {
+                faceNormals[3 * triangle] = nx / length;
+                faceNormals[3 * triangle + 1] = ny / length;
+                faceNormals[3 * triangle + 2] = nz / length;
+            }
+
+            if (weighting == Weighting.AREA) {
+                cornerWeights[3 * triangle] = length;
+                cornerWeights[3 * triangle + 1] = length;
+                cornerWeights[3 * triangle + 2] = length;
+            } else {
+                final float bcx = positions[c] - positions[b];
+                final float bcy = positions[c + 1] - positions[b + 1];
+                final float bcz = positions[c + 2] - positions[b + 2];
+                // угол через atan2(|u x v|, u . v): точнее acos для узких треугольников, и у вырожденных
+                // треугольников |u x v| = 0 дает нулевой угол, а не NaN
+                final float angleA = (float) Math.atan2(length, abx * acx + aby * acy + abz * acz);
+                final float angleB = (float) Math.atan2(length, -(abx * bcx + aby * bcy + abz * bcz));
+                cornerWeights[3 * triangle] = angleA;
+                cornerWeights[3 * triangle + 1] = angleB;
+                cornerWeights[3 * triangle + 2] = Math.max(0f, (float) Math.PI - angleA - angleB);
+            }
+        }
+    }
+
+    // Нормали вершин [from, to). В normalIndices пишутся номера относительно начала возвращаемого списка.
+    // С изломом каждый угол сравнивается со всеми углами своей вершины: k^2 сравнений для вершины из k углов,
+    // при обычной валентности 4-8 это дешевле любой структуры.
+    private static FloatArrayList smoothVertices(int[] vertexStarts, int[] vertexCorners, float[] faceNormals,
+                                                 float[] cornerWeights, boolean smoothAll, float creaseCos,
+                                                 int from, int to, int[] normalIndices) {
+        final FloatArrayList normals = new FloatArrayList(3 * (to - from));
+        for (int vertex = from; vertex < to; vertex++) {
+            final int start = vertexStarts[vertex];
+            final int end = vertexStarts[vertex + 1];
+            // нормали этой вершины начинаются с first
+            final int first = normals.size();
+            for (int i = start; i < end; i++) {
+                final int face = vertexCorners[i] / 3;
+                float x = 0;
+                float y = 0;
+                float z = 0;
+                for (int j = start; j < end; j++) {
+                    final int other = vertexCorners[j] / 3;
+                    if (!smoothAll && other != face && faceNormals[3 * face] * faceNormals[3 * other]
+                            + faceNormals[3 * face + 1] * faceNormals[3 * other + 1]
+                            + faceNormals[3 * face + 2] * faceNormals[3 * other + 2] < creaseCos) {
+                        continue;
+                    }
+                    final float weight = cornerWeights[vertexCorners[j]];
+                    x += weight * faceNormals[3 * other];
+                    y += weight * faceNormals[3 * other + 1];
+                    z += weight * faceNormals[3 * other + 2];
+                }
+                final float length = (float) Math.sqrt(x * x + y * y + z * z);
+                // у вершины только из вырожденных треугольников нормаль остается нулевой
+                if (length > 0) {
+                    x /= length;
+                    y /= length;
+                    z /= length;
+                }
+                normalIndices[vertexCorners[i]] = findOrAdd(normals, first, x, y, z);
+                if (smoothAll) {
+                    // без излома сумма у всех углов вершины одна и та же
+                    for (int j = i + 1; j < end; j++) {
+                        normalIndices[vertexCorners[j]] = normalIndices[vertexCorners[i]];
+                    }
+                    break;
+                }
+            }
+        }
+        return normals;
+    }
+
+    // Номер нормали среди нормалей вершины, начиная с first; суммы одинаковых наборов треугольников
+    // складываются в одном порядке и совпадают точно
+    private static int findOrAdd(FloatArrayList normals, int first, float x, float y, float z) {
+        final float[] elements = normals.elements();
+        for (int i = first; i < normals.size(); i += 3) {
+            if (elements[i] == x && elements[i + 1] == y && elements[i + 2] == z) {
+                return i / 3;
+            }
+        }
+        normals.add(x);
+        normals.add(y);
+        normals.add(z);
+        return (normals.size() - 3) / 3;
+    }
+}
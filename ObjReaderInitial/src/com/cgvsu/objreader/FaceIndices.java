@@ -0,0 +1,43 @@
+package com.cgvsu.objreader;
+
+import java.util.Arrays;
+
+// Переиспользуемый буфер индексов одной грани.
+// Хранит индексы в том виде, в котором они записаны в файле (нумерация с 1, возможны отрицательные),
+// чтобы не создавать новых списков на каждую строку "f".
+public class FaceIndices {
+    public int[] vertexIndices = new int[8];
+    public int[] textureVertexIndices = new int[8];
+    public int[] normalIndices = new int[8];
+
+    public int vertexCount;
+    public int textureVertexCount;
+    public int normalCount;
+
+    public void clear() {
+        vertexCount = 0;
+        textureVertexCount = 0;
+        normalCount = 0;
+    }
+
+    public void addVertexIndex(int index) {
+        if (vertexCount == vertexIndices.length) {
+            vertexIndices = Arrays.copyOf(vertexIndices, vertexCount * 2);
+        }
+        vertexIndices[vertexCount++] = index;
+    }
+
+    public void addTextureVertexIndex(int index) {
+        if (textureVertexCount == textureVertexIndices.length) {
+            textureVertexIndices = Arrays.copyOf(textureVertexIndices, textureVertexCount * 2);
+        }
+        textureVertexIndices[textureVertexCount++] = index;
+    }
+
+    public void addNormalIndex(int index) {
+        if (normalCount == normalIndices.length) {
+            normalIndices = Arrays.copyOf(normalIndices, normalCount * 2);
+        }
+        normalIndices[normalCount++] = index;
+    }
+}
@@ -0,0 +1,103 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.util.FloatArrayList;
+import com.cgvsu.util.IntArrayList;
+
+// Собирает MeshData из разобранных элементов, не создавая объектов на каждую вершину и грань
+class MeshBuilder implements ObjElementHandler {
+    private final FloatArrayList positions = new FloatArrayList(1 << 10);
+    private final FloatArrayList textureVertices = new FloatArrayList(1 << 10);
+    private final FloatArrayList normals = new FloatArrayList(1 << 10);
+
+    private final IntArrayList faceOffsets = new IntArrayList(1 << 10);
+    private final IntArrayList vertexIndices = new IntArrayList(1 << 10);
+    private final IntArrayList textureVertexIndices = new IntArrayList(1 << 10);
+    private final IntArrayList normalIndices = new IntArrayList(1 << 10);
+
+    MeshBuilder() {
+        faceOffsets.add(0);
+    }
+
+    @Override
+    public void vertex(float x, float y, float z) {
+        positions.add(x);
+        positions.add(y);
+        positions.add(z);
+    }
+
+    @Override
+    public void textureVertex(float u, float v) {
+        textureVertices.add(u);
+        textureVertices.add(v);
+    }
+
+    @Override
+    public void normal(float x, float y, float z) {
+        normals.add(x);
+        normals.add(y);
+        normals.add(z);
+    }
+
+    @Override
+    public void face(FaceIndices face, int lineInd) {
+        // те же ограничения, что у Polygon
+        if (face.vertexCount < 3) {
+            throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+        }
+        if (face.textureVertexCount != 0 && face.textureVertexCount < 3) {
+            throw new IllegalArgumentException("Texture indices must be empty or have at least 3 elements");
+        }
+        if (face.normalCount != 0 && face.normalCount < 3) {
+            throw new IllegalArgumentException("Normal indices must be empty or have at least 3 elements");
+        }
+
+        final int cornerStart = vertexIndices.size();
+        final int size = face.vertexCount;
+        for (int i = 0; i < size; i++) {
+            vertexIndices.add(ObjReader.toZeroBasedIndex(face.vertexIndices[i], positions.size() / 3));
+        }
+        addAttributeIndices(face.textureVertexIndices, face.textureVertexCount, cornerStart, size,
+                textureVertices.size() / 2, textureVertexIndices);
+        addAttributeIndices(face.normalIndices, face.normalCount, cornerStart, size,
+                normals.size() / 3, normalIndices);
+        faceOffsets.add(vertexIndices.size());
+    }
+
+    // Пока атрибут не встретился ни в одной грани, его массив остается пустым.
+    // Атрибут, количество индексов которого не совпадает с количеством вершин, считается отсутствующим.
+    private static void addAttributeIndices(int[] indices, int count, int cornerStart, int faceSize,
+                                            int elementCount, IntArrayList target) {
+        if (count != faceSize) {
+            if (!target.isEmpty()) {
+                padWithNoIndex(target, cornerStart + faceSize);
+            }
+            return;
+        }
+        padWithNoIndex(target, cornerStart);
+        for (int i = 0; i < count; i++) {
+            target.add(ObjReader.toZeroBasedIndex(indices[i], elementCount));
+        }
+    }
+
+    private static void padWithNoIndex(IntArrayList target, int size) {
+        target.ensureCapacity(size);
+        while (target.size() < size) {
+            target.add(MeshData.NO_INDEX);
+        }
+    }
+
+    MeshData build() {
+        final int cornerCount = vertexIndices.size();
+        if (!textureVertexIndices.isEmpty()) {
+            padWithNoIndex(textureVertexIndices, cornerCount);
+        }
+        if (!normalIndices.isEmpty()) {
+            padWithNoIndex(normalIndices, cornerCount);
+        }
+        return new MeshData(
+                positions.toArray(), textureVertices.toArray(), normals.toArray(),
+                faceOffsets.toArray(), vertexIndices.toArray(),
+                textureVertexIndices.toArray(), normalIndices.toArray());
+    }
+}
@@ -0,0 +1,139 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.util.FloatArrayList;
+import com.cgvsu.util.IntArrayList;
+
+import java.io.IOException;
+
+// Результат разбора одного куска OBJ-файла.
+// Индексы граней хранятся с нумерацией с нуля. Положительные индексы в OBJ абсолютные и готовы сразу,
+// а отрицательные отсчитываются от конца уже прочитанных данных, то есть зависят от предыдущих кусков.
+// Поэтому для них сохраняется позиция, и при слиянии к ним прибавляется число элементов в предыдущих кусках.
+class ObjChunk implements ObjElementHandler {
+    final FloatArrayList vertices = new FloatArrayList();
+    final FloatArrayList textureVertices = new FloatArrayList();
+    final FloatArrayList normals = new FloatArrayList();
+
+    final IntArrayList vertexIndices = new IntArrayList();
+    final IntArrayList textureVertexIndices = new IntArrayList();
+    final IntArrayList normalIndices = new IntArrayList();
+
+    final IntArrayList faceVertexCounts = new IntArrayList();
+    final IntArrayList faceTextureVertexCounts = new IntArrayList();
+    final IntArrayList faceNormalCounts = new IntArrayList();
+
+    final IntArrayList relativeVertexIndices = new IntArrayList(1);
+    final IntArrayList relativeTextureVertexIndices = new IntArrayList(1);
+    final IntArrayList relativeNormalIndices = new IntArrayList(1);
+
+    // есть ли грани, у которых текстурные индексы или нормали заданы для каждой вершины
+    boolean hasTexturedFaces;
+    boolean hasFacesWithNormals;
+
+    int lineCount;
+    // первая ошибка в куске; номер строки в ней отсчитывается от начала куска
+    RuntimeException error;
+
+    void parse(ObjTokenizer tokenizer) throws IOException {
+        try {
+            ObjReader.parse(tokenizer, this);
+        } catch (ObjReaderException | IllegalArgumentException e) {
+            error = e;
+        }
+        lineCount = tokenizer.getLineInd();
+    }
+
+    int vertexCount() {
+        return vertices.size() / 3;
+    }
+
+    int textureVertexCount() {
+        return textureVertices.size() / 2;
+    }
+
+    int normalCount() {
+        return normals.size() / 3;
+    }
+
+    int faceCount() {
+        return faceVertexCounts.size();
+    }
+
+    int cornerCount() {
+        return vertexIndices.size();
+    }
+
+    @Override
+    public void vertex(float x, float y, float z) {
+        vertices.add(x);
+        vertices.add(y);
+        vertices.add(z);
+    }
+
+    @Override
+    public void textureVertex(float u, float v) {
+        textureVertices.add(u);
+        textureVertices.add(v);
+    }
+
+    @Override
+    public void normal(float x, float y, float z) {
+        normals.add(x);
+        normals.add(y);
+        normals.add(z);
+    }
+
+    @Override
+    public void face(FaceIndices face, int lineInd) {
+        // те же проверки, что делает Polygon, чтобы ошибка была найдена в том же месте файла,
+        // что и при последовательном чтении
+        if (face.vertexCount < 3) {
+            throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+        }
+        if (face.textureVertexCount != 0 && face.textureVertexCount < 3) {
+            throw new IllegalArgumentException("Texture indices must be empty or have at least 3 elements");
+        }
+        if (face.normalCount != 0 && face.normalCount < 3) {
+            throw new IllegalArgumentException("Normal indices must be empty or have at least 3 elements");
+        }
+
+        hasTexturedFaces |= face.textureVertexCount == face.vertexCount;
+        hasFacesWithNormals |= face.normalCount == face.vertexCount;
+
+        faceVertexCounts.add(face.vertexCount);
+        faceTextureVertexCounts.add(face.textureVertexCount);
+        faceNormalCounts.add(face.normalCount);
+
+        addIndices(face.vertexIndices, face.vertexCount, vertexCount(),
+                vertexIndices, relativeVertexIndices);
+        addIndices(face.textureVertexIndices, face.textureVertexCount, textureVertexCount(),
+                textureVertexIndices, relativeTextureVertexIndices);
+        addIndices(face.normalIndices, face.normalCount, normalCount(),
+                normalIndices, relativeNormalIndices);
+    }
+
+    private static void addIndices(int[] indices, int count, int elementCount,
+                                   IntArrayList target, IntArrayList relativePositions) {
+        for (int i = 0; i < count; i++) {
+            if (indices[i] < 0) {
+                relativePositions.add(target.size());
+            }
+            target.add(ObjReader.toZeroBasedIndex(indices[i], elementCount));
+        }
+    }
+
+    // Переводит относительные индексы куска в индексы всего файла
+    void rebaseRelativeIndices(int vertexBase, int textureVertexBase, int normalBase) {
+        rebase(vertexIndices, relativeVertexIndices, vertexBase);
+        rebase(textureVertexIndices, relativeTextureVertexIndices, textureVertexBase);
+        rebase(normalIndices, relativeNormalIndices, normalBase);
+    }
+
+    private static void rebase(IntArrayList indices, IntArrayList relativePositions, int base) {
+        int[] elements = indices.elements();
+        for (int i = 0; i < relativePositions.size(); i++) {
+            elements[relativePositions.get(i)] += base;
+        }
+        relativePositions.clear();
+    }
+}
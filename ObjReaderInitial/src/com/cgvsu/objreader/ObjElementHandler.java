@@ -0,0 +1,15 @@
+package com.cgvsu.objreader;
+
+// Получатель разобранных элементов OBJ-файла.
+// Позволяет одному и тому же разборщику строить разные представления модели.
+public interface ObjElementHandler {
+
+    void vertex(float x, float y, float z);
+
+    void textureVertex(float u, float v);
+
+    void normal(float x, float y, float z);
+
+    // face передается как переиспользуемый буфер, сохранять ссылку на него нельзя
+    void face(FaceIndices face, int lineInd);
+}
@@ -0,0 +1,347 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.meshcache.MeshCache.SourceStamp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Индекс объектов (o), групп (g) и материалов (usemtl) OBJ-файла: для каждого имени - диапазоны байтов с его
+// гранями. Строится одним быстрым проходом без разбора чисел и может храниться рядом с файлом
+// (model.obj -> model.obj.objindex). По индексу SelectiveObjReader читает только нужные объекты.
+// Грани вне любого o, g и usemtl в индекс не попадают. Строки s и прочие игнорируются.
+public class ObjIndex {
+
+    public static final String EXTENSION = ".objindex";
+
+    public enum Kind {
+        OBJECT,
+        GROUP,
+        MATERIAL
+    }
+
+    // Через столько вершин (текстурных вершин, нормалей) запоминается смещение строки, чтобы читать
+    // нужные элементы, не просматривая файл с начала
+    static final int ELEMENTS_PER_CHECKPOINT = 1 << 10;
+
+    private static final byte[] MAGIC = "OBJINDEX".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+
+    // Одно имя одного вида. Его грани могут лежать в нескольких кусках файла.
+    public static final class Entry {
+        private final Kind kind;
+        private final String name;
+        private final int faceCount;
+        // номера кусков по возрастанию
+        final int[] segments;
+
+        Entry(Kind kind, String name, int faceCount, int[] segments) {
+            this.kind = kind;
+            this.name = name;
+            this.faceCount = faceCount;
+            this.segments = segments;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getFaceCount() {
+            return faceCount;
+        }
+    }
+
+    // Опорные точки одного вида элементов. Блок k - элементы с номерами от k * ELEMENTS_PER_CHECKPOINT,
+    // лежит в байтах [offsets[k], offsets[k + 1]), перед ним lines[k] строк файла.
+    // Последнее смещение - конец строки последнего элемента.
+    static final class Checkpoints {
+        final int count;
+        final long[] offsets;
+        final int[] lines;
+
+        Checkpoints(int count, long[] offsets, int[] lines) {
+            if (offsets.length != lines.length + 1
+                    || lines.length != (count + ELEMENTS_PER_CHECKPOINT - 1) / ELEMENTS_PER_CHECKPOINT) {
+                throw new IllegalArgumentException("Checkpoints don't match element count");
+            }
+            this.count = count;
+            this.offsets = offsets;
+            this.lines = lines;
+        }
+    }
+
+    final Checkpoints vertices;
+    final Checkpoints textureVertices;
+    final Checkpoints normals;
+    private final int faceCount;
+
+    // Куски - непрерывные диапазоны байтов, внутри которых объект, группы и материал не меняются.
+    // Для каждого куска - сколько строк и элементов каждого вида было до его начала и сколько в нем граней.
+    final long[] segmentStarts;
+    final long[] segmentEnds;
+    final int[] segmentLines;
+    final int[] segmentVertexBases;
+    final int[] segmentTextureVertexBases;
+    final int[] segmentNormalBases;
+    final int[] segmentFaceCounts;
+
+    private final List<Entry> entries;
+    private final Map<Kind, Map<String, Entry>> entriesByName = new EnumMap<>(Kind.class);
+
+    ObjIndex(Checkpoints vertices, Checkpoints textureVertices, Checkpoints normals, int faceCount,
+             long[] segmentStarts, long[] segmentEnds, int[] segmentLines, int[] segmentVertexBases,
+             int[] segmentTextureVertexBases, int[] segmentNormalBases, int[] segmentFaceCounts,
+             List<Entry> entries) {
+        this.vertices = vertices;
+        this.textureVertices = textureVertices;
+        this.normals = normals;
+        this.faceCount = faceCount;
+        this.segmentStarts = segmentStarts;
+        this.segmentEnds = segmentEnds;
+        this.segmentLines = segmentLines;
+        this.segmentVertexBases = segmentVertexBases;
+        this.segmentTextureVertexBases = segmentTextureVertexBases;
+        this.segmentNormalBases = segmentNormalBases;
+        this.segmentFaceCounts = segmentFaceCounts;
+        this.entries = Collections.unmodifiableList(entries);
+        for (Kind kind : Kind.values()) {
+            entriesByName.put(kind, new HashMap<>());
+        }
+        for (Entry entry : entries) {
+            for (int segment : entry.segments) {
+                if (segment < 0 || segment >= segmentStarts.length) {
+                    throw new IllegalArgumentException("Segment index out of range: " + segment);
+                }
+            }
+            entriesByName.get(entry.kind).put(entry.name, entry);
+        }
+    }
+
+    public static ObjIndex scan(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            return new ObjIndexScanner(channel).scan();
+        }
+    }
+
+    // Сохраненный индекс, а если его нет или он устарел - новый, который сразу сохраняется
+    public static ObjIndex open(Path source) throws IOException {
+        ObjIndex index = load(source);
+        if (index != null) {
+            return index;
+        }
+        final SourceStamp stamp = SourceStamp.of(source);
+        index = scan(source);
+        try {
+            index.save(source, stamp);
+        } catch (IOException e) {
+            // каталог может быть доступен только для чтения: индекс в памяти все равно годится
+        }
+        return index;
+    }
+
+    public static Path indexPath(Path source) {
+        return source.resolveSibling(source.getFileName() + EXTENSION);
+    }
+
+    // Возвращает null, если индекса нет, он устарел или поврежден
+    public static ObjIndex load(Path source) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(indexPath(source))))) {
+            final byte[] magic = new byte[MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || input.readInt() != VERSION) {
+                return null;
+            }
+            final SourceStamp stamp = new SourceStamp(input.readLong(), input.readLong(), input.readLong());
+            if (!stamp.equals(SourceStamp.of(source))) {
+                return null;
+            }
+
+            final Checkpoints vertices = readCheckpoints(input);
+            final Checkpoints textureVertices = readCheckpoints(input);
+            final Checkpoints normals = readCheckpoints(input);
+            final int faceCount = input.readInt();
+
+            final int segmentCount = input.readInt();
+            final long[] segmentStarts = readLongs(input, segmentCount);
+            final long[] segmentEnds = readLongs(input, segmentCount);
+            final int[] segmentLines = readInts(input, segmentCount);
+            final int[] segmentVertexBases = readInts(input, segmentCount);
+            final int[] segmentTextureVertexBases = readInts(input, segmentCount);
+            final int[] segmentNormalBases = readInts(input, segmentCount);
+            final int[] segmentFaceCounts = readInts(input, segmentCount);
+
+            final int entryCount = input.readInt();
+            final List<Entry> entries = new ArrayList<>(Math.min(entryCount, 1 << 16));
+            for (int i = 0; i < entryCount; i++) {
+                final Kind kind = Kind.values()[input.readUnsignedByte()];
+                final String name = new String(input.readNBytes(input.readInt()), StandardCharsets.UTF_8);
+                final int entryFaceCount = input.readInt();
+                entries.add(new Entry(kind, name, entryFaceCount, readInts(input, input.readInt())));
+            }
+            return new ObjIndex(vertices, textureVertices, normals, faceCount,
+                    segmentStarts, segmentEnds, segmentLines, segmentVertexBases,
+                    segmentTextureVertexBases, segmentNormalBases, segmentFaceCounts, entries);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (EOFException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            // файл обрезан или данные не согласуются между собой
+            return null;
+        }
+    }
+
+    public void save(Path source) throws IOException {
+        save(source, SourceStamp.of(source));
+    }
+
+    // stamp снимается до сканирования исходного файла, как и в MeshCache
+    public void save(Path source, SourceStamp stamp) throws IOException {
+        final Path path = indexPath(source);
+        // временный файл подменяет индекс целиком, поэтому недописанный индекс никто не увидит
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary)))) {
+                output.write(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(stamp.getSize());
+                output.writeLong(stamp.getModifiedMillis());
+                output.writeLong(stamp.getHash());
+
+                writeCheckpoints(output, vertices);
+                writeCheckpoints(output, textureVertices);
+                writeCheckpoints(output, normals);
+                output.writeInt(faceCount);
+
+                output.writeInt(segmentStarts.length);
+                writeLongs(output, segmentStarts);
+                writeLongs(output, segmentEnds);
+                writeInts(output, segmentLines);
+                writeInts(output, segmentVertexBases);
+                writeInts(output, segmentTextureVertexBases);
+                writeInts(output, segmentNormalBases);
+                writeInts(output, segmentFaceCounts);
+
+                output.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    output.writeByte(entry.kind.ordinal());
+                    final byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(name.length);
+                    output.write(name);
+                    output.writeInt(entry.faceCount);
+                    output.writeInt(entry.segments.length);
+                    writeInts(output, entry.segments);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static void delete(Path source) throws IOException {
+        Files.deleteIfExists(indexPath(source));
+    }
+
+    // Все имена в порядке вида, а внутри вида - в порядке первого появления в файле
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    // null, если такого имени в файле нет
+    public Entry getEntry(Kind kind, String name) {
+        return entriesByName.get(kind).get(name);
+    }
+
+    public int getVertexCount() {
+        return vertices.count;
+    }
+
+    public int getTextureVertexCount() {
+        return textureVertices.count;
+    }
+
+    public int getNormalCount() {
+        return normals.count;
+    }
+
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    private static Checkpoints readCheckpoints(DataInputStream input) throws IOException {
+        final int count = input.readInt();
+        final int blockCount = input.readInt();
+        final long[] offsets = readLongs(input, blockCount + 1);
+        return new Checkpoints(count, offsets, readInts(input, blockCount));
+    }
+
+    private static void writeCheckpoints(DataOutputStream output, Checkpoints checkpoints) throws IOException {
+        output.writeInt(checkpoints.count);
+        output.writeInt(checkpoints.lines.length);
+        writeLongs(output, checkpoints.offsets);
+        writeInts(output, checkpoints.lines);
+    }
+
+    // Массивы читаются поэлементно: длина из испорченного файла не должна приводить к огромному выделению
+    private static long[] readLongs(DataInputStream input, int count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative array size");
+        }
+        long[] values = new long[Math.min(count, 1 << 16)];
+        for (int i = 0; i < count; i++) {
+            if (i == values.length) {
+                values = Arrays.copyOf(values, (int) Math.min(count, 2L * values.length));
+            }
+            values[i] = input.readLong();
+        }
+        return values;
+    }
+
+    private static int[] readInts(DataInputStream input, int count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative array size");
+        }
+        int[] values = new int[Math.min(count, 1 << 16)];
+        for (int i = 0; i < count; i++) {
+            if (i == values.length) {
+                values = Arrays.copyOf(values, (int) Math.min(count, 2L * values.length));
+            }
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+
+    private static void writeLongs(DataOutputStream output, long[] values) throws IOException {
+        for (long value : values) {
+            output.writeLong(value);
+        }
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.objreader.ObjIndex.Kind;
+import com.cgvsu.util.IntArrayList;
+import com.cgvsu.util.LongArrayList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Один проход по файлу для ObjIndex. Строки только классифицируются по первому слову, числа не разбираются,
+// поэтому проход упирается в скорость чтения файла. Правила разбиения на строки совпадают с ObjTokenizer.
+class ObjIndexScanner {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    // имя группы в строке "g" без имен
+    private static final String DEFAULT_GROUP = "default";
+    private static final byte[] USEMTL = "usemtl".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int limit;
+    // смещение buffer[0] в файле
+    private long bufferOffset;
+    private boolean endOfInput;
+
+    private int lineStart;
+    private int lineEnd;
+    private int nextLineStart;
+    private boolean skipLineFeed;
+    private int lineInd;
+
+    private final CheckpointBuilder vertices = new CheckpointBuilder();
+    private final CheckpointBuilder textureVertices = new CheckpointBuilder();
+    private final CheckpointBuilder normals = new CheckpointBuilder();
+    private int faceCount;
+
+    // текущий кусок и имена, которым он принадлежит
+    private long segmentStart;
+    private int segmentLine;
+    private int segmentVertexBase;
+    private int segmentTextureVertexBase;
+    private int segmentNormalBase;
+    private int segmentFaceCount;
+    private String object;
+    private final List<String> groups = new ArrayList<>();
+    private String material;
+
+    private final LongArrayList segmentStarts = new LongArrayList();
+    private final LongArrayList segmentEnds = new LongArrayList();
+    private final IntArrayList segmentLines = new IntArrayList();
+    private final IntArrayList segmentVertexBases = new IntArrayList();
+    private final IntArrayList segmentTextureVertexBases = new IntArrayList();
+    private final IntArrayList segmentNormalBases = new IntArrayList();
+    private final IntArrayList segmentFaceCounts = new IntArrayList();
+    private final Map<Kind, Map<String, EntryBuilder>> entries = new EnumMap<>(Kind.class);
+
+    ObjIndexScanner(FileChannel channel) {
+        this.channel = channel;
+        for (Kind kind : Kind.values()) {
+            entries.put(kind, new LinkedHashMap<>());
+        }
+    }
+
+    ObjIndex scan() throws IOException {
+        while (nextLine()) {
+            scanLine();
+        }
+        closeSegment(bufferOffset + limit);
+
+        final List<ObjIndex.Entry> result = new ArrayList<>();
+        for (Map.Entry<Kind, Map<String, EntryBuilder>> kind : entries.entrySet()) {
+            for (Map.Entry<String, EntryBuilder> entry : kind.getValue().entrySet()) {
+                result.add(new ObjIndex.Entry(kind.getKey(), entry.getKey(),
+                        entry.getValue().faceCount, entry.getValue().segments.toArray()));
+            }
+        }
+        return new ObjIndex(vertices.build(), textureVertices.build(), normals.build(), faceCount,
+                segmentStarts.toArray(), segmentEnds.toArray(), segmentLines.toArray(),
+                segmentVertexBases.toArray(), segmentTextureVertexBases.toArray(), segmentNormalBases.toArray(),
+                segmentFaceCounts.toArray(), result);
+    }
+
+    private void scanLine() {
+        final int start = skipWhitespace(lineStart);
+        if (start == lineEnd) {
+            return;
+        }
+        final int end = wordEnd(start);
+        final int length = end - start;
+        final byte first = buffer[start];
+        if (length == 1) {
+            switch (first) {
+                case 'v' -> vertices.element(bufferOffset + lineStart, bufferOffset + lineEnd, lineInd - 1);
+                case 'f' -> {
+                    faceCount++;
+                    segmentFaceCount++;
+                }
+                case 'o' -> {
+                    startSegment();
+                    object = restOfLine(end);
+                }
+                case 'g' -> {
+                    startSegment();
+                    groups.clear();
+                    for (int word = skipWhitespace(end); word < lineEnd; word = skipWhitespace(wordEnd(word))) {
+                        final String group = new String(buffer, word, wordEnd(word) - word, StandardCharsets.UTF_8);
+                        if (!groups.contains(group)) {
+                            groups.add(group);
+                        }
+                    }
+                    if (groups.isEmpty()) {
+                        groups.add(DEFAULT_GROUP);
+                    }
+                }
+                default -> {}
+            }
+        } else if (length == 2 && first == 'v') {
+            if (buffer[start + 1] == 't') {
+                textureVertices.element(bufferOffset + lineStart, bufferOffset + lineEnd, lineInd - 1);
+            } else if (buffer[start + 1] == 'n') {
+                normals.element(bufferOffset + lineStart, bufferOffset + lineEnd, lineInd - 1);
+            }
+        } else if (length == USEMTL.length
+                && Arrays.equals(buffer, start, end, USEMTL, 0, USEMTL.length)) {
+            startSegment();
+            material = restOfLine(end);
+        }
+    }
+
+    // Строка o, g или usemtl закрывает текущий кусок и начинает новый с себя самой
+    private void startSegment() {
+        final long start = bufferOffset + lineStart;
+        closeSegment(start);
+        segmentStart = start;
+        segmentLine = lineInd - 1;
+        segmentVertexBase = vertices.count;
+        segmentTextureVertexBase = textureVertices.count;
+        segmentNormalBase = normals.count;
+        segmentFaceCount = 0;
+    }
+
+    // Кусок без граней или без владельцев не нужен: читать из него нечего
+    private void closeSegment(long end) {
+        if (segmentFaceCount == 0 || (object == null && groups.isEmpty() && material == null)) {
+            return;
+        }
+        final int segment = segmentStarts.size();
+        segmentStarts.add(segmentStart);
+        segmentEnds.add(end);
+        segmentLines.add(segmentLine);
+        segmentVertexBases.add(segmentVertexBase);
+        segmentTextureVertexBases.add(segmentTextureVertexBase);
+        segmentNormalBases.add(segmentNormalBase);
+        segmentFaceCounts.add(segmentFaceCount);
+
+        if (object != null) {
+            entry(Kind.OBJECT, object).add(segment, segmentFaceCount);
+        }
+        for (String group : groups) {
+            entry(Kind.GROUP, group).add(segment, segmentFaceCount);
+        }
+        if (material != null) {
+            entry(Kind.MATERIAL, material).add(segment, segmentFaceCount);
+        }
+    }
+
+    private EntryBuilder entry(Kind kind, String name) {
+        return entries.get(kind).computeIfAbsent(name, key -> new EntryBuilder());
+    }
+
+    private String restOfLine(int from) {
+        final int start = skipWhitespace(from);
+        int end = lineEnd;
+        while (end > start && isWhitespace(buffer[end - 1])) {
+            end--;
+        }
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private int skipWhitespace(int from) {
+        while (from < lineEnd && isWhitespace(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private int wordEnd(int start) {
+        int end = start;
+        while (end < lineEnd && !isWhitespace(buffer[end])) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    private boolean nextLine() throws IOException {
+        if (skipLineFeed) {
+            if (nextLineStart == limit) {
+                compactAndFill(nextLineStart);
+            }
+            if (nextLineStart < limit && buffer[nextLineStart] == '\n') {
+                nextLineStart++;
+            }
+            skipLineFeed = false;
+        }
+
+        int scan = nextLineStart;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                final byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    startLine(i);
+                    nextLineStart = i + 1;
+                    skipLineFeed = b == '\r';
+                    return true;
+                }
+            }
+
+            if (endOfInput) {
+                if (nextLineStart < limit) {
+                    startLine(limit);
+                    nextLineStart = limit;
+                    return true;
+                }
+                return false;
+            }
+
+            final int scanned = limit - nextLineStart;
+            compactAndFill(nextLineStart);
+            scan = nextLineStart + scanned;
+        }
+    }
+
+    private void startLine(int end) {
+        lineStart = nextLineStart;
+        lineEnd = end;
+        lineInd++;
+    }
+
+    // Переносит недочитанную строку в начало буфера и дочитывает файл. Длинная строка увеличивает буфер.
+    private void compactAndFill(int keepFrom) throws IOException {
+        final int kept = limit - keepFrom;
+        System.arraycopy(buffer, keepFrom, buffer, 0, kept);
+        bufferOffset += keepFrom;
+        nextLineStart -= keepFrom;
+        limit = kept;
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        final int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private static final class CheckpointBuilder {
+        private final LongArrayList offsets = new LongArrayList();
+        private final IntArrayList lines = new IntArrayList();
+        private int count;
+        private long end;
+
+        void element(long lineStart, long lineEnd, int linesBefore) {
+            if (count % ObjIndex.ELEMENTS_PER_CHECKPOINT == 0) {
+                offsets.add(lineStart);
+                lines.add(linesBefore);
+            }
+            count++;
+            end = lineEnd;
+        }
+
+        ObjIndex.Checkpoints build() {
+            offsets.add(end);
+            return new ObjIndex.Checkpoints(count, offsets.toArray(), lines.toArray());
+        }
+    }
+
+    private static final class EntryBuilder {
+        private final IntArrayList segments = new IntArrayList(4);
+        private int faceCount;
+
+        void add(int segment, int segmentFaceCount) {
+            segments.add(segment);
+            faceCount += segmentFaceCount;
+        }
+    }
+}
@@ -1,59 +1,259 @@
 package com.cgvsu.objreader;
 
+import com.cgvsu.compression.GzipFiles;
 import com.cgvsu.math.Vector2f;
 import com.cgvsu.math.Vector3f;
+import com.cgvsu.meshcache.MeshCache;
+import com.cgvsu.model.MeshData;
 import com.cgvsu.model.Model;
+import com.cgvsu.model.OffHeapMesh;
 import com.cgvsu.model.Polygon;
+import com.cgvsu.offheap.OffHeapStorage;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Scanner;
 
 public class ObjReader {
 
-	private static final String OBJ_VERTEX_TOKEN = "v";
-	private static final String OBJ_TEXTURE_TOKEN = "vt";
-	private static final String OBJ_NORMAL_TOKEN = "vn";
-	private static final String OBJ_FACE_TOKEN = "f";
+	static final String TOO_FEW_VERTEX_ARGUMENTS = "Too few vertex arguments.";
+	static final String TOO_FEW_TEXTURE_VERTEX_ARGUMENTS = "Too few texture vertex arguments.";
+	static final String TOO_FEW_NORMAL_ARGUMENTS = "Too few normal arguments.";
+
+	// -Dcom.cgvsu.meshcache=true включает кеш с самого запуска
+	public static final String MESH_CACHE_PROPERTY = "com.cgvsu.meshcache";
+
+	// Читает ли readMesh(Path) через двоичный кеш (см. readMeshCached). По умолчанию выключено:
+	// кеш пишет файлы рядом с исходными, а это не всегда можно и не всегда нужно.
+	private static volatile boolean meshCacheEnabled = Boolean.getBoolean(MESH_CACHE_PROPERTY);
 
 	public static Model read(String fileContent) {
-		Model result = new Model();
-
-		int lineInd = 0;
-		Scanner scanner = new Scanner(fileContent);
-		while (scanner.hasNextLine()) {
-			final String line = scanner.nextLine();
-			ArrayList<String> wordsInLine = new ArrayList<String>(Arrays.asList(line.split("\\s+")));
-			if (wordsInLine.isEmpty()) {
-				continue;
-			}
+		try {
+			return read(new ByteArrayInputStream(fileContent.getBytes(StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			// поток в памяти не бросает IOException
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Файл с расширением .gz распаковывается на лету (см. GzipFiles)
+	public static Model read(Path path) throws IOException {
+		try (InputStream inputStream = GzipFiles.newInputStream(path)) {
+			return read(inputStream);
+		}
+	}
 
-			final String token = wordsInLine.get(0);
-			wordsInLine.remove(0);
+	public static Model read(ReadableByteChannel channel) throws IOException {
+		return read(Channels.newInputStream(channel));
+	}
+
+	// Поток не закрывается, этим занимается вызывающий код.
+	// Файл никогда не загружается в память целиком, поэтому пиковое потребление памяти
+	// определяется размером модели, а не размером файла.
+	public static Model read(InputStream inputStream) throws IOException {
+		ModelBuilder builder = new ModelBuilder();
+		read(inputStream, builder);
+		return builder.result;
+	}
+
+	public static boolean isMeshCacheEnabled() {
+		return meshCacheEnabled;
+	}
+
+	public static void setMeshCacheEnabled(boolean enabled) {
+		meshCacheEnabled = enabled;
+	}
+
+	// Чтение в компактное представление MeshData, без объектов на каждую вершину и полигон.
+	// Если кеш включен (setMeshCacheEnabled), это то же самое, что readMeshCached.
+	public static MeshData readMesh(Path path) throws IOException {
+		return meshCacheEnabled ? readMeshCached(path) : parseMesh(path);
+	}
 
-			++lineInd;
-			switch (token) {
-				// Для структур типа вершин методы написаны так, чтобы ничего не знать о внешней среде.
-				// Они принимают только то, что им нужно для работы, а возвращают только то, что могут создать.
+	private static MeshData parseMesh(Path path) throws IOException {
+		try (InputStream inputStream = GzipFiles.newInputStream(path)) {
+			return readMesh(inputStream);
+		}
+	}
+
+	public static MeshData readMesh(InputStream inputStream) throws IOException {
+		MeshBuilder builder = new MeshBuilder();
+		read(inputStream, builder);
+		return builder.build();
+	}
+
+	// Чтение с наблюдателем: observer получает каждый элемент раньше, чем тот попадет в MeshData.
+	// Так за один проход по файлу можно, например, проверить индексы (см. ParseValidator).
+	public static MeshData readMesh(Path path, ObjElementHandler observer) throws IOException {
+		try (InputStream inputStream = GzipFiles.newInputStream(path)) {
+			return readMesh(inputStream, observer);
+		}
+	}
+
+	public static MeshData readMesh(InputStream inputStream, ObjElementHandler observer) throws IOException {
+		MeshBuilder builder = new MeshBuilder();
+		read(inputStream, new ObservedHandler(observer, builder));
+		return builder.build();
+	}
+
+	// Чтение через двоичный кеш рядом с файлом (см. MeshCache): если кеш свежий, текст не разбирается вовсе,
+	// иначе файл разбирается как обычно и кеш перезаписывается.
+	// Массивы из кеша копируются в кучу: поля MeshData - обычные массивы, отображенный файл их заменить не может.
+	public static MeshData readMeshCached(Path path) throws IOException {
+		MeshCache cache = MeshCache.load(path);
+		if (cache != null) {
+			return cache.getMesh();
+		}
+		MeshCache.SourceStamp stamp = MeshCache.SourceStamp.of(path);
+		MeshData mesh = parseMesh(path);
+		try {
+			MeshCache.save(path, stamp, mesh, null);
+		} catch (IOException e) {
+			// кеш только ускоряет чтение: если рядом с файлом писать нельзя, модель все равно возвращается
+		}
+		return mesh;
+	}
+
+	// Чтение модели, которая не помещается в кучу: все данные пишутся в массивы из storage
+	public static OffHeapMesh readOffHeap(Path path, OffHeapStorage storage) throws IOException {
+		try (InputStream inputStream = GzipFiles.newInputStream(path)) {
+			OffHeapMeshBuilder builder = new OffHeapMeshBuilder(storage);
+			read(inputStream, builder);
+			return builder.build();
+		}
+	}
+
+	public static void read(InputStream inputStream, ObjElementHandler handler) throws IOException {
+		parse(new ObjTokenizer(inputStream), handler);
+	}
+
+	// observer получает каждый элемент раньше handler
+	public static void read(InputStream inputStream, ObjElementHandler observer, ObjElementHandler handler)
+			throws IOException {
+		read(inputStream, new ObservedHandler(observer, handler));
+	}
+
+	static void parse(ObjTokenizer tokenizer, ObjElementHandler handler) throws IOException {
+		FaceIndices face = new FaceIndices();
+		while (tokenizer.nextLine()) {
+			switch (tokenizer.nextKeyword()) {
+				// Разборщик ничего не знает о модели: он только отдает найденные элементы обработчику.
 				// Исключение - индекс строки. Он прокидывается, чтобы выводить сообщение об ошибке.
-				// Могло быть иначе. Например, метод parseVertex мог вместо возвращения вершины принимать вектор вершин
-				// модели или сам класс модели, работать с ним.
-				// Но такой подход может привести к большему количеству ошибок в коде. Например, в нем что-то может
-				// тайно сделаться с классом модели.
-				// А еще это портит читаемость
-				// И не стоит забывать про тесты. Чем проще вам задать данные для теста, проверить, что метод рабочий,
-				// тем лучше.
-				case OBJ_VERTEX_TOKEN -> result.vertices.add(parseVertex(wordsInLine, lineInd));
-				case OBJ_TEXTURE_TOKEN -> result.textureVertices.add(parseTextureVertex(wordsInLine, lineInd));
-				case OBJ_NORMAL_TOKEN -> result.normals.add(parseNormal(wordsInLine, lineInd));
-				case OBJ_FACE_TOKEN -> result.polygons.add(parseFace(wordsInLine, lineInd));
+				// Так один и тот же код разбора можно проверить в тестах и переиспользовать для разных представлений.
+				case VERTEX -> handler.vertex(
+						tokenizer.nextFloat(TOO_FEW_VERTEX_ARGUMENTS),
+						tokenizer.nextFloat(TOO_FEW_VERTEX_ARGUMENTS),
+						tokenizer.nextFloat(TOO_FEW_VERTEX_ARGUMENTS));
+				case TEXTURE_VERTEX -> handler.textureVertex(
+						tokenizer.nextFloat(TOO_FEW_TEXTURE_VERTEX_ARGUMENTS),
+						tokenizer.nextFloat(TOO_FEW_TEXTURE_VERTEX_ARGUMENTS));
+				case NORMAL -> handler.normal(
+						tokenizer.nextFloat(TOO_FEW_NORMAL_ARGUMENTS),
+						tokenizer.nextFloat(TOO_FEW_NORMAL_ARGUMENTS),
+						tokenizer.nextFloat(TOO_FEW_NORMAL_ARGUMENTS));
+				case FACE -> {
+					face.clear();
+					while (tokenizer.hasNextWord()) {
+						tokenizer.nextFaceWord(face);
+					}
+					handler.face(face, tokenizer.getLineInd());
+				}
 				default -> {}
 			}
 		}
+	}
 
-		return result;
+	// Передает каждый элемент сначала наблюдателю, потом основному обработчику
+	private static class ObservedHandler implements ObjElementHandler {
+		private final ObjElementHandler observer;
+		private final ObjElementHandler handler;
+
+		ObservedHandler(ObjElementHandler observer, ObjElementHandler handler) {
+			this.observer = observer;
+			this.handler = handler;
+		}
+
+		@Override
+		public void vertex(float x, float y, float z) {
+			observer.vertex(x, y, z);
+			handler.vertex(x, y, z);
+		}
+
+		@Override
+		public void textureVertex(float u, float v) {
+			observer.textureVertex(u, v);
+			handler.textureVertex(u, v);
+		}
+
+		@Override
+		public void normal(float x, float y, float z) {
+			observer.normal(x, y, z);
+			handler.normal(x, y, z);
+		}
+
+		@Override
+		public void face(FaceIndices face, int lineInd) {
+			observer.face(face, lineInd);
+			handler.face(face, lineInd);
+		}
+	}
+
+	// Собирает Model из разобранных элементов
+	private static class ModelBuilder implements ObjElementHandler {
+		private final Model result = new Model();
+
+		@Override
+		public void vertex(float x, float y, float z) {
+			result.vertices.add(new Vector3f(x, y, z));
+		}
+
+		@Override
+		public void textureVertex(float u, float v) {
+			result.textureVertices.add(new Vector2f(u, v));
+		}
+
+		@Override
+		public void normal(float x, float y, float z) {
+			result.normals.add(new Vector3f(x, y, z));
+		}
+
+		@Override
+		public void face(FaceIndices face, int lineInd) {
+			Polygon polygon = new Polygon();
+			polygon.setVertexIndices(
+					toIndexList(face.vertexIndices, face.vertexCount, result.vertices.size()));
+			polygon.setTextureVertexIndices(
+					toIndexList(face.textureVertexIndices, face.textureVertexCount, result.textureVertices.size()));
+			polygon.setNormalIndices(
+					toIndexList(face.normalIndices, face.normalCount, result.normals.size()));
+			result.polygons.add(polygon);
+		}
+
+		private static ArrayList<Integer> toIndexList(int[] indices, int count, int elementCount) {
+			ArrayList<Integer> result = new ArrayList<Integer>(count);
+			for (int i = 0; i < count; i++) {
+				result.add(toZeroBasedIndex(indices[i], elementCount));
+			}
+			return result;
+		}
+	}
+
+	// Переводит индекс из файла в индекс массива.
+	// Отрицательные индексы в OBJ отсчитываются от последнего уже прочитанного элемента: -1 - это последний.
+	// Ноль в OBJ недопустим, он превращается в -1 и отлавливается при проверке индексов.
+	public static int toZeroBasedIndex(int index, int elementCount) {
+		return index < 0 ? elementCount + index : index - 1;
 	}
 
+	// Методы ниже разбирают уже разбитую на слова строку.
+	// Основной разбор идет через ObjTokenizer, а эти методы удобно использовать для разбора отдельных строк.
 	// Всем методам кроме основного я поставил модификатор доступа protected, чтобы обращаться к ним в тестах
 	protected static Vector3f parseVertex(final ArrayList<String> wordsInLineWithoutToken, int lineInd) {
 		try {
@@ -66,7 +266,7 @@ public class ObjReader {
 			throw new ObjReaderException("Failed to parse float value.", lineInd);
 
 		} catch(IndexOutOfBoundsException e) {
-			throw new ObjReaderException("Too few vertex arguments.", lineInd);
+			throw new ObjReaderException(TOO_FEW_VERTEX_ARGUMENTS, lineInd);
 		}
 	}
 
@@ -80,7 +280,7 @@ public class ObjReader {
 			throw new ObjReaderException("Failed to parse float value.", lineInd);
 
 		} catch(IndexOutOfBoundsException e) {
-			throw new ObjReaderException("Too few texture vertex arguments.", lineInd);
+			throw new ObjReaderException(TOO_FEW_TEXTURE_VERTEX_ARGUMENTS, lineInd);
 		}
 	}
 
@@ -95,7 +295,7 @@ public class ObjReader {
 			throw new ObjReaderException("Failed to parse float value.", lineInd);
 
 		} catch(IndexOutOfBoundsException e) {
-			throw new ObjReaderException("Too few normal arguments.", lineInd);
+			throw new ObjReaderException(TOO_FEW_NORMAL_ARGUMENTS, lineInd);
 		}
 	}
 
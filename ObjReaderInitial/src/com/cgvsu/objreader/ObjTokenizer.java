@@ -0,0 +1,406 @@
+package com.cgvsu.objreader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Разбор OBJ прямо по байтам, без Scanner, split и промежуточных строк.
+// Строка целиком находится в буфере, поэтому слова разбираются на месте.
+public class ObjTokenizer {
+
+    public enum Keyword {
+        VERTEX,
+        TEXTURE_VERTEX,
+        NORMAL,
+        FACE,
+        OTHER,
+        EMPTY
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    // 2^24 - все целые до этого значения точно представимы во float
+    private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+    // 2^53 - то же самое для double
+    private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+    private static final int MAX_SIGNIFICANT_DIGITS = 18;
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream inputStream;
+    private final ByteBuffer source;
+
+    private byte[] buffer;
+    private int limit;
+    private boolean endOfInput;
+
+    private int lineEnd;
+    private int nextLineStart;
+    private boolean skipLineFeed;
+    private int pos;
+    private int lineInd;
+
+    public ObjTokenizer(InputStream inputStream) {
+        this.inputStream = inputStream;
+        this.source = null;
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+    }
+
+    // Буфер читается от position до limit, его состояние меняется
+    public ObjTokenizer(ByteBuffer source) {
+        this.inputStream = null;
+        this.source = source;
+        this.buffer = new byte[Math.min(DEFAULT_BUFFER_SIZE, Math.max(source.remaining(), 16))];
+    }
+
+    public int getLineInd() {
+        return lineInd;
+    }
+
+    // Переходит к следующей строке. Возвращает false, если данные закончились.
+    public boolean nextLine() throws IOException {
+        if (skipLineFeed) {
+            if (nextLineStart == limit) {
+                compactAndFill(nextLineStart);
+            }
+            if (nextLineStart < limit && buffer[nextLineStart] == '\n') {
+                nextLineStart++;
+            }
+            skipLineFeed = false;
+        }
+
+        int scan = nextLineStart;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                final byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    startLine(i);
+                    nextLineStart = i + 1;
+                    skipLineFeed = b == '\r';
+                    return true;
+                }
+            }
+
+            if (endOfInput) {
+                if (nextLineStart < limit) {
+                    startLine(limit);
+                    nextLineStart = limit;
+                    return true;
+                }
+                return false;
+            }
+
+            final int scanned = limit - nextLineStart;
+            compactAndFill(nextLineStart);
+            scan = nextLineStart + scanned;
+        }
+    }
+
+    public Keyword nextKeyword() {
+        if (!skipWhitespace()) {
+            return Keyword.EMPTY;
+        }
+
+        final int start = pos;
+        final int end = wordEnd(start);
+        pos = end;
+
+        final int length = end - start;
+        final byte first = buffer[start];
+        if (length == 1) {
+            if (first == 'v') {
+                return Keyword.VERTEX;
+            }
+            if (first == 'f') {
+                return Keyword.FACE;
+            }
+        } else if (length == 2 && first == 'v') {
+            if (buffer[start + 1] == 't') {
+                return Keyword.TEXTURE_VERTEX;
+            }
+            if (buffer[start + 1] == 'n') {
+                return Keyword.NORMAL;
+            }
+        }
+        return Keyword.OTHER;
+    }
+
+    public boolean hasNextWord() {
+        return skipWhitespace();
+    }
+
+    // Читает следующее число. Если слов в строке больше нет - бросает исключение с сообщением tooFewMessage.
+    public float nextFloat(String tooFewMessage) {
+        if (!skipWhitespace()) {
+            throw new ObjReaderException(tooFewMessage, lineInd);
+        }
+
+        final int start = pos;
+        final int end = wordEnd(start);
+        pos = end;
+
+        return parseFloat(start, end);
+    }
+
+    // Разбирает одно слово грани вида v, v/vt, v//vn или v/vt/vn.
+    // Правила совпадают с прежним разбором через split("/"): пустые части в конце отбрасываются.
+    public void nextFaceWord(FaceIndices face) {
+        skipWhitespace();
+
+        final int start = pos;
+        final int end = wordEnd(start);
+        pos = end;
+
+        int partCount = 0;
+        int lastNonEmptyPart = -1;
+        int vertexStart = 0, vertexEnd = 0;
+        int textureStart = 0, textureEnd = 0;
+        int normalStart = 0, normalEnd = 0;
+
+        int partStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i < end && buffer[i] != '/') {
+                continue;
+            }
+
+            if (i > partStart) {
+                lastNonEmptyPart = partCount;
+            }
+            switch (partCount) {
+                case 0 -> {
+                    vertexStart = partStart;
+                    vertexEnd = i;
+                }
+                case 1 -> {
+                    textureStart = partStart;
+                    textureEnd = i;
+                }
+                case 2 -> {
+                    normalStart = partStart;
+                    normalEnd = i;
+                }
+                default -> {}
+            }
+            partCount++;
+            partStart = i + 1;
+        }
+
+        switch (lastNonEmptyPart + 1) {
+            case 1 -> face.addVertexIndex(parseInt(vertexStart, vertexEnd));
+            case 2 -> {
+                face.addVertexIndex(parseInt(vertexStart, vertexEnd));
+                face.addTextureVertexIndex(parseInt(textureStart, textureEnd));
+            }
+            case 3 -> {
+                face.addVertexIndex(parseInt(vertexStart, vertexEnd));
+                face.addNormalIndex(parseInt(normalStart, normalEnd));
+                if (textureEnd > textureStart) {
+                    face.addTextureVertexIndex(parseInt(textureStart, textureEnd));
+                }
+            }
+            default -> throw new ObjReaderException("Invalid element size.", lineInd);
+        }
+    }
+
+    private void startLine(int end) {
+        lineEnd = end;
+        pos = nextLineStart;
+        lineInd++;
+    }
+
+    private boolean skipWhitespace() {
+        while (pos < lineEnd && isWhitespace(buffer[pos])) {
+            pos++;
+        }
+        return pos < lineEnd;
+    }
+
+    private int wordEnd(int start) {
+        int end = start;
+        while (end < lineEnd && !isWhitespace(buffer[end])) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    // Переносит недочитанную строку в начало буфера и дочитывает данные из источника
+    private void compactAndFill(int keepFrom) throws IOException {
+        final int kept = limit - keepFrom;
+        if (keepFrom > 0) {
+            System.arraycopy(buffer, keepFrom, buffer, 0, kept);
+        } else if (kept == buffer.length) {
+            // строка длиннее буфера
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        limit = kept;
+        nextLineStart = 0;
+
+        if (inputStream != null) {
+            final int read = inputStream.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+        } else {
+            final int read = Math.min(source.remaining(), buffer.length - limit);
+            source.get(buffer, limit, read);
+            limit += read;
+            if (!source.hasRemaining()) {
+                endOfInput = true;
+            }
+        }
+    }
+
+    private int parseInt(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new ObjReaderException("Failed to parse int value.", lineInd);
+        }
+
+        // накапливаем отрицательное значение, чтобы корректно разобрать Integer.MIN_VALUE
+        int result = 0;
+        for (; i < end; i++) {
+            final int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10) {
+                throw new ObjReaderException("Failed to parse int value.", lineInd);
+            }
+            result = result * 10 - digit;
+        }
+
+        if (!negative) {
+            if (result == Integer.MIN_VALUE) {
+                throw new ObjReaderException("Failed to parse int value.", lineInd);
+            }
+            result = -result;
+        }
+        return result;
+    }
+
+    // Быстрый разбор чисел вида [-+]123.456[e-7].
+    // Результат всегда совпадает с Float.parseFloat: если быстрый путь не может гарантировать
+    // точное округление, разбор делегируется Float.parseFloat.
+    private float parseFloat(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean afterPoint = false;
+        for (; i < end; i++) {
+            final byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (mantissa == 0 && b == '0') {
+                    // ведущие нули не занимают разрядов мантиссы
+                    if (afterPoint) {
+                        exponent--;
+                    }
+                    continue;
+                }
+                if (significantDigits == MAX_SIGNIFICANT_DIGITS) {
+                    return parseFloatSlow(start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                significantDigits++;
+                if (afterPoint) {
+                    exponent--;
+                }
+            } else if (b == '.' && !afterPoint) {
+                afterPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return parseFloatSlow(start, end);
+        }
+
+        if (i < end) {
+            if (buffer[i] != 'e' && buffer[i] != 'E') {
+                return parseFloatSlow(start, end);
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+                negativeExponent = buffer[i] == '-';
+                i++;
+            }
+            if (i == end) {
+                return parseFloatSlow(start, end);
+            }
+            int explicitExponent = 0;
+            for (; i < end; i++) {
+                final int digit = buffer[i] - '0';
+                if (digit < 0 || digit > 9 || explicitExponent > 1000) {
+                    return parseFloatSlow(start, end);
+                }
+                explicitExponent = explicitExponent * 10 + digit;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        float result;
+        if (mantissa == 0) {
+            result = 0.0f;
+        } else if (mantissa < MAX_EXACT_FLOAT_MANTISSA && Math.abs(exponent) < FLOAT_POWERS_OF_TEN.length) {
+            // оба операнда точны во float, поэтому одна операция дает правильно округленный результат
+            result = exponent < 0
+                    ? (float) mantissa / FLOAT_POWERS_OF_TEN[-exponent]
+                    : (float) mantissa * FLOAT_POWERS_OF_TEN[exponent];
+        } else if (mantissa < MAX_EXACT_DOUBLE_MANTISSA && Math.abs(exponent) < DOUBLE_POWERS_OF_TEN.length) {
+            final double value = exponent < 0
+                    ? (double) mantissa / DOUBLE_POWERS_OF_TEN[-exponent]
+                    : (double) mantissa * DOUBLE_POWERS_OF_TEN[exponent];
+            if (!isSafelyRoundedToFloat(value)) {
+                return parseFloatSlow(start, end);
+            }
+            result = (float) value;
+        } else {
+            return parseFloatSlow(start, end);
+        }
+
+        return negative ? -result : result;
+    }
+
+    // Двойное округление (строка -> double -> float) может ошибиться только тогда,
+    // когда double попал ровно в середину между двумя соседними float.
+    private static boolean isSafelyRoundedToFloat(double value) {
+        if (value < Float.MIN_NORMAL || value > Float.MAX_VALUE) {
+            return false;
+        }
+        final long droppedBits = Double.doubleToRawLongBits(value) & ((1L << 29) - 1);
+        return droppedBits != (1L << 28);
+    }
+
+    private float parseFloatSlow(int start, int end) {
+        try {
+            return Float.parseFloat(new String(buffer, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw new ObjReaderException("Failed to parse float value.", lineInd);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.OffHeapMesh;
+import com.cgvsu.offheap.OffHeapFloatArray;
+import com.cgvsu.offheap.OffHeapIntArray;
+import com.cgvsu.offheap.OffHeapLongArray;
+import com.cgvsu.offheap.OffHeapStorage;
+
+// То же, что MeshBuilder, но все данные сразу пишутся в массивы вне кучи
+class OffHeapMeshBuilder implements ObjElementHandler {
+    private final OffHeapFloatArray positions;
+    private final OffHeapFloatArray textureVertices;
+    private final OffHeapFloatArray normals;
+
+    private final OffHeapLongArray faceOffsets;
+    private final OffHeapIntArray vertexIndices;
+    private final OffHeapIntArray textureVertexIndices;
+    private final OffHeapIntArray normalIndices;
+
+    OffHeapMeshBuilder(OffHeapStorage storage) {
+        positions = storage.newFloatArray();
+        textureVertices = storage.newFloatArray();
+        normals = storage.newFloatArray();
+        faceOffsets = storage.newLongArray();
+        vertexIndices = storage.newIntArray();
+        textureVertexIndices = storage.newIntArray();
+        normalIndices = storage.newIntArray();
+        faceOffsets.add(0);
+    }
+
+    @Override
+    public void vertex(float x, float y, float z) {
+        positions.add(x);
+        positions.add(y);
+        positions.add(z);
+    }
+
+    @Override
+    public void textureVertex(float u, float v) {
+        textureVertices.add(u);
+        textureVertices.add(v);
+    }
+
+    @Override
+    public void normal(float x, float y, float z) {
+        normals.add(x);
+        normals.add(y);
+        normals.add(z);
+    }
+
+    @Override
+    public void face(FaceIndices face, int lineInd) {
+        // те же ограничения, что у Polygon
+        if (face.vertexCount < 3) {
+            throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+        }
+        if (face.textureVertexCount != 0 && face.textureVertexCount < 3) {
+            throw new IllegalArgumentException("Texture indices must be empty or have at least 3 elements");
+        }
+        if (face.normalCount != 0 && face.normalCount < 3) {
+            throw new IllegalArgumentException("Normal indices must be empty or have at least 3 elements");
+        }
+
+        final long cornerStart = vertexIndices.size();
+        final int size = face.vertexCount;
+        final int vertexCount = (int) (positions.size() / 3);
+        for (int i = 0; i < size; i++) {
+            vertexIndices.add(ObjReader.toZeroBasedIndex(face.vertexIndices[i], vertexCount));
+        }
+        addAttributeIndices(face.textureVertexIndices, face.textureVertexCount, cornerStart, size,
+                (int) (textureVertices.size() / 2), textureVertexIndices);
+        addAttributeIndices(face.normalIndices, face.normalCount, cornerStart, size,
+                (int) (normals.size() / 3), normalIndices);
+        faceOffsets.add(vertexIndices.size());
+    }
+
+    private static void addAttributeIndices(int[] indices, int count, long cornerStart, int faceSize,
+                                            int elementCount, OffHeapIntArray target) {
+        if (count != faceSize) {
+            if (target.size() != 0) {
+                padWithNoIndex(target, cornerStart + faceSize);
+            }
+            return;
+        }
+        padWithNoIndex(target, cornerStart);
+        for (int i = 0; i < count; i++) {
+            target.add(ObjReader.toZeroBasedIndex(indices[i], elementCount));
+        }
+    }
+
+    private static void padWithNoIndex(OffHeapIntArray target, long size) {
+        while (target.size() < size) {
+            target.add(MeshData.NO_INDEX);
+        }
+    }
+
+    OffHeapMesh build() {
+        if (textureVertexIndices.size() != 0) {
+            padWithNoIndex(textureVertexIndices, vertexIndices.size());
+        }
+        if (normalIndices.size() != 0) {
+            padWithNoIndex(normalIndices, vertexIndices.size());
+        }
+        return new OffHeapMesh(positions, textureVertices, normals,
+                faceOffsets, vertexIndices, textureVertexIndices, normalIndices);
+    }
+}
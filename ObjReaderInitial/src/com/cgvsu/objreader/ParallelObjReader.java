@@ -0,0 +1,479 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.compression.GzipFiles;
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+// Многопоточное чтение OBJ-файла.
+// Файл отображается в память, делится на куски по границам строк, куски разбираются параллельно,
+// а затем результаты склеиваются в одну модель в порядке следования в файле.
+// Сжатый файл (.obj.gz) распаковывается в вызывающем потоке и по кускам отдается на разбор пулу,
+// целиком распакованный текст в памяти не хранится.
+public class ParallelObjReader {
+
+    // Файлы меньше этого размера быстрее прочитать одним потоком
+    private static final long MIN_PARALLEL_FILE_SIZE = 1 << 22;
+    private static final long MIN_CHUNK_SIZE = 1 << 22;
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+    // Кусков больше, чем потоков, чтобы потоки не простаивали из-за неравномерных кусков
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int BOUNDARY_SEARCH_BUFFER_SIZE = 1 << 12;
+    // gzip сжимает OBJ в 3-4 раза, так что это примерно те же 4 МБ текста
+    private static final long MIN_PARALLEL_COMPRESSED_FILE_SIZE = 1 << 20;
+    // Распакованные куски сжатого файла: меньше, чем при отображении в память, чтобы пул начал работу раньше
+    private static final int COMPRESSED_CHUNK_SIZE = 1 << 22;
+
+    public static Model read(Path path) throws IOException {
+        return read(path, ForkJoinPool.commonPool());
+    }
+
+    public static Model read(Path path, ForkJoinPool pool) throws IOException {
+        if (GzipFiles.isCompressed(path)) {
+            if (!isWorthParallelDecompression(path, pool)) {
+                return ObjReader.read(path);
+            }
+            try (InputStream inputStream = GzipFiles.newInputStream(path)) {
+                return merge(parseChunks(inputStream, pool, COMPRESSED_CHUNK_SIZE), pool);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < MIN_PARALLEL_FILE_SIZE) {
+                return ObjReader.read(path);
+            }
+            return read(channel, pool, chooseChunkSize(channel.size(), pool));
+        }
+    }
+
+    public static MeshData readMesh(Path path) throws IOException {
+        return readMesh(path, ForkJoinPool.commonPool());
+    }
+
+    public static MeshData readMesh(Path path, ForkJoinPool pool) throws IOException {
+        if (GzipFiles.isCompressed(path)) {
+            if (!isWorthParallelDecompression(path, pool)) {
+                return ObjReader.readMesh(path);
+            }
+            try (InputStream inputStream = GzipFiles.newInputStream(path)) {
+                return mergeMesh(parseChunks(inputStream, pool, COMPRESSED_CHUNK_SIZE), pool);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < MIN_PARALLEL_FILE_SIZE) {
+                return ObjReader.readMesh(path);
+            }
+            return mergeMesh(parseChunks(channel, pool, chooseChunkSize(channel.size(), pool)), pool);
+        }
+    }
+
+    // Распаковка идет в одном потоке, поэтому пул из одного потока ничего не ускорит
+    private static boolean isWorthParallelDecompression(Path path, ForkJoinPool pool) throws IOException {
+        return pool.getParallelism() >= 2 && Files.size(path) >= MIN_PARALLEL_COMPRESSED_FILE_SIZE;
+    }
+
+    private static long chooseChunkSize(long fileSize, ForkJoinPool pool) {
+        return Math.max(MIN_CHUNK_SIZE,
+                Math.min(MAX_CHUNK_SIZE, fileSize / ((long) pool.getParallelism() * CHUNKS_PER_THREAD)));
+    }
+
+    // Размер куска задается явно - удобно для проверки склейки на маленьких файлах
+    static Model read(FileChannel channel, ForkJoinPool pool, long chunkSize) throws IOException {
+        return merge(parseChunks(channel, pool, chunkSize), pool);
+    }
+
+    static MeshData readMesh(FileChannel channel, ForkJoinPool pool, long chunkSize) throws IOException {
+        return mergeMesh(parseChunks(channel, pool, chunkSize), pool);
+    }
+
+    private static List<ObjChunk> parseChunks(FileChannel channel, ForkJoinPool pool, long chunkSize)
+            throws IOException {
+        final long[] boundaries = findChunkBoundaries(channel, chunkSize);
+
+        List<Callable<ObjChunk>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            final long start = boundaries[i];
+            final long size = boundaries[i + 1] - start;
+            tasks.add(() -> {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                ObjChunk chunk = new ObjChunk();
+                chunk.parse(new ObjTokenizer(buffer));
+                return chunk;
+            });
+        }
+
+        List<ObjChunk> chunks = new ArrayList<>(tasks.size());
+        for (Future<ObjChunk> future : pool.invokeAll(tasks)) {
+            chunks.add(getResult(future));
+        }
+        return chunks;
+    }
+
+    // Куски распакованного потока. Кусок заканчивается последним концом строки в буфере, остаток переносится
+    // в следующий буфер; строка длиннее буфера увеличивает его. Пока пул разбирает куски, вызывающий поток
+    // распаковывает следующий, но в работе не больше parallelism + 1 кусков: разобранные буферы
+    // переиспользуются, поэтому память - около (parallelism + 2) * chunkSize, а не размер файла.
+    static List<ObjChunk> parseChunks(InputStream inputStream, ForkJoinPool pool, int chunkSize)
+            throws IOException {
+        final int window = pool.getParallelism() + 1;
+        final ConcurrentLinkedQueue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+        final ArrayDeque<Future<ObjChunk>> pending = new ArrayDeque<>();
+        final List<ObjChunk> chunks = new ArrayList<>();
+
+        byte[] data = new byte[chunkSize];
+        int size = 0;
+        try {
+            boolean endOfStream = false;
+            while (!endOfStream) {
+                final int read = inputStream.readNBytes(data, size, data.length - size);
+                size += read;
+                endOfStream = size < data.length;
+
+                int end = size;
+                if (!endOfStream) {
+                    end = lastLineEnd(data, size);
+                    if (end == 0) {
+                        // в буфере нет ни одного конца строки
+                        data = Arrays.copyOf(data, data.length * 2);
+                        continue;
+                    }
+                }
+                if (end == 0) {
+                    break;
+                }
+
+                byte[] next = freeBuffers.poll();
+                if (next == null || next.length < Math.max(chunkSize, size - end)) {
+                    next = new byte[Math.max(chunkSize, size - end)];
+                }
+                System.arraycopy(data, end, next, 0, size - end);
+
+                while (pending.size() >= window) {
+                    chunks.add(getResult(pending.poll()));
+                }
+                final byte[] chunkData = data;
+                final int chunkLength = end;
+                pending.add(pool.submit(() -> {
+                    ObjChunk chunk = new ObjChunk();
+                    chunk.parse(new ObjTokenizer(ByteBuffer.wrap(chunkData, 0, chunkLength)));
+                    freeBuffers.add(chunkData);
+                    return chunk;
+                }));
+
+                size -= end;
+                data = next;
+            }
+            while (!pending.isEmpty()) {
+                chunks.add(getResult(pending.poll()));
+            }
+        } finally {
+            for (Future<ObjChunk> future : pending) {
+                future.cancel(false);
+            }
+        }
+        return chunks;
+    }
+
+    // Позиция сразу после последнего конца строки ('\n', '\r' или "\r\n") среди первых size байт или 0.
+    // '\r' в последнем байте не считается: за ним может идти '\n' того же конца строки, и тогда следующий
+    // кусок начался бы с лишней пустой строки.
+    private static int lastLineEnd(byte[] data, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (data[i] == '\n' || data[i] == '\r' && i < size - 1) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Границы кусков: каждый кусок начинается с начала строки.
+    // Первая граница 0, последняя - размер файла.
+    static long[] findChunkBoundaries(FileChannel channel, long chunkSize) throws IOException {
+        final long fileSize = channel.size();
+        ArrayList<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SEARCH_BUFFER_SIZE);
+        long position = chunkSize;
+        while (position < fileSize) {
+            final long lineStart = findNextLineStart(channel, position, buffer);
+            if (lineStart >= fileSize) {
+                break;
+            }
+            boundaries.add(lineStart);
+            position = lineStart + chunkSize;
+        }
+        boundaries.add(fileSize);
+
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Позиция сразу после первого '\n', начиная с position - 1.
+    // Так граница, попавшая точно на начало строки, остается на месте.
+    private static long findNextLineStart(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        long offset = position - 1;
+        while (true) {
+            buffer.clear();
+            final int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    // Склеивает куски в модель. Каждый кусок переносится в заранее выделенные массивы параллельно.
+    static Model merge(List<ObjChunk> chunks, ForkJoinPool pool) {
+        throwFirstError(chunks);
+        final ChunkOffsets offsets = new ChunkOffsets(chunks);
+
+        final Vector3f[] vertices = new Vector3f[offsets.vertexCount()];
+        final Vector2f[] textureVertices = new Vector2f[offsets.textureVertexCount()];
+        final Vector3f[] normals = new Vector3f[offsets.normalCount()];
+        final Polygon[] polygons = new Polygon[offsets.faceCount()];
+
+        runInPool(pool, () -> IntStream.range(0, chunks.size()).parallel().forEach(i -> {
+            ObjChunk chunk = chunks.get(i);
+            chunk.rebaseRelativeIndices(offsets.vertexBases[i], offsets.textureVertexBases[i], offsets.normalBases[i]);
+
+            fillVectors3(chunk.vertices.elements(), vertices, offsets.vertexBases[i], chunk.vertexCount());
+            fillVectors2(chunk.textureVertices.elements(), textureVertices, offsets.textureVertexBases[i],
+                    chunk.textureVertexCount());
+            fillVectors3(chunk.normals.elements(), normals, offsets.normalBases[i], chunk.normalCount());
+            fillPolygons(chunk, polygons, offsets.faceBases[i]);
+        }));
+
+        Model result = new Model();
+        result.vertices = new ArrayList<>(Arrays.asList(vertices));
+        result.textureVertices = new ArrayList<>(Arrays.asList(textureVertices));
+        result.normals = new ArrayList<>(Arrays.asList(normals));
+        result.polygons = new ArrayList<>(Arrays.asList(polygons));
+        return result;
+    }
+
+    static MeshData mergeMesh(List<ObjChunk> chunks, ForkJoinPool pool) {
+        throwFirstError(chunks);
+        final ChunkOffsets offsets = new ChunkOffsets(chunks);
+
+        boolean anyTextures = false;
+        boolean anyNormals = false;
+        for (ObjChunk chunk : chunks) {
+            anyTextures |= chunk.hasTexturedFaces;
+            anyNormals |= chunk.hasFacesWithNormals;
+        }
+
+        final int cornerCount = offsets.cornerCount();
+        final float[] positions = new float[offsets.vertexCount() * 3];
+        final float[] textureVertices = new float[offsets.textureVertexCount() * 2];
+        final float[] normals = new float[offsets.normalCount() * 3];
+        final int[] faceOffsets = new int[offsets.faceCount() + 1];
+        final int[] vertexIndices = new int[cornerCount];
+        final int[] textureVertexIndices = new int[anyTextures ? cornerCount : 0];
+        final int[] normalIndices = new int[anyNormals ? cornerCount : 0];
+
+        runInPool(pool, () -> IntStream.range(0, chunks.size()).parallel().forEach(i -> {
+            ObjChunk chunk = chunks.get(i);
+            chunk.rebaseRelativeIndices(offsets.vertexBases[i], offsets.textureVertexBases[i], offsets.normalBases[i]);
+
+            System.arraycopy(chunk.vertices.elements(), 0, positions, offsets.vertexBases[i] * 3,
+                    chunk.vertices.size());
+            System.arraycopy(chunk.textureVertices.elements(), 0, textureVertices,
+                    offsets.textureVertexBases[i] * 2, chunk.textureVertices.size());
+            System.arraycopy(chunk.normals.elements(), 0, normals, offsets.normalBases[i] * 3,
+                    chunk.normals.size());
+
+            final int cornerBase = offsets.cornerBases[i];
+            System.arraycopy(chunk.vertexIndices.elements(), 0, vertexIndices, cornerBase, chunk.cornerCount());
+
+            int corner = cornerBase;
+            int textureVertexCursor = 0;
+            int normalCursor = 0;
+            for (int face = 0; face < chunk.faceCount(); face++) {
+                final int size = chunk.faceVertexCounts.get(face);
+                final int textureVertexCount = chunk.faceTextureVertexCounts.get(face);
+                final int normalCount = chunk.faceNormalCounts.get(face);
+                if (textureVertexIndices.length != 0) {
+                    copyAttributeIndices(chunk.textureVertexIndices.elements(), textureVertexCursor,
+                            textureVertexCount, textureVertexIndices, corner, size);
+                }
+                if (normalIndices.length != 0) {
+                    copyAttributeIndices(chunk.normalIndices.elements(), normalCursor,
+                            normalCount, normalIndices, corner, size);
+                }
+                textureVertexCursor += textureVertexCount;
+                normalCursor += normalCount;
+                corner += size;
+                faceOffsets[offsets.faceBases[i] + face + 1] = corner;
+            }
+        }));
+
+        return new MeshData(positions, textureVertices, normals,
+                faceOffsets, vertexIndices, textureVertexIndices, normalIndices);
+    }
+
+    // Атрибут, количество индексов которого не совпадает с количеством вершин, считается отсутствующим
+    private static void copyAttributeIndices(int[] source, int from, int count, int[] target, int corner, int size) {
+        if (count == size) {
+            System.arraycopy(source, from, target, corner, size);
+        } else {
+            Arrays.fill(target, corner, corner + size, MeshData.NO_INDEX);
+        }
+    }
+
+    // Смещения каждого куска в общих массивах модели
+    private static class ChunkOffsets {
+        final int[] vertexBases;
+        final int[] textureVertexBases;
+        final int[] normalBases;
+        final int[] faceBases;
+        final int[] cornerBases;
+
+        ChunkOffsets(List<ObjChunk> chunks) {
+            final int chunkCount = chunks.size();
+            vertexBases = new int[chunkCount + 1];
+            textureVertexBases = new int[chunkCount + 1];
+            normalBases = new int[chunkCount + 1];
+            faceBases = new int[chunkCount + 1];
+            cornerBases = new int[chunkCount + 1];
+            for (int i = 0; i < chunkCount; i++) {
+                ObjChunk chunk = chunks.get(i);
+                vertexBases[i + 1] = vertexBases[i] + chunk.vertexCount();
+                textureVertexBases[i + 1] = textureVertexBases[i] + chunk.textureVertexCount();
+                normalBases[i + 1] = normalBases[i] + chunk.normalCount();
+                faceBases[i + 1] = faceBases[i] + chunk.faceCount();
+                cornerBases[i + 1] = cornerBases[i] + chunk.cornerCount();
+            }
+        }
+
+        int vertexCount() {
+            return vertexBases[vertexBases.length - 1];
+        }
+
+        int textureVertexCount() {
+            return textureVertexBases[textureVertexBases.length - 1];
+        }
+
+        int normalCount() {
+            return normalBases[normalBases.length - 1];
+        }
+
+        int faceCount() {
+            return faceBases[faceBases.length - 1];
+        }
+
+        int cornerCount() {
+            return cornerBases[cornerBases.length - 1];
+        }
+    }
+
+    // Ошибка сообщается так же, как при последовательном чтении: первая по порядку, с номером строки в файле
+    private static void throwFirstError(List<ObjChunk> chunks) {
+        int linesBefore = 0;
+        for (ObjChunk chunk : chunks) {
+            if (chunk.error instanceof ObjReaderException exception) {
+                throw new ObjReaderException(exception.getErrorMessage(), linesBefore + exception.getLineInd());
+            }
+            if (chunk.error != null) {
+                throw chunk.error;
+            }
+            linesBefore += chunk.lineCount;
+        }
+    }
+
+    private static void fillVectors3(float[] source, Vector3f[] target, int base, int count) {
+        for (int i = 0; i < count; i++) {
+            target[base + i] = new Vector3f(source[3 * i], source[3 * i + 1], source[3 * i + 2]);
+        }
+    }
+
+    private static void fillVectors2(float[] source, Vector2f[] target, int base, int count) {
+        for (int i = 0; i < count; i++) {
+            target[base + i] = new Vector2f(source[2 * i], source[2 * i + 1]);
+        }
+    }
+
+    private static void fillPolygons(ObjChunk chunk, Polygon[] target, int base) {
+        int vertexCursor = 0;
+        int textureVertexCursor = 0;
+        int normalCursor = 0;
+        for (int i = 0; i < chunk.faceCount(); i++) {
+            Polygon polygon = new Polygon();
+
+            final int vertexCount = chunk.faceVertexCounts.get(i);
+            polygon.setVertexIndices(toIndexList(chunk.vertexIndices.elements(), vertexCursor, vertexCount));
+            vertexCursor += vertexCount;
+
+            final int textureVertexCount = chunk.faceTextureVertexCounts.get(i);
+            polygon.setTextureVertexIndices(
+                    toIndexList(chunk.textureVertexIndices.elements(), textureVertexCursor, textureVertexCount));
+            textureVertexCursor += textureVertexCount;
+
+            final int normalCount = chunk.faceNormalCounts.get(i);
+            polygon.setNormalIndices(toIndexList(chunk.normalIndices.elements(), normalCursor, normalCount));
+            normalCursor += normalCount;
+
+            target[base + i] = polygon;
+        }
+    }
+
+    private static ArrayList<Integer> toIndexList(int[] indices, int from, int count) {
+        ArrayList<Integer> result = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            result.add(indices[i]);
+        }
+        return result;
+    }
+
+    // Параллельный поток, запущенный из задачи пула, выполняется в этом же пуле
+    static void runInPool(ForkJoinPool pool, Runnable action) {
+        try {
+            getResult(pool.submit(action));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading OBJ file", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjIndex.Kind;
+import com.cgvsu.objreader.ObjTokenizer.Keyword;
+import com.cgvsu.util.IntArrayList;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+// Чтение отдельных объектов, групп или материалов OBJ-файла по ObjIndex.
+// Разбираются только куски файла с гранями выбранных имен и блоки строк с вершинами, на которые эти грани
+// ссылаются. Вершины, текстурные вершины и нормали перенумеровываются подряд с сохранением порядка в файле.
+// Индекс должен соответствовать файлу: ObjIndex.open и ObjIndex.load проверяют это сами.
+public class SelectiveObjReader {
+
+    // Соседние блоки вершин читаются одним куском, но не больше этого размера
+    private static final long MAX_RANGE_SIZE = 1 << 24;
+
+    public static Model read(Path source, ObjIndex index, Kind kind, String... names) throws IOException {
+        return readMesh(source, index, kind, names).toModel();
+    }
+
+    public static MeshData readMesh(Path source, ObjIndex index, Kind kind, String... names) throws IOException {
+        final List<ObjIndex.Entry> entries = new ArrayList<>(names.length);
+        for (String name : names) {
+            ObjIndex.Entry entry = index.getEntry(kind, name);
+            if (entry == null) {
+                throw new IllegalArgumentException("No " + kind.name().toLowerCase(Locale.ROOT) + " named " + name);
+            }
+            entries.add(entry);
+        }
+        return readMesh(source, index, entries);
+    }
+
+    public static MeshData readMesh(Path source, ObjIndex index, Collection<ObjIndex.Entry> entries)
+            throws IOException {
+        // грани, общие для нескольких имен (например, группа внутри объекта), читаются один раз
+        final int[] segments = entries.stream()
+                .flatMapToInt(entry -> Arrays.stream(entry.segments))
+                .sorted()
+                .distinct()
+                .toArray();
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            final SelectedFaces faces = new SelectedFaces(index);
+            for (int segment : segments) {
+                readFaces(channel, index, segment, faces);
+            }
+
+            final int[] usedVertices = unique(faces.vertexIndices);
+            final int[] usedTextureVertices = unique(faces.textureVertexIndices);
+            final int[] usedNormals = unique(faces.normalIndices);
+
+            MeshBuilder builder = new MeshBuilder();
+            final float[] positions = readElements(channel, index.vertices, Keyword.VERTEX,
+                    usedVertices, 3, ObjReader.TOO_FEW_VERTEX_ARGUMENTS);
+            for (int i = 0; i < positions.length; i += 3) {
+                builder.vertex(positions[i], positions[i + 1], positions[i + 2]);
+            }
+            final float[] textureVertices = readElements(channel, index.textureVertices, Keyword.TEXTURE_VERTEX,
+                    usedTextureVertices, 2, ObjReader.TOO_FEW_TEXTURE_VERTEX_ARGUMENTS);
+            for (int i = 0; i < textureVertices.length; i += 2) {
+                builder.textureVertex(textureVertices[i], textureVertices[i + 1]);
+            }
+            final float[] normals = readElements(channel, index.normals, Keyword.NORMAL,
+                    usedNormals, 3, ObjReader.TOO_FEW_NORMAL_ARGUMENTS);
+            for (int i = 0; i < normals.length; i += 3) {
+                builder.normal(normals[i], normals[i + 1], normals[i + 2]);
+            }
+
+            faces.replay(builder, usedVertices, usedTextureVertices, usedNormals);
+            return builder.build();
+        }
+    }
+
+    // Грани куска с индексами, сразу переведенными в номера элементов во всем файле.
+    // Вершины внутри куска только считаются: без них нельзя разрешить отрицательные индексы.
+    private static void readFaces(FileChannel channel, ObjIndex index, int segment, SelectedFaces faces)
+            throws IOException {
+        final long start = index.segmentStarts[segment];
+        ObjTokenizer tokenizer = new ObjTokenizer(
+                channel.map(FileChannel.MapMode.READ_ONLY, start, index.segmentEnds[segment] - start));
+        final int linesBefore = index.segmentLines[segment];
+        int vertexCount = index.segmentVertexBases[segment];
+        int textureVertexCount = index.segmentTextureVertexBases[segment];
+        int normalCount = index.segmentNormalBases[segment];
+        FaceIndices face = new FaceIndices();
+        try {
+            while (tokenizer.nextLine()) {
+                switch (tokenizer.nextKeyword()) {
+                    case VERTEX -> vertexCount++;
+                    case TEXTURE_VERTEX -> textureVertexCount++;
+                    case NORMAL -> normalCount++;
+                    case FACE -> {
+                        face.clear();
+                        while (tokenizer.hasNextWord()) {
+                            tokenizer.nextFaceWord(face);
+                        }
+                        faces.add(face, vertexCount, textureVertexCount, normalCount, tokenizer.getLineInd());
+                    }
+                    default -> {}
+                }
+            }
+        } catch (ObjReaderException exception) {
+            throw new ObjReaderException(exception.getErrorMessage(), linesBefore + exception.getLineInd());
+        }
+        faces.lineOffset(linesBefore);
+    }
+
+    // Читает элементы с номерами из used (по возрастанию) и кладет их координаты подряд
+    private static float[] readElements(FileChannel channel, ObjIndex.Checkpoints checkpoints, Keyword keyword,
+                                        int[] used, int components, String tooFewMessage) throws IOException {
+        final float[] result = new float[used.length * components];
+        final long[] offsets = checkpoints.offsets;
+        int next = 0;
+        while (next < used.length) {
+            final int firstBlock = used[next] / ObjIndex.ELEMENTS_PER_CHECKPOINT;
+            int lastBlock = firstBlock;
+            int runEnd = next + 1;
+            while (runEnd < used.length) {
+                final int block = used[runEnd] / ObjIndex.ELEMENTS_PER_CHECKPOINT;
+                if (block > lastBlock + 1 || offsets[block + 1] - offsets[firstBlock] > MAX_RANGE_SIZE) {
+                    break;
+                }
+                lastBlock = block;
+                runEnd++;
+            }
+
+            final long start = offsets[firstBlock];
+            ObjTokenizer tokenizer = new ObjTokenizer(
+                    channel.map(FileChannel.MapMode.READ_ONLY, start, offsets[lastBlock + 1] - start));
+            int element = firstBlock * ObjIndex.ELEMENTS_PER_CHECKPOINT - 1;
+            try {
+                while (next < runEnd && tokenizer.nextLine()) {
+                    if (tokenizer.nextKeyword() != keyword || ++element != used[next]) {
+                        continue;
+                    }
+                    for (int component = 0; component < components; component++) {
+                        result[next * components + component] = tokenizer.nextFloat(tooFewMessage);
+                    }
+                    next++;
+                }
+            } catch (ObjReaderException exception) {
+                throw new ObjReaderException(exception.getErrorMessage(),
+                        checkpoints.lines[firstBlock] + exception.getLineInd());
+            }
+            if (next < runEnd) {
+                throw new IllegalStateException("OBJ index doesn't match the file");
+            }
+        }
+        return result;
+    }
+
+    // Номера по возрастанию без повторов; новый номер элемента - его позиция в этом массиве
+    private static int[] unique(IntArrayList indices) {
+        final int[] sorted = indices.toArray();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    // Выбранные грани до перенумерации. На грань - четыре числа: строка и количество индексов каждого вида.
+    // Индексы атрибута хранятся, только если их столько же, сколько вершин: иначе MeshBuilder их не использует.
+    private static final class SelectedFaces {
+        private final ObjIndex index;
+        private final IntArrayList faces = new IntArrayList(1 << 10);
+        private final IntArrayList vertexIndices = new IntArrayList(1 << 10);
+        private final IntArrayList textureVertexIndices = new IntArrayList(1 << 10);
+        private final IntArrayList normalIndices = new IntArrayList(1 << 10);
+        // грани текущего куска начинаются с этой позиции в faces
+        private int segmentStart;
+
+        SelectedFaces(ObjIndex index) {
+            this.index = index;
+        }
+
+        void add(FaceIndices face, int vertexCount, int textureVertexCount, int normalCount, int lineInd) {
+            faces.add(lineInd);
+            faces.add(face.vertexCount);
+            faces.add(face.textureVertexCount);
+            faces.add(face.normalCount);
+            for (int i = 0; i < face.vertexCount; i++) {
+                vertexIndices.add(checkIndex(face.vertexIndices[i], vertexCount, index.getVertexCount(),
+                        "Vertex", lineInd));
+            }
+            if (face.textureVertexCount == face.vertexCount) {
+                for (int i = 0; i < face.textureVertexCount; i++) {
+                    textureVertexIndices.add(checkIndex(face.textureVertexIndices[i], textureVertexCount,
+                            index.getTextureVertexCount(), "Texture vertex", lineInd));
+                }
+            }
+            if (face.normalCount == face.vertexCount) {
+                for (int i = 0; i < face.normalCount; i++) {
+                    normalIndices.add(checkIndex(face.normalIndices[i], normalCount, index.getNormalCount(),
+                            "Normal", lineInd));
+                }
+            }
+        }
+
+        // Строки граней куска отсчитывались от его начала, а нужны от начала файла
+        void lineOffset(int linesBefore) {
+            for (int face = segmentStart; face < faces.size(); face += 4) {
+                faces.set(face, faces.get(face) + linesBefore);
+            }
+            segmentStart = faces.size();
+        }
+
+        // Индекс, который нельзя перенумеровать, нельзя и оставить на проверку MeshData: ошибка - сразу
+        private static int checkIndex(int index, int elementCount, int totalCount, String element, int lineInd) {
+            final int result = ObjReader.toZeroBasedIndex(index, elementCount);
+            if (result < 0 || result >= totalCount) {
+                throw new ObjReaderException(element + " index out of range.", lineInd);
+            }
+            return result;
+        }
+
+        void replay(MeshBuilder builder, int[] usedVertices, int[] usedTextureVertices, int[] usedNormals) {
+            FaceIndices face = new FaceIndices();
+            int vertex = 0;
+            int textureVertex = 0;
+            int normal = 0;
+            for (int i = 0; i < faces.size(); i += 4) {
+                face.clear();
+                final int size = faces.get(i + 1);
+                for (int k = 0; k < size; k++) {
+                    face.addVertexIndex(Arrays.binarySearch(usedVertices, vertexIndices.get(vertex++)) + 1);
+                }
+                if (faces.get(i + 2) == size) {
+                    for (int k = 0; k < size; k++) {
+                        final int index = textureVertexIndices.get(textureVertex++);
+                        face.addTextureVertexIndex(Arrays.binarySearch(usedTextureVertices, index) + 1);
+                    }
+                } else {
+                    // количество сохраняется, чтобы MeshBuilder проверил грань так же, как при полном чтении
+                    face.textureVertexCount = faces.get(i + 2);
+                }
+                if (faces.get(i + 3) == size) {
+                    for (int k = 0; k < size; k++) {
+                        face.addNormalIndex(Arrays.binarySearch(usedNormals, normalIndices.get(normal++)) + 1);
+                    }
+                } else {
+                    face.normalCount = faces.get(i + 3);
+                }
+                builder.face(face, faces.get(i));
+            }
+        }
+    }
+}
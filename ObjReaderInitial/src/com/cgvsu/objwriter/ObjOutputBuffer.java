@@ -0,0 +1,178 @@
+package com.cgvsu.objwriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Буфер, в который текст OBJ форматируется сразу в байты, без String.format и промежуточных строк.
+// Если задан канал, заполненный буфер сбрасывается в него; иначе буфер растет и хранит весь текст в памяти.
+public class ObjOutputBuffer {
+
+    static final int DEFAULT_CAPACITY = 1 << 20;
+
+    // Самое длинное число, которое формируется быстрым путем: знак, 12 цифр, точка и 6 цифр
+    private static final int MAX_FAST_NUMBER_LENGTH = 24;
+    // Дальше быстрый путь не используется: у float там нет дробной части, а String.format
+    // печатает только 17 значащих цифр, дополняя их нулями
+    private static final double MAX_FAST_FLOAT = 1e12;
+    private static final double FRACTION_SCALE = 1e6;
+    private static final int FRACTION_DIGITS = 6;
+    // 2^24 - все целые до этого значения точно представимы во float
+    private static final long MAX_EXACT_FLOAT_UNITS = 1L << 24;
+    // 2^53 - то же самое для double
+    private static final long MAX_EXACT_DOUBLE_UNITS = 1L << 53;
+
+    private final WritableByteChannel channel;
+    private byte[] buffer;
+    private int position;
+
+    public ObjOutputBuffer(WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = new byte[DEFAULT_CAPACITY];
+    }
+
+    // Буфер в памяти, без канала
+    public ObjOutputBuffer(int initialCapacity) {
+        this.channel = null;
+        this.buffer = new byte[Math.max(initialCapacity, MAX_FAST_NUMBER_LENGTH)];
+    }
+
+    public int size() {
+        return position;
+    }
+
+    // Внутренний массив без копирования. Значимы только первые size() байт.
+    public byte[] array() {
+        return buffer;
+    }
+
+    public void clear() {
+        position = 0;
+    }
+
+    public void putByte(char c) throws IOException {
+        ensureCapacity(1);
+        buffer[position++] = (byte) c;
+    }
+
+    // Только для ASCII-строк
+    public void putAscii(String s) throws IOException {
+        ensureCapacity(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buffer[position++] = (byte) s.charAt(i);
+        }
+    }
+
+    public void putInt(int value) throws IOException {
+        ensureCapacity(MAX_FAST_NUMBER_LENGTH);
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[position++] = '-';
+            remaining = -remaining;
+        }
+        putDigits(remaining, 1);
+    }
+
+    // То же, что String.format(Locale.US, "%.6f", value), но без создания объектов.
+    // Formatter округляет десятичную запись числа половиной вверх, а здесь считается точное значение.
+    // Результаты расходятся только вблизи середины между соседними значениями, такие числа отдаются String.format.
+    public void putFloat(float value) throws IOException {
+        final long units = fractionUnits(value);
+        if (units < 0) {
+            putAscii(String.format(Locale.US, "%.6f", value));
+            return;
+        }
+
+        ensureCapacity(MAX_FAST_NUMBER_LENGTH);
+        if (Float.floatToRawIntBits(value) < 0) {
+            // как и Formatter, сохраняем знак у отрицательных чисел, округленных до нуля
+            buffer[position++] = '-';
+        }
+        putDigits(units / 1_000_000, 1);
+        buffer[position++] = '.';
+        putDigits(units % 1_000_000, FRACTION_DIGITS);
+    }
+
+    // Модуль числа в миллионных долях, округленный так же, как это делает Formatter,
+    // или -1, если быстро округлить нельзя
+    private static long fractionUnits(float value) {
+        final double absolute = Math.abs((double) value);
+        if (!(absolute < MAX_FAST_FLOAT)) {
+            return -1;
+        }
+
+        final double scaled = absolute * FRACTION_SCALE;
+        final double whole = Math.floor(scaled);
+        final double fraction = scaled - whole;
+        // погрешность умножения и десятичной записи Formatter не больше нескольких ulp от scaled
+        final double tolerance = scaled * 0x1p-50;
+        if (Math.abs(fraction - 0.5) <= tolerance) {
+            return -1;
+        }
+        return (long) whole + (fraction > 0.5 ? 1 : 0);
+    }
+
+    // Значение, которое получится при чтении числа, записанного putFloat: то же, что
+    // Float.parseFloat(String.format(Locale.US, "%.6f", value)), но без строк на быстром пути
+    public static float parsedValue(float value) {
+        final long units = fractionUnits(value);
+        float result;
+        if (units >= 0 && units < MAX_EXACT_FLOAT_UNITS) {
+            // оба операнда точны во float, поэтому деление дает правильно округленный результат
+            result = (float) units / (float) FRACTION_SCALE;
+        } else if (units >= 0 && units < MAX_EXACT_DOUBLE_UNITS
+                && !isDoubleRoundingTie(units / FRACTION_SCALE)) {
+            result = (float) (units / FRACTION_SCALE);
+        } else {
+            return Float.parseFloat(String.format(Locale.US, "%.6f", value));
+        }
+        return Float.floatToRawIntBits(value) < 0 ? -result : result;
+    }
+
+    // Округление double -> float после округления до double может ошибиться,
+    // только если double попал ровно в середину между соседними float
+    private static boolean isDoubleRoundingTie(double value) {
+        return (Double.doubleToRawLongBits(value) & ((1L << 29) - 1)) == 1L << 28;
+    }
+
+    // Записывает неотрицательное число, дополняя его ведущими нулями до minDigits цифр
+    private void putDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (position + bytes <= buffer.length) {
+            return;
+        }
+        if (channel != null) {
+            flush();
+        }
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+
+    public void flush() throws IOException {
+        if (channel == null || position == 0) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.wrap(buffer, 0, position);
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        position = 0;
+    }
+}
@@ -0,0 +1,370 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.compression.GzipFiles;
+import com.cgvsu.compression.ParallelGzipOutputChannel;
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.meshcache.MeshCache;
+import com.cgvsu.model.Mesh;
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Текст формируется в байтах через ObjOutputBuffer и пишется в канал большими блоками.
+// Вывод побайтно совпадает с прежним форматом "%.6f" (Locale.US) для координат.
+// Файл с расширением .gz пишется сжатым в gzip (см. ParallelGzipOutputChannel).
+public class ObjWriter {
+
+    public static void write(Model model, String fileName) throws IOException {
+        write(model, Path.of(fileName));
+    }
+
+    public static void write(Model model, Path path) throws IOException {
+        writeFile(path, null, channel -> write(model, channel));
+    }
+
+    public static void write(Model model, FileWriter writer) throws IOException {
+        write(model, new WriterChannel(writer));
+        writer.flush();
+    }
+
+    public static void write(Model model, WritableByteChannel channel) throws IOException {
+        ObjOutputBuffer out = new ObjOutputBuffer(channel);
+
+        writeVertices(model.vertices, 0, model.vertices.size(), out);
+        if (!model.vertices.isEmpty()) {
+            out.putByte('\n');
+        }
+
+        if (!model.textureVertices.isEmpty()) {
+            writeTextureVertices(model.textureVertices, 0, model.textureVertices.size(), out);
+            out.putByte('\n');
+        }
+
+        if (!model.normals.isEmpty()) {
+            writeNormals(model.normals, 0, model.normals.size(), out);
+            out.putByte('\n');
+        }
+
+        writePolygons(model.polygons, 0, model.polygons.size(), out);
+
+        out.flush();
+    }
+
+    public static void write(Mesh mesh, String fileName) throws IOException {
+        write(mesh, Path.of(fileName));
+    }
+
+    public static void write(Mesh mesh, Path path) throws IOException {
+        writeFile(path, null, channel -> write(mesh, channel));
+    }
+
+    // Пишет OBJ-файл и рядом с ним двоичный кеш (см. MeshCache), чтобы ObjReader.readMeshCached
+    // прочитал этот файл без разбора текста. Координаты в кеше округлены так же, как в тексте,
+    // поэтому чтение с кешем и без него дает одинаковую модель.
+    // triangulatedMesh - триангуляция mesh с теми же массивами вершин или null.
+    public static void writeCached(MeshData mesh, MeshData triangulatedMesh, Path path) throws IOException {
+        write(mesh, path);
+        MeshCache.SourceStamp stamp = MeshCache.SourceStamp.of(path);
+
+        final float[] positions = parsedValues(mesh.positions);
+        final float[] textureVertices = parsedValues(mesh.textureVertices);
+        final float[] normals = parsedValues(mesh.normals);
+        MeshData parsed = new MeshData(positions, textureVertices, normals, mesh.faceOffsets,
+                mesh.vertexIndices, mesh.textureVertexIndices, mesh.normalIndices);
+        MeshData parsedTriangles = triangulatedMesh == null ? null
+                : new MeshData(positions, textureVertices, normals, triangulatedMesh.faceOffsets,
+                triangulatedMesh.vertexIndices, triangulatedMesh.textureVertexIndices, triangulatedMesh.normalIndices);
+        MeshCache.save(path, stamp, parsed, parsedTriangles);
+    }
+
+    private static float[] parsedValues(float[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = ObjOutputBuffer.parsedValue(values[i]);
+        }
+        return result;
+    }
+
+    public static void write(Mesh mesh, FileWriter writer) throws IOException {
+        write(mesh, new WriterChannel(writer));
+        writer.flush();
+    }
+
+    // формат вывода тот же, что и для Model
+    public static void write(Mesh mesh, WritableByteChannel channel) throws IOException {
+        ObjOutputBuffer out = new ObjOutputBuffer(channel);
+
+        writeMeshVertices(mesh, 0, mesh.getVertexCount(), out);
+        if (mesh.getVertexCount() != 0) {
+            out.putByte('\n');
+        }
+
+        if (mesh.getTextureVertexCount() != 0) {
+            writeMeshTextureVertices(mesh, 0, mesh.getTextureVertexCount(), out);
+            out.putByte('\n');
+        }
+
+        if (mesh.getNormalCount() != 0) {
+            writeMeshNormals(mesh, 0, mesh.getNormalCount(), out);
+            out.putByte('\n');
+        }
+
+        writeMeshFaces(mesh, 0, mesh.getFaceCount(), out);
+
+        out.flush();
+    }
+
+    // Запись в файл: для .gz канал сжимает данные на потоках pool (null - в пишущем потоке)
+    static void writeFile(Path path, ForkJoinPool pool, ChannelWriter writer) throws IOException {
+        try (FileChannel channel = openForWriting(path)) {
+            if (!GzipFiles.isCompressed(path)) {
+                writer.write(channel);
+                return;
+            }
+            try (ParallelGzipOutputChannel output = new ParallelGzipOutputChannel(channel, pool)) {
+                writer.write(output);
+            }
+        }
+    }
+
+    interface ChannelWriter {
+        void write(WritableByteChannel channel) throws IOException;
+    }
+
+    static FileChannel openForWriting(Path path) throws IOException {
+        return FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    static void writeVertices(List<Vector3f> vertices, int from, int to, ObjOutputBuffer out) throws IOException {
+        for (int i = from; i < to; i++) {
+            Vector3f vertex = vertices.get(i);
+            writeVector3("v ", vertex.x, vertex.y, vertex.z, out);
+        }
+    }
+
+    static void writeTextureVertices(List<Vector2f> textureVertices, int from, int to, ObjOutputBuffer out)
+            throws IOException {
+        for (int i = from; i < to; i++) {
+            Vector2f textureVertex = textureVertices.get(i);
+            writeVector2("vt ", textureVertex.x, textureVertex.y, out);
+        }
+    }
+
+    static void writeNormals(List<Vector3f> normals, int from, int to, ObjOutputBuffer out) throws IOException {
+        for (int i = from; i < to; i++) {
+            Vector3f normal = normals.get(i);
+            writeVector3("vn ", normal.x, normal.y, normal.z, out);
+        }
+    }
+
+    static void writePolygons(List<Polygon> polygons, int from, int to, ObjOutputBuffer out) throws IOException {
+        for (int face = from; face < to; face++) {
+            Polygon polygon = polygons.get(face);
+            ArrayList<Integer> vertexIndices = polygon.getVertexIndices();
+            ArrayList<Integer> textureIndices = polygon.getTextureVertexIndices();
+            ArrayList<Integer> normalIndices = polygon.getNormalIndices();
+
+            boolean hasTextures = !textureIndices.isEmpty() && textureIndices.size() == vertexIndices.size();
+            boolean hasNormals = !normalIndices.isEmpty() && normalIndices.size() == vertexIndices.size();
+
+            out.putAscii("f ");
+            for (int i = 0; i < vertexIndices.size(); i++) {
+                writeFaceCorner(vertexIndices.get(i),
+                        hasTextures ? textureIndices.get(i) : 0,
+                        hasNormals ? normalIndices.get(i) : 0,
+                        hasTextures, hasNormals, out);
+
+                if (i < vertexIndices.size() - 1) {
+                    out.putByte(' ');
+                }
+            }
+            out.putByte('\n');
+        }
+    }
+
+    static void writeMeshVertices(Mesh mesh, int from, int to, ObjOutputBuffer out) throws IOException {
+        for (long i = from; i < to; i++) {
+            writeVector3("v ", mesh.getPosition(3 * i), mesh.getPosition(3 * i + 1), mesh.getPosition(3 * i + 2), out);
+        }
+    }
+
+    static void writeMeshTextureVertices(Mesh mesh, int from, int to, ObjOutputBuffer out) throws IOException {
+        for (long i = from; i < to; i++) {
+            writeVector2("vt ", mesh.getTextureVertex(2 * i), mesh.getTextureVertex(2 * i + 1), out);
+        }
+    }
+
+    static void writeMeshNormals(Mesh mesh, int from, int to, ObjOutputBuffer out) throws IOException {
+        for (long i = from; i < to; i++) {
+            writeVector3("vn ", mesh.getNormal(3 * i), mesh.getNormal(3 * i + 1), mesh.getNormal(3 * i + 2), out);
+        }
+    }
+
+    static void writeMeshFaces(Mesh mesh, int from, int to, ObjOutputBuffer out) throws IOException {
+        for (int face = from; face < to; face++) {
+            final boolean hasTextures = mesh.hasTextureCoordinates(face);
+            final boolean hasNormals = mesh.hasNormals(face);
+            final long start = mesh.getFaceStart(face);
+            final long end = start + mesh.getFaceSize(face);
+
+            out.putAscii("f ");
+            for (long i = start; i < end; i++) {
+                writeFaceCorner(mesh.getVertexIndex(i),
+                        hasTextures ? mesh.getTextureVertexIndex(i) : 0,
+                        hasNormals ? mesh.getNormalIndex(i) : 0,
+                        hasTextures, hasNormals, out);
+
+                if (i < end - 1) {
+                    out.putByte(' ');
+                }
+            }
+            out.putByte('\n');
+        }
+    }
+
+    // Строки и углы граней в формате ObjWriter, для потоковой записи (см. StreamingConverter)
+    public static void writeVector3(String token, float x, float y, float z, ObjOutputBuffer out)
+            throws IOException {
+        out.putAscii(token);
+        out.putFloat(x);
+        out.putByte(' ');
+        out.putFloat(y);
+        out.putByte(' ');
+        out.putFloat(z);
+        out.putByte('\n');
+    }
+
+    public static void writeVector2(String token, float x, float y, ObjOutputBuffer out) throws IOException {
+        out.putAscii(token);
+        out.putFloat(x);
+        out.putByte(' ');
+        out.putFloat(y);
+        out.putByte('\n');
+    }
+
+    // Индексы в файле нумеруются с 1
+    public static void writeFaceCorner(int vertexIndex, int textureIndex, int normalIndex,
+                                       boolean hasTextures, boolean hasNormals,
+                                       ObjOutputBuffer out) throws IOException {
+        out.putInt(vertexIndex + 1);
+        if (hasTextures && hasNormals) {
+            // Формат: f v/vt/vn v/vt/vn v/vt/vn
+            out.putByte('/');
+            out.putInt(textureIndex + 1);
+            out.putByte('/');
+            out.putInt(normalIndex + 1);
+        } else if (hasTextures) {
+            // Формат: f v/vt v/vt v/vt
+            out.putByte('/');
+            out.putInt(textureIndex + 1);
+        } else if (hasNormals) {
+            // Формат: f v//vn v//vn v//vn
+            out.putAscii("//");
+            out.putInt(normalIndex + 1);
+        }
+    }
+
+    // Позволяет писать байты ASCII-текста в Writer
+    private static class WriterChannel implements WritableByteChannel {
+        private final Writer writer;
+        private final char[] chars = new char[8192];
+
+        WriterChannel(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            final int written = source.remaining();
+            while (source.hasRemaining()) {
+                final int count = Math.min(chars.length, source.remaining());
+                for (int i = 0; i < count; i++) {
+                    chars[i] = (char) (source.get() & 0xFF);
+                }
+                writer.write(chars, 0, count);
+            }
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Проверяет, что все индексы в полигонах валидны. Останавливается на первой ошибке;
+     * полный отчет обо всех ошибках и параллельная проверка - в IndexValidator
+     * @param model Модель для проверки
+     * @return true если все индексы валидны
+     */
+    public static boolean validateModelIndices(Model model) {
+        int vertexCount = model.vertices.size();
+        int textureCount = model.textureVertices.size();
+        int normalCount = model.normals.size();
+
+        for (Polygon polygon : model.polygons) {
+            ArrayList<Integer> vertexIndices = polygon.getVertexIndices();
+            ArrayList<Integer> textureIndices = polygon.getTextureVertexIndices();
+            ArrayList<Integer> normalIndices = polygon.getNormalIndices();
+
+            // проверяем вершины
+            for (int index : vertexIndices) {
+                if (index < 0 || index >= vertexCount) {
+                    System.err.printf("Invalid vertex index: %d (max: %d)%n", index, vertexCount - 1);
+                    return false;
+                }
+            }
+
+            // проверяем текстурные координаты (если есть)
+            if (!textureIndices.isEmpty()) {
+                if (textureIndices.size() != vertexIndices.size()) {
+                    System.err.println("Texture indices count doesn't match vertex indices count");
+                    return false;
+                }
+
+                for (int index : textureIndices) {
+                    if (index < 0 || index >= textureCount) {
+                        System.err.printf("Invalid texture index: %d (max: %d)%n", index, textureCount - 1);
+                        return false;
+                    }
+                }
+            }
+
+            // проверяем нормали (если есть)
+            if (!normalIndices.isEmpty()) {
+                if (normalIndices.size() != vertexIndices.size()) {
+                    System.err.println("Normal indices count doesn't match vertex indices count");
+                    return false;
+                }
+
+                for (int index : normalIndices) {
+                    if (index < 0 || index >= normalCount) {
+                        System.err.printf("Invalid normal index: %d (max: %d)%n", index, normalCount - 1);
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.model.Mesh;
+import com.cgvsu.model.Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Многопоточная запись OBJ-файла.
+// Каждая секция (v, vt, vn, f) делится на блоки, блоки форматируются в отдельные буферы на потоках пула,
+// а готовые буферы пишутся в канал строго в исходном порядке. Файл побайтно совпадает с тем, что пишет ObjWriter.
+// Файл .gz сжимается на потоках того же пула.
+public class ParallelObjWriter {
+
+    // Модели с меньшим числом элементов быстрее записать одним потоком
+    private static final int MIN_PARALLEL_ELEMENT_COUNT = 1 << 17;
+    // Элементов в блоке: это 2-3 МБ текста
+    static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+    // Сколько блоков на поток может одновременно форматироваться или ждать записи.
+    // Ограничивает память: весь файл целиком в памяти не собирается.
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+    // Сколько готовых буферов подряд отдается каналу одной записью
+    private static final int MAX_GATHERED_BLOCKS = 16;
+    private static final int INITIAL_BUFFER_CAPACITY = 1 << 20;
+
+    public static void write(Model model, String fileName) throws IOException {
+        write(model, Path.of(fileName));
+    }
+
+    public static void write(Model model, Path path) throws IOException {
+        write(model, path, ForkJoinPool.commonPool());
+    }
+
+    public static void write(Model model, Path path, ForkJoinPool pool) throws IOException {
+        final long elementCount = (long) model.vertices.size() + model.textureVertices.size()
+                + model.normals.size() + model.polygons.size();
+        ObjWriter.writeFile(path, pool, channel -> {
+            if (elementCount < MIN_PARALLEL_ELEMENT_COUNT || pool.getParallelism() < 2) {
+                ObjWriter.write(model, channel);
+            } else {
+                write(model, channel, pool, DEFAULT_BLOCK_SIZE);
+            }
+        });
+    }
+
+    public static void write(Mesh mesh, String fileName) throws IOException {
+        write(mesh, Path.of(fileName));
+    }
+
+    public static void write(Mesh mesh, Path path) throws IOException {
+        write(mesh, path, ForkJoinPool.commonPool());
+    }
+
+    public static void write(Mesh mesh, Path path, ForkJoinPool pool) throws IOException {
+        final long elementCount = (long) mesh.getVertexCount() + mesh.getTextureVertexCount()
+                + mesh.getNormalCount() + mesh.getFaceCount();
+        ObjWriter.writeFile(path, pool, channel -> {
+            if (elementCount < MIN_PARALLEL_ELEMENT_COUNT || pool.getParallelism() < 2) {
+                ObjWriter.write(mesh, channel);
+            } else {
+                write(mesh, channel, pool, DEFAULT_BLOCK_SIZE);
+            }
+        });
+    }
+
+    // Размер блока задается явно - удобно для проверки порядка блоков на маленьких моделях
+    static void write(Model model, WritableByteChannel channel, ForkJoinPool pool, int blockSize)
+            throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        addSection(blocks, model.vertices.size(), blockSize, true,
+                (from, to, out) -> ObjWriter.writeVertices(model.vertices, from, to, out));
+        addSection(blocks, model.textureVertices.size(), blockSize, true,
+                (from, to, out) -> ObjWriter.writeTextureVertices(model.textureVertices, from, to, out));
+        addSection(blocks, model.normals.size(), blockSize, true,
+                (from, to, out) -> ObjWriter.writeNormals(model.normals, from, to, out));
+        addSection(blocks, model.polygons.size(), blockSize, false,
+                (from, to, out) -> ObjWriter.writePolygons(model.polygons, from, to, out));
+        writeBlocks(blocks, channel, pool);
+    }
+
+    static void write(Mesh mesh, WritableByteChannel channel, ForkJoinPool pool, int blockSize)
+            throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        addSection(blocks, mesh.getVertexCount(), blockSize, true,
+                (from, to, out) -> ObjWriter.writeMeshVertices(mesh, from, to, out));
+        addSection(blocks, mesh.getTextureVertexCount(), blockSize, true,
+                (from, to, out) -> ObjWriter.writeMeshTextureVertices(mesh, from, to, out));
+        addSection(blocks, mesh.getNormalCount(), blockSize, true,
+                (from, to, out) -> ObjWriter.writeMeshNormals(mesh, from, to, out));
+        addSection(blocks, mesh.getFaceCount(), blockSize, false,
+                (from, to, out) -> ObjWriter.writeMeshFaces(mesh, from, to, out));
+        writeBlocks(blocks, channel, pool);
+    }
+
+    // Форматирует элементы [from, to) одной секции
+    private interface RangeFormatter {
+        void format(int from, int to, ObjOutputBuffer out) throws IOException;
+    }
+
+    private interface Block {
+        void format(ObjOutputBuffer out) throws IOException;
+    }
+
+    // Непустые секции v, vt и vn заканчиваются пустой строкой, она дописывается в последний блок секции
+    private static void addSection(List<Block> blocks, int count, int blockSize, boolean endsWithEmptyLine,
+                                   RangeFormatter formatter) {
+        for (int from = 0; from < count; from += blockSize) {
+            final int blockFrom = from;
+            final int blockTo = (int) Math.min(count, (long) from + blockSize);
+            final boolean last = blockTo == count;
+            blocks.add(out -> {
+                formatter.format(blockFrom, blockTo, out);
+                if (last && endsWithEmptyLine) {
+                    out.putByte('\n');
+                }
+            });
+        }
+    }
+
+    // Блоки отправляются в пул с ограниченным окном, а пишутся по мере готовности в исходном порядке.
+    // Буферы записанных блоков переиспользуются следующими блоками.
+    private static void writeBlocks(List<Block> blocks, WritableByteChannel channel, ForkJoinPool pool)
+            throws IOException {
+        final int window = Math.max(2, pool.getParallelism() * BLOCKS_IN_FLIGHT_PER_THREAD);
+        final ConcurrentLinkedQueue<ObjOutputBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+        final ArrayDeque<Future<ObjOutputBuffer>> pending = new ArrayDeque<>();
+        final List<ObjOutputBuffer> ready = new ArrayList<>(MAX_GATHERED_BLOCKS);
+
+        int next = 0;
+        try {
+            while (next < blocks.size() || !pending.isEmpty()) {
+                while (next < blocks.size() && pending.size() < window) {
+                    final Block block = blocks.get(next++);
+                    pending.add(pool.submit(() -> format(block, freeBuffers)));
+                }
+
+                // первый блок ждем, а следующие забираем, только если они уже готовы
+                ready.add(getResult(pending.poll()));
+                while (ready.size() < MAX_GATHERED_BLOCKS && !pending.isEmpty() && pending.peek().isDone()) {
+                    ready.add(getResult(pending.poll()));
+                }
+                writeAll(ready, channel);
+
+                for (ObjOutputBuffer buffer : ready) {
+                    buffer.clear();
+                    freeBuffers.add(buffer);
+                }
+                ready.clear();
+            }
+        } finally {
+            for (Future<ObjOutputBuffer> future : pending) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private static ObjOutputBuffer format(Block block, ConcurrentLinkedQueue<ObjOutputBuffer> freeBuffers)
+            throws IOException {
+        ObjOutputBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            buffer = new ObjOutputBuffer(INITIAL_BUFFER_CAPACITY);
+        }
+        block.format(buffer);
+        return buffer;
+    }
+
+    // FileChannel получает все готовые буферы одной записью
+    private static void writeAll(List<ObjOutputBuffer> buffers, WritableByteChannel channel) throws IOException {
+        final ByteBuffer[] data = new ByteBuffer[buffers.size()];
+        long remaining = 0;
+        for (int i = 0; i < data.length; i++) {
+            data[i] = ByteBuffer.wrap(buffers.get(i).array(), 0, buffers.get(i).size());
+            remaining += data[i].remaining();
+        }
+
+        if (channel instanceof GatheringByteChannel gatheringChannel) {
+            while (remaining > 0) {
+                remaining -= gatheringChannel.write(data);
+            }
+            return;
+        }
+        for (ByteBuffer buffer : data) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing OBJ file", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
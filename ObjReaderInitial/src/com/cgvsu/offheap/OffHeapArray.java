@@ -0,0 +1,65 @@
+package com.cgvsu.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Общая часть массивов вне кучи: страницы фиксированного размера и индексация типа long.
+// Массив растет добавлением страниц, поэтому уже записанные данные никогда не копируются.
+// Чтение из нескольких потоков безопасно. Запись тоже, если потоки пишут через set в разные элементы,
+// а размер массива заранее задан через resize.
+abstract class OffHeapArray {
+    static final int PAGE_SHIFT = 20;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final OffHeapStorage storage;
+    private final FileChannel channel;
+    private final int elementBytes;
+    private int pageCount;
+    long size;
+
+    OffHeapArray(OffHeapStorage storage, FileChannel channel, int elementBytes) {
+        this.storage = storage;
+        this.channel = channel;
+        this.elementBytes = elementBytes;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Увеличивает размер массива, новые элементы равны нулю
+    public void resize(long newSize) {
+        while ((long) pageCount << PAGE_SHIFT < newSize) {
+            addPage();
+        }
+        size = newSize;
+    }
+
+    // Индекс нового элемента в конце массива
+    long nextSlot() {
+        if (size == (long) pageCount << PAGE_SHIFT) {
+            addPage();
+        }
+        return size++;
+    }
+
+    void checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    private void addPage() {
+        final long position = (long) pageCount * PAGE_SIZE * elementBytes;
+        onPageAdded(storage.allocatePage(channel, position, PAGE_SIZE * elementBytes), pageCount);
+        pageCount++;
+    }
+
+    abstract void onPageAdded(ByteBuffer page, int pageIndex);
+
+    static <T> T[] grow(T[] pages, int pageIndex) {
+        return pageIndex < pages.length ? pages : Arrays.copyOf(pages, Math.max(4, pages.length * 2));
+    }
+}
@@ -0,0 +1,34 @@
+package com.cgvsu.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+public class OffHeapFloatArray extends OffHeapArray {
+    private FloatBuffer[] pages = new FloatBuffer[0];
+
+    OffHeapFloatArray(OffHeapStorage storage, FileChannel channel) {
+        super(storage, channel, Float.BYTES);
+    }
+
+    public float get(long index) {
+        checkIndex(index);
+        return pages[(int) (index >>> PAGE_SHIFT)].get((int) (index & PAGE_MASK));
+    }
+
+    public void set(long index, float value) {
+        checkIndex(index);
+        pages[(int) (index >>> PAGE_SHIFT)].put((int) (index & PAGE_MASK), value);
+    }
+
+    public void add(float value) {
+        final long index = nextSlot();
+        pages[(int) (index >>> PAGE_SHIFT)].put((int) (index & PAGE_MASK), value);
+    }
+
+    @Override
+    void onPageAdded(ByteBuffer page, int pageIndex) {
+        pages = grow(pages, pageIndex);
+        pages[pageIndex] = page.asFloatBuffer();
+    }
+}
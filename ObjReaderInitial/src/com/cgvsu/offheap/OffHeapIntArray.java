@@ -0,0 +1,34 @@
+package com.cgvsu.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+public class OffHeapIntArray extends OffHeapArray {
+    private IntBuffer[] pages = new IntBuffer[0];
+
+    OffHeapIntArray(OffHeapStorage storage, FileChannel channel) {
+        super(storage, channel, Integer.BYTES);
+    }
+
+    public int get(long index) {
+        checkIndex(index);
+        return pages[(int) (index >>> PAGE_SHIFT)].get((int) (index & PAGE_MASK));
+    }
+
+    public void set(long index, int value) {
+        checkIndex(index);
+        pages[(int) (index >>> PAGE_SHIFT)].put((int) (index & PAGE_MASK), value);
+    }
+
+    public void add(int value) {
+        final long index = nextSlot();
+        pages[(int) (index >>> PAGE_SHIFT)].put((int) (index & PAGE_MASK), value);
+    }
+
+    @Override
+    void onPageAdded(ByteBuffer page, int pageIndex) {
+        pages = grow(pages, pageIndex);
+        pages[pageIndex] = page.asIntBuffer();
+    }
+}
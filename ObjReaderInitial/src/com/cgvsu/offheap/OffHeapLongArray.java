@@ -0,0 +1,34 @@
+package com.cgvsu.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+public class OffHeapLongArray extends OffHeapArray {
+    private LongBuffer[] pages = new LongBuffer[0];
+
+    OffHeapLongArray(OffHeapStorage storage, FileChannel channel) {
+        super(storage, channel, Long.BYTES);
+    }
+
+    public long get(long index) {
+        checkIndex(index);
+        return pages[(int) (index >>> PAGE_SHIFT)].get((int) (index & PAGE_MASK));
+    }
+
+    public void set(long index, long value) {
+        checkIndex(index);
+        pages[(int) (index >>> PAGE_SHIFT)].put((int) (index & PAGE_MASK), value);
+    }
+
+    public void add(long value) {
+        final long index = nextSlot();
+        pages[(int) (index >>> PAGE_SHIFT)].put((int) (index & PAGE_MASK), value);
+    }
+
+    @Override
+    void onPageAdded(ByteBuffer page, int pageIndex) {
+        pages = grow(pages, pageIndex);
+        pages[pageIndex] = page.asLongBuffer();
+    }
+}
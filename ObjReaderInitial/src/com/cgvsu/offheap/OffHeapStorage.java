@@ -0,0 +1,111 @@
+package com.cgvsu.offheap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+// Хранилище для массивов вне кучи Java.
+// Память выделяется страницами: либо direct-буферами, либо страницами файла, отображенного в память.
+// Во втором случае данные модели могут быть больше физической памяти - подкачкой занимается ОС.
+// Все массивы, созданные хранилищем, живут до его закрытия.
+public class OffHeapStorage implements AutoCloseable {
+
+    private final Path directory;
+    private final ArrayList<FileChannel> channels = new ArrayList<>();
+    private final ArrayList<Path> files = new ArrayList<>();
+    private boolean closed;
+
+    private OffHeapStorage(Path directory) {
+        this.directory = directory;
+    }
+
+    // Данные в direct-буферах: не занимают кучу, но ограничены -XX:MaxDirectMemorySize
+    public static OffHeapStorage direct() {
+        return new OffHeapStorage(null);
+    }
+
+    // Данные во временных файлах в указанной папке. Файлы удаляются при закрытии хранилища.
+    public static OffHeapStorage fileBacked(Path directory) {
+        return new OffHeapStorage(directory);
+    }
+
+    public OffHeapFloatArray newFloatArray() {
+        return new OffHeapFloatArray(this, openBackingFile());
+    }
+
+    public OffHeapIntArray newIntArray() {
+        return new OffHeapIntArray(this, openBackingFile());
+    }
+
+    public OffHeapLongArray newLongArray() {
+        return new OffHeapLongArray(this, openBackingFile());
+    }
+
+    synchronized ByteBuffer allocatePage(FileChannel channel, long position, int bytes) {
+        checkOpen();
+        try {
+            ByteBuffer page = channel == null
+                    ? ByteBuffer.allocateDirect(bytes)
+                    : channel.map(FileChannel.MapMode.READ_WRITE, position, bytes);
+            return page.order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Off-heap storage is closed");
+        }
+    }
+
+    // Для закрытого хранилища файл не создается: close его уже не удалит
+    private synchronized FileChannel openBackingFile() {
+        checkOpen();
+        if (directory == null) {
+            return null;
+        }
+        try {
+            Path file = Files.createTempFile(directory, "mesh", ".bin");
+            files.add(file);
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channels.add(channel);
+            return channel;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // на некоторых ОС отображенный файл нельзя удалить, пока страницы не собраны сборщиком мусора
+                file.toFile().deleteOnExit();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.cgvsu.pipeline;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.objreader.FaceIndices;
+import com.cgvsu.objreader.ObjElementHandler;
+import com.cgvsu.objreader.ObjReader;
+
+// Первая стадия конвейера: раскладывает разобранные элементы по батчам. Индексы граней сразу переводятся
+// в номера с нуля - для отрицательных индексов нужно число уже прочитанных элементов, а его знает только
+// читающий поток.
+final class BatchReader implements ObjElementHandler {
+
+    // Отдает заполненный батч следующей стадии и возвращает пустой
+    interface BatchExchange {
+        ElementBatch exchange(ElementBatch full);
+    }
+
+    private final int batchSize;
+    private final BatchExchange exchange;
+    private ElementBatch batch;
+
+    private int vertexCount;
+    private int textureVertexCount;
+    private int normalCount;
+
+    BatchReader(int batchSize, ElementBatch firstBatch, BatchExchange exchange) {
+        this.batchSize = batchSize;
+        this.batch = firstBatch;
+        this.exchange = exchange;
+    }
+
+    // Текущий, еще не отданный батч
+    ElementBatch getBatch() {
+        return batch;
+    }
+
+    @Override
+    public void vertex(float x, float y, float z) {
+        batch.coordinates.add(x);
+        batch.coordinates.add(y);
+        batch.coordinates.add(z);
+        vertexCount++;
+        added(ElementBatch.VERTEX);
+    }
+
+    @Override
+    public void textureVertex(float u, float v) {
+        batch.coordinates.add(u);
+        batch.coordinates.add(v);
+        textureVertexCount++;
+        added(ElementBatch.TEXTURE_VERTEX);
+    }
+
+    @Override
+    public void normal(float x, float y, float z) {
+        batch.coordinates.add(x);
+        batch.coordinates.add(y);
+        batch.coordinates.add(z);
+        normalCount++;
+        added(ElementBatch.NORMAL);
+    }
+
+    @Override
+    public void face(FaceIndices face, int lineInd) {
+        // те же ограничения, что у Polygon и MeshBuilder
+        if (face.vertexCount < 3) {
+            throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+        }
+        if (face.textureVertexCount != 0 && face.textureVertexCount < 3) {
+            throw new IllegalArgumentException("Texture indices must be empty or have at least 3 elements");
+        }
+        if (face.normalCount != 0 && face.normalCount < 3) {
+            throw new IllegalArgumentException("Normal indices must be empty or have at least 3 elements");
+        }
+
+        // атрибут, количество индексов которого не совпадает с количеством вершин, считается отсутствующим
+        final boolean hasTextures = face.textureVertexCount == face.vertexCount;
+        final boolean hasNormals = face.normalCount == face.vertexCount;
+        batch.faces.add(face.vertexCount);
+        for (int i = 0; i < face.vertexCount; i++) {
+            batch.faces.add(ObjReader.toZeroBasedIndex(face.vertexIndices[i], vertexCount));
+            batch.faces.add(hasTextures
+                    ? ObjReader.toZeroBasedIndex(face.textureVertexIndices[i], textureVertexCount)
+                    : MeshData.NO_INDEX);
+            batch.faces.add(hasNormals
+                    ? ObjReader.toZeroBasedIndex(face.normalIndices[i], normalCount)
+                    : MeshData.NO_INDEX);
+        }
+        added(ElementBatch.FACE);
+    }
+
+    private void added(int kind) {
+        batch.kinds.add(kind);
+        // углы граней тоже считаются, чтобы память батча не зависела от размера граней
+        if (batch.kinds.size() + batch.faces.size() / ElementBatch.CORNER_SIZE >= batchSize) {
+            batch = exchange.exchange(batch);
+        }
+    }
+}
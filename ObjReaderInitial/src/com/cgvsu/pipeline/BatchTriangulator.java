@@ -0,0 +1,100 @@
+package com.cgvsu.pipeline;
+
+import com.cgvsu.triangulation.TriangulationMode;
+import com.cgvsu.triangulation.TriangulationStatistics;
+import com.cgvsu.triangulation.TriangulationStrategy;
+import com.cgvsu.util.FloatArrayList;
+import com.cgvsu.util.IntArrayList;
+
+// Вторая стадия конвейера: разбивает грани батча на треугольники и пишет их в batch.triangles.
+// Вееру координаты не нужны, и память стадии не зависит от размера файла. Остальным стратегиям нужны
+// координаты вершин грани, поэтому для них стадия хранит координаты всех прочитанных вершин - 12 байт
+// на вершину, без индексов и атрибутов.
+final class BatchTriangulator {
+
+    // null - веер, как в ModelTriangulator для MeshData
+    private final TriangulationStrategy strategy;
+    private final TriangulationStatistics statistics;
+    private final FloatArrayList positions;
+
+    private float[] coordinates = new float[0];
+    private int[] triangles = new int[0];
+
+    BatchTriangulator(TriangulationMode mode, TriangulationStatistics statistics) {
+        this.strategy = mode == TriangulationMode.FAN ? null : mode.newStrategy();
+        this.statistics = statistics;
+        this.positions = strategy == null ? null : new FloatArrayList(1 << 10);
+    }
+
+    void triangulate(ElementBatch batch) {
+        final IntArrayList faces = batch.faces;
+        final IntArrayList result = batch.triangles;
+        result.clear();
+
+        int coordinate = 0;
+        int position = 0;
+        for (int i = 0; i < batch.kinds.size(); i++) {
+            switch (batch.kinds.get(i)) {
+                case ElementBatch.VERTEX -> {
+                    if (positions != null) {
+                        positions.add(batch.coordinates.get(coordinate));
+                        positions.add(batch.coordinates.get(coordinate + 1));
+                        positions.add(batch.coordinates.get(coordinate + 2));
+                    }
+                    coordinate += 3;
+                }
+                case ElementBatch.TEXTURE_VERTEX -> coordinate += 2;
+                case ElementBatch.NORMAL -> coordinate += 3;
+                case ElementBatch.FACE -> position = triangulateFace(faces, position, result);
+                default -> throw new IllegalStateException("Unknown element kind");
+            }
+        }
+    }
+
+    // Разбивает грань, которая начинается в faces с position, и возвращает начало следующей грани
+    private int triangulateFace(IntArrayList faces, int position, IntArrayList result) {
+        final int size = faces.get(position);
+        final int start = position + 1;
+        result.add(size - 2);
+
+        if (strategy == null || size == 3) {
+            // соединяем вершину 0 с вершинами i и i+1
+            for (int i = 1; i < size - 1; i++) {
+                addCorner(faces, start, 0, result);
+                addCorner(faces, start, i, result);
+                addCorner(faces, start, i + 1, result);
+            }
+            if (strategy != null) {
+                statistics.add(TriangulationStatistics.TRIANGLE, 1, 0);
+            }
+            return start + ElementBatch.CORNER_SIZE * size;
+        }
+
+        if (coordinates.length < 3 * size) {
+            coordinates = new float[3 * size];
+            triangles = new int[3 * (size - 2)];
+        }
+        final int vertexCount = positions.size() / 3;
+        for (int k = 0; k < size; k++) {
+            final int vertex = faces.get(start + ElementBatch.CORNER_SIZE * k);
+            // в OBJ вершина описывается раньше граней, которые на нее ссылаются
+            if (vertex < 0 || vertex >= vertexCount) {
+                throw new IllegalArgumentException("Vertex index out of range: " + vertex);
+            }
+            System.arraycopy(positions.elements(), 3 * vertex, coordinates, 3 * k, 3);
+        }
+        strategy.triangulate(coordinates, size, triangles, statistics);
+
+        for (int k = 0; k < 3 * (size - 2); k++) {
+            addCorner(faces, start, triangles[k], result);
+        }
+        return start + ElementBatch.CORNER_SIZE * size;
+    }
+
+    private static void addCorner(IntArrayList faces, int faceStart, int corner, IntArrayList result) {
+        final int base = faceStart + ElementBatch.CORNER_SIZE * corner;
+        result.add(faces.get(base));
+        result.add(faces.get(base + 1));
+        result.add(faces.get(base + 2));
+    }
+}
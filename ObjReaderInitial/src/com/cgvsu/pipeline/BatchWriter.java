@@ -0,0 +1,84 @@
+package com.cgvsu.pipeline;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.objwriter.ObjOutputBuffer;
+import com.cgvsu.objwriter.ObjWriter;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+// Последняя стадия конвейера: пишет элементы батча в исходном порядке в формате ObjWriter.
+// ObjWriter заканчивает секции v, vt и vn пустой строкой; здесь пустая строка ставится там, где за v, vt
+// или vn идет элемент другого вида, поэтому файл с обычным порядком секций (v, vt, vn, f) получается
+// побайтно таким же, как у ObjWriter для триангулированной модели.
+final class BatchWriter {
+
+    private final ObjOutputBuffer out;
+    private int previousKind = -1;
+
+    BatchWriter(WritableByteChannel channel) {
+        this.out = new ObjOutputBuffer(channel);
+    }
+
+    void write(ElementBatch batch) throws IOException {
+        final float[] coordinates = batch.coordinates.elements();
+        final int[] triangles = batch.triangles.elements();
+        int coordinate = 0;
+        int position = 0;
+        for (int i = 0; i < batch.kinds.size(); i++) {
+            final int kind = batch.kinds.get(i);
+            if (kind != previousKind && previousKind != ElementBatch.FACE && previousKind >= 0) {
+                out.putByte('\n');
+            }
+            previousKind = kind;
+
+            switch (kind) {
+                case ElementBatch.VERTEX -> {
+                    ObjWriter.writeVector3("v ", coordinates[coordinate], coordinates[coordinate + 1],
+                            coordinates[coordinate + 2], out);
+                    coordinate += 3;
+                }
+                case ElementBatch.TEXTURE_VERTEX -> {
+                    ObjWriter.writeVector2("vt ", coordinates[coordinate], coordinates[coordinate + 1], out);
+                    coordinate += 2;
+                }
+                case ElementBatch.NORMAL -> {
+                    ObjWriter.writeVector3("vn ", coordinates[coordinate], coordinates[coordinate + 1],
+                            coordinates[coordinate + 2], out);
+                    coordinate += 3;
+                }
+                case ElementBatch.FACE -> position = writeTriangles(triangles, position);
+                default -> throw new IllegalStateException("Unknown element kind");
+            }
+        }
+
+        if (batch.last) {
+            if (previousKind >= 0 && previousKind != ElementBatch.FACE) {
+                out.putByte('\n');
+            }
+            out.flush();
+        }
+    }
+
+    // Треугольники одной грани, которые начинаются в triangles с position; возвращает начало следующей грани
+    private int writeTriangles(int[] triangles, int position) throws IOException {
+        final int triangleCount = triangles[position];
+        int corner = position + 1;
+        // атрибут задан либо у всех углов грани, либо ни у одного
+        final boolean hasTextures = triangles[corner + 1] != MeshData.NO_INDEX;
+        final boolean hasNormals = triangles[corner + 2] != MeshData.NO_INDEX;
+        for (int t = 0; t < triangleCount; t++) {
+            out.putAscii("f ");
+            for (int k = 0; k < 3; k++) {
+                ObjWriter.writeFaceCorner(triangles[corner], triangles[corner + 1], triangles[corner + 2],
+                        hasTextures, hasNormals, out);
+                if (k < 2) {
+                    out.putByte(' ');
+                }
+                corner += ElementBatch.CORNER_SIZE;
+            }
+            out.putByte('\n');
+        }
+        return corner;
+    }
+}
@@ -0,0 +1,36 @@
+package com.cgvsu.pipeline;
+
+import com.cgvsu.util.FloatArrayList;
+import com.cgvsu.util.IntArrayList;
+
+// Кусок файла, который передается от стадии к стадии: элементы в том порядке, в котором они шли в файле.
+// Батчи переиспользуются, поэтому после первых нескольких батчей их массивы перестают расти.
+final class ElementBatch {
+
+    static final int VERTEX = 0;
+    static final int TEXTURE_VERTEX = 1;
+    static final int NORMAL = 2;
+    static final int FACE = 3;
+
+    // Индексов на угол: вершина, текстурная вершина и нормаль, с нуля (MeshData.NO_INDEX, если атрибута нет)
+    static final int CORNER_SIZE = 3;
+
+    // вид каждого элемента
+    final IntArrayList kinds = new IntArrayList(1 << 10);
+    // x, y, z для v и vn, u, v для vt
+    final FloatArrayList coordinates = new FloatArrayList(1 << 10);
+    // для каждой грани число углов и по CORNER_SIZE индексов на угол
+    final IntArrayList faces = new IntArrayList(1 << 10);
+    // результат триангуляции: для каждой грани число треугольников и по три угла на треугольник
+    final IntArrayList triangles = new IntArrayList(1 << 10);
+    // последний батч файла; после него стадии завершаются
+    boolean last;
+
+    void clear() {
+        kinds.clear();
+        coordinates.clear();
+        faces.clear();
+        triangles.clear();
+        last = false;
+    }
+}
@@ -0,0 +1,236 @@
+package com.cgvsu.pipeline;
+
+import com.cgvsu.compression.GzipFiles;
+import com.cgvsu.compression.ParallelGzipOutputChannel;
+import com.cgvsu.objreader.ObjElementHandler;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.triangulation.TriangulationMode;
+import com.cgvsu.triangulation.TriangulationStatistics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Потоковое преобразование OBJ в триангулированный OBJ без сборки модели в памяти.
+// Чтение (в вызывающем потоке), триангуляция и запись идут одновременно и передают друг другу батчи элементов
+// через очереди. Батчей всего BATCH_COUNT, после записи они возвращаются читателю, поэтому память конвейера
+// не зависит от размера файла (для веера; см. BatchTriangulator), а скорость ограничена диском и разбором.
+// Строки v, vt и vn переносятся в исходном порядке, индексы граней пишутся положительными, с единицы.
+// Файлы .gz читаются и пишутся сжатыми.
+public class StreamingConverter {
+
+    // Размер батча: элементы (строки v, vt, vn и f) плюс углы граней. Батч такого размера занимает около мегабайта
+    static final int DEFAULT_BATCH_SIZE = 1 << 15;
+    // Батчей в конвейере: по одному у каждой стадии и запас, чтобы стадии не ждали друг друга
+    private static final int BATCH_COUNT = 8;
+    // Память конвейера без координат вершин: батчи, буферы чтения и записи (по замерам - около 20 МБ)
+    private static final long PIPELINE_MEMORY = 24L << 20;
+
+    // Оценка памяти на одно преобразование файла размера inputSize. Для веера она не зависит от файла.
+    // Остальные режимы хранят 12 байт координат на строку v, а строка v обычно занимает 25-35 байт,
+    // поэтому даже с запасом на рост FloatArrayList хватает размера файла.
+    public static long estimateMemory(long inputSize, TriangulationMode mode) {
+        return mode == TriangulationMode.FAN ? PIPELINE_MEMORY : PIPELINE_MEMORY + inputSize;
+    }
+
+    public static void convert(Path input, Path output) throws IOException {
+        convert(input, output, TriangulationMode.FAN, new TriangulationStatistics());
+    }
+
+    public static void convert(Path input, Path output, TriangulationMode mode,
+                               TriangulationStatistics statistics) throws IOException {
+        convert(input, output, mode, statistics, null);
+    }
+
+    // observer получает каждый разобранный элемент (например, ParseValidator), null - без наблюдателя
+    public static void convert(Path input, Path output, TriangulationMode mode,
+                               TriangulationStatistics statistics, ObjElementHandler observer) throws IOException {
+        try (InputStream inputStream = GzipFiles.newInputStream(input);
+             FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (!GzipFiles.isCompressed(output)) {
+                convert(inputStream, channel, mode, statistics, observer);
+                return;
+            }
+            // сжатие - еще одна стадия конвейера, на потоках общего пула
+            try (ParallelGzipOutputChannel compressed =
+                         new ParallelGzipOutputChannel(channel, ForkJoinPool.commonPool())) {
+                convert(inputStream, compressed, mode, statistics, observer);
+            }
+        }
+    }
+
+    // Поток и канал не закрываются, этим занимается вызывающий код.
+    // Счетчики путей триангуляции добавляются в statistics (для веера счетчиков нет, как и в ModelTriangulator).
+    public static void convert(InputStream input, WritableByteChannel output, TriangulationMode mode,
+                               TriangulationStatistics statistics) throws IOException {
+        convert(input, output, mode, statistics, null, DEFAULT_BATCH_SIZE);
+    }
+
+    public static void convert(InputStream input, WritableByteChannel output, TriangulationMode mode,
+                               TriangulationStatistics statistics, ObjElementHandler observer) throws IOException {
+        convert(input, output, mode, statistics, observer, DEFAULT_BATCH_SIZE);
+    }
+
+    // Размер батча задается явно - удобно для проверки границ батчей на маленьких файлах
+    static void convert(InputStream input, WritableByteChannel output, TriangulationMode mode,
+                        TriangulationStatistics statistics, int batchSize) throws IOException {
+        convert(input, output, mode, statistics, null, batchSize);
+    }
+
+    // Наблюдатель вызывается в читающем потоке, до того как элемент попадет в батч
+    static void convert(InputStream input, WritableByteChannel output, TriangulationMode mode,
+                        TriangulationStatistics statistics, ObjElementHandler observer, int batchSize)
+            throws IOException {
+        final Pipeline pipeline = new Pipeline();
+        final BatchTriangulator triangulator = new BatchTriangulator(mode, statistics);
+        final BatchWriter writer = new BatchWriter(output);
+        for (int i = 1; i < BATCH_COUNT; i++) {
+            pipeline.free.add(new ElementBatch());
+        }
+        final Thread[] stages = {
+                pipeline.startStage("obj-triangulator", pipeline.parsed, pipeline.triangulated,
+                        triangulator::triangulate),
+                pipeline.startStage("obj-writer", pipeline.triangulated, pipeline.free, writer::write)
+        };
+
+        final BatchReader reader = new BatchReader(batchSize, new ElementBatch(), pipeline::exchange);
+        try {
+            if (observer == null) {
+                ObjReader.read(input, reader);
+            } else {
+                ObjReader.read(input, observer, reader);
+            }
+        } catch (CancellationException e) {
+            // чтение остановлено из-за ошибки на другой стадии или прерывания, причина уже в pipeline
+        } catch (Throwable e) {
+            pipeline.fail(e);
+        }
+
+        if (pipeline.interrupted) {
+            // батч читателя мог уже уйти дальше, поэтому стадии останавливаются прерыванием
+            for (Thread stage : stages) {
+                stage.interrupt();
+            }
+        } else {
+            // последний батч идет даже после ошибки: по нему стадии понимают, что пора завершаться
+            final ElementBatch last = reader.getBatch();
+            last.last = true;
+            pipeline.parsed.add(last);
+        }
+        for (Thread stage : stages) {
+            join(stage);
+        }
+        pipeline.rethrowFailure();
+    }
+
+    private static void join(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                thread.interrupt();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface BatchStage {
+        void process(ElementBatch batch) throws IOException;
+    }
+
+    // Очереди между стадиями и первая ошибка. Очереди вмещают все батчи, поэтому put никогда не ждет,
+    // а ждут только take: память ограничена числом батчей, а не емкостью очередей.
+    private static final class Pipeline {
+        final BlockingQueue<ElementBatch> free = new ArrayBlockingQueue<>(BATCH_COUNT);
+        final BlockingQueue<ElementBatch> parsed = new ArrayBlockingQueue<>(BATCH_COUNT);
+        final BlockingQueue<ElementBatch> triangulated = new ArrayBlockingQueue<>(BATCH_COUNT);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        volatile boolean interrupted;
+
+        // После ошибки стадия не обрабатывает батчи, но продолжает передавать их дальше, чтобы читатель
+        // получал пустые батчи и не зависал, а последний батч дошел до всех стадий
+        Thread startStage(String name, BlockingQueue<ElementBatch> input, BlockingQueue<ElementBatch> output,
+                          BatchStage stage) {
+            Thread thread = new Thread(() -> {
+                try {
+                    boolean last;
+                    do {
+                        final ElementBatch batch = input.take();
+                        if (failure.get() == null) {
+                            try {
+                                stage.process(batch);
+                            } catch (Throwable e) {
+                                fail(e);
+                            }
+                        }
+                        // после add батч принадлежит следующей стадии: читатель может успеть его очистить
+                        // и снова пометить последним, поэтому флаг читается до передачи
+                        last = batch.last;
+                        output.add(batch);
+                    } while (!last);
+                } catch (InterruptedException e) {
+                    // прерывание приходит только от convert, когда остановлен сам вызывающий поток
+                }
+            }, name);
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
+
+        // Вызывается читателем: заполненный батч уходит на триангуляцию, взамен берется пустой
+        ElementBatch exchange(ElementBatch full) {
+            if (failure.get() != null) {
+                throw new CancellationException();
+            }
+            parsed.add(full);
+            try {
+                final ElementBatch empty = free.take();
+                empty.clear();
+                return empty;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                fail(e);
+                throw new CancellationException();
+            }
+        }
+
+        void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+
+        void rethrowFailure() throws IOException {
+            final Throwable cause = failure.get();
+            if (cause == null) {
+                return;
+            }
+            if (cause instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while converting OBJ file", cause);
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.cgvsu.render;
+
+// Индексированный буфер вершин в том виде, в каком его принимает видеокарта.
+// В OBJ у угла грани три независимых индекса (v, vt, vn), а при отрисовке у вершины один индекс,
+// поэтому каждая уникальная тройка становится отдельной вершиной.
+// Атрибуты вершины идут подряд: x, y, z, затем u, v (если у модели есть текстурные координаты),
+// затем nx, ny, nz (если есть нормали). Каждые три индекса задают треугольник.
+public class IndexedVertexBuffer {
+
+    // Максимум вершин, при котором индексы помещаются в short (как беззнаковые)
+    public static final int MAX_SHORT_INDEXED_VERTICES = 1 << 16;
+
+    public final float[] vertices;
+    // число float на вершину
+    public final int stride;
+    // смещение атрибута внутри вершины или -1, если атрибута нет
+    public final int textureOffset;
+    public final int normalOffset;
+
+    // Заполнен ровно один из массивов: shortIndices, если вершин не больше MAX_SHORT_INDEXED_VERTICES
+    // (значения беззнаковые, читать через Short.toUnsignedInt), иначе indices
+    public final int[] indices;
+    public final short[] shortIndices;
+
+    public IndexedVertexBuffer(float[] vertices, int stride, int textureOffset, int normalOffset,
+                               int[] indices, short[] shortIndices) {
+        if ((indices == null) == (shortIndices == null)) {
+            throw new IllegalArgumentException("Exactly one of int and short indices must be set");
+        }
+        if (stride <= 0 || vertices.length % stride != 0) {
+            throw new IllegalArgumentException("Vertex data length doesn't match stride " + stride);
+        }
+        this.vertices = vertices;
+        this.stride = stride;
+        this.textureOffset = textureOffset;
+        this.normalOffset = normalOffset;
+        this.indices = indices;
+        this.shortIndices = shortIndices;
+    }
+
+    public int getVertexCount() {
+        return vertices.length / stride;
+    }
+
+    public int getIndexCount() {
+        return indices != null ? indices.length : shortIndices.length;
+    }
+
+    public int getTriangleCount() {
+        return getIndexCount() / 3;
+    }
+
+    public int getIndex(int i) {
+        return indices != null ? indices[i] : Short.toUnsignedInt(shortIndices[i]);
+    }
+
+    public boolean hasTextureCoordinates() {
+        return textureOffset >= 0;
+    }
+
+    public boolean hasNormals() {
+        return normalOffset >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexedVertexBuffer[" + getVertexCount() + " vertices, " + getTriangleCount() + " triangles]";
+    }
+}
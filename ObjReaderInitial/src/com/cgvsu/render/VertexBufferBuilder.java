@@ -0,0 +1,161 @@
+package com.cgvsu.render;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.triangulation.ModelTriangulator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+// Строит IndexedVertexBuffer из триангулированной модели.
+// Каждая уникальная тройка (v, vt, vn) получает один индекс, вершины нумеруются в порядке первого
+// появления тройки в треугольниках, поэтому результат не зависит от того, строился буфер параллельно или нет.
+public class VertexBufferBuilder {
+
+    // Треугольников в одной задаче параллельного построения
+    private static final int TRIANGLES_PER_TASK = 1 << 16;
+
+    // Модель с многоугольниками сначала разбивается веером
+    public static IndexedVertexBuffer build(Model model) {
+        MeshData mesh = MeshData.fromModel(model);
+        return build(mesh.allFacesAreTriangles() ? mesh : ModelTriangulator.triangulate(mesh));
+    }
+
+    public static IndexedVertexBuffer build(MeshData triangles) {
+        return build(triangles, null);
+    }
+
+    // Все грани должны быть треугольниками (как после ModelTriangulator.triangulate).
+    // Если pool равен null, буфер строится в текущем потоке.
+    public static IndexedVertexBuffer build(MeshData triangles, ForkJoinPool pool) {
+        if (!triangles.allFacesAreTriangles()) {
+            throw new IllegalArgumentException("Mesh must be triangulated before building a vertex buffer");
+        }
+        final int cornerCount = triangles.vertexIndices.length;
+        final int triangleCount = cornerCount / 3;
+        final int blockCount = pool == null ? Math.min(triangleCount, 1)
+                : (triangleCount + TRIANGLES_PER_TASK - 1) / TRIANGLES_PER_TASK;
+        final int blockSize = pool == null ? triangleCount : TRIANGLES_PER_TASK;
+
+        // Сначала каждый блок нумерует свои тройки сам, и в indices попадают номера внутри блока
+        final int[] indices = new int[cornerCount];
+        final VertexTable[] blockTables = new VertexTable[blockCount];
+        run(pool, blockCount, block -> blockTables[block] = collectTriples(triangles,
+                3 * block * blockSize, 3 * Math.min(triangleCount, (block + 1) * blockSize), indices));
+
+        // Затем блоки по порядку сливаются в общую таблицу: номера получаются те же, что и при одном блоке
+        final VertexTable table;
+        final int[][] blockRemaps = new int[blockCount][];
+        if (blockCount == 1) {
+            table = blockTables[0];
+        } else {
+            table = new VertexTable(blockCount == 0 ? 0
+                    : (int) Math.min((long) blockTables[0].size() * blockCount, cornerCount));
+            for (int block = 0; block < blockCount; block++) {
+                VertexTable blockTable = blockTables[block];
+                int[] remap = new int[blockTable.size()];
+                for (int i = 0; i < remap.length; i++) {
+                    remap[i] = table.add(blockTable.vertexIndices.get(i), blockTable.textureVertexIndices.get(i),
+                            blockTable.normalIndices.get(i));
+                }
+                blockRemaps[block] = remap;
+                blockTables[block] = null;
+            }
+            run(pool, blockCount, block -> {
+                final int[] remap = blockRemaps[block];
+                final int end = 3 * Math.min(triangleCount, (block + 1) * blockSize);
+                for (int i = 3 * block * blockSize; i < end; i++) {
+                    indices[i] = remap[indices[i]];
+                }
+            });
+        }
+
+        final boolean hasTextures = triangles.textureVertexIndices.length != 0;
+        final boolean hasNormals = triangles.normalIndices.length != 0;
+        final int textureOffset = hasTextures ? 3 : -1;
+        final int normalOffset = hasNormals ? (hasTextures ? 5 : 3) : -1;
+        final int stride = 3 + (hasTextures ? 2 : 0) + (hasNormals ? 3 : 0);
+        final int vertexCount = table.size();
+        final float[] vertices = new float[vertexCount * stride];
+        final int vertexBlockCount = pool == null ? Math.min(vertexCount, 1)
+                : (vertexCount + TRIANGLES_PER_TASK - 1) / TRIANGLES_PER_TASK;
+        final int vertexBlockSize = pool == null ? vertexCount : TRIANGLES_PER_TASK;
+        run(pool, vertexBlockCount, block -> fillVertices(triangles, table, block * vertexBlockSize,
+                Math.min(vertexCount, (block + 1) * vertexBlockSize), stride, textureOffset, normalOffset, vertices));
+
+        if (vertexCount > IndexedVertexBuffer.MAX_SHORT_INDEXED_VERTICES) {
+            return new IndexedVertexBuffer(vertices, stride, textureOffset, normalOffset, indices, null);
+        }
+        short[] shortIndices = new short[cornerCount];
+        for (int i = 0; i < cornerCount; i++) {
+            shortIndices[i] = (short) indices[i];
+        }
+        return new IndexedVertexBuffer(vertices, stride, textureOffset, normalOffset, null, shortIndices);
+    }
+
+    private static void run(ForkJoinPool pool, int blockCount, IntConsumer task) {
+        if (pool == null) {
+            for (int block = 0; block < blockCount; block++) {
+                task.accept(block);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, blockCount).parallel().forEach(task)).join();
+        }
+    }
+
+    // Нумерует тройки углов [start, end) и записывает их номера в indices
+    private static VertexTable collectTriples(MeshData mesh, int start, int end, int[] indices) {
+        final int vertexCount = mesh.getVertexCount();
+        final int textureVertexCount = mesh.getTextureVertexCount();
+        final int normalCount = mesh.getNormalCount();
+        final boolean hasTextures = mesh.textureVertexIndices.length != 0;
+        final boolean hasNormals = mesh.normalIndices.length != 0;
+
+        VertexTable table = new VertexTable((end - start) / 2);
+        for (int corner = start; corner < end; corner++) {
+            final int vertexIndex = mesh.vertexIndices[corner];
+            final int textureVertexIndex = hasTextures ? mesh.textureVertexIndices[corner] : MeshData.NO_INDEX;
+            final int normalIndex = hasNormals ? mesh.normalIndices[corner] : MeshData.NO_INDEX;
+            if (vertexIndex < 0 || vertexIndex >= vertexCount) {
+                throw new IllegalArgumentException("Vertex index out of range: " + vertexIndex);
+            }
+            if (textureVertexIndex != MeshData.NO_INDEX
+                    && (textureVertexIndex < 0 || textureVertexIndex >= textureVertexCount)) {
+                throw new IllegalArgumentException("Texture vertex index out of range: " + textureVertexIndex);
+            }
+            if (normalIndex != MeshData.NO_INDEX && (normalIndex < 0 || normalIndex >= normalCount)) {
+                throw new IllegalArgumentException("Normal index out of range: " + normalIndex);
+            }
+            indices[corner] = table.add(vertexIndex, textureVertexIndex, normalIndex);
+        }
+        return table;
+    }
+
+    // Атрибуты, которых у угла нет (NO_INDEX), остаются нулями
+    private static void fillVertices(MeshData mesh, VertexTable table, int start, int end,
+                                     int stride, int textureOffset, int normalOffset, float[] vertices) {
+        for (int vertex = start; vertex < end; vertex++) {
+            final int base = vertex * stride;
+            final int vertexIndex = table.vertexIndices.get(vertex);
+            vertices[base] = mesh.positions[3 * vertexIndex];
+            vertices[base + 1] = mesh.positions[3 * vertexIndex + 1];
+            vertices[base + 2] = mesh.positions[3 * vertexIndex + 2];
+            if (textureOffset >= 0) {
+                final int textureVertexIndex = table.textureVertexIndices.get(vertex);
+                if (textureVertexIndex != MeshData.NO_INDEX) {
+                    vertices[base + textureOffset] = mesh.textureVertices[2 * textureVertexIndex];
+                    vertices[base + textureOffset + 1] = mesh.textureVertices[2 * textureVertexIndex + 1];
+                }
+            }
+            if (normalOffset >= 0) {
+                final int normalIndex = table.normalIndices.get(vertex);
+                if (normalIndex != MeshData.NO_INDEX) {
+                    vertices[base + normalOffset] = mesh.normals[3 * normalIndex];
+                    vertices[base + normalOffset + 1] = mesh.normals[3 * normalIndex + 1];
+                    vertices[base + normalOffset + 2] = mesh.normals[3 * normalIndex + 2];
+                }
+            }
+        }
+    }
+}
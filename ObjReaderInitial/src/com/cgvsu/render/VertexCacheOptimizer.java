@@ -0,0 +1,362 @@
+package com.cgvsu.render;
+
+import com.cgvsu.util.IntArrayList;
+
+import java.util.Arrays;
+
+// Переставляет треугольники IndexedVertexBuffer так, чтобы соседние треугольники чаще брали вершины
+// из кэша видеокарты, а затем нумерует вершины в порядке первого использования.
+// Треугольники выбираются жадно по оценкам вершин (алгоритм Форсайта, "Linear-Speed Vertex Cache
+// Optimisation"): оценка растет у вершин, недавно попавших в кэш, и у вершин, у которых осталось мало
+// невыведенных треугольников. После вывода треугольника пересчитываются только вершины в кэше и их
+// треугольники, поэтому время почти линейно по числу треугольников.
+// Вершины, на которые не ссылается ни один треугольник, в результат не попадают.
+public class VertexCacheOptimizer {
+
+    public static final int DEFAULT_CACHE_SIZE = 32;
+
+    // параметры оценки из статьи Форсайта
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    // для вершин с большим числом треугольников оценка считается без таблицы
+    private static final int VALENCE_TABLE_SIZE = 64;
+    // центр группы, сумма нормалей и площадь группы в optimizeOverdraw
+    private static final int CLUSTER_FIELDS = 7;
+
+    public static IndexedVertexBuffer optimize(IndexedVertexBuffer buffer) {
+        return optimize(buffer, DEFAULT_CACHE_SIZE, null);
+    }
+
+    // Если report не null, в него записываются ACMR и ATVR до и после на FIFO-кэше из cacheSize вершин
+    public static IndexedVertexBuffer optimize(IndexedVertexBuffer buffer, int cacheSize, VertexCacheReport report) {
+        checkCacheSize(cacheSize);
+        final int[] indices = readIndices(buffer);
+        final IndexedVertexBuffer result = compact(buffer, orderTriangles(indices, buffer.getVertexCount(), cacheSize));
+
+        if (report != null) {
+            final int vertexCount = buffer.getVertexCount();
+            final int usedCount = result.getVertexCount();
+            final double acmrBefore = computeAcmr(indices, vertexCount, cacheSize);
+            final double acmrAfter = computeAcmr(result, cacheSize);
+            final double triangleCount = indices.length / 3;
+            report.set(cacheSize, acmrBefore, acmrAfter,
+                    vertexCount == 0 ? 0 : acmrBefore * triangleCount / vertexCount,
+                    usedCount == 0 ? 0 : acmrAfter * triangleCount / usedCount, vertexCount - usedCount);
+        }
+        return result;
+    }
+
+    // Второй проход для буфера после optimize: уменьшает перерисовку пикселей (overdraw) при любом ракурсе.
+    // Порядок режется на группы в местах, где кэш все равно сбрасывается (все три вершины треугольника - промахи),
+    // и группы, обращенные наружу от центра модели, ставятся первыми: они чаще закрывают остальные, и тест
+    // глубины отбрасывает закрытые пиксели до закраски (идея Tipsify, Sander и др., 2007).
+    // Внутри группы порядок сохраняется, поэтому ACMR почти не меняется.
+    public static IndexedVertexBuffer optimizeOverdraw(IndexedVertexBuffer buffer, int cacheSize) {
+        checkCacheSize(cacheSize);
+        final int[] indices = readIndices(buffer);
+        final int triangleCount = indices.length / 3;
+
+        final IntArrayList clusterStarts = new IntArrayList();
+        final int[] loadedAt = new int[buffer.getVertexCount()];
+        Arrays.fill(loadedAt, Integer.MIN_VALUE / 2);
+        int misses = 0;
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            int triangleMisses = 0;
+            for (int k = 0; k < 3; k++) {
+                final int vertex = indices[3 * triangle + k];
+                if (misses - loadedAt[vertex] >= cacheSize) {
+                    loadedAt[vertex] = misses++;
+                    triangleMisses++;
+                }
+            }
+            if (triangle == 0 || triangleMisses == 3) {
+                clusterStarts.add(triangle);
+            }
+        }
+        final int clusterCount = clusterStarts.size();
+        clusterStarts.add(triangleCount);
+
+        // центр модели и для каждой группы - центр и сумма нормалей, взвешенные по площади треугольников
+        final double[] clusterData = new double[CLUSTER_FIELDS * clusterCount];
+        final double[] center = new double[3];
+        double totalArea = 0;
+        final float[] vertices = buffer.vertices;
+        final int stride = buffer.stride;
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            for (int triangle = clusterStarts.get(cluster); triangle < clusterStarts.get(cluster + 1); triangle++) {
+                final int a = indices[3 * triangle] * stride;
+                final int b = indices[3 * triangle + 1] * stride;
+                final int c = indices[3 * triangle + 2] * stride;
+                final double abX = vertices[b] - vertices[a];
+                final double abY = vertices[b + 1] - vertices[a + 1];
+                final double abZ = vertices[b + 2] - vertices[a + 2];
+                final double acX = vertices[c] - vertices[a];
+                final double acY = vertices[c + 1] - vertices[a + 1];
+                final double acZ = vertices[c + 2] - vertices[a + 2];
+                final double normalX = abY * acZ - abZ * acY;
+                final double normalY = abZ * acX - abX * acZ;
+                final double normalZ = abX * acY - abY * acX;
+                final double area = Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+                for (int k = 0; k < 3; k++) {
+                    final double centroid = (vertices[a + k] + vertices[b + k] + vertices[c + k]) / 3;
+                    clusterData[CLUSTER_FIELDS * cluster + k] += centroid * area;
+                    center[k] += centroid * area;
+                }
+                clusterData[CLUSTER_FIELDS * cluster + 3] += normalX;
+                clusterData[CLUSTER_FIELDS * cluster + 4] += normalY;
+                clusterData[CLUSTER_FIELDS * cluster + 5] += normalZ;
+                clusterData[CLUSTER_FIELDS * cluster + 6] += area;
+                totalArea += area;
+            }
+        }
+
+        final double[] keys = new double[clusterCount];
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            final int base = CLUSTER_FIELDS * cluster;
+            final double normalLength = Math.sqrt(clusterData[base + 3] * clusterData[base + 3]
+                    + clusterData[base + 4] * clusterData[base + 4] + clusterData[base + 5] * clusterData[base + 5]);
+            if (normalLength == 0) {
+                continue;
+            }
+            double key = 0;
+            for (int k = 0; k < 3; k++) {
+                final double offset = clusterData[base + k] / clusterData[base + 6] - center[k] / totalArea;
+                key += offset * clusterData[base + 3 + k] / normalLength;
+            }
+            keys[cluster] = key;
+        }
+        final Integer[] order = new Integer[clusterCount];
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            order[cluster] = cluster;
+        }
+        Arrays.sort(order, (first, second) -> Double.compare(keys[second], keys[first]));
+
+        final int[] ordered = new int[indices.length];
+        int output = 0;
+        for (int cluster : order) {
+            final int start = 3 * clusterStarts.get(cluster);
+            final int length = 3 * clusterStarts.get(cluster + 1) - start;
+            System.arraycopy(indices, start, ordered, output, length);
+            output += length;
+        }
+        return compact(buffer, ordered);
+    }
+
+    public static double computeAcmr(IndexedVertexBuffer buffer, int cacheSize) {
+        return computeAcmr(readIndices(buffer), buffer.getVertexCount(), cacheSize);
+    }
+
+    private static void checkCacheSize(int cacheSize) {
+        if (cacheSize < 4) {
+            throw new IllegalArgumentException("Cache size must be at least 4: " + cacheSize);
+        }
+    }
+
+    private static int[] readIndices(IndexedVertexBuffer buffer) {
+        final int vertexCount = buffer.getVertexCount();
+        final int[] indices = new int[buffer.getIndexCount()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = buffer.getIndex(i);
+            if (indices[i] < 0 || indices[i] >= vertexCount) {
+                throw new IllegalArgumentException("Index out of range: " + indices[i]);
+            }
+        }
+        return indices;
+    }
+
+    // Буфер с треугольниками ordered, вершины которого пронумерованы в порядке первого использования,
+    // чтобы чтение вершин тоже шло по памяти подряд. Массив ordered переписывается.
+    private static IndexedVertexBuffer compact(IndexedVertexBuffer buffer, int[] ordered) {
+        final int vertexCount = buffer.getVertexCount();
+        final int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int usedCount = 0;
+        for (int i = 0; i < ordered.length; i++) {
+            final int vertex = ordered[i];
+            if (remap[vertex] < 0) {
+                remap[vertex] = usedCount++;
+            }
+            ordered[i] = remap[vertex];
+        }
+        final int stride = buffer.stride;
+        final float[] vertices = new float[usedCount * stride];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            if (remap[vertex] >= 0) {
+                System.arraycopy(buffer.vertices, vertex * stride, vertices, remap[vertex] * stride, stride);
+            }
+        }
+
+        if (usedCount > IndexedVertexBuffer.MAX_SHORT_INDEXED_VERTICES) {
+            return new IndexedVertexBuffer(vertices, stride, buffer.textureOffset, buffer.normalOffset, ordered, null);
+        }
+        short[] shortIndices = new short[ordered.length];
+        for (int i = 0; i < ordered.length; i++) {
+            shortIndices[i] = (short) ordered[i];
+        }
+        return new IndexedVertexBuffer(vertices, stride, buffer.textureOffset, buffer.normalOffset, null, shortIndices);
+    }
+
+    // Промахи FIFO-кэша на треугольник. Вершина в кэше, если после ее загрузки было меньше cacheSize промахов.
+    private static double computeAcmr(int[] indices, int vertexCount, int cacheSize) {
+        if (indices.length == 0) {
+            return 0;
+        }
+        final int[] loadedAt = new int[vertexCount];
+        Arrays.fill(loadedAt, Integer.MIN_VALUE / 2);
+        int misses = 0;
+        for (int vertex : indices) {
+            if (misses - loadedAt[vertex] >= cacheSize) {
+                loadedAt[vertex] = misses++;
+            }
+        }
+        return (double) misses / (indices.length / 3);
+    }
+
+    // Индексы треугольников в новом порядке (номера вершин прежние)
+    private static int[] orderTriangles(int[] indices, int vertexCount, int cacheSize) {
+        final int triangleCount = indices.length / 3;
+
+        // Треугольники каждой вершины: [adjacencyOffsets[v], adjacencyOffsets[v] + liveTriangles[v]).
+        // Выведенный треугольник переставляется за конец живой части, так что обход видит только живые.
+        final int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int vertex : indices) {
+            adjacencyOffsets[vertex + 1]++;
+        }
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            adjacencyOffsets[vertex + 1] += adjacencyOffsets[vertex];
+        }
+        final int[] liveTriangles = new int[vertexCount];
+        final int[] adjacency = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            final int vertex = indices[i];
+            adjacency[adjacencyOffsets[vertex] + liveTriangles[vertex]++] = i / 3;
+        }
+
+        final float[] cacheScores = new float[cacheSize];
+        for (int position = 0; position < cacheSize; position++) {
+            cacheScores[position] = position < 3 ? LAST_TRIANGLE_SCORE
+                    : (float) Math.pow(1.0 - (double) (position - 3) / (cacheSize - 3), CACHE_DECAY_POWER);
+        }
+        final float[] valenceScores = new float[VALENCE_TABLE_SIZE];
+        for (int valence = 1; valence < VALENCE_TABLE_SIZE; valence++) {
+            valenceScores[valence] = valenceScore(valence);
+        }
+
+        final float[] vertexScores = new float[vertexCount];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            vertexScores[vertex] = score(-1, liveTriangles[vertex], cacheScores, valenceScores);
+        }
+        final float[] triangleScores = new float[triangleCount];
+        int best = -1;
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            triangleScores[triangle] = vertexScores[indices[3 * triangle]] + vertexScores[indices[3 * triangle + 1]]
+                    + vertexScores[indices[3 * triangle + 2]];
+            if (best < 0 || triangleScores[triangle] > triangleScores[best]) {
+                best = triangle;
+            }
+        }
+
+        final boolean[] emitted = new boolean[triangleCount];
+        final int[] ordered = new int[indices.length];
+        // кэш LRU: в начале последние использованные вершины; при выводе треугольника из кэша выпадает
+        // до трех вершин, поэтому новый кэш собирается в отдельном массиве длиной cacheSize + 3
+        int[] cache = new int[cacheSize + 3];
+        int[] nextCache = new int[cacheSize + 3];
+        int cacheLength = 0;
+        // следующий кандидат по исходному порядку, если ни у одной вершины кэша не осталось треугольников
+        int inputCursor = 0;
+
+        for (int output = 0; output < triangleCount; output++) {
+            if (best < 0) {
+                while (emitted[inputCursor]) {
+                    inputCursor++;
+                }
+                best = inputCursor;
+            }
+            emitted[best] = true;
+            int nextLength = 0;
+            for (int k = 0; k < 3; k++) {
+                final int vertex = indices[3 * best + k];
+                ordered[3 * output + k] = vertex;
+                removeTriangle(adjacency, adjacencyOffsets[vertex], liveTriangles[vertex]--, best);
+                if (nextLength == 0 || (nextCache[0] != vertex && (nextLength == 1 || nextCache[1] != vertex))) {
+                    nextCache[nextLength++] = vertex;
+                }
+            }
+            final int newVertices = nextLength;
+            for (int i = 0; i < cacheLength; i++) {
+                final int vertex = cache[i];
+                if (!contains(nextCache, newVertices, vertex)) {
+                    nextCache[nextLength++] = vertex;
+                }
+            }
+            final int[] swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+
+            // пересчет оценок вершин кэша, включая выпавшие из него, и их живых треугольников
+            for (int i = 0; i < nextLength; i++) {
+                final int vertex = cache[i];
+                final float score = score(i < cacheSize ? i : -1, liveTriangles[vertex], cacheScores, valenceScores);
+                final float delta = score - vertexScores[vertex];
+                vertexScores[vertex] = score;
+                final int start = adjacencyOffsets[vertex];
+                for (int j = start; j < start + liveTriangles[vertex]; j++) {
+                    triangleScores[adjacency[j]] += delta;
+                }
+            }
+            cacheLength = Math.min(nextLength, cacheSize);
+
+            best = -1;
+            float bestScore = 0;
+            for (int i = 0; i < cacheLength; i++) {
+                final int vertex = cache[i];
+                final int start = adjacencyOffsets[vertex];
+                for (int j = start; j < start + liveTriangles[vertex]; j++) {
+                    final int triangle = adjacency[j];
+                    if (best < 0 || triangleScores[triangle] > bestScore) {
+                        best = triangle;
+                        bestScore = triangleScores[triangle];
+                    }
+                }
+            }
+        }
+        return ordered;
+    }
+
+    // Убирает triangle из живой части списка вершины, переставляя его на последнее живое место
+    private static void removeTriangle(int[] adjacency, int start, int liveCount, int triangle) {
+        final int last = start + liveCount - 1;
+        for (int j = start; j <= last; j++) {
+            if (adjacency[j] == triangle) {
+                adjacency[j] = adjacency[last];
+                adjacency[last] = triangle;
+                return;
+            }
+        }
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Оценка вершины на позиции position в кэше (-1 - вне кэша) с liveCount невыведенными треугольниками
+    private static float score(int position, int liveCount, float[] cacheScores, float[] valenceScores) {
+        if (liveCount == 0) {
+            return -1;
+        }
+        final float cacheScore = position < 0 ? 0 : cacheScores[position];
+        return cacheScore + (liveCount < VALENCE_TABLE_SIZE ? valenceScores[liveCount] : valenceScore(liveCount));
+    }
+
+    private static float valenceScore(int liveCount) {
+        return VALENCE_BOOST_SCALE * (float) Math.pow(liveCount, -VALENCE_BOOST_POWER);
+    }
+}
@@ -0,0 +1,57 @@
+package com.cgvsu.render;
+
+import java.util.Locale;
+
+// Итог VertexCacheOptimizer.optimize: ACMR (среднее число промахов кэша вершин на треугольник) и ATVR
+// (промахи на одну вершину, 1.0 - лучшее возможное значение) до и после перестановки треугольников.
+// Промахи считаются на модели FIFO-кэша из getCacheSize() вершин.
+public class VertexCacheReport {
+
+    private int cacheSize;
+    private double acmrBefore;
+    private double acmrAfter;
+    private double atvrBefore;
+    private double atvrAfter;
+    private int removedVertexCount;
+
+    void set(int cacheSize, double acmrBefore, double acmrAfter, double atvrBefore, double atvrAfter,
+             int removedVertexCount) {
+        this.cacheSize = cacheSize;
+        this.acmrBefore = acmrBefore;
+        this.acmrAfter = acmrAfter;
+        this.atvrBefore = atvrBefore;
+        this.atvrAfter = atvrAfter;
+        this.removedVertexCount = removedVertexCount;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public double getAcmrBefore() {
+        return acmrBefore;
+    }
+
+    public double getAcmrAfter() {
+        return acmrAfter;
+    }
+
+    public double getAtvrBefore() {
+        return atvrBefore;
+    }
+
+    public double getAtvrAfter() {
+        return atvrAfter;
+    }
+
+    // вершины, на которые не ссылался ни один треугольник и которые выпали при уплотнении
+    public int getRemovedVertexCount() {
+        return removedVertexCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "Cache %d: ACMR %.3f -> %.3f, ATVR %.3f -> %.3f, removed %d vertices",
+                cacheSize, acmrBefore, acmrAfter, atvrBefore, atvrAfter, removedVertexCount);
+    }
+}
@@ -0,0 +1,102 @@
+package com.cgvsu.render;
+
+import com.cgvsu.util.IntArrayList;
+
+// Хеш-таблица с открытой адресацией для троек (v, vt, vn) без объектов и упаковки.
+// Ячейка - два long: индексы v и vt, упакованные в один long, и индекс vn вместе с номером тройки.
+// Обе половины ячейки лежат рядом, поэтому проверка кандидата - это одно обращение к памяти.
+// Тройки нумеруются в порядке первого добавления. Не потокобезопасна.
+final class VertexTable {
+
+    // v = -1 не бывает, поэтому такой ключ отмечает пустую ячейку
+    private static final long EMPTY = -1L;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    // уникальные тройки по номерам
+    final IntArrayList vertexIndices;
+    final IntArrayList textureVertexIndices;
+    final IntArrayList normalIndices;
+
+    VertexTable(int expectedSize) {
+        final int capacity = tableCapacity(expectedSize);
+        slots = new long[2 * capacity];
+        mask = capacity - 1;
+        clearSlots(slots);
+        vertexIndices = new IntArrayList(Math.max(expectedSize, 1));
+        textureVertexIndices = new IntArrayList(Math.max(expectedSize, 1));
+        normalIndices = new IntArrayList(Math.max(expectedSize, 1));
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Номер тройки; новая тройка получает следующий свободный номер
+    int add(int vertexIndex, int textureVertexIndex, int normalIndex) {
+        final long key = ((long) vertexIndex << 32) | (textureVertexIndex & 0xFFFFFFFFL);
+        int slot = hash(key, normalIndex) & mask;
+        while (true) {
+            final long stored = slots[2 * slot];
+            if (stored == EMPTY) {
+                break;
+            }
+            final long value = slots[2 * slot + 1];
+            if (stored == key && (int) (value >>> 32) == normalIndex) {
+                return (int) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        final int id = size++;
+        slots[2 * slot] = key;
+        slots[2 * slot + 1] = ((long) normalIndex << 32) | (id & 0xFFFFFFFFL);
+        vertexIndices.add(vertexIndex);
+        textureVertexIndices.add(textureVertexIndex);
+        normalIndices.add(normalIndex);
+        if (2 * size > mask + 1) {
+            grow();
+        }
+        return id;
+    }
+
+    // Таблица заполнена наполовину: переносим ячейки в таблицу вдвое больше
+    private void grow() {
+        final long[] old = slots;
+        final int capacity = tableCapacity(size);
+        slots = new long[2 * capacity];
+        mask = capacity - 1;
+        clearSlots(slots);
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] == EMPTY) {
+                continue;
+            }
+            int slot = hash(old[i], (int) (old[i + 1] >>> 32)) & mask;
+            while (slots[2 * slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[2 * slot] = old[i];
+            slots[2 * slot + 1] = old[i + 1];
+        }
+    }
+
+    private static int tableCapacity(int expectedSize) {
+        final long capacity = Long.highestOneBit(Math.max(2L * expectedSize, 2) - 1) << 1;
+        if (capacity > 1 << 29) {
+            throw new IllegalArgumentException("Too many vertices: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+
+    private static void clearSlots(long[] slots) {
+        for (int i = 0; i < slots.length; i += 2) {
+            slots[i] = EMPTY;
+        }
+    }
+
+    private static int hash(long key, int normalIndex) {
+        long hash = (key ^ ((long) normalIndex * 0xC2B2AE3D27D4EB4FL)) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
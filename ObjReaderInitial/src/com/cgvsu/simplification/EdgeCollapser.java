@@ -0,0 +1,835 @@
+package com.cgvsu.simplification;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.util.IntArrayList;
+
+import java.util.Arrays;
+
+// Упрощение одной триангулированной модели стягиванием ребер по квадрикам ошибки (Garland, Heckbert, 1997).
+// Стягивание половинное: вершина u переезжает в соседнюю вершину v, координаты, текстурные координаты
+// и нормали вершин не пересчитываются, поэтому массивы атрибутов модели остаются прежними.
+// Шов - ребро, по разные стороны которого у одной из его вершин разные пары vt/vn. Вершина шва (у ее углов
+// ровно две пары, и через нее проходят ровно два ребра шва) двигается только вдоль шва, в соседнюю вершину шва:
+// углы каждой стороны получают пару цели с той же стороны, и шов остается швом. Вершина, где сходятся
+// несколько швов или шов кончается, не двигается, как и вершины на краю модели и на неманифолдных ребрах.
+// Стягивания идут раундами: в раунд берутся самые дешевые стягивания, и они выполняются по порядку номеров
+// вершин, а не по порядку стоимости, - соседние по номеру вершины обычно соседние и в модели, поэтому раунд
+// идет по памяти почти подряд. Чтобы так было для любой модели, вершины внутри перенумерованы по кривой
+// Z-order, а треугольники - по номеру своей первой вершины; toMesh возвращает исходные номера и порядок.
+// После стягивания соседи стянутой вершины до конца раунда не трогаются: их стоимость выросла, и иначе
+// вокруг одной вершины собирался бы веер.
+final class EdgeCollapser {
+
+    // a², ab, ac, ad, b², bc, bd, c², cd, d² плоскостей треугольников вокруг вершины
+    private static final int QUADRIC_SIZE = 10;
+    // Добавка к приоритету за квадрат длины ребра. На плоских участках ошибка всех стягиваний нулевая, и без
+    // добавки соседи стягивались бы в одну вершину, превращая участок в веер из длинных узких треугольников
+    private static final double EDGE_LENGTH_WEIGHT = 1e-3;
+    // Треугольник, площадь которого при стягивании падает больше чем в тысячу раз, считается вырожденным:
+    // точную нулевую площадь не дают увидеть ошибки округления
+    private static final double MIN_AREA_RATIO_SQUARED = 1e-6;
+    // Чисел на вершину в points
+    private static final int POINT_SIZE = 4;
+    // Вес плоскостей вдоль шва (перпендикулярных треугольникам шва): они держат вершины шва на линии шва
+    private static final double SEAM_WEIGHT = 1;
+    // В раунд берутся самые дешевые стягивания, но не больше этой доли кандидатов: после каждого стягивания
+    // соседи ждут следующего раунда, так что в раунде все равно выполняется лишь часть кандидатов
+    private static final int ROUND_SHARE = 8;
+    // Бит на ось в коде Z-order при перенумерации вершин
+    private static final int Z_ORDER_BITS = 10;
+
+    private final float[] positions;
+    private final float[] textureVertices;
+    private final float[] normals;
+    // По четыре числа на вершину: координаты, приведенные к единичному размеру модели (ошибка не зависит
+    // от единиц модели), и значение квадрики вершины в ее собственной точке, которое меняется только при
+    // стягивании в эту вершину. При переборе соседей все, что нужно о соседке, лежит в одной строке кэша
+    private final double[] points;
+
+    // исходные номера вершин и треугольников по внутренним
+    private final int[] sourceVertices;
+    private final int[] sourceTriangles;
+
+    private final int[] corners;
+    private final int[] textureCorners;
+    private final int[] normalCorners;
+    private final boolean[] deadTriangles;
+    private int liveTriangleCount;
+
+    private final boolean[] locked;
+    // вершины шва, которые двигаются только вдоль него
+    private final boolean[] seams;
+    private final double[] quadrics;
+    private final int[] targets;
+    // ошибка стягивания в targets без добавки за длину ребра
+    private final double[] targetErrors;
+    // приоритет стягивания в targets; бесконечность, если вершину стягивать некуда
+    private final double[] priorities;
+    // раунд, в котором менялись соседи вершины: до конца этого раунда вершина не стягивается
+    private final int[] touchedRounds;
+    private int round;
+    // приоритеты кандидатов при выборе порога раунда
+    private double[] selection = new double[0];
+
+    // Живые треугольники вершины v: pool[listStarts[v]], ..., pool[listStarts[v] + listSizes[v] - 1].
+    // Когда список перестает помещаться на своем месте, он переносится в конец pool.
+    private final int[] listStarts;
+    private final int[] listSizes;
+    private final int[] listCapacities;
+    private int[] pool;
+    private int poolEnd;
+
+    private final IntArrayList firstNeighbors = new IntArrayList();
+    private final IntArrayList secondNeighbors = new IntArrayList();
+    private final IntArrayList newList = new IntArrayList();
+
+    EdgeCollapser(MeshData mesh) {
+        positions = mesh.positions;
+        textureVertices = mesh.textureVertices;
+        normals = mesh.normals;
+        final int[] sourceCorners = mesh.vertexIndices;
+        final int vertexCount = mesh.getVertexCount();
+        final int triangleCount = sourceCorners.length / 3;
+        for (int vertex : sourceCorners) {
+            if (vertex < 0 || vertex >= vertexCount) {
+                throw new IllegalArgumentException("Vertex index out of range: " + vertex);
+            }
+        }
+        deadTriangles = new boolean[triangleCount];
+        liveTriangleCount = triangleCount;
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double minZ = Double.POSITIVE_INFINITY;
+        double maxExtent = 0;
+        for (int i = 0; i < 3 * vertexCount; i += 3) {
+            minX = Math.min(minX, positions[i]);
+            minY = Math.min(minY, positions[i + 1]);
+            minZ = Math.min(minZ, positions[i + 2]);
+        }
+        for (int i = 0; i < 3 * vertexCount; i += 3) {
+            maxExtent = Math.max(maxExtent, Math.max(positions[i] - minX,
+                    Math.max(positions[i + 1] - minY, positions[i + 2] - minZ)));
+        }
+        final double scale = maxExtent == 0 ? 1 : 1 / maxExtent;
+        points = new double[POINT_SIZE * vertexCount];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            points[POINT_SIZE * vertex] = (positions[3 * vertex] - minX) * scale;
+            points[POINT_SIZE * vertex + 1] = (positions[3 * vertex + 1] - minY) * scale;
+            points[POINT_SIZE * vertex + 2] = (positions[3 * vertex + 2] - minZ) * scale;
+        }
+        sourceVertices = spatialOrder(points, vertexCount);
+        final int[] vertexNumbers = new int[vertexCount];
+        final double[] sourcePoints = points.clone();
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            final int source = sourceVertices[vertex];
+            vertexNumbers[source] = vertex;
+            System.arraycopy(sourcePoints, POINT_SIZE * source, points, POINT_SIZE * vertex, POINT_SIZE);
+        }
+
+        // треугольники по номеру первой вершины (сортировка подсчетом)
+        final int[] triangleStarts = new int[vertexCount + 1];
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            triangleStarts[vertexNumbers[sourceCorners[3 * triangle]] + 1]++;
+        }
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            triangleStarts[vertex + 1] += triangleStarts[vertex];
+        }
+        sourceTriangles = new int[triangleCount];
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            sourceTriangles[triangleStarts[vertexNumbers[sourceCorners[3 * triangle]]]++] = triangle;
+        }
+        corners = new int[sourceCorners.length];
+        textureCorners = new int[mesh.textureVertexIndices.length];
+        normalCorners = new int[mesh.normalIndices.length];
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            final int source = sourceTriangles[triangle];
+            for (int k = 0; k < 3; k++) {
+                corners[3 * triangle + k] = vertexNumbers[sourceCorners[3 * source + k]];
+            }
+            if (textureCorners.length != 0) {
+                System.arraycopy(mesh.textureVertexIndices, 3 * source, textureCorners, 3 * triangle, 3);
+            }
+            if (normalCorners.length != 0) {
+                System.arraycopy(mesh.normalIndices, 3 * source, normalCorners, 3 * triangle, 3);
+            }
+        }
+
+        listStarts = new int[vertexCount];
+        listSizes = new int[vertexCount];
+        listCapacities = new int[vertexCount];
+        for (int vertex : corners) {
+            listCapacities[vertex]++;
+        }
+        int start = 0;
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            listStarts[vertex] = start;
+            start += listCapacities[vertex];
+        }
+        pool = new int[corners.length + corners.length / 2];
+        poolEnd = corners.length;
+        for (int corner = 0; corner < corners.length; corner++) {
+            final int vertex = corners[corner];
+            final int triangle = corner / 3;
+            // треугольник с повторяющейся вершиной записывается в ее список один раз
+            if (listSizes[vertex] == 0 || pool[listStarts[vertex] + listSizes[vertex] - 1] != triangle) {
+                pool[listStarts[vertex] + listSizes[vertex]++] = triangle;
+            }
+        }
+
+        locked = new boolean[vertexCount];
+        lockBorders(vertexCount);
+        seams = new boolean[vertexCount];
+        final boolean hasAttributes = textureCorners.length != 0 || normalCorners.length != 0;
+        if (hasAttributes) {
+            findSeams(vertexCount);
+        }
+
+        quadrics = new double[QUADRIC_SIZE * vertexCount];
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            addPlaneQuadric(triangle, hasAttributes);
+        }
+
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            points[POINT_SIZE * vertex + 3] = quadricError(vertex, vertex);
+        }
+        targets = new int[vertexCount];
+        targetErrors = new double[vertexCount];
+        priorities = new double[vertexCount];
+        touchedRounds = new int[vertexCount];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            updateCandidate(vertex);
+        }
+    }
+
+    // Стягивает ребра раундами, пока треугольников больше targetTriangleCount.
+    // Стягивания с ошибкой больше maxErrorSquared пропускаются; их стоимость пересчитается, если изменятся соседи.
+    void run(int targetTriangleCount, double maxErrorSquared) {
+        while (liveTriangleCount > targetTriangleCount) {
+            final double threshold = roundThreshold(targetTriangleCount, maxErrorSquared);
+            if (Double.isNaN(threshold)) {
+                break;
+            }
+            round++;
+            boolean changed = false;
+            for (int vertex = 0; vertex < priorities.length && liveTriangleCount > targetTriangleCount; vertex++) {
+                if (!(priorities[vertex] <= threshold) || targetErrors[vertex] > maxErrorSquared
+                        || touchedRounds[vertex] == round) {
+                    continue;
+                }
+                // стоимости считаются без проверки топологии, она делается только здесь. Допустимая цель
+                // остается допустимой, пока рядом ничего не стянуто, поэтому раунд без стягиваний
+                // не может повториться без изменений
+                final int target = targets[vertex];
+                if (canCollapse(vertex, target)) {
+                    collapse(vertex, target);
+                } else {
+                    updateValidCandidate(vertex);
+                }
+                changed = true;
+            }
+            if (!changed) {
+                break;
+            }
+        }
+    }
+
+    // Наибольший приоритет стягиваний раунда: столько самых дешевых, сколько нужно до targetTriangleCount
+    // (одно стягивание убирает два треугольника), но не больше доли ROUND_SHARE кандидатов. NaN, если
+    // кандидатов нет
+    private double roundThreshold(int targetTriangleCount, double maxErrorSquared) {
+        if (selection.length < priorities.length) {
+            selection = new double[priorities.length];
+        }
+        int count = 0;
+        for (int vertex = 0; vertex < priorities.length; vertex++) {
+            if (priorities[vertex] != Double.POSITIVE_INFINITY && targetErrors[vertex] <= maxErrorSquared) {
+                selection[count++] = priorities[vertex];
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        final int needed = (liveTriangleCount - targetTriangleCount + 1) / 2;
+        final int taken = Math.max(1, Math.min(needed, count / ROUND_SHARE));
+        return select(selection, count, taken - 1);
+    }
+
+    // k-й по возрастанию (с нуля) из первых count чисел; порядок чисел меняется
+    private static double select(double[] values, int count, int k) {
+        int from = 0;
+        int to = count - 1;
+        while (from < to) {
+            final double pivot = values[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final double swap = values[i];
+                    values[i++] = values[j];
+                    values[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                to = j;
+            } else if (k >= i) {
+                from = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+
+    // Модель из оставшихся треугольников в исходном порядке; массивы атрибутов общие с исходной моделью
+    MeshData toMesh() {
+        final int cornerCount = 3 * liveTriangleCount;
+        int[] vertexIndices = new int[cornerCount];
+        int[] textureVertexIndices = new int[textureCorners.length == 0 ? 0 : cornerCount];
+        int[] normalIndices = new int[normalCorners.length == 0 ? 0 : cornerCount];
+        final int[] triangleNumbers = new int[sourceTriangles.length];
+        for (int triangle = 0; triangle < sourceTriangles.length; triangle++) {
+            triangleNumbers[sourceTriangles[triangle]] = triangle;
+        }
+        int output = 0;
+        for (int source = 0; source < triangleNumbers.length; source++) {
+            final int triangle = triangleNumbers[source];
+            if (deadTriangles[triangle]) {
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                vertexIndices[output + k] = sourceVertices[corners[3 * triangle + k]];
+            }
+            if (textureVertexIndices.length != 0) {
+                System.arraycopy(textureCorners, 3 * triangle, textureVertexIndices, output, 3);
+            }
+            if (normalIndices.length != 0) {
+                System.arraycopy(normalCorners, 3 * triangle, normalIndices, output, 3);
+            }
+            output += 3;
+        }
+        return new MeshData(positions, textureVertices, normals, MeshData.triangleFaceOffsets(liveTriangleCount),
+                vertexIndices, textureVertexIndices, normalIndices);
+    }
+
+    // Исходные номера вершин по возрастанию кода Z-order их точки; при равных кодах - по возрастанию номера
+    private static int[] spatialOrder(double[] points, int vertexCount) {
+        final long[] keys = new long[vertexCount];
+        final int cells = 1 << Z_ORDER_BITS;
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            long code = 0;
+            for (int axis = 0; axis < 3; axis++) {
+                final int cell = (int) Math.min(cells - 1, points[POINT_SIZE * vertex + axis] * cells);
+                code |= spreadBits(cell) << axis;
+            }
+            keys[vertex] = code << 32 | vertex;
+        }
+        Arrays.sort(keys);
+        final int[] order = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    // Младшие Z_ORDER_BITS бит value через два на третий
+    private static long spreadBits(int value) {
+        long bits = value;
+        bits = (bits | bits << 16) & 0x30000FFL;
+        bits = (bits | bits << 8) & 0x300F00FL;
+        bits = (bits | bits << 4) & 0x30C30C3L;
+        bits = (bits | bits << 2) & 0x9249249L;
+        return bits;
+    }
+
+    // Вершины, не запертые краем: с одной парой vt/vn и без ребер шва - обычные, с двумя парами и двумя
+    // ребрами шва - вершины шва, остальные (стык швов, конец шва) запираются
+    private void findSeams(int vertexCount) {
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            if (locked[vertex] || listSizes[vertex] == 0) {
+                continue;
+            }
+            final int start = listStarts[vertex];
+            final int firstCorner = cornerOf(pool[start], vertex);
+            int secondCorner = -1;
+            int pairCount = 1;
+            int seamEdgeCount = 0;
+            for (int i = start; i < start + listSizes[vertex]; i++) {
+                final int corner = cornerOf(pool[i], vertex);
+                if (!sameAttributes(corner, firstCorner)
+                        && (secondCorner < 0 || !sameAttributes(corner, secondCorner))) {
+                    secondCorner = secondCorner < 0 ? corner : secondCorner;
+                    pairCount = Math.min(pairCount + 1, 3);
+                }
+                if (isSeam(pool[i], vertex)) {
+                    seamEdgeCount++;
+                }
+            }
+            if (pairCount == 2 && seamEdgeCount == 2) {
+                seams[vertex] = true;
+            } else if (pairCount != 1 || seamEdgeCount != 0) {
+                locked[vertex] = true;
+            }
+        }
+    }
+
+    // Ребро vertex -> следующая вершина треугольника triangle - шов. У края (нет второго треугольника) - нет.
+    private boolean isSeam(int triangle, int vertex) {
+        final int next = nextCorner(triangle, vertex);
+        final int other = findTriangle(vertex, next, false);
+        return other >= 0 && (!sameAttributes(cornerOf(triangle, vertex), cornerOf(other, vertex))
+                || !sameAttributes(cornerOf(triangle, next), cornerOf(other, next)));
+    }
+
+    // Треугольник вершины vertex, в котором за ней идет neighbor (forward) или перед ней идет neighbor; -1, если нет
+    private int findTriangle(int vertex, int neighbor, boolean forward) {
+        final int start = listStarts[vertex];
+        for (int i = start; i < start + listSizes[vertex]; i++) {
+            final int triangle = pool[i];
+            if ((forward ? nextCorner(triangle, vertex) : previousCorner(triangle, vertex)) == neighbor) {
+                return triangle;
+            }
+        }
+        return -1;
+    }
+
+    private boolean sameAttributes(int first, int second) {
+        return (textureCorners.length == 0 || textureCorners[first] == textureCorners[second])
+                && (normalCorners.length == 0 || normalCorners[first] == normalCorners[second]);
+    }
+
+    // Внутреннее ребро ровно один раз обходится в каждую сторону. Край модели, неманифолдные ребра,
+    // несогласованная ориентация и вырожденные треугольники запирают свои вершины.
+    private void lockBorders(int vertexCount) {
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            final int start = listStarts[vertex];
+            for (int i = start; i < start + listSizes[vertex]; i++) {
+                final int triangle = pool[i];
+                final int next = nextCorner(triangle, vertex);
+                if (next == vertex || previousCorner(triangle, vertex) == vertex) {
+                    lockTriangle(triangle);
+                    continue;
+                }
+                if (countDirectedEdges(vertex, next) != 1 || countDirectedEdges(next, vertex) != 1) {
+                    locked[vertex] = true;
+                    locked[next] = true;
+                }
+            }
+        }
+    }
+
+    private void lockTriangle(int triangle) {
+        for (int k = 0; k < 3; k++) {
+            locked[corners[3 * triangle + k]] = true;
+        }
+    }
+
+    // Сколько треугольников вершины from обходят ребро from -> to
+    private int countDirectedEdges(int from, int to) {
+        int count = 0;
+        final int start = listStarts[from];
+        for (int i = start; i < start + listSizes[from]; i++) {
+            if (nextCorner(pool[i], from) == to) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int nextCorner(int triangle, int vertex) {
+        final int base = 3 * triangle;
+        if (corners[base] == vertex) {
+            return corners[base + 1];
+        }
+        return corners[base + 1] == vertex ? corners[base + 2] : corners[base];
+    }
+
+    private int previousCorner(int triangle, int vertex) {
+        final int base = 3 * triangle;
+        if (corners[base] == vertex) {
+            return corners[base + 2];
+        }
+        return corners[base + 1] == vertex ? corners[base] : corners[base + 1];
+    }
+
+    private boolean containsVertex(int triangle, int vertex) {
+        final int base = 3 * triangle;
+        return corners[base] == vertex || corners[base + 1] == vertex || corners[base + 2] == vertex;
+    }
+
+    // Плоскость треугольника и, если withSeams, плоскости вдоль его ребер шва (через ребро перпендикулярно
+    // треугольнику) добавляются к квадрикам вершин
+    private void addPlaneQuadric(int triangle, boolean withSeams) {
+        final int a = corners[3 * triangle];
+        final int b = corners[3 * triangle + 1];
+        final int c = corners[3 * triangle + 2];
+        final double abX = x(b) - x(a);
+        final double abY = y(b) - y(a);
+        final double abZ = z(b) - z(a);
+        final double acX = x(c) - x(a);
+        final double acY = y(c) - y(a);
+        final double acZ = z(c) - z(a);
+        double normalX = abY * acZ - abZ * acY;
+        double normalY = abZ * acX - abX * acZ;
+        double normalZ = abX * acY - abY * acX;
+        final double length = Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+        if (length == 0) {
+            return;
+        }
+        normalX /= length;
+        normalY /= length;
+        normalZ /= length;
+        final double d = -(normalX * x(a) + normalY * y(a) + normalZ * z(a));
+        for (int k = 0; k < 3; k++) {
+            addQuadric(corners[3 * triangle + k], normalX, normalY, normalZ, d, 1);
+        }
+        if (!withSeams) {
+            return;
+        }
+        for (int k = 0; k < 3; k++) {
+            final int from = corners[3 * triangle + k];
+            final int to = corners[3 * triangle + (k + 1) % 3];
+            if (!isSeam(triangle, from)) {
+                continue;
+            }
+            final double edgeX = x(to) - x(from);
+            final double edgeY = y(to) - y(from);
+            final double edgeZ = z(to) - z(from);
+            double seamX = edgeY * normalZ - edgeZ * normalY;
+            double seamY = edgeZ * normalX - edgeX * normalZ;
+            double seamZ = edgeX * normalY - edgeY * normalX;
+            final double seamLength = Math.sqrt(seamX * seamX + seamY * seamY + seamZ * seamZ);
+            if (seamLength == 0) {
+                continue;
+            }
+            seamX /= seamLength;
+            seamY /= seamLength;
+            seamZ /= seamLength;
+            final double seamD = -(seamX * x(from) + seamY * y(from) + seamZ * z(from));
+            addQuadric(from, seamX, seamY, seamZ, seamD, SEAM_WEIGHT);
+            addQuadric(to, seamX, seamY, seamZ, seamD, SEAM_WEIGHT);
+        }
+    }
+
+    private void addQuadric(int vertex, double a, double b, double c, double d, double weight) {
+        final int base = QUADRIC_SIZE * vertex;
+        quadrics[base] += weight * a * a;
+        quadrics[base + 1] += weight * a * b;
+        quadrics[base + 2] += weight * a * c;
+        quadrics[base + 3] += weight * a * d;
+        quadrics[base + 4] += weight * b * b;
+        quadrics[base + 5] += weight * b * c;
+        quadrics[base + 6] += weight * b * d;
+        quadrics[base + 7] += weight * c * c;
+        quadrics[base + 8] += weight * c * d;
+        quadrics[base + 9] += weight * d * d;
+    }
+
+    // Сумма квадратов расстояний от точки вершины point до плоскостей квадрики вершины
+    private double quadricError(int vertex, int point) {
+        final int q = QUADRIC_SIZE * vertex;
+        final double px = x(point);
+        final double py = y(point);
+        final double pz = z(point);
+        return quadrics[q] * px * px + 2 * quadrics[q + 1] * px * py + 2 * quadrics[q + 2] * px * pz
+                + 2 * quadrics[q + 3] * px + quadrics[q + 4] * py * py + 2 * quadrics[q + 5] * py * pz
+                + 2 * quadrics[q + 6] * py + quadrics[q + 7] * pz * pz + 2 * quadrics[q + 8] * pz + quadrics[q + 9];
+    }
+
+    // Ошибка стягивания u -> v по сумме квадрик обеих вершин в точке v
+    private double collapseError(int vertex, int target) {
+        return Math.max(quadricError(vertex, target) + points[POINT_SIZE * target + 3], 0);
+    }
+
+    private void updateCandidate(int vertex) {
+        priorities[vertex] = locked[vertex] || listSizes[vertex] == 0
+                ? Double.POSITIVE_INFINITY
+                : findCandidate(vertex);
+    }
+
+    // Лучшая цель среди соседей без проверки топологии: записывается в targets, возвращается ее приоритет
+    private double findCandidate(int vertex) {
+        int best = -1;
+        double bestError = 0;
+        double bestPriority = Double.POSITIVE_INFINITY;
+        // вершина не на краю, поэтому каждая соседка идет следом за ней ровно в одном треугольнике
+        final int start = listStarts[vertex];
+        for (int i = start; i < start + listSizes[vertex]; i++) {
+            if (seams[vertex] && !isSeam(pool[i], vertex)) {
+                continue;
+            }
+            final int neighbor = nextCorner(pool[i], vertex);
+            final double error = collapseError(vertex, neighbor);
+            final double priority = error + EDGE_LENGTH_WEIGHT * distanceSquared(vertex, neighbor);
+            if (priority < bestPriority) {
+                best = neighbor;
+                bestError = error;
+                bestPriority = priority;
+            }
+        }
+        targets[vertex] = best;
+        targetErrors[vertex] = bestError;
+        return bestPriority;
+    }
+
+    // Лучшая цель среди соседей, стягивание в которую допустимо; если такой нет, приоритет бесконечный
+    private void updateValidCandidate(int vertex) {
+        int best = -1;
+        double bestError = 0;
+        double bestPriority = Double.POSITIVE_INFINITY;
+        final int start = listStarts[vertex];
+        for (int i = start; i < start + listSizes[vertex]; i++) {
+            if (seams[vertex] && !isSeam(pool[i], vertex)) {
+                continue;
+            }
+            final int neighbor = nextCorner(pool[i], vertex);
+            final double error = collapseError(vertex, neighbor);
+            final double priority = error + EDGE_LENGTH_WEIGHT * distanceSquared(vertex, neighbor);
+            if (priority < bestPriority && canCollapse(vertex, neighbor)) {
+                best = neighbor;
+                bestError = error;
+                bestPriority = priority;
+            }
+        }
+        targets[vertex] = best;
+        targetErrors[vertex] = bestError;
+        priorities[vertex] = bestPriority;
+    }
+
+    // Цель target берется из findCandidate или updateValidCandidate, поэтому для вершины шва это соседка по шву.
+    // Стягивание u -> v не меняет топологию поверхности и не переворачивает треугольники:
+    // ребро uv внутреннее (два треугольника), у u и v ровно две общие соседки (условие связности),
+    // и ни один оставшийся треугольник u не переворачивается и не вырождается
+    private boolean canCollapse(int vertex, int target) {
+        if (locked[vertex] || target < 0) {
+            return false;
+        }
+        collectNeighbors(vertex, firstNeighbors);
+        collectNeighbors(target, secondNeighbors);
+        int shared = 0;
+        final int start = listStarts[vertex];
+        for (int i = start; i < start + listSizes[vertex]; i++) {
+            if (containsVertex(pool[i], target)) {
+                shared++;
+            }
+        }
+        if (shared != 2) {
+            return false;
+        }
+        int common = 0;
+        for (int i = 0; i < firstNeighbors.size(); i++) {
+            final int neighbor = firstNeighbors.get(i);
+            if (neighbor != target && contains(secondNeighbors, neighbor)) {
+                common++;
+            }
+        }
+        if (common != 2) {
+            return false;
+        }
+
+        for (int i = start; i < start + listSizes[vertex]; i++) {
+            final int triangle = pool[i];
+            if (containsVertex(triangle, target)) {
+                continue;
+            }
+            final int next = nextCorner(triangle, vertex);
+            final int previous = previousCorner(triangle, vertex);
+            final double nextX = x(next);
+            final double nextY = y(next);
+            final double nextZ = z(next);
+            final double previousX = x(previous);
+            final double previousY = y(previous);
+            final double previousZ = z(previous);
+            final double oldX = nextX - x(vertex);
+            final double oldY = nextY - y(vertex);
+            final double oldZ = nextZ - z(vertex);
+            final double newX = nextX - x(target);
+            final double newY = nextY - y(target);
+            final double newZ = nextZ - z(target);
+            final double edgeX = previousX - nextX;
+            final double edgeY = previousY - nextY;
+            final double edgeZ = previousZ - nextZ;
+            // нормали до и после как векторные произведения со стороной, которая не двигается
+            final double oldNormalX = oldY * edgeZ - oldZ * edgeY;
+            final double oldNormalY = oldZ * edgeX - oldX * edgeZ;
+            final double oldNormalZ = oldX * edgeY - oldY * edgeX;
+            final double newNormalX = newY * edgeZ - newZ * edgeY;
+            final double newNormalY = newZ * edgeX - newX * edgeZ;
+            final double newNormalZ = newX * edgeY - newY * edgeX;
+            final double newLengthSquared = newNormalX * newNormalX + newNormalY * newNormalY + newNormalZ * newNormalZ;
+            final double oldLengthSquared = oldNormalX * oldNormalX + oldNormalY * oldNormalY + oldNormalZ * oldNormalZ;
+            if (oldNormalX * newNormalX + oldNormalY * newNormalY + oldNormalZ * newNormalZ <= 0
+                    || newLengthSquared <= MIN_AREA_RATIO_SQUARED * oldLengthSquared) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void collectNeighbors(int vertex, IntArrayList result) {
+        result.clear();
+        final int start = listStarts[vertex];
+        for (int i = start; i < start + listSizes[vertex]; i++) {
+            final int base = 3 * pool[i];
+            for (int k = 0; k < 3; k++) {
+                final int neighbor = corners[base + k];
+                if (neighbor != vertex && !contains(result, neighbor)) {
+                    result.add(neighbor);
+                }
+            }
+        }
+    }
+
+    private static boolean contains(IntArrayList values, int value) {
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collapse(int vertex, int target) {
+        collectNeighbors(vertex, secondNeighbors);
+        final int q = QUADRIC_SIZE * vertex;
+        final int t = QUADRIC_SIZE * target;
+        for (int k = 0; k < QUADRIC_SIZE; k++) {
+            quadrics[t + k] += quadrics[q + k];
+        }
+        points[POINT_SIZE * target + 3] = quadricError(target, target);
+
+        // Углы u получают текстурные координаты и нормаль v из треугольника ребра uv со своей стороны шва.
+        // У обычной вершины сторона одна, и пары v в обоих треугольниках ребра совпадают.
+        final int start = listStarts[vertex];
+        final int firstTriangle = findTriangle(vertex, target, true);
+        final int firstSide = cornerOf(firstTriangle, vertex);
+        final int firstSource = cornerOf(firstTriangle, target);
+        final int secondSource = cornerOf(findTriangle(vertex, target, false), target);
+
+        firstNeighbors.clear();
+        for (int i = start; i < start + listSizes[vertex]; i++) {
+            final int triangle = pool[i];
+            if (containsVertex(triangle, target)) {
+                deadTriangles[triangle] = true;
+                liveTriangleCount--;
+                // третья вершина стянутого треугольника, из ее списка он удаляется ниже
+                firstNeighbors.add(corners[3 * triangle] ^ corners[3 * triangle + 1] ^ corners[3 * triangle + 2]
+                        ^ vertex ^ target);
+                continue;
+            }
+            final int corner = cornerOf(triangle, vertex);
+            final int source = sameAttributes(corner, firstSide) ? firstSource : secondSource;
+            corners[corner] = target;
+            if (textureCorners.length != 0) {
+                textureCorners[corner] = textureCorners[source];
+            }
+            if (normalCorners.length != 0) {
+                normalCorners[corner] = normalCorners[source];
+            }
+        }
+
+        newList.clear();
+        appendLive(target);
+        appendLive(vertex);
+        setList(target, newList);
+        listSizes[vertex] = 0;
+        priorities[vertex] = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < firstNeighbors.size(); i++) {
+            final int opposite = firstNeighbors.get(i);
+            newList.clear();
+            appendLive(opposite);
+            setList(opposite, newList);
+        }
+
+        // Пересчитываются сама v (она среди соседок u) и бывшие соседки u, у которых вместо u теперь v.
+        // У остальных соседок v набор соседей прежний, а стягивание в v только подорожало (к квадрике v
+        // добавилась квадрика u), поэтому из них пересчитываются лишь те, чья лучшая цель - v
+        for (int i = 0; i < secondNeighbors.size(); i++) {
+            updateCandidate(secondNeighbors.get(i));
+        }
+        touchedRounds[target] = round;
+        collectNeighbors(target, firstNeighbors);
+        for (int i = 0; i < firstNeighbors.size(); i++) {
+            final int neighbor = firstNeighbors.get(i);
+            touchedRounds[neighbor] = round;
+            if (targets[neighbor] == target && !contains(secondNeighbors, neighbor)) {
+                updateCandidate(neighbor);
+            }
+        }
+    }
+
+    private int cornerOf(int triangle, int vertex) {
+        final int base = 3 * triangle;
+        if (corners[base] == vertex) {
+            return base;
+        }
+        return corners[base + 1] == vertex ? base + 1 : base + 2;
+    }
+
+    private void appendLive(int vertex) {
+        final int start = listStarts[vertex];
+        for (int i = start; i < start + listSizes[vertex]; i++) {
+            if (!deadTriangles[pool[i]]) {
+                newList.add(pool[i]);
+            }
+        }
+    }
+
+    private void setList(int vertex, IntArrayList triangles) {
+        final int size = triangles.size();
+        if (size > listCapacities[vertex]) {
+            final int capacity = size + size / 2;
+            if (poolEnd + capacity > pool.length) {
+                compactPool(capacity);
+            }
+            listStarts[vertex] = poolEnd;
+            listCapacities[vertex] = capacity;
+            poolEnd += capacity;
+        }
+        System.arraycopy(triangles.elements(), 0, pool, listStarts[vertex], size);
+        listSizes[vertex] = size;
+    }
+
+    // Переписывает все списки подряд без свободных мест; после этого в конце есть место под extra элементов
+    private void compactPool(int extra) {
+        long total = extra;
+        for (int size : listSizes) {
+            total += size;
+        }
+        int[] compacted = new int[(int) Math.min(Integer.MAX_VALUE - 8, total + total / 2)];
+        int end = 0;
+        for (int vertex = 0; vertex < listSizes.length; vertex++) {
+            System.arraycopy(pool, listStarts[vertex], compacted, end, listSizes[vertex]);
+            listStarts[vertex] = end;
+            listCapacities[vertex] = listSizes[vertex];
+            end += listSizes[vertex];
+        }
+        pool = compacted;
+        poolEnd = end;
+    }
+
+    private double distanceSquared(int first, int second) {
+        final double dx = x(first) - x(second);
+        final double dy = y(first) - y(second);
+        final double dz = z(first) - z(second);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private double x(int vertex) {
+        return points[POINT_SIZE * vertex];
+    }
+
+    private double y(int vertex) {
+        return points[POINT_SIZE * vertex + 1];
+    }
+
+    private double z(int vertex) {
+        return points[POINT_SIZE * vertex + 2];
+    }
+}
@@ -0,0 +1,63 @@
+package com.cgvsu.simplification;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.triangulation.ModelTriangulator;
+
+// Уровни детализации: упрощение триангулированной модели до заданного числа треугольников или ошибки.
+// Ребра стягиваются по возрастанию квадрики ошибки (см. EdgeCollapser). Швы текстурных координат и нормалей
+// упрощаются только вдоль себя, а край модели, неманифолдные места, стыки и концы швов не трогаются.
+// Поэтому модель с плоским затенением (у каждой грани своя нормаль, и в каждой вершине сходится несколько швов)
+// не упрощается совсем: такую модель нужно упрощать без нормалей и построить нормали заново (NormalGenerator).
+// Вершины не переставляются и не пересчитываются, поэтому результат использует те же массивы координат,
+// что и исходная модель (как и после триангуляции), а вершины, на которые больше не ссылается ни один
+// треугольник, просто остаются неиспользованными.
+public class MeshSimplifier {
+
+    // Во сколько раз уменьшается число треугольников от уровня к уровню в buildLevelsOfDetail
+    public static final int LEVEL_REDUCTION = 2;
+
+    public static MeshData simplify(MeshData triangles, int targetTriangleCount) {
+        return simplify(triangles, targetTriangleCount, Float.POSITIVE_INFINITY);
+    }
+
+    // maxError - допустимое отклонение поверхности в долях наибольшего размера модели (0.01 - один процент).
+    // Упрощение останавливается на targetTriangleCount треугольниках или раньше, если следующее стягивание
+    // дало бы ошибку больше maxError; без ограничения по числу треугольников targetTriangleCount равен 0.
+    public static MeshData simplify(MeshData triangles, int targetTriangleCount, float maxError) {
+        if (!triangles.allFacesAreTriangles()) {
+            throw new IllegalArgumentException("Mesh must be triangulated before simplification");
+        }
+        if (targetTriangleCount < 0 || !(maxError >= 0)) {
+            throw new IllegalArgumentException("Invalid simplification target: "
+                    + targetTriangleCount + " triangles, error " + maxError);
+        }
+        EdgeCollapser collapser = new EdgeCollapser(triangles);
+        collapser.run(targetTriangleCount, (double) maxError * maxError);
+        return collapser.toMesh();
+    }
+
+    // Полигоны модели сначала разбиваются веером. Результат - новая модель из треугольников.
+    public static Model simplify(Model model, int targetTriangleCount) {
+        MeshData mesh = MeshData.fromModel(model);
+        if (!mesh.allFacesAreTriangles()) {
+            mesh = ModelTriangulator.triangulate(mesh);
+        }
+        return simplify(mesh, targetTriangleCount).toModel();
+    }
+
+    // levels[0] - сама модель, каждый следующий уровень получается из предыдущего и содержит примерно
+    // в LEVEL_REDUCTION раз меньше треугольников. Если модель перестала упрощаться (все оставшиеся вершины
+    // заперты швами или краем), последние уровни совпадают.
+    public static MeshData[] buildLevelsOfDetail(MeshData triangles, int levelCount) {
+        if (levelCount < 1) {
+            throw new IllegalArgumentException("Level count must be positive: " + levelCount);
+        }
+        MeshData[] levels = new MeshData[levelCount];
+        levels[0] = triangles;
+        for (int level = 1; level < levelCount; level++) {
+            levels[level] = simplify(levels[level - 1], levels[level - 1].getFaceCount() / LEVEL_REDUCTION);
+        }
+        return levels;
+    }
+}
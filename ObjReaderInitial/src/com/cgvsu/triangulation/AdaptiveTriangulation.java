@@ -0,0 +1,90 @@
+package com.cgvsu.triangulation;
+
+// Выбирает для каждого полигона самый дешевый правильный способ:
+// четырехугольник режется по короткой из допустимых диагоналей без проекции и выделения памяти,
+// строго выпуклый полигон разбивается веером, и только вогнутые, самопересекающиеся и вырожденные
+// полигоны отдаются дорогой стратегии (обычно отсечению ушей).
+public class AdaptiveTriangulation implements TriangulationStrategy {
+
+    private final TriangulationStrategy concaveStrategy;
+    private final PolygonProjection projection = new PolygonProjection();
+
+    public AdaptiveTriangulation(TriangulationStrategy concaveStrategy) {
+        this.concaveStrategy = concaveStrategy;
+    }
+
+    @Override
+    public void triangulate(float[] coordinates, int vertexCount, int[] triangles,
+                            TriangulationStatistics statistics) {
+        if (vertexCount == 3) {
+            EarClippingTriangulator.triangulateFan(3, triangles);
+            statistics.add(TriangulationStatistics.TRIANGLE, 1, 0);
+            return;
+        }
+        if (vertexCount == 4) {
+            if (splitQuad(coordinates, triangles)) {
+                statistics.add(TriangulationStatistics.QUAD, 2, 0);
+            } else {
+                concaveStrategy.triangulate(coordinates, vertexCount, triangles, statistics);
+            }
+            return;
+        }
+        if (projection.project(coordinates, vertexCount) && projection.isStrictlyConvex(vertexCount)) {
+            EarClippingTriangulator.triangulateFan(vertexCount, triangles);
+            statistics.add(TriangulationStatistics.CONVEX_FAN, vertexCount - 2, 0);
+            return;
+        }
+        concaveStrategy.triangulate(coordinates, vertexCount, triangles, statistics);
+    }
+
+    // Диагональ 0-2 допустима, если вершины 1 и 3 лежат по разные стороны от нее: нормали треугольников
+    // (0, 1, 2) и (0, 2, 3) тогда смотрят в одну сторону. Из двух допустимых берется более короткая:
+    // у выпуклого четырехугольника это дает менее вытянутые треугольники, у вогнутого допустима только одна.
+    // Возвращает false для самопересекающегося или вырожденного четырехугольника.
+    static boolean splitQuad(float[] c, int[] triangles) {
+        final boolean split02 = oppositeSides(c, 0, 2, 1, 3);
+        final boolean split13 = oppositeSides(c, 1, 3, 0, 2);
+        if (!split02 && !split13) {
+            return false;
+        }
+
+        final boolean use02 = split02 && (!split13 || squaredDistance(c, 0, 2) <= squaredDistance(c, 1, 3));
+        final int first = use02 ? 0 : 1;
+        triangles[0] = first;
+        triangles[1] = first + 1;
+        triangles[2] = first + 2;
+        triangles[3] = first;
+        triangles[4] = first + 2;
+        triangles[5] = (first + 3) & 3;
+        return true;
+    }
+
+    // p и q по разные стороны от прямой a-b в плоскости, которую задают a, b и эти точки
+    private static boolean oppositeSides(float[] c, int a, int b, int p, int q) {
+        final double abX = c[3 * b] - c[3 * a];
+        final double abY = c[3 * b + 1] - c[3 * a + 1];
+        final double abZ = c[3 * b + 2] - c[3 * a + 2];
+        final double apX = c[3 * p] - c[3 * a];
+        final double apY = c[3 * p + 1] - c[3 * a + 1];
+        final double apZ = c[3 * p + 2] - c[3 * a + 2];
+        final double aqX = c[3 * q] - c[3 * a];
+        final double aqY = c[3 * q + 1] - c[3 * a + 1];
+        final double aqZ = c[3 * q + 2] - c[3 * a + 2];
+
+        // нормали треугольников (a, b, p) и (a, b, q)
+        final double pX = abY * apZ - abZ * apY;
+        final double pY = abZ * apX - abX * apZ;
+        final double pZ = abX * apY - abY * apX;
+        final double qX = abY * aqZ - abZ * aqY;
+        final double qY = abZ * aqX - abX * aqZ;
+        final double qZ = abX * aqY - abY * aqX;
+        return pX * qX + pY * qY + pZ * qZ < 0;
+    }
+
+    private static double squaredDistance(float[] c, int a, int b) {
+        final double dx = c[3 * b] - c[3 * a];
+        final double dy = c[3 * b + 1] - c[3 * a + 1];
+        final double dz = c[3 * b + 2] - c[3 * a + 2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
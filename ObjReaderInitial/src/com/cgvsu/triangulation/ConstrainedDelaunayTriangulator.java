@@ -0,0 +1,226 @@
+package com.cgvsu.triangulation;
+
+import com.cgvsu.util.IntArrayList;
+
+import java.util.Arrays;
+
+// Ограниченная триангуляция Делоне полигона: сначала отсечение ушей, затем диагонали переворачиваются
+// (алгоритм Лоусона), пока у каждой диагонали противоположная вершина соседнего треугольника не окажется
+// вне описанной окружности. Стороны полигона не переворачиваются никогда.
+// Треугольники получаются наименее вытянутыми из возможных, но это дороже отсечения ушей.
+public class ConstrainedDelaunayTriangulator implements TriangulationStrategy {
+
+    // Переворот только при заметном попадании в окружность: для вершин на одной окружности
+    // (правильные многоугольники, окружности CAD) ошибки округления иначе переворачивали бы диагонали по кругу
+    private static final double IN_CIRCLE_TOLERANCE = 1e-12;
+    // Обычным полигонам хватает нескольких переворотов на вершину. Но если отсечение ушей построило длинный веер
+    // (например, у гребенки с длинной прямой стороной), переворотов нужно порядка n^2. Поэтому их число
+    // ограничено: после этого триангуляция остается правильной, но уже не везде удовлетворяет условию Делоне.
+    private static final int FLIPS_PER_VERTEX = 32;
+
+    private final EarClippingTriangulator earClipping = new EarClippingTriangulator();
+    // соседний треугольник через ребро 3t+e (от вершины e к вершине e+1 треугольника t) или -1
+    private int[] neighbors = new int[0];
+    // хеш-таблица ребер: ключ - пара вершин, значение - номер ребра 3t+e
+    private long[] edgeKeys = new long[0];
+    private int[] edgeValues = new int[0];
+    private final IntArrayList stack = new IntArrayList();
+
+    @Override
+    public void triangulate(float[] coordinates, int vertexCount, int[] triangles,
+                            TriangulationStatistics statistics) {
+        final long start = System.nanoTime();
+        triangulate(coordinates, vertexCount, triangles);
+        statistics.add(TriangulationStatistics.CONSTRAINED_DELAUNAY, vertexCount - 2, System.nanoTime() - start);
+    }
+
+    public void triangulate(float[] coordinates, int vertexCount, int[] triangles) {
+        if (vertexCount < 3) {
+            throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+        }
+        final PolygonProjection projection = earClipping.projection;
+        if (vertexCount == 3 || !projection.project(coordinates, vertexCount)) {
+            EarClippingTriangulator.triangulateFan(vertexCount, triangles);
+            return;
+        }
+        earClipping.triangulateProjected(vertexCount, triangles);
+        flipEdges(projection, vertexCount, triangles);
+    }
+
+    private void flipEdges(PolygonProjection projection, int vertexCount, int[] triangles) {
+        final int triangleCount = vertexCount - 2;
+        findNeighbors(vertexCount, triangles, triangleCount);
+
+        stack.clear();
+        for (int edge = 0; edge < 3 * triangleCount; edge++) {
+            if (neighbors[edge] > edge / 3) {
+                stack.add(edge);
+            }
+        }
+        long flipsLeft = (long) FLIPS_PER_VERTEX * vertexCount;
+        while (!stack.isEmpty() && flipsLeft > 0) {
+            if (flipIfNeeded(projection, triangles, stack.removeLast())) {
+                flipsLeft--;
+            }
+        }
+    }
+
+    // Ребра треугольников с одной ориентацией: соседний треугольник проходит общее ребро в обратную сторону
+    private void findNeighbors(int vertexCount, int[] triangles, int triangleCount) {
+        final int edgeCount = 3 * triangleCount;
+        if (neighbors.length < edgeCount) {
+            neighbors = new int[Math.max(edgeCount, 2 * neighbors.length)];
+        }
+        final int capacity = Integer.highestOneBit(Math.max(2 * edgeCount, 8) - 1) << 1;
+        if (edgeKeys.length < capacity) {
+            edgeKeys = new long[capacity];
+            edgeValues = new int[capacity];
+        }
+        Arrays.fill(edgeKeys, 0, capacity, -1);
+
+        final int mask = capacity - 1;
+        for (int edge = 0; edge < edgeCount; edge++) {
+            final long key = edgeKey(triangles, edge);
+            int slot = hash(key) & mask;
+            while (edgeKeys[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            edgeKeys[slot] = key;
+            edgeValues[slot] = edge;
+        }
+
+        for (int edge = 0; edge < edgeCount; edge++) {
+            neighbors[edge] = -1;
+            final int from = triangles[edge];
+            final int to = triangles[nextCorner(edge)];
+            // стороны полигона - ограничения, соседей через них нет
+            if (isPolygonSide(from, to, vertexCount)) {
+                continue;
+            }
+            final long twin = ((long) to << 32) | from;
+            for (int slot = hash(twin) & mask; edgeKeys[slot] != -1; slot = (slot + 1) & mask) {
+                if (edgeKeys[slot] == twin) {
+                    neighbors[edge] = edgeValues[slot] / 3;
+                    break;
+                }
+            }
+        }
+    }
+
+    // Треугольник t = (a, b, c) с ребром a-b и соседний (b, a, d). Если d внутри окружности (a, b, c),
+    // диагональ a-b меняется на c-d: получаются треугольники (c, a, d) и (d, b, c).
+    // Возвращает true, если диагональ перевернута.
+    private boolean flipIfNeeded(PolygonProjection p, int[] triangles, int edge) {
+        final int t = edge / 3;
+        final int u = neighbors[edge];
+        if (u < 0) {
+            return false;
+        }
+        final int a = triangles[edge];
+        final int b = triangles[nextCorner(edge)];
+        final int c = triangles[nextCorner(nextCorner(edge))];
+        final int twin = findEdge(triangles, u, b, a);
+        if (twin < 0) {
+            return false;
+        }
+        final int d = triangles[nextCorner(nextCorner(twin))];
+
+        // Новые треугольники должны получиться невырожденными с прежней ориентацией, то есть четырехугольник
+        // a, d, b, c выпуклый и новая диагональ не выходит за его пределы. Вырожденный треугольник с вершинами
+        // на одной прямой при этом тоже убирается переворотом, а вывернутые (они бывают только
+        // у самопересекающихся полигонов) не трогаются.
+        if (p.area(a, b, c) < 0 || p.area(b, a, d) < 0 || p.area(c, a, d) <= 0 || p.area(d, b, c) <= 0) {
+            return false;
+        }
+        if (!inCircle(p, a, b, c, d)) {
+            return false;
+        }
+
+        // внешние ребра и соседи через них
+        final int neighborBC = neighbors[nextCorner(edge)];
+        final int neighborCA = neighbors[nextCorner(nextCorner(edge))];
+        final int neighborAD = neighbors[nextCorner(twin)];
+        final int neighborDB = neighbors[nextCorner(nextCorner(twin))];
+
+        setTriangle(triangles, t, c, a, d, neighborCA, neighborAD, u);
+        setTriangle(triangles, u, d, b, c, neighborDB, neighborBC, t);
+        replaceNeighbor(triangles, neighborAD, d, a, t);
+        replaceNeighbor(triangles, neighborBC, c, b, u);
+
+        // внешние ребра могли перестать быть правильными
+        stack.add(3 * t);
+        stack.add(3 * t + 1);
+        stack.add(3 * u);
+        stack.add(3 * u + 1);
+        return true;
+    }
+
+    private void setTriangle(int[] triangles, int t, int a, int b, int c,
+                             int neighborAB, int neighborBC, int neighborCA) {
+        triangles[3 * t] = a;
+        triangles[3 * t + 1] = b;
+        triangles[3 * t + 2] = c;
+        neighbors[3 * t] = neighborAB;
+        neighbors[3 * t + 1] = neighborBC;
+        neighbors[3 * t + 2] = neighborCA;
+    }
+
+    // У треугольника t ребро from-to теперь граничит с triangle
+    private void replaceNeighbor(int[] triangles, int t, int from, int to, int triangle) {
+        if (t < 0) {
+            return;
+        }
+        final int edge = findEdge(triangles, t, from, to);
+        if (edge >= 0) {
+            neighbors[edge] = triangle;
+        }
+    }
+
+    private static int findEdge(int[] triangles, int t, int from, int to) {
+        for (int edge = 3 * t; edge < 3 * t + 3; edge++) {
+            if (triangles[edge] == from && triangles[nextCorner(edge)] == to) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    // d строго внутри окружности, описанной вокруг треугольника (a, b, c), обходимого против часовой стрелки
+    private static boolean inCircle(PolygonProjection p, int a, int b, int c, int d) {
+        final double adX = p.x[a] - p.x[d];
+        final double adY = p.y[a] - p.y[d];
+        final double bdX = p.x[b] - p.x[d];
+        final double bdY = p.y[b] - p.y[d];
+        final double cdX = p.x[c] - p.x[d];
+        final double cdY = p.y[c] - p.y[d];
+        final double ad = adX * adX + adY * adY;
+        final double bd = bdX * bdX + bdY * bdY;
+        final double cd = cdX * cdX + cdY * cdY;
+
+        final double determinant = ad * (bdX * cdY - cdX * bdY)
+                + bd * (cdX * adY - adX * cdY)
+                + cd * (adX * bdY - bdX * adY);
+        // оценка ошибки округления по модулям слагаемых
+        final double magnitude = ad * (Math.abs(bdX * cdY) + Math.abs(cdX * bdY))
+                + bd * (Math.abs(cdX * adY) + Math.abs(adX * cdY))
+                + cd * (Math.abs(adX * bdY) + Math.abs(bdX * adY));
+        return determinant > magnitude * IN_CIRCLE_TOLERANCE;
+    }
+
+    private static boolean isPolygonSide(int from, int to, int vertexCount) {
+        return to == (from + 1) % vertexCount || from == (to + 1) % vertexCount;
+    }
+
+    private static long edgeKey(int[] triangles, int edge) {
+        return ((long) triangles[edge] << 32) | triangles[nextCorner(edge)];
+    }
+
+    private static int nextCorner(int edge) {
+        return edge % 3 == 2 ? edge - 2 : edge + 1;
+    }
+
+    private static int hash(long key) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32);
+    }
+}
@@ -0,0 +1,453 @@
+package com.cgvsu.triangulation;
+
+import com.cgvsu.util.IntArrayList;
+
+import java.util.Arrays;
+
+// Триангуляция отсечением ушей для вогнутых и неплоских многоугольников.
+// Многоугольник проецируется на плоскость наилучшего приближения (PolygonProjection),
+// обход в проекции всегда идет против часовой стрелки.
+// Ухо - выпуклая вершина, в треугольник которой не попадает ни одна вогнутая вершина. Выпуклые вершины
+// проверять не нужно: если в треугольнике есть какая-то вершина многоугольника, то там есть и вогнутая.
+// Для больших многоугольников вогнутые вершины упорядочены по кривой Z-order, и для каждого уха
+// проверяются только те из них, что попали в описанный вокруг уха прямоугольник, а не все n вершин.
+// Кандидаты в уши берутся из очереди, а не обходом по кругу: после отсечения заново проверяются только соседи,
+// а вершина, ухо которой закрыто вогнутой вершиной, ждет, пока та не станет выпуклой.
+// Всегда получается ровно n-2 треугольника: для самопересекающихся и вырожденных многоугольников, где честного
+// уха нет, отсекается лучшая из ближайших оставшихся вершин.
+// Объект хранит рабочие массивы между вызовами и не потокобезопасен: на каждый поток нужен свой.
+public class EarClippingTriangulator implements TriangulationStrategy {
+
+    // Начиная с этого числа вершин используется индекс Z-order, меньшие многоугольники проверяются перебором
+    private static final int Z_ORDER_MIN_VERTEX_COUNT = 64;
+    // Координаты сетки Z-order: 15 бит на ось
+    private static final double Z_ORDER_GRID_SIZE = 32767;
+    private static final int Z_ORDER_BITS = 30;
+    // четные биты кода Z-order относятся к x, нечетные - к y
+    private static final int X_BITS = 0x55555555;
+    private static final int Y_BITS = 0xAAAAAAAA;
+
+    // Сколько вершин просматривается при выборе вынужденного уха. Без ограничения каждое такое ухо
+    // обходит все кольцо, и на самопересекающихся многоугольниках триангуляция становится квадратичной.
+    private static final int FORCED_EAR_SCAN_LIMIT = 32;
+
+    private static final int NO_BLOCKER = -1;
+    private static final int NOT_CONVEX = -2;
+
+    final PolygonProjection projection = new PolygonProjection();
+    // координаты в проекции, массивы projection
+    private double[] x;
+    private double[] y;
+    // кольцевой список оставшихся вершин
+    private int[] prev = new int[0];
+    private int[] next = new int[0];
+    private boolean[] removed = new boolean[0];
+    // вершины, которые могут закрывать уши: вогнутые и вырожденные "иглы" с нулевым углом.
+    // Выпуклая вершина вогнутой стать не может, только наоборот.
+    private boolean[] reflex = new boolean[0];
+
+    // Очередь вершин на проверку. Вершина может попасть в очередь несколько раз,
+    // действительна только последняя запись: queuePositions хранит ее позицию.
+    private final IntArrayList queue = new IntArrayList();
+    private int[] queuePositions = new int[0];
+    // Вершины, ухо которых закрыто вогнутой вершиной v: списки, начинающиеся с waitHeads[v]
+    // и связанные через waitLinks, записи лежат в waitVertices
+    private int[] waitHeads = new int[0];
+    private final IntArrayList waitVertices = new IntArrayList();
+    private final IntArrayList waitLinks = new IntArrayList();
+
+    // Индекс вогнутых вершин: номера вершин, отсортированные по Z-order, и их коды.
+    // Вершина, ставшая выпуклой или отсеченная, из индекса удаляется: aliveSlots[k] указывает на следующую
+    // живую позицию (как в системе непересекающихся множеств), так что удаленные позиции пропускаются
+    // за почти постоянное время.
+    private int[] reflexVertices = new int[0];
+    private int[] reflexZ = new int[0];
+    private int[] aliveSlots = new int[0];
+    // позиция вершины в индексе или -1
+    private int[] reflexSlots = new int[0];
+    private long[] sortKeys = new long[0];
+    private int reflexCount;
+
+    private boolean useZOrder;
+    private double minX;
+    private double minY;
+    private double inverseCellWidth;
+    private double inverseCellHeight;
+
+    // coordinates - x, y, z подряд для каждой вершины многоугольника.
+    // В triangles записываются 3 * (vertexCount - 2) локальных номеров вершин (от 0 до vertexCount - 1),
+    // треугольники обходятся в том же направлении, что и исходный многоугольник.
+    public void triangulate(float[] coordinates, int vertexCount, int[] triangles) {
+        if (vertexCount < 3) {
+            throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+        }
+        if (vertexCount == 3 || !projection.project(coordinates, vertexCount)) {
+            // треугольник или вырожденный многоугольник нулевой площади: у веера тот же результат
+            triangulateFan(vertexCount, triangles);
+            return;
+        }
+        triangulateProjected(vertexCount, triangles);
+    }
+
+    @Override
+    public void triangulate(float[] coordinates, int vertexCount, int[] triangles,
+                            TriangulationStatistics statistics) {
+        final long start = System.nanoTime();
+        triangulate(coordinates, vertexCount, triangles);
+        statistics.add(TriangulationStatistics.EAR_CLIPPING, vertexCount - 2, System.nanoTime() - start);
+    }
+
+    // Многоугольник из vertexCount > 3 вершин уже спроецирован в projection
+    void triangulateProjected(int vertexCount, int[] triangles) {
+        x = projection.x;
+        y = projection.y;
+        ensureCapacity(vertexCount);
+
+        for (int i = 0; i < vertexCount; i++) {
+            prev[i] = i == 0 ? vertexCount - 1 : i - 1;
+            next[i] = i == vertexCount - 1 ? 0 : i + 1;
+            removed[i] = false;
+            waitHeads[i] = -1;
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            reflex[i] = isReflex(prev[i], i, next[i]);
+        }
+        useZOrder = vertexCount >= Z_ORDER_MIN_VERTEX_COUNT;
+        if (useZOrder) {
+            buildReflexIndex(vertexCount);
+        }
+
+        clipEars(vertexCount, triangles);
+    }
+
+    static void triangulateFan(int vertexCount, int[] triangles) {
+        for (int i = 1; i < vertexCount - 1; i++) {
+            triangles[3 * (i - 1)] = 0;
+            triangles[3 * (i - 1) + 1] = i;
+            triangles[3 * (i - 1) + 2] = i + 1;
+        }
+    }
+
+    private void ensureCapacity(int vertexCount) {
+        if (prev.length >= vertexCount) {
+            return;
+        }
+        final int capacity = Math.max(vertexCount, 2 * prev.length);
+        prev = new int[capacity];
+        next = new int[capacity];
+        removed = new boolean[capacity];
+        reflex = new boolean[capacity];
+        queuePositions = new int[capacity];
+        waitHeads = new int[capacity];
+        reflexVertices = new int[capacity];
+        reflexZ = new int[capacity];
+        aliveSlots = new int[capacity + 1];
+        reflexSlots = new int[capacity];
+        sortKeys = new long[capacity];
+    }
+
+    private void buildReflexIndex(int vertexCount) {
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertexCount; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        // масштаб по осям свой, чтобы и у вытянутых многоугольников ячейки были мелкими по обеим осям
+        inverseCellWidth = maxX > minX ? Z_ORDER_GRID_SIZE / (maxX - minX) : 0;
+        inverseCellHeight = maxY > minY ? Z_ORDER_GRID_SIZE / (maxY - minY) : 0;
+
+        reflexCount = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            reflexSlots[i] = -1;
+            if (reflex[i]) {
+                sortKeys[reflexCount++] = ((long) zOrder(x[i], y[i]) << 32) | i;
+            }
+        }
+        Arrays.sort(sortKeys, 0, reflexCount);
+
+        for (int k = 0; k < reflexCount; k++) {
+            final int vertex = (int) sortKeys[k];
+            reflexVertices[k] = vertex;
+            reflexZ[k] = (int) (sortKeys[k] >>> 32);
+            reflexSlots[vertex] = k;
+            aliveSlots[k] = k;
+        }
+        aliveSlots[reflexCount] = reflexCount;
+    }
+
+    // Номер ячейки сетки на кривой Z-order: биты координат чередуются
+    private int zOrder(double px, double py) {
+        final int cellX = (int) ((px - minX) * inverseCellWidth);
+        final int cellY = (int) ((py - minY) * inverseCellHeight);
+        return interleave(cellX) | (interleave(cellY) << 1);
+    }
+
+    private static int interleave(int value) {
+        value = (value | (value << 8)) & 0x00FF00FF;
+        value = (value | (value << 4)) & 0x0F0F0F0F;
+        value = (value | (value << 2)) & 0x33333333;
+        value = (value | (value << 1)) & 0x55555555;
+        return value;
+    }
+
+    // Первая живая позиция индекса, начиная с slot
+    private int findAlive(int slot) {
+        while (aliveSlots[slot] != slot) {
+            aliveSlots[slot] = aliveSlots[aliveSlots[slot]];
+            slot = aliveSlots[slot];
+        }
+        return slot;
+    }
+
+    private void removeFromIndex(int vertex) {
+        final int slot = reflexSlots[vertex];
+        if (slot >= 0) {
+            aliveSlots[slot] = slot + 1;
+            reflexSlots[vertex] = -1;
+        }
+    }
+
+    private void clipEars(int vertexCount, int[] triangles) {
+        queue.clear();
+        waitVertices.clear();
+        waitLinks.clear();
+        for (int i = 0; i < vertexCount; i++) {
+            enqueue(i);
+        }
+
+        int remaining = vertexCount;
+        int triangleIndex = 0;
+        // любая из оставшихся вершин
+        int last = 0;
+        int queueHead = 0;
+        while (remaining > 3) {
+            int ear;
+            if (queueHead < queue.size()) {
+                final int position = queueHead++;
+                ear = queue.get(position);
+                if (removed[ear] || queuePositions[ear] != position) {
+                    continue;
+                }
+                final int blocker = findBlocker(ear);
+                if (blocker == NOT_CONVEX) {
+                    // снова попадет в очередь, когда изменится сосед
+                    continue;
+                }
+                if (blocker != NO_BLOCKER) {
+                    waitVertices.add(ear);
+                    waitLinks.add(waitHeads[blocker]);
+                    waitHeads[blocker] = waitVertices.size() - 1;
+                    continue;
+                }
+            } else {
+                // честных ушей нет (вырожденный или самопересекающийся многоугольник)
+                ear = chooseForcedEar(last);
+            }
+            triangleIndex = clip(ear, triangles, triangleIndex);
+            remaining--;
+            last = next[ear];
+        }
+        triangles[triangleIndex] = prev[last];
+        triangles[triangleIndex + 1] = last;
+        triangles[triangleIndex + 2] = next[last];
+    }
+
+    private void enqueue(int vertex) {
+        queuePositions[vertex] = queue.size();
+        queue.add(vertex);
+    }
+
+    // Отсекает вершину ear и возвращает позицию следующего треугольника
+    private int clip(int ear, int[] triangles, int triangleIndex) {
+        final int a = prev[ear];
+        final int c = next[ear];
+        triangles[triangleIndex] = a;
+        triangles[triangleIndex + 1] = ear;
+        triangles[triangleIndex + 2] = c;
+
+        next[a] = c;
+        prev[c] = a;
+        removed[ear] = true;
+        if (reflex[ear]) {
+            leaveReflex(ear);
+        }
+        // у соседей угол уменьшился: вогнутая вершина могла стать выпуклой
+        if (reflex[a] && !isReflex(prev[a], a, c)) {
+            leaveReflex(a);
+        }
+        if (reflex[c] && !isReflex(a, c, next[c])) {
+            leaveReflex(c);
+        }
+        // Соседи проверяются заново, но в конце очереди. Если сразу отсекать соседа, вершина a становится
+        // центром веера из длинных треугольников, и прямоугольники ушей захватывают весь многоугольник.
+        enqueue(a);
+        enqueue(c);
+        return triangleIndex + 3;
+    }
+
+    // Вершина больше не вогнутая: ждущие ее вершины проверяются заново
+    private void leaveReflex(int vertex) {
+        reflex[vertex] = false;
+        if (useZOrder) {
+            removeFromIndex(vertex);
+        }
+        for (int entry = waitHeads[vertex]; entry >= 0; entry = waitLinks.get(entry)) {
+            final int waiting = waitVertices.get(entry);
+            if (!removed[waiting]) {
+                enqueue(waiting);
+            }
+        }
+        waitHeads[vertex] = -1;
+    }
+
+    // Сначала отсекаются вершины нулевой площади (совпадающие и лежащие на одной прямой с соседями):
+    // они дают вырожденные треугольники, но не портят остальные. Иначе отсекается вершина,
+    // треугольник которой имеет наибольшую ориентированную площадь.
+    // Просматриваются не больше FORCED_EAR_SCAN_LIMIT вершин начиная со start.
+    private int chooseForcedEar(int start) {
+        int best = start;
+        double bestArea = Double.NEGATIVE_INFINITY;
+        int vertex = start;
+        int scanned = 0;
+        do {
+            final double area = area(prev[vertex], vertex, next[vertex]);
+            if (area == 0) {
+                return vertex;
+            }
+            if (area > bestArea) {
+                bestArea = area;
+                best = vertex;
+            }
+            vertex = next[vertex];
+        } while (vertex != start && ++scanned < FORCED_EAR_SCAN_LIMIT);
+        return best;
+    }
+
+    // NO_BLOCKER, если ear - ухо, NOT_CONVEX, если вершина не выпуклая,
+    // иначе вогнутая вершина, попавшая в треугольник уха
+    private int findBlocker(int ear) {
+        final int a = prev[ear];
+        final int c = next[ear];
+        if (area(a, ear, c) <= 0) {
+            return NOT_CONVEX;
+        }
+
+        if (!useZOrder) {
+            for (int p = next[c]; p != a; p = next[p]) {
+                if (blocksEar(p, a, ear, c)) {
+                    return p;
+                }
+            }
+            return NO_BLOCKER;
+        }
+
+        final double minTriangleX = Math.min(x[a], Math.min(x[ear], x[c]));
+        final double minTriangleY = Math.min(y[a], Math.min(y[ear], y[c]));
+        final double maxTriangleX = Math.max(x[a], Math.max(x[ear], x[c]));
+        final double maxTriangleY = Math.max(y[a], Math.max(y[ear], y[c]));
+        final int minZ = zOrder(minTriangleX, minTriangleY);
+        final int maxZ = zOrder(maxTriangleX, maxTriangleY);
+
+        int slot = findAlive(lowerBound(0, minZ));
+        while (slot < reflexCount && reflexZ[slot] <= maxZ) {
+            final int pointZ = reflexZ[slot];
+            if (!insideZBox(pointZ, minZ, maxZ)) {
+                // код в диапазоне, но ячейка вне прямоугольника: прыгаем к следующему коду внутри него
+                slot = findAlive(lowerBound(slot, nextZInBox(pointZ, minZ, maxZ)));
+                continue;
+            }
+            final int p = reflexVertices[slot];
+            if (p != a && p != c
+                    && x[p] >= minTriangleX && x[p] <= maxTriangleX && y[p] >= minTriangleY && y[p] <= maxTriangleY
+                    && blocksEar(p, a, ear, c)) {
+                return p;
+            }
+            slot = findAlive(slot + 1);
+        }
+        return NO_BLOCKER;
+    }
+
+    // Первая позиция индекса, начиная с from, с кодом не меньше z
+    private int lowerBound(int from, int z) {
+        int low = from;
+        int high = reflexCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (reflexZ[middle] < z) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean insideZBox(int z, int minZ, int maxZ) {
+        return (z & X_BITS) >= (minZ & X_BITS) && (z & X_BITS) <= (maxZ & X_BITS)
+                && (z & Y_BITS) >= (minZ & Y_BITS) && (z & Y_BITS) <= (maxZ & Y_BITS);
+    }
+
+    // Наименьший код больше z, ячейка которого лежит в прямоугольнике [minZ, maxZ]
+    // (алгоритм BIGMIN, Tropf и Herzog). Биты разбираются от старших к младшим.
+    private static int nextZInBox(int z, int minZ, int maxZ) {
+        int bigMin = maxZ;
+        for (int bit = Z_ORDER_BITS - 1; bit >= 0; bit--) {
+            final int mask = 1 << bit;
+            // младшие биты той же координаты
+            final int lowerBits = (bit % 2 == 0 ? X_BITS : Y_BITS) & (mask - 1);
+            final boolean zBit = (z & mask) != 0;
+            final boolean minBit = (minZ & mask) != 0;
+            final boolean maxBit = (maxZ & mask) != 0;
+            if (!zBit && !minBit && maxBit) {
+                bigMin = (minZ | mask) & ~lowerBits;
+                maxZ = (maxZ & ~mask) | lowerBits;
+            } else if (!zBit && minBit) {
+                return minZ;
+            } else if (zBit && !maxBit) {
+                return bigMin;
+            } else if (zBit && !minBit) {
+                minZ = (minZ | mask) & ~lowerBits;
+            }
+        }
+        return bigMin;
+    }
+
+    // Вершина на прямой между соседями (угол 180 градусов) ухо не закрывает: если она попала в треугольник уха,
+    // то граница многоугольника входит в него через диагональ и должна где-то внутри повернуть,
+    // то есть там же есть и вогнутая вершина. А таких вершин в больших моделях много: стороны CAD-контуров
+    // часто разбиты на отрезки, лежащие на одной прямой.
+    private boolean isReflex(int a, int b, int c) {
+        final double area = area(a, b, c);
+        if (area != 0) {
+            return area < 0;
+        }
+        // игла: ребра идут в противоположных направлениях
+        return (x[b] - x[a]) * (x[c] - x[b]) + (y[b] - y[a]) * (y[c] - y[b]) <= 0;
+    }
+
+    // Мешает уху только вогнутая (или вырожденная) вершина внутри треугольника или на его границе
+    private boolean blocksEar(int p, int a, int b, int c) {
+        if (samePoint(p, a) || samePoint(p, b) || samePoint(p, c)) {
+            return false;
+        }
+        return reflex[p] && pointInTriangle(a, b, c, p);
+    }
+
+    private boolean samePoint(int p, int q) {
+        return x[p] == x[q] && y[p] == y[q];
+    }
+
+    // Удвоенная ориентированная площадь, положительна для поворота против часовой стрелки
+    private double area(int a, int b, int c) {
+        return (x[b] - x[a]) * (y[c] - y[a]) - (y[b] - y[a]) * (x[c] - x[a]);
+    }
+
+    private boolean pointInTriangle(int a, int b, int c, int p) {
+        return area(a, b, p) >= 0 && area(b, c, p) >= 0 && area(c, a, p) >= 0;
+    }
+}
@@ -0,0 +1,12 @@
+package com.cgvsu.triangulation;
+
+// Веер из вершины 0: быстро, но правильно только для выпуклых полигонов
+public class FanTriangulation implements TriangulationStrategy {
+
+    @Override
+    public void triangulate(float[] coordinates, int vertexCount, int[] triangles,
+                            TriangulationStatistics statistics) {
+        EarClippingTriangulator.triangulateFan(vertexCount, triangles);
+        statistics.add(TriangulationStatistics.FAN, vertexCount - 2, 0);
+    }
+}
@@ -1,18 +1,64 @@
 package com.cgvsu.triangulation;
 
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Mesh;
+import com.cgvsu.model.MeshData;
 import com.cgvsu.model.Model;
+import com.cgvsu.model.OffHeapMesh;
 import com.cgvsu.model.Polygon;
 import com.cgvsu.model.TriangulatedModel;
+import com.cgvsu.offheap.OffHeapIntArray;
+import com.cgvsu.offheap.OffHeapStorage;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 public class ModelTriangulator {
 
+    // Граней в одной задаче параллельной триангуляции
+    private static final int FACES_PER_TASK = 1 << 14;
+
     // статический метод для удобного использования
     public static TriangulatedModel triangulate(Model model) {
         return new TriangulatedModel(model);
     }
 
+    // параллельная триангуляция, порядок треугольников тот же, что и у последовательной
+    public static TriangulatedModel triangulate(Model model, ForkJoinPool pool) {
+        return new TriangulatedModel(model, pool);
+    }
+
+    public static TriangulatedModel triangulate(Model model, TriangulationMode mode) {
+        if (mode == TriangulationMode.FAN) {
+            return new TriangulatedModel(model);
+        }
+        return triangulate(model, mode::newStrategy, new TriangulationStatistics());
+    }
+
+    public static TriangulatedModel triangulate(Model model, TriangulationMode mode, ForkJoinPool pool) {
+        if (mode == TriangulationMode.FAN) {
+            return new TriangulatedModel(model, pool);
+        }
+        return triangulate(model, mode::newStrategy, new TriangulationStatistics(), pool);
+    }
+
+    // Триангуляция своей стратегией. Треугольники переносятся как есть, остальные полигоны разбивает стратегия,
+    // счетчики путей добавляются в statistics.
+    public static TriangulatedModel triangulate(Model model, Supplier<? extends TriangulationStrategy> strategies,
+                                                TriangulationStatistics statistics) {
+        return new TriangulatedModel(model, triangulatePolygons(model, strategies, statistics, null));
+    }
+
+    // strategies вызывается для каждой задачи пула, у каждой задачи свой экземпляр стратегии
+    public static TriangulatedModel triangulate(Model model, Supplier<? extends TriangulationStrategy> strategies,
+                                                TriangulationStatistics statistics, ForkJoinPool pool) {
+        return new TriangulatedModel(model, triangulatePolygons(model, strategies, statistics, pool));
+    }
+
     // альтернативный метод с валидацией
     public static TriangulatedModel triangulateWithValidation(Model model) {
         if (model == null) {
@@ -40,4 +86,381 @@ public class ModelTriangulator {
 
         return totalTriangles;
     }
-}
\ No newline at end of file
+
+    // Как и при веере, полигон из n вершин дает n-2 треугольника, так что места полигонов в результате -
+    // это префиксные суммы, и блоки полигонов обрабатываются независимо. Если pool равен null,
+    // все полигоны обрабатываются в текущем потоке.
+    private static ArrayList<Polygon> triangulatePolygons(Model model,
+                                                          Supplier<? extends TriangulationStrategy> strategies,
+                                                          TriangulationStatistics statistics, ForkJoinPool pool) {
+        final int polygonCount = model.polygons.size();
+        final int[] offsets = new int[polygonCount + 1];
+        for (int i = 0; i < polygonCount; i++) {
+            final int vertexCount = model.polygons.get(i).getVertexIndices().size();
+            if (vertexCount < 3) {
+                throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+            }
+            offsets[i + 1] = offsets[i] + vertexCount - 2;
+        }
+
+        final Polygon[] triangles = new Polygon[offsets[polygonCount]];
+        if (pool == null) {
+            triangulatePolygons(model, 0, polygonCount, offsets, triangles, strategies.get(), statistics);
+        } else {
+            // у каждого блока свои счетчики, они складываются после завершения всех блоков
+            final int blockCount = (polygonCount + FACES_PER_TASK - 1) / FACES_PER_TASK;
+            final TriangulationStatistics[] blockStatistics = new TriangulationStatistics[blockCount];
+            pool.submit(() -> IntStream.range(0, blockCount).parallel().forEach(block -> {
+                blockStatistics[block] = new TriangulationStatistics();
+                triangulatePolygons(model, block * FACES_PER_TASK,
+                        Math.min(polygonCount, (block + 1) * FACES_PER_TASK),
+                        offsets, triangles, strategies.get(), blockStatistics[block]);
+            })).join();
+            for (TriangulationStatistics block : blockStatistics) {
+                statistics.add(block);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(triangles));
+    }
+
+    private static void triangulatePolygons(Model model, int from, int to, int[] offsets, Polygon[] target,
+                                            TriangulationStrategy strategy, TriangulationStatistics statistics) {
+        float[] coordinates = new float[0];
+        int[] triangles = new int[0];
+
+        for (int i = from; i < to; i++) {
+            Polygon polygon = model.polygons.get(i);
+            ArrayList<Integer> vertexIndices = polygon.getVertexIndices();
+            final int vertexCount = vertexIndices.size();
+            // треугольник переносится как есть
+            if (vertexCount == 3) {
+                target[offsets[i]] = polygon;
+                statistics.add(TriangulationStatistics.TRIANGLE, 1, 0);
+                continue;
+            }
+
+            if (coordinates.length < 3 * vertexCount) {
+                coordinates = new float[3 * vertexCount];
+                triangles = new int[3 * (vertexCount - 2)];
+            }
+            if (gatherCoordinates(model.vertices, vertexIndices, coordinates)) {
+                strategy.triangulate(coordinates, vertexCount, triangles, statistics);
+            } else {
+                fanCorners(triangles, vertexCount);
+                statistics.add(TriangulationStatistics.INVALID_INDICES, vertexCount - 2, 0);
+            }
+
+            ArrayList<Integer> textureIndices = polygon.getTextureVertexIndices();
+            ArrayList<Integer> normalIndices = polygon.getNormalIndices();
+            for (int t = 0; t < vertexCount - 2; t++) {
+                Polygon triangle = new Polygon();
+                triangle.setVertexIndices(selectTriangle(vertexIndices, triangles, t));
+                // текстурные координаты и нормали переносятся, только если они заданы для каждой вершины
+                if (textureIndices.size() == vertexCount) {
+                    triangle.setTextureVertexIndices(selectTriangle(textureIndices, triangles, t));
+                }
+                if (normalIndices.size() == vertexCount) {
+                    triangle.setNormalIndices(selectTriangle(normalIndices, triangles, t));
+                }
+                target[offsets[i] + t] = triangle;
+            }
+        }
+    }
+
+    // false, если индекс какой-то вершины вне модели
+    private static boolean gatherCoordinates(List<Vector3f> vertices, List<Integer> vertexIndices,
+                                             float[] coordinates) {
+        for (int k = 0; k < vertexIndices.size(); k++) {
+            final int index = vertexIndices.get(k);
+            if (index < 0 || index >= vertices.size()) {
+                return false;
+            }
+            Vector3f vertex = vertices.get(index);
+            coordinates[3 * k] = vertex.x;
+            coordinates[3 * k + 1] = vertex.y;
+            coordinates[3 * k + 2] = vertex.z;
+        }
+        return true;
+    }
+
+    // Веер в номерах углов полигона, как их возвращает стратегия
+    private static void fanCorners(int[] triangles, int size) {
+        for (int t = 0; t < size - 2; t++) {
+            triangles[3 * t] = 0;
+            triangles[3 * t + 1] = t + 1;
+            triangles[3 * t + 2] = t + 2;
+        }
+    }
+
+    private static ArrayList<Integer> selectTriangle(ArrayList<Integer> indices, int[] triangles, int triangle) {
+        ArrayList<Integer> result = new ArrayList<>(3);
+        result.add(indices.get(triangles[3 * triangle]));
+        result.add(indices.get(triangles[3 * triangle + 1]));
+        result.add(indices.get(triangles[3 * triangle + 2]));
+        return result;
+    }
+
+    // триангуляция компактного представления: вершины и атрибуты не копируются, новая модель ссылается на те же массивы
+    public static MeshData triangulate(MeshData mesh) {
+        return triangulate(mesh, TriangulationMode.FAN);
+    }
+
+    public static MeshData triangulate(MeshData mesh, TriangulationMode mode) {
+        return triangulateMesh(mesh, strategiesFor(mode), new TriangulationStatistics(), null);
+    }
+
+    public static MeshData triangulate(MeshData mesh, Supplier<? extends TriangulationStrategy> strategies,
+                                       TriangulationStatistics statistics) {
+        return triangulateMesh(mesh, strategies, statistics, null);
+    }
+
+    // Грань f начинается с угла faceOffsets[f], а все грани перед ней дают faceOffsets[f] - 2f треугольников.
+    // Поэтому место каждой грани в результате известно без отдельного прохода, и потоки пишут
+    // каждый в свой диапазон массивов без блокировок.
+    public static MeshData triangulate(MeshData mesh, ForkJoinPool pool) {
+        return triangulate(mesh, TriangulationMode.FAN, pool);
+    }
+
+    public static MeshData triangulate(MeshData mesh, TriangulationMode mode, ForkJoinPool pool) {
+        return triangulateMesh(mesh, strategiesFor(mode), new TriangulationStatistics(), pool);
+    }
+
+    public static MeshData triangulate(MeshData mesh, Supplier<? extends TriangulationStrategy> strategies,
+                                       TriangulationStatistics statistics, ForkJoinPool pool) {
+        return triangulateMesh(mesh, strategies, statistics, pool);
+    }
+
+    // Если strategies равен null, грани разбиваются веером, если pool равен null - в текущем потоке
+    private static MeshData triangulateMesh(MeshData mesh, Supplier<? extends TriangulationStrategy> strategies,
+                                            TriangulationStatistics statistics, ForkJoinPool pool) {
+        final int faceCount = mesh.getFaceCount();
+        if (pool == null) {
+            checkFaceSizes(mesh, 0, faceCount);
+            final MeshData result = allocateTriangles(mesh);
+            triangulateFaces(mesh, 0, faceCount, strategies == null ? null : strategies.get(), statistics, result);
+            return result;
+        }
+
+        final int blockCount = (faceCount + FACES_PER_TASK - 1) / FACES_PER_TASK;
+        final TriangulationStatistics[] blockStatistics = new TriangulationStatistics[blockCount];
+        final MeshData result = pool.submit(() -> {
+            IntStream.range(0, blockCount).parallel().forEach(block ->
+                    checkFaceSizes(mesh, block * FACES_PER_TASK, Math.min(faceCount, (block + 1) * FACES_PER_TASK)));
+            final MeshData triangulated = allocateTriangles(mesh);
+
+            IntStream.range(0, blockCount).parallel().forEach(block -> {
+                blockStatistics[block] = new TriangulationStatistics();
+                triangulateFaces(mesh, block * FACES_PER_TASK, Math.min(faceCount, (block + 1) * FACES_PER_TASK),
+                        strategies == null ? null : strategies.get(), blockStatistics[block], triangulated);
+            });
+            return triangulated;
+        }).join();
+        for (TriangulationStatistics block : blockStatistics) {
+            statistics.add(block);
+        }
+        return result;
+    }
+
+    // веер для MeshData разбирается напрямую, без стратегии и сбора координат
+    private static Supplier<TriangulationStrategy> strategiesFor(TriangulationMode mode) {
+        return mode == TriangulationMode.FAN ? null : mode::newStrategy;
+    }
+
+    // Результат с массивами индексов нужного размера. Размеры граней уже проверены.
+    private static MeshData allocateTriangles(MeshData mesh) {
+        final int triangleCount = mesh.vertexIndices.length - 2 * mesh.getFaceCount();
+        return new MeshData(mesh.positions, mesh.textureVertices, mesh.normals,
+                MeshData.triangleFaceOffsets(triangleCount),
+                new int[triangleCount * 3],
+                new int[mesh.textureVertexIndices.length == 0 ? 0 : triangleCount * 3],
+                new int[mesh.normalIndices.length == 0 ? 0 : triangleCount * 3]);
+    }
+
+    private static void checkFaceSizes(Mesh mesh, int from, int to) {
+        for (int face = from; face < to; face++) {
+            if (mesh.getFaceSize(face) < 3) {
+                throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+            }
+        }
+    }
+
+    // Триангулирует грани [from, to) и пишет треугольники на их место в result.
+    // Если strategy равна null, все грани разбиваются веером.
+    private static void triangulateFaces(MeshData mesh, int from, int to, TriangulationStrategy strategy,
+                                         TriangulationStatistics statistics, MeshData result) {
+        final int[] vertexIndices = result.vertexIndices;
+        final int[] textureVertexIndices = result.textureVertexIndices;
+        final int[] normalIndices = result.normalIndices;
+        float[] coordinates = new float[0];
+        int[] triangles = new int[0];
+
+        int corner = 3 * (mesh.faceOffsets[from] - 2 * from);
+        for (int face = from; face < to; face++) {
+            final int start = mesh.faceOffsets[face];
+            final int size = mesh.getFaceSize(face);
+
+            if (strategy == null || size == 3) {
+                // соединяем вершину 0 с вершинами i и i+1
+                for (int i = 1; i < size - 1; i++) {
+                    fanTriangle(mesh.vertexIndices, vertexIndices, start, i, corner);
+                    if (textureVertexIndices.length != 0) {
+                        fanTriangle(mesh.textureVertexIndices, textureVertexIndices, start, i, corner);
+                    }
+                    if (normalIndices.length != 0) {
+                        fanTriangle(mesh.normalIndices, normalIndices, start, i, corner);
+                    }
+                    corner += 3;
+                }
+                if (strategy != null) {
+                    statistics.add(TriangulationStatistics.TRIANGLE, 1, 0);
+                }
+                continue;
+            }
+
+            if (coordinates.length < 3 * size) {
+                coordinates = new float[3 * size];
+                triangles = new int[3 * (size - 2)];
+            }
+            final int vertexCount = mesh.positions.length / 3;
+            boolean validIndices = true;
+            for (int k = 0; k < size && validIndices; k++) {
+                final int index = mesh.vertexIndices[start + k];
+                validIndices = index >= 0 && index < vertexCount;
+                if (validIndices) {
+                    System.arraycopy(mesh.positions, 3 * index, coordinates, 3 * k, 3);
+                }
+            }
+            if (validIndices) {
+                strategy.triangulate(coordinates, size, triangles, statistics);
+            } else {
+                fanCorners(triangles, size);
+                statistics.add(TriangulationStatistics.INVALID_INDICES, size - 2, 0);
+            }
+
+            for (int k = 0; k < 3 * (size - 2); k++) {
+                final int source = start + triangles[k];
+                vertexIndices[corner + k] = mesh.vertexIndices[source];
+                if (textureVertexIndices.length != 0) {
+                    textureVertexIndices[corner + k] = mesh.textureVertexIndices[source];
+                }
+                if (normalIndices.length != 0) {
+                    normalIndices[corner + k] = mesh.normalIndices[source];
+                }
+            }
+            corner += 3 * (size - 2);
+        }
+    }
+
+    private static void fanTriangle(int[] source, int[] target, int faceStart, int i, int corner) {
+        target[corner] = source[faceStart];
+        target[corner + 1] = source[faceStart + i];
+        target[corner + 2] = source[faceStart + i + 1];
+    }
+
+    // триангуляция модели вне кучи; результат ссылается на те же массивы вершин и живет в том же хранилище
+    public static OffHeapMesh triangulate(OffHeapMesh mesh, OffHeapStorage storage) {
+        OffHeapIntArray vertexIndices = storage.newIntArray();
+        OffHeapIntArray textureVertexIndices = storage.newIntArray();
+        OffHeapIntArray normalIndices = storage.newIntArray();
+        final boolean hasTextures = mesh.hasAnyTextureCoordinates();
+        final boolean hasNormals = mesh.hasAnyNormals();
+
+        for (int face = 0; face < mesh.getFaceCount(); face++) {
+            final long start = mesh.getFaceStart(face);
+            final int size = mesh.getFaceSize(face);
+            if (size < 3) {
+                throw new IllegalArgumentException("Polygon must have at least 3 vertices");
+            }
+
+            // соединяем вершину 0 с вершинами i и i+1
+            for (int i = 1; i < size - 1; i++) {
+                fanTriangle(mesh.vertexIndices, vertexIndices, start, i);
+                if (hasTextures) {
+                    fanTriangle(mesh.textureVertexIndices, textureVertexIndices, start, i);
+                }
+                if (hasNormals) {
+                    fanTriangle(mesh.normalIndices, normalIndices, start, i);
+                }
+            }
+        }
+
+        return new OffHeapMesh(mesh.positions, mesh.textureVertices, mesh.normals,
+                null, vertexIndices, textureVertexIndices, normalIndices);
+    }
+
+    private static void fanTriangle(OffHeapIntArray source, OffHeapIntArray target, long faceStart, int i) {
+        target.add(source.get(faceStart));
+        target.add(source.get(faceStart + i));
+        target.add(source.get(faceStart + i + 1));
+    }
+
+    // Параллельный вариант для модели вне кучи. Массивы результата сразу получают итоговый размер,
+    // после чего потоки заполняют свои диапазоны через set.
+    public static OffHeapMesh triangulate(OffHeapMesh mesh, OffHeapStorage storage, ForkJoinPool pool) {
+        final int faceCount = mesh.getFaceCount();
+        final int blockCount = (faceCount + FACES_PER_TASK - 1) / FACES_PER_TASK;
+        final boolean hasTextures = mesh.hasAnyTextureCoordinates();
+        final boolean hasNormals = mesh.hasAnyNormals();
+
+        return pool.submit(() -> {
+            IntStream.range(0, blockCount).parallel().forEach(block ->
+                    checkFaceSizes(mesh, block * FACES_PER_TASK, Math.min(faceCount, (block + 1) * FACES_PER_TASK)));
+            final long cornerCount = 3 * (mesh.vertexIndices.size() - 2L * faceCount);
+
+            OffHeapIntArray vertexIndices = storage.newIntArray();
+            OffHeapIntArray textureVertexIndices = storage.newIntArray();
+            OffHeapIntArray normalIndices = storage.newIntArray();
+            vertexIndices.resize(cornerCount);
+            if (hasTextures) {
+                textureVertexIndices.resize(cornerCount);
+            }
+            if (hasNormals) {
+                normalIndices.resize(cornerCount);
+            }
+
+            IntStream.range(0, blockCount).parallel().forEach(block -> {
+                final int from = block * FACES_PER_TASK;
+                final int to = Math.min(faceCount, from + FACES_PER_TASK);
+                long corner = 3 * (mesh.getFaceStart(from) - 2L * from);
+                for (int face = from; face < to; face++) {
+                    final long start = mesh.getFaceStart(face);
+                    final int size = mesh.getFaceSize(face);
+                    for (int i = 1; i < size - 1; i++) {
+                        fanTriangle(mesh.vertexIndices, vertexIndices, start, i, corner);
+                        if (hasTextures) {
+                            fanTriangle(mesh.textureVertexIndices, textureVertexIndices, start, i, corner);
+                        }
+                        if (hasNormals) {
+                            fanTriangle(mesh.normalIndices, normalIndices, start, i, corner);
+                        }
+                        corner += 3;
+                    }
+                }
+            });
+
+            return new OffHeapMesh(mesh.positions, mesh.textureVertices, mesh.normals,
+                    null, vertexIndices, textureVertexIndices, normalIndices);
+        }).join();
+    }
+
+    private static void fanTriangle(OffHeapIntArray source, OffHeapIntArray target, long faceStart, int i,
+                                    long corner) {
+        target.set(corner, source.get(faceStart));
+        target.set(corner + 1, source.get(faceStart + i));
+        target.set(corner + 2, source.get(faceStart + i + 1));
+    }
+
+    public static int countTrianglesAfterTriangulation(MeshData mesh) {
+        int totalTriangles = 0;
+
+        for (int face = 0; face < mesh.getFaceCount(); face++) {
+            final int vertexCount = mesh.getFaceSize(face);
+            if (vertexCount < 3) {
+                continue;
+            }
+            totalTriangles += (vertexCount - 2);
+        }
+
+        return totalTriangles;
+    }
+}
@@ -0,0 +1,106 @@
+package com.cgvsu.triangulation;
+
+// Проекция полигона на координатную плоскость, ближайшую к плоскости наилучшего приближения.
+// Нормаль считается методом Ньюэлла, отбрасывается координата, по которой она больше всего, а оси
+// выбираются так, чтобы обход в проекции всегда шел против часовой стрелки.
+// Координаты при этом не пересчитываются, поэтому проверки ориентации на тонких треугольниках не теряют точность.
+class PolygonProjection {
+
+    // координаты в проекции
+    double[] x = new double[0];
+    double[] y = new double[0];
+
+    // Возвращает false, если у многоугольника нет площади
+    boolean project(float[] coordinates, int vertexCount) {
+        if (x.length < vertexCount) {
+            final int capacity = Math.max(vertexCount, 2 * x.length);
+            x = new double[capacity];
+            y = new double[capacity];
+        }
+
+        double normalX = 0;
+        double normalY = 0;
+        double normalZ = 0;
+        for (int i = 0, j = vertexCount - 1; i < vertexCount; j = i++) {
+            final double xi = coordinates[3 * i];
+            final double yi = coordinates[3 * i + 1];
+            final double zi = coordinates[3 * i + 2];
+            final double xj = coordinates[3 * j];
+            final double yj = coordinates[3 * j + 1];
+            final double zj = coordinates[3 * j + 2];
+            normalX += (yj - yi) * (zj + zi);
+            normalY += (zj - zi) * (xj + xi);
+            normalZ += (xj - xi) * (yj + yi);
+        }
+        final double absX = Math.abs(normalX);
+        final double absY = Math.abs(normalY);
+        final double absZ = Math.abs(normalZ);
+        if (!(absX + absY + absZ > 0)) {
+            return false;
+        }
+
+        // оси плоскости проекции и знак, с которым в нее смотрит нормаль
+        final int first;
+        final int second;
+        final double sign;
+        if (absZ >= absX && absZ >= absY) {
+            first = 0;
+            second = 1;
+            sign = normalZ;
+        } else if (absX >= absY) {
+            first = 1;
+            second = 2;
+            sign = normalX;
+        } else {
+            first = 2;
+            second = 0;
+            sign = normalY;
+        }
+        // если нормаль смотрит от плоскости проекции, оси меняются местами, чтобы обход был против часовой стрелки
+        final int u = sign > 0 ? first : second;
+        final int v = sign > 0 ? second : first;
+        for (int i = 0; i < vertexCount; i++) {
+            x[i] = coordinates[3 * i + u];
+            y[i] = coordinates[3 * i + v];
+        }
+        return true;
+    }
+
+    // Удвоенная ориентированная площадь, положительна для поворота против часовой стрелки
+    double area(int a, int b, int c) {
+        return (x[b] - x[a]) * (y[c] - y[a]) - (y[b] - y[a]) * (x[c] - x[a]);
+    }
+
+    // Строго выпуклый многоугольник: все повороты налево и граница обходит его один раз.
+    // Направление ребер по x у такого многоугольника меняется не больше двух раз, а у звезды
+    // с самопересечениями, где тоже все повороты налево, - чаще.
+    boolean isStrictlyConvex(int vertexCount) {
+        int directionChanges = 0;
+        double lastDirection = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            final int previous = i == 0 ? vertexCount - 1 : i - 1;
+            final int next = i == vertexCount - 1 ? 0 : i + 1;
+            if (area(previous, i, next) <= 0) {
+                return false;
+            }
+            final double direction = Math.signum(x[next] - x[i]);
+            if (direction != 0) {
+                if (lastDirection != 0 && direction != lastDirection) {
+                    directionChanges++;
+                }
+                lastDirection = direction;
+            }
+        }
+        // смена направления между последним и первым ребром
+        for (int i = 0; i < vertexCount; i++) {
+            final double direction = Math.signum(x[i == vertexCount - 1 ? 0 : i + 1] - x[i]);
+            if (direction != 0) {
+                if (direction != lastDirection) {
+                    directionChanges++;
+                }
+                break;
+            }
+        }
+        return directionChanges <= 2;
+    }
+}
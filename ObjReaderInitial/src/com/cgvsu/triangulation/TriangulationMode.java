@@ -0,0 +1,30 @@
+package com.cgvsu.triangulation;
+
+// Готовые способы разбиения полигонов на треугольники
+public enum TriangulationMode {
+    // веер из вершины 0: быстро, но правильно только для выпуклых полигонов
+    FAN {
+        @Override
+        public TriangulationStrategy newStrategy() {
+            return new FanTriangulation();
+        }
+    },
+    // четырехугольники и выпуклые полигоны разбиваются быстрыми путями, вогнутые - отсечением ушей
+    // в проекции на плоскость полигона
+    EAR_CLIPPING {
+        @Override
+        public TriangulationStrategy newStrategy() {
+            return new AdaptiveTriangulation(new EarClippingTriangulator());
+        }
+    },
+    // ограниченная триангуляция Делоне для всех полигонов, кроме треугольников: самые ровные треугольники
+    CONSTRAINED_DELAUNAY {
+        @Override
+        public TriangulationStrategy newStrategy() {
+            return new ConstrainedDelaunayTriangulator();
+        }
+    };
+
+    // новый экземпляр стратегии: стратегии не потокобезопасны
+    public abstract TriangulationStrategy newStrategy();
+}
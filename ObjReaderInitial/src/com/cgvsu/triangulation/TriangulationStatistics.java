@@ -0,0 +1,116 @@
+package com.cgvsu.triangulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Счетчики триангуляции по способам: сколько полигонов и треугольников прошло каждым путем и сколько это заняло.
+// Время замеряется только на дорогих путях (отсечение ушей, Делоне), у быстрых путей лишний System.nanoTime
+// стоил бы больше самой работы, и для них считается только количество.
+// Объект не потокобезопасен: при параллельной триангуляции у каждой задачи свои счетчики,
+// которые в конце складываются через add(TriangulationStatistics).
+public class TriangulationStatistics {
+
+    // треугольник, перенесенный как есть
+    public static final String TRIANGLE = "triangle";
+    // четырехугольник, разрезанный по короткой диагонали
+    public static final String QUAD = "quad";
+    // строго выпуклый полигон, разбитый веером
+    public static final String CONVEX_FAN = "convex fan";
+    public static final String FAN = "fan";
+    // полигон с индексом вершины вне модели: координат нет, поэтому он разбит веером, как раньше,
+    // а ошибку сообщит проверка индексов
+    public static final String INVALID_INDICES = "invalid indices";
+    public static final String EAR_CLIPPING = "ear clipping";
+    public static final String CONSTRAINED_DELAUNAY = "constrained Delaunay";
+
+    private String[] methods = new String[8];
+    private long[] polygonCounts = new long[8];
+    private long[] triangleCounts = new long[8];
+    private long[] nanos = new long[8];
+    private int size;
+
+    // Один полигон, разбитый способом method на triangleCount треугольников за elapsedNanos
+    public void add(String method, int triangleCount, long elapsedNanos) {
+        final int index = indexOf(method);
+        polygonCounts[index]++;
+        triangleCounts[index] += triangleCount;
+        nanos[index] += elapsedNanos;
+    }
+
+    public void add(TriangulationStatistics other) {
+        for (int i = 0; i < other.size; i++) {
+            final int index = indexOf(other.methods[i]);
+            polygonCounts[index] += other.polygonCounts[i];
+            triangleCounts[index] += other.triangleCounts[i];
+            nanos[index] += other.nanos[i];
+        }
+    }
+
+    // способы в порядке первого использования
+    public List<String> getMethods() {
+        return new ArrayList<>(Arrays.asList(methods).subList(0, size));
+    }
+
+    public long getPolygonCount(String method) {
+        final int index = find(method);
+        return index < 0 ? 0 : polygonCounts[index];
+    }
+
+    public long getTriangleCount(String method) {
+        final int index = find(method);
+        return index < 0 ? 0 : triangleCounts[index];
+    }
+
+    public long getNanos(String method) {
+        final int index = find(method);
+        return index < 0 ? 0 : nanos[index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Способов немного, поэтому поиск линейный. Имена обычно - одни и те же константы, их сравнение дешевое.
+    private int find(String method) {
+        for (int i = 0; i < size; i++) {
+            if (methods[i] == method || methods[i].equals(method)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(String method) {
+        final int index = find(method);
+        if (index >= 0) {
+            return index;
+        }
+        if (size == methods.length) {
+            methods = Arrays.copyOf(methods, size * 2);
+            polygonCounts = Arrays.copyOf(polygonCounts, size * 2);
+            triangleCounts = Arrays.copyOf(triangleCounts, size * 2);
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        methods[size] = method;
+        polygonCounts[size] = 0;
+        triangleCounts[size] = 0;
+        nanos[size] = 0;
+        return size++;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            result.append(String.format(Locale.US, "%s: %d polygons, %d triangles",
+                    methods[i], polygonCounts[i], triangleCounts[i]));
+            if (nanos[i] != 0) {
+                result.append(String.format(Locale.US, ", %.3f ms", nanos[i] / 1e6));
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package com.cgvsu.triangulation;
+
+// Способ разбиения одного полигона на треугольники.
+// Стратегии хранят рабочие массивы между вызовами и не потокобезопасны: при параллельной триангуляции
+// ModelTriangulator создает свой экземпляр для каждой задачи.
+public interface TriangulationStrategy {
+
+    // coordinates - x, y, z подряд для каждой из vertexCount вершин полигона.
+    // В triangles записываются 3 * (vertexCount - 2) локальных номеров вершин (от 0 до vertexCount - 1),
+    // треугольники обходятся в том же направлении, что и полигон.
+    // Какой путь выбран и сколько он занял, стратегия отмечает в statistics.
+    void triangulate(float[] coordinates, int vertexCount, int[] triangles, TriangulationStatistics statistics);
+}
@@ -0,0 +1,65 @@
+package com.cgvsu.util;
+
+import java.util.Arrays;
+
+// Растущий массив float без упаковки в Float
+public class FloatArrayList {
+    private float[] elements;
+    private int size;
+
+    public FloatArrayList() {
+        this(16);
+    }
+
+    public FloatArrayList(int initialCapacity) {
+        elements = new float[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(float value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+    }
+
+    public void addAll(float[] values, int count) {
+        ensureCapacity(size + count);
+        System.arraycopy(values, 0, elements, size, count);
+        size += count;
+    }
+
+    public float get(int index) {
+        return elements[index];
+    }
+
+    public void set(int index, float value) {
+        elements[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length * 2));
+        }
+    }
+
+    // Внутренний массив без копирования. Значимы только первые size() элементов.
+    public float[] elements() {
+        return elements;
+    }
+
+    public float[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
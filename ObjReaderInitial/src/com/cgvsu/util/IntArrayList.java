@@ -0,0 +1,69 @@
+package com.cgvsu.util;
+
+import java.util.Arrays;
+
+// Растущий массив int без упаковки в Integer
+public class IntArrayList {
+    private int[] elements;
+    private int size;
+
+    public IntArrayList() {
+        this(16);
+    }
+
+    public IntArrayList(int initialCapacity) {
+        elements = new int[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+    }
+
+    public void addAll(int[] values, int count) {
+        ensureCapacity(size + count);
+        System.arraycopy(values, 0, elements, size, count);
+        size += count;
+    }
+
+    public int get(int index) {
+        return elements[index];
+    }
+
+    public void set(int index, int value) {
+        elements[index] = value;
+    }
+
+    public int removeLast() {
+        return elements[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length * 2));
+        }
+    }
+
+    // Внутренний массив без копирования. Значимы только первые size() элементов.
+    public int[] elements() {
+        return elements;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
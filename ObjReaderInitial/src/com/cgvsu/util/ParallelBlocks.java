@@ -0,0 +1,26 @@
+package com.cgvsu.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Проход по диапазону [0, count) блоками по blockSize элементов: блоки выполняются параллельно на потоках pool,
+// каждый блок пишет в свою часть массивов. Блок с номером b - это [b * blockSize, min(count, (b + 1) * blockSize)).
+public class ParallelBlocks {
+
+    public interface Task {
+        void run(int from, int to);
+    }
+
+    // Если pool равен null или блок один, все блоки выполняются по порядку в текущем потоке
+    public static void forEach(int count, int blockSize, ForkJoinPool pool, Task task) {
+        final int blockCount = (count + blockSize - 1) / blockSize;
+        if (pool == null || blockCount <= 1) {
+            for (int block = 0; block < blockCount; block++) {
+                task.run(block * blockSize, Math.min(count, (block + 1) * blockSize));
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, blockCount).parallel().forEach(block ->
+                    task.run(block * blockSize, Math.min(count, (block + 1) * blockSize)))).join();
+        }
+    }
+}
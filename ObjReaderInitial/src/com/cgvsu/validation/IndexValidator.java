@@ -0,0 +1,172 @@
+package com.cgvsu.validation;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Проверка индексов граней: индексы вне массивов вершин, текстурных вершин и нормалей, атрибуты не у всех
+// углов грани, грани меньше чем из трех вершин и грани с повторенной соседней вершиной (повтор отмечается
+// на втором из двух углов, для первого угла соседний - последний).
+// В отличие от ObjWriter.validateModelIndices собирает все ошибки, а не первую, и проверяет диапазоны граней
+// параллельно. Во время разбора файла то же самое делает ParseValidator.
+public class IndexValidator {
+
+    public static final int DEFAULT_MAX_VIOLATIONS = 100;
+
+    // Граней в одной задаче параллельной проверки
+    private static final int FACES_PER_TASK = 1 << 14;
+
+    public static ValidationReport validate(MeshData mesh) {
+        return validate(mesh, DEFAULT_MAX_VIOLATIONS, ForkJoinPool.commonPool());
+    }
+
+    // Если pool равен null, проверка идет в текущем потоке
+    public static ValidationReport validate(MeshData mesh, int maxViolations, ForkJoinPool pool) {
+        return validateFaces(mesh.getFaceCount(), maxViolations, pool,
+                (from, to, collector) -> validateFaces(mesh, from, to, collector));
+    }
+
+    public static ValidationReport validate(Model model) {
+        return validate(model, DEFAULT_MAX_VIOLATIONS, ForkJoinPool.commonPool());
+    }
+
+    public static ValidationReport validate(Model model, int maxViolations, ForkJoinPool pool) {
+        return validateFaces(model.polygons.size(), maxViolations, pool,
+                (from, to, collector) -> validatePolygons(model, from, to, collector));
+    }
+
+    private interface FaceRangeCheck {
+        void check(int from, int to, ViolationCollector collector);
+    }
+
+    private static ValidationReport validateFaces(int faceCount, int maxViolations, ForkJoinPool pool,
+                                                  FaceRangeCheck check) {
+        if (maxViolations < 0) {
+            throw new IllegalArgumentException("Violation cap must not be negative");
+        }
+        final int blockCount = (faceCount + FACES_PER_TASK - 1) / FACES_PER_TASK;
+        final ViolationCollector[] collectors = new ViolationCollector[blockCount];
+        if (pool == null || blockCount <= 1) {
+            for (int block = 0; block < blockCount; block++) {
+                collectors[block] = checkBlock(block, faceCount, maxViolations, check);
+            }
+        } else {
+            // каждый блок хранит до maxViolations ошибок: заранее неизвестно, в каких блоках они окажутся
+            pool.submit(() -> IntStream.range(0, blockCount).parallel().forEach(block ->
+                    collectors[block] = checkBlock(block, faceCount, maxViolations, check))).join();
+        }
+        return ViolationCollector.merge(collectors, maxViolations);
+    }
+
+    private static ViolationCollector checkBlock(int block, int faceCount, int maxViolations, FaceRangeCheck check) {
+        final ViolationCollector collector = new ViolationCollector(maxViolations);
+        check.check(block * FACES_PER_TASK, Math.min(faceCount, (block + 1) * FACES_PER_TASK), collector);
+        return collector;
+    }
+
+    private static void validateFaces(MeshData mesh, int from, int to, ViolationCollector collector) {
+        final int[] faceOffsets = mesh.faceOffsets;
+        final int[] vertexIndices = mesh.vertexIndices;
+        final int vertexCount = mesh.getVertexCount();
+        for (int face = from; face < to; face++) {
+            final int start = faceOffsets[face];
+            final int end = faceOffsets[face + 1];
+            if (end - start < 3) {
+                collector.add(IndexViolation.Kind.TOO_FEW_VERTICES, face, IndexViolation.NONE, end - start,
+                        IndexViolation.NONE);
+            }
+            for (int corner = start; corner < end; corner++) {
+                final int index = vertexIndices[corner];
+                if (index < 0 || index >= vertexCount) {
+                    collector.add(IndexViolation.Kind.VERTEX_INDEX_OUT_OF_RANGE, face, corner - start, index,
+                            IndexViolation.NONE);
+                } else if (end - start > 1 && index == vertexIndices[corner == start ? end - 1 : corner - 1]) {
+                    collector.add(IndexViolation.Kind.REPEATED_VERTEX, face, corner - start, index,
+                            IndexViolation.NONE);
+                }
+            }
+            if (mesh.textureVertexIndices.length != 0) {
+                validateAttribute(mesh.textureVertexIndices, start, end, mesh.getTextureVertexCount(), face,
+                        IndexViolation.Kind.TEXTURE_INDEX_OUT_OF_RANGE, IndexViolation.Kind.TEXTURE_COUNT_MISMATCH,
+                        collector);
+            }
+            if (mesh.normalIndices.length != 0) {
+                validateAttribute(mesh.normalIndices, start, end, mesh.getNormalCount(), face,
+                        IndexViolation.Kind.NORMAL_INDEX_OUT_OF_RANGE, IndexViolation.Kind.NORMAL_COUNT_MISMATCH,
+                        collector);
+            }
+        }
+    }
+
+    // В MeshData атрибут грани - это либо NO_INDEX у всех углов, либо индексы у всех углов
+    private static void validateAttribute(int[] indices, int start, int end, int elementCount, int face,
+                                          IndexViolation.Kind outOfRange, IndexViolation.Kind countMismatch,
+                                          ViolationCollector collector) {
+        int present = 0;
+        for (int corner = start; corner < end; corner++) {
+            final int index = indices[corner];
+            if (index == MeshData.NO_INDEX) {
+                continue;
+            }
+            present++;
+            if (index < 0 || index >= elementCount) {
+                collector.add(outOfRange, face, corner - start, index, IndexViolation.NONE);
+            }
+        }
+        if (present != 0 && present != end - start) {
+            collector.add(countMismatch, face, IndexViolation.NONE, present, IndexViolation.NONE);
+        }
+    }
+
+    private static void validatePolygons(Model model, int from, int to, ViolationCollector collector) {
+        final int vertexCount = model.vertices.size();
+        final int textureVertexCount = model.textureVertices.size();
+        final int normalCount = model.normals.size();
+        for (int face = from; face < to; face++) {
+            final Polygon polygon = model.polygons.get(face);
+            final ArrayList<Integer> vertexIndices = polygon.getVertexIndices();
+            final int size = vertexIndices.size();
+            if (size < 3) {
+                collector.add(IndexViolation.Kind.TOO_FEW_VERTICES, face, IndexViolation.NONE, size,
+                        IndexViolation.NONE);
+            }
+            for (int corner = 0; corner < size; corner++) {
+                final int index = vertexIndices.get(corner);
+                if (index < 0 || index >= vertexCount) {
+                    collector.add(IndexViolation.Kind.VERTEX_INDEX_OUT_OF_RANGE, face, corner, index,
+                            IndexViolation.NONE);
+                } else if (size > 1 && index == vertexIndices.get(corner == 0 ? size - 1 : corner - 1)) {
+                    collector.add(IndexViolation.Kind.REPEATED_VERTEX, face, corner, index, IndexViolation.NONE);
+                }
+            }
+            validateAttribute(polygon.getTextureVertexIndices(), size, textureVertexCount, face,
+                    IndexViolation.Kind.TEXTURE_INDEX_OUT_OF_RANGE, IndexViolation.Kind.TEXTURE_COUNT_MISMATCH,
+                    collector);
+            validateAttribute(polygon.getNormalIndices(), size, normalCount, face,
+                    IndexViolation.Kind.NORMAL_INDEX_OUT_OF_RANGE, IndexViolation.Kind.NORMAL_COUNT_MISMATCH,
+                    collector);
+        }
+    }
+
+    // В Polygon атрибут - это либо пустой список, либо по индексу на каждую вершину
+    private static void validateAttribute(ArrayList<Integer> indices, int size, int elementCount, int face,
+                                          IndexViolation.Kind outOfRange, IndexViolation.Kind countMismatch,
+                                          ViolationCollector collector) {
+        if (indices.isEmpty()) {
+            return;
+        }
+        if (indices.size() != size) {
+            collector.add(countMismatch, face, IndexViolation.NONE, indices.size(), IndexViolation.NONE);
+        }
+        for (int corner = 0; corner < indices.size(); corner++) {
+            final int index = indices.get(corner);
+            if (index < 0 || index >= elementCount) {
+                collector.add(outOfRange, face, corner, index, IndexViolation.NONE);
+            }
+        }
+    }
+}
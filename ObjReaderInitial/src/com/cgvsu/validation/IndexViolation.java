@@ -0,0 +1,73 @@
+package com.cgvsu.validation;
+
+import java.util.Locale;
+
+// Одна ошибка в индексах грани. Номера граней и углов - с нуля, индексы - с нуля, как в MeshData
+public final class IndexViolation {
+
+    public enum Kind {
+        VERTEX_INDEX_OUT_OF_RANGE,
+        TEXTURE_INDEX_OUT_OF_RANGE,
+        NORMAL_INDEX_OUT_OF_RANGE,
+        // атрибут задан не у всех углов грани
+        TEXTURE_COUNT_MISMATCH,
+        NORMAL_COUNT_MISMATCH,
+        // меньше трех вершин
+        TOO_FEW_VERTICES,
+        // соседние углы ссылаются на одну вершину: у грани есть ребро нулевой длины
+        REPEATED_VERTEX
+    }
+
+    // Значение corner и line, если они неизвестны или ошибка относится ко всей грани
+    public static final int NONE = -1;
+
+    private final Kind kind;
+    private final int face;
+    private final int corner;
+    private final int index;
+    private final int line;
+
+    IndexViolation(Kind kind, int face, int corner, int index, int line) {
+        this.kind = kind;
+        this.face = face;
+        this.corner = corner;
+        this.index = index;
+        this.line = line;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getFace() {
+        return face;
+    }
+
+    public int getCorner() {
+        return corner;
+    }
+
+    // Неверный индекс для *_OUT_OF_RANGE и REPEATED_VERTEX, число индексов атрибута для *_COUNT_MISMATCH,
+    // число вершин для TOO_FEW_VERTICES
+    public int getIndex() {
+        return index;
+    }
+
+    // Строка файла; известна только при проверке во время разбора (см. ParseValidator)
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("face ").append(face);
+        if (line != NONE) {
+            result.append(" (line ").append(line).append(')');
+        }
+        if (corner != NONE) {
+            result.append(", corner ").append(corner);
+        }
+        return result.append(": ").append(kind.name().toLowerCase(Locale.ROOT).replace('_', ' '))
+                .append(' ').append(index).toString();
+    }
+}
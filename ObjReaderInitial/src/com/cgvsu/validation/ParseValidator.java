@@ -0,0 +1,169 @@
+package com.cgvsu.validation;
+
+import com.cgvsu.objreader.FaceIndices;
+import com.cgvsu.objreader.ObjElementHandler;
+import com.cgvsu.objreader.ObjReader;
+
+// Проверка индексов во время разбора, чтобы не читать индексы второй раз (см. ObjReader.readMesh с наблюдателем).
+// Проверки те же, что у IndexValidator, плюс известна строка файла.
+// Индекс меньше числа уже прочитанных элементов точно верен: элементы только добавляются. Индекс вперед
+// (на элемент, который описан ниже грани) проверяется в getReport по итоговому числу элементов.
+// Таких индексов может быть сколько угодно (некоторые программы пишут все грани перед вершинами), поэтому
+// сохраняются только первые maxViolations из них и для каждого вида - наибольший: файл неверен тогда и только
+// тогда, когда наибольший индекс вперед не меньше итогового числа элементов.
+// Если индексов вперед больше maxViolations, число ошибок вида в отчете - нижняя оценка: несохраненные индексы
+// проверить нельзя, в отчет попадает только наибольший из них.
+public class ParseValidator implements ObjElementHandler {
+
+    private static final IndexViolation.Kind[] KINDS = IndexViolation.Kind.values();
+    // грань, угол, индекс, строка
+    private static final int FARTHEST_SIZE = 4;
+
+    private final int maxViolations;
+    private final ViolationCollector collector;
+    // первые индексы вперед; нарушения среди них попадают в отчет после разбора
+    private final ViolationCollector forwardIndices;
+    // наибольший индекс вперед каждого вида и где он встретился; индекс -1, если таких не было
+    private final int[] farthest = new int[FARTHEST_SIZE * KINDS.length];
+    // наибольший индекс вперед сохранен в forwardIndices
+    private final boolean[] farthestStored = new boolean[KINDS.length];
+
+    private int vertexCount;
+    private int textureVertexCount;
+    private int normalCount;
+    private int faceCount;
+
+    public ParseValidator() {
+        this(IndexValidator.DEFAULT_MAX_VIOLATIONS);
+    }
+
+    public ParseValidator(int maxViolations) {
+        if (maxViolations < 0) {
+            throw new IllegalArgumentException("Violation cap must not be negative");
+        }
+        this.maxViolations = maxViolations;
+        this.collector = new ViolationCollector(maxViolations);
+        this.forwardIndices = new ViolationCollector(maxViolations);
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            farthest[FARTHEST_SIZE * kind + 2] = -1;
+        }
+    }
+
+    @Override
+    public void vertex(float x, float y, float z) {
+        vertexCount++;
+    }
+
+    @Override
+    public void textureVertex(float u, float v) {
+        textureVertexCount++;
+    }
+
+    @Override
+    public void normal(float x, float y, float z) {
+        normalCount++;
+    }
+
+    @Override
+    public void face(FaceIndices face, int lineInd) {
+        final int faceIndex = faceCount++;
+        final int size = face.vertexCount;
+        if (size < 3) {
+            collector.add(IndexViolation.Kind.TOO_FEW_VERTICES, faceIndex, IndexViolation.NONE, size, lineInd);
+        }
+        int previous = size == 0 ? 0 : ObjReader.toZeroBasedIndex(face.vertexIndices[size - 1], vertexCount);
+        for (int corner = 0; corner < size; corner++) {
+            final int index = ObjReader.toZeroBasedIndex(face.vertexIndices[corner], vertexCount);
+            checkIndex(index, vertexCount, IndexViolation.Kind.VERTEX_INDEX_OUT_OF_RANGE, faceIndex, corner,
+                    lineInd);
+            if (size > 1 && index == previous) {
+                // повтор отмечается на втором из двух углов
+                collector.add(IndexViolation.Kind.REPEATED_VERTEX, faceIndex, corner, index, lineInd);
+            }
+            previous = index;
+        }
+        checkAttribute(face.textureVertexIndices, face.textureVertexCount, size, textureVertexCount,
+                IndexViolation.Kind.TEXTURE_INDEX_OUT_OF_RANGE, IndexViolation.Kind.TEXTURE_COUNT_MISMATCH,
+                faceIndex, lineInd);
+        checkAttribute(face.normalIndices, face.normalCount, size, normalCount,
+                IndexViolation.Kind.NORMAL_INDEX_OUT_OF_RANGE, IndexViolation.Kind.NORMAL_COUNT_MISMATCH,
+                faceIndex, lineInd);
+    }
+
+    private void checkAttribute(int[] indices, int count, int size, int elementCount, IndexViolation.Kind outOfRange,
+                                IndexViolation.Kind countMismatch, int faceIndex, int lineInd) {
+        if (count != 0 && count != size) {
+            collector.add(countMismatch, faceIndex, IndexViolation.NONE, count, lineInd);
+        }
+        for (int corner = 0; corner < count; corner++) {
+            checkIndex(ObjReader.toZeroBasedIndex(indices[corner], elementCount), elementCount, outOfRange,
+                    faceIndex, corner, lineInd);
+        }
+    }
+
+    private void checkIndex(int index, int elementCount, IndexViolation.Kind kind, int faceIndex, int corner,
+                            int lineInd) {
+        if (index < 0) {
+            // ноль или отрицательный индекс дальше первого элемента
+            collector.add(kind, faceIndex, corner, index, lineInd);
+        } else if (index >= elementCount) {
+            final int storedCount = forwardIndices.size();
+            forwardIndices.add(kind, faceIndex, corner, index, lineInd);
+            final int base = FARTHEST_SIZE * kind.ordinal();
+            if (index > farthest[base + 2]) {
+                farthest[base] = faceIndex;
+                farthest[base + 1] = corner;
+                farthest[base + 2] = index;
+                farthest[base + 3] = lineInd;
+                farthestStored[kind.ordinal()] = forwardIndices.size() > storedCount;
+            }
+        }
+    }
+
+    // Отчет по всему прочитанному; вызывается после разбора
+    public ValidationReport getReport() {
+        final ViolationCollector outOfRange = new ViolationCollector(maxViolations);
+        for (int i = 0; i < forwardIndices.size(); i++) {
+            final IndexViolation forward = forwardIndices.get(i);
+            if (forward.getIndex() >= finalCount(forward.getKind())) {
+                outOfRange.add(forward.getKind(), forward.getFace(), forward.getCorner(), forward.getIndex(),
+                        forward.getLine());
+            }
+        }
+        // несохраненные наибольшие индексы описаны позже всех сохраненных; между собой - по порядку граней
+        final int[] late = new int[KINDS.length];
+        int lateCount = 0;
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            if (!farthestStored[kind] && farthest[FARTHEST_SIZE * kind + 2] >= finalCount(KINDS[kind])) {
+                int position = lateCount++;
+                for (; position > 0 && isAfter(late[position - 1], kind); position--) {
+                    late[position] = late[position - 1];
+                }
+                late[position] = kind;
+            }
+        }
+        for (int i = 0; i < lateCount; i++) {
+            final int base = FARTHEST_SIZE * late[i];
+            outOfRange.add(KINDS[late[i]], farthest[base], farthest[base + 1], farthest[base + 2],
+                    farthest[base + 3]);
+        }
+        return ViolationCollector.mergeByFace(collector, outOfRange, maxViolations);
+    }
+
+    // Наибольший индекс вперед вида first описан позже, чем вида second
+    private boolean isAfter(int first, int second) {
+        final int firstBase = FARTHEST_SIZE * first;
+        final int secondBase = FARTHEST_SIZE * second;
+        return farthest[firstBase] != farthest[secondBase]
+                ? farthest[firstBase] > farthest[secondBase]
+                : farthest[firstBase + 1] > farthest[secondBase + 1];
+    }
+
+    private int finalCount(IndexViolation.Kind kind) {
+        return switch (kind) {
+            case TEXTURE_INDEX_OUT_OF_RANGE -> textureVertexCount;
+            case NORMAL_INDEX_OUT_OF_RANGE -> normalCount;
+            default -> vertexCount;
+        };
+    }
+}
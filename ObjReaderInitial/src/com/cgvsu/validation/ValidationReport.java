@@ -0,0 +1,72 @@
+package com.cgvsu.validation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Итог проверки индексов: число ошибок каждого вида (точное) и сами ошибки - не больше maxViolations,
+// первые по порядку граней
+public class ValidationReport {
+
+    private final List<IndexViolation> violations;
+    private final long[] counts;
+    private final int maxViolations;
+
+    ValidationReport(List<IndexViolation> violations, long[] counts, int maxViolations) {
+        this.violations = Collections.unmodifiableList(violations);
+        this.counts = counts;
+        this.maxViolations = maxViolations;
+    }
+
+    public boolean isValid() {
+        return getViolationCount() == 0;
+    }
+
+    public long getViolationCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getCount(IndexViolation.Kind kind) {
+        return counts[kind.ordinal()];
+    }
+
+    public List<IndexViolation> getViolations() {
+        return violations;
+    }
+
+    public int getMaxViolations() {
+        return maxViolations;
+    }
+
+    // Ошибок больше, чем сохранено в getViolations()
+    public boolean isTruncated() {
+        return getViolationCount() > violations.size();
+    }
+
+    @Override
+    public String toString() {
+        if (isValid()) {
+            return "No index violations\n";
+        }
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(Locale.US, "%d index violations:", getViolationCount()));
+        for (IndexViolation.Kind kind : IndexViolation.Kind.values()) {
+            if (counts[kind.ordinal()] != 0) {
+                result.append(String.format(Locale.US, " %s %d", kind.name().toLowerCase(Locale.ROOT),
+                        counts[kind.ordinal()]));
+            }
+        }
+        result.append('\n');
+        for (IndexViolation violation : violations) {
+            result.append("  ").append(violation).append('\n');
+        }
+        if (isTruncated()) {
+            result.append(String.format(Locale.US, "  ... %d more%n", getViolationCount() - violations.size()));
+        }
+        return result.toString();
+    }
+}
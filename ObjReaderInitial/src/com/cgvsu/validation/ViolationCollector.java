@@ -0,0 +1,90 @@
+package com.cgvsu.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Ошибки одного диапазона граней. Первые capacity ошибок хранятся в плоском массиве, остальные только
+// считаются, поэтому на правильных данных сборщик ничего не выделяет, а на испорченных - не больше capacity записей.
+final class ViolationCollector {
+
+    private static final IndexViolation.Kind[] KINDS = IndexViolation.Kind.values();
+    // вид, грань, угол, индекс, строка
+    private static final int ENTRY_SIZE = 5;
+    // больше записей в массив int не помещается
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - 8) / ENTRY_SIZE;
+
+    private final int capacity;
+    private final long[] counts = new long[KINDS.length];
+    private int[] entries = new int[0];
+    private int size;
+
+    ViolationCollector(int capacity) {
+        this.capacity = Math.min(capacity, MAX_CAPACITY);
+    }
+
+    void add(IndexViolation.Kind kind, int face, int corner, int index, int line) {
+        counts[kind.ordinal()]++;
+        if (size == capacity) {
+            return;
+        }
+        if (entries.length < (size + 1) * ENTRY_SIZE) {
+            entries = Arrays.copyOf(entries, ENTRY_SIZE * (int) Math.min(capacity, Math.max(16L, 2L * size)));
+        }
+        final int base = size * ENTRY_SIZE;
+        entries[base] = kind.ordinal();
+        entries[base + 1] = face;
+        entries[base + 2] = corner;
+        entries[base + 3] = index;
+        entries[base + 4] = line;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getFace(int entry) {
+        return entries[entry * ENTRY_SIZE + 1];
+    }
+
+    IndexViolation get(int entry) {
+        final int base = entry * ENTRY_SIZE;
+        return new IndexViolation(KINDS[entries[base]], entries[base + 1], entries[base + 2], entries[base + 3],
+                entries[base + 4]);
+    }
+
+    // Сборщики диапазонов, идущих по порядку граней: первые maxViolations ошибок в порядке граней
+    static ValidationReport merge(ViolationCollector[] collectors, int maxViolations) {
+        final long[] counts = new long[KINDS.length];
+        final List<IndexViolation> violations = new ArrayList<>();
+        for (ViolationCollector collector : collectors) {
+            for (int kind = 0; kind < KINDS.length; kind++) {
+                counts[kind] += collector.counts[kind];
+            }
+            for (int i = 0; i < collector.size && violations.size() < maxViolations; i++) {
+                violations.add(collector.get(i));
+            }
+        }
+        return new ValidationReport(violations, counts, maxViolations);
+    }
+
+    // Два сборщика вперемешку по граням (у каждого ошибки уже по порядку граней)
+    static ValidationReport mergeByFace(ViolationCollector first, ViolationCollector second, int maxViolations) {
+        final long[] counts = new long[KINDS.length];
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            counts[kind] = first.counts[kind] + second.counts[kind];
+        }
+        final List<IndexViolation> violations = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while ((i < first.size || j < second.size) && violations.size() < maxViolations) {
+            if (j == second.size || i < first.size && first.getFace(i) <= second.getFace(j)) {
+                violations.add(first.get(i++));
+            } else {
+                violations.add(second.get(j++));
+            }
+        }
+        return new ValidationReport(violations, counts, maxViolations);
+    }
+}
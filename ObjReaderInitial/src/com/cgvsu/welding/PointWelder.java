@@ -0,0 +1,149 @@
+package com.cgvsu.welding;
+
+// Слияние близких точек через хеш-сетку.
+// Точки совпадают, если все координаты отличаются меньше чем на epsilon (как в Vector3f.equals).
+// Пространство делится на кубы со стороной в несколько epsilon, и каждая точка ищет совпадение только среди
+// уже найденных уникальных точек в своем кубе и в соседних кубах, до которых достает допуск,
+// а не среди всех точек. Поэтому проход линейный, а не квадратичный, как попарное сравнение через equals.
+// Точка сливается с первой найденной уникальной точкой в пределах допуска, иначе сама становится уникальной.
+final class PointWelder {
+
+    // Запас к допуску при выборе соседних кубов: сравнение координат идет во float с округлением,
+    // и точка чуть дальше epsilon тоже может оказаться совпадающей
+    private static final double REACH_MARGIN = 1.001;
+    // Допуск в кубе со стороной 8 * epsilon выходит за его грань по одной оси с вероятностью около 1/4,
+    // поэтому в среднем проверяется около двух кубов. У куба со стороной 2 * epsilon допуск почти
+    // всегда задевает соседей по всем осям, и проверок выходит 8 - каждая с промахом мимо кеша.
+    private static final int CELL_SIZE_IN_EPSILONS = 8;
+    // номер точки и до трех координат: ячейка таблицы занимает 16 байт и не пересекает строку кеша
+    private static final int SLOT_INTS = 4;
+    // самый большой массив int, степень двойки
+    private static final long MAX_TABLE_INTS = 1L << 30;
+
+    private PointWelder() {
+    }
+
+    // Сливает count точек размерности dimension (2 или 3) из coordinates, сам массив не меняется.
+    // Уникальные точки нумеруются в порядке первого появления, remap[i] получает новый номер точки i.
+    // Возвращает число уникальных точек.
+    static int weld(float[] coordinates, int dimension, int count, float epsilon, int[] remap) {
+        if (!(epsilon > 0)) {
+            throw new IllegalArgumentException("Epsilon must be positive: " + epsilon);
+        }
+        final double cellsPerUnit = 1.0 / (CELL_SIZE_IN_EPSILONS * epsilon);
+        // доля куба, на которую допуск заходит в соседний куб
+        final double reach = REACH_MARGIN / CELL_SIZE_IN_EPSILONS;
+        // Хеш-таблица с открытой адресацией, заполненная не больше чем наполовину. В ячейке таблицы лежат
+        // номер уникальной точки и ее координаты, поэтому проверка кандидата - это одно обращение к памяти.
+        final long capacity = Long.highestOneBit(Math.max(2L * count, 2) - 1) << 1;
+        if (capacity * SLOT_INTS > MAX_TABLE_INTS) {
+            throw new IllegalArgumentException("Too many points to weld: " + count);
+        }
+        final int mask = (int) capacity - 1;
+        final int[] table = new int[(int) capacity * SLOT_INTS];
+        for (int slot = 0; slot < table.length; slot += SLOT_INTS) {
+            table[slot] = -1;
+        }
+        final long[] cell = new long[3];
+        final long[] low = new long[3];
+        final long[] high = new long[3];
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            final int start = dimension * i;
+            for (int axis = 0; axis < dimension; axis++) {
+                final double position = coordinates[start + axis] * cellsPerUnit;
+                cell[axis] = (long) Math.floor(position);
+                final double inCell = position - cell[axis];
+                low[axis] = inCell < reach ? cell[axis] - 1 : cell[axis];
+                high[axis] = inCell > 1 - reach ? cell[axis] + 1 : cell[axis];
+            }
+            final long cellX = cell[0];
+            final long cellY = cell[1];
+            final long cellZ = cell[2];
+
+            // точные повторы лежат в том же кубе, поэтому он проверяется первым
+            int match = find(table, mask, bucket(cellX, cellY, cellZ), coordinates, start, dimension, epsilon);
+            search:
+            for (long x = low[0]; match < 0 && x <= high[0]; x++) {
+                for (long y = low[1]; y <= high[1]; y++) {
+                    for (long z = low[2]; z <= high[2]; z++) {
+                        if (x != cellX || y != cellY || z != cellZ) {
+                            match = find(table, mask, bucket(x, y, z), coordinates, start, dimension, epsilon);
+                            if (match >= 0) {
+                                break search;
+                            }
+                        }
+                        // при переполнении long ячейки за краем не существуют
+                        if (z == Long.MAX_VALUE) {
+                            break;
+                        }
+                    }
+                    if (y == Long.MAX_VALUE) {
+                        break;
+                    }
+                }
+                if (x == Long.MAX_VALUE) {
+                    break;
+                }
+            }
+            if (match >= 0) {
+                remap[i] = match;
+                continue;
+            }
+
+            int slot = (bucket(cellX, cellY, cellZ) & mask) * SLOT_INTS;
+            while (table[slot] >= 0) {
+                slot = (slot + SLOT_INTS) & (table.length - 1);
+            }
+            table[slot] = unique;
+            for (int axis = 0; axis < dimension; axis++) {
+                table[slot + 1 + axis] = Float.floatToRawIntBits(coordinates[start + axis]);
+            }
+            remap[i] = unique++;
+        }
+        return unique;
+    }
+
+    // Координаты уникальных точек: точка i уникальна, если ее новый номер равен числу уже собранных
+    static float[] gather(float[] coordinates, int dimension, int[] remap, int uniqueCount) {
+        float[] result = new float[dimension * uniqueCount];
+        int gathered = 0;
+        for (int i = 0; i < remap.length && gathered < uniqueCount; i++) {
+            if (remap[i] == gathered) {
+                System.arraycopy(coordinates, dimension * i, result, dimension * gathered, dimension);
+                gathered++;
+            }
+        }
+        return result;
+    }
+
+    // Номер уникальной точки, совпадающей с точкой start, среди записанных начиная с корзины bucket, или -1.
+    // Таблица не удаляет записей, поэтому все точки корзины лежат до первой пустой ячейки.
+    private static int find(int[] table, int mask, int bucket, float[] coordinates, int start, int dimension,
+                            float epsilon) {
+        for (int slot = (bucket & mask) * SLOT_INTS; table[slot] >= 0; slot = (slot + SLOT_INTS) & (table.length - 1)) {
+            if (matches(table, slot + 1, coordinates, start, dimension, epsilon)) {
+                return table[slot];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(int[] table, int stored, float[] coordinates, int start, int dimension,
+                                   float epsilon) {
+        for (int axis = 0; axis < dimension; axis++) {
+            final float value = Float.intBitsToFloat(table[stored + axis]);
+            if (!(Math.abs(coordinates[start + axis] - value) < epsilon)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int bucket(long x, long y, long z) {
+        long hash = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + z * 0x165667B19E3779F9L;
+        hash ^= hash >>> 29;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,146 @@
+package com.cgvsu.welding;
+
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+
+import java.util.ArrayList;
+
+// Необязательный проход после чтения: сливает совпадающие в пределах допуска вершины, текстурные вершины
+// и нормали и перенумеровывает индексы полигонов. Сканы часто содержат миллионы повторов одних и тех же
+// значений, а каждый лишний элемент занимает память во всех дальнейших представлениях модели.
+// Модель меняется на месте. Уникальные элементы сохраняют порядок первого появления, поэтому модель
+// без повторов остается прежней. Индексы вне диапазона (и MeshData.NO_INDEX) не трогаются: после слияния
+// элементов становится только меньше, и такие индексы остаются неверными.
+// Слияние может сделать грани вырожденными (две вершины грани совпадут), такие грани не удаляются.
+public class VertexWelder {
+
+    // тот же допуск, что и в Vector3f.equals и Vector2f.equals
+    public static final float DEFAULT_EPSILON = 1e-7f;
+
+    // Оценка для 64-битной JVM со сжатыми ссылками: объект Vector3f или Vector2f занимает 24 байта
+    // и еще 4 байта - ссылка на него в ArrayList
+    private static final int VECTOR_OBJECT_BYTES = 24 + 4;
+
+    public static WeldReport weld(Model model) {
+        return weld(model, DEFAULT_EPSILON, DEFAULT_EPSILON, DEFAULT_EPSILON);
+    }
+
+    public static WeldReport weld(Model model, float positionEpsilon, float textureEpsilon, float normalEpsilon) {
+        final int vertexCount = model.vertices.size();
+        final int textureVertexCount = model.textureVertices.size();
+        final int normalCount = model.normals.size();
+
+        final int[] vertexRemap = new int[vertexCount];
+        final int uniqueVertices = PointWelder.weld(toArray3(model.vertices), 3, vertexCount,
+                positionEpsilon, vertexRemap);
+        final int[] textureRemap = new int[textureVertexCount];
+        final int uniqueTextureVertices = PointWelder.weld(toArray2(model.textureVertices), 2, textureVertexCount,
+                textureEpsilon, textureRemap);
+        final int[] normalRemap = new int[normalCount];
+        final int uniqueNormals = PointWelder.weld(toArray3(model.normals), 3, normalCount,
+                normalEpsilon, normalRemap);
+
+        model.vertices = keepUnique(model.vertices, vertexRemap, uniqueVertices);
+        model.textureVertices = keepUnique(model.textureVertices, textureRemap, uniqueTextureVertices);
+        model.normals = keepUnique(model.normals, normalRemap, uniqueNormals);
+        for (Polygon polygon : model.polygons) {
+            remap(polygon.getVertexIndices(), vertexRemap);
+            remap(polygon.getTextureVertexIndices(), textureRemap);
+            remap(polygon.getNormalIndices(), normalRemap);
+        }
+
+        final long removed = (long) vertexCount - uniqueVertices
+                + textureVertexCount - uniqueTextureVertices + normalCount - uniqueNormals;
+        return new WeldReport(vertexCount, uniqueVertices, textureVertexCount, uniqueTextureVertices,
+                normalCount, uniqueNormals, removed * VECTOR_OBJECT_BYTES);
+    }
+
+    public static WeldReport weld(MeshData mesh) {
+        return weld(mesh, DEFAULT_EPSILON, DEFAULT_EPSILON, DEFAULT_EPSILON);
+    }
+
+    // Массивы координат заменяются новыми (старые могут быть общими с другими моделями),
+    // массивы индексов переписываются на месте
+    public static WeldReport weld(MeshData mesh, float positionEpsilon, float textureEpsilon, float normalEpsilon) {
+        final int vertexCount = mesh.getVertexCount();
+        final int textureVertexCount = mesh.getTextureVertexCount();
+        final int normalCount = mesh.getNormalCount();
+
+        final int[] vertexRemap = new int[vertexCount];
+        final int uniqueVertices = PointWelder.weld(mesh.positions, 3, vertexCount, positionEpsilon, vertexRemap);
+        final int[] textureRemap = new int[textureVertexCount];
+        final int uniqueTextureVertices = PointWelder.weld(mesh.textureVertices, 2, textureVertexCount,
+                textureEpsilon, textureRemap);
+        final int[] normalRemap = new int[normalCount];
+        final int uniqueNormals = PointWelder.weld(mesh.normals, 3, normalCount, normalEpsilon, normalRemap);
+
+        mesh.positions = PointWelder.gather(mesh.positions, 3, vertexRemap, uniqueVertices);
+        mesh.textureVertices = PointWelder.gather(mesh.textureVertices, 2, textureRemap, uniqueTextureVertices);
+        mesh.normals = PointWelder.gather(mesh.normals, 3, normalRemap, uniqueNormals);
+        remap(mesh.vertexIndices, vertexRemap);
+        remap(mesh.textureVertexIndices, textureRemap);
+        remap(mesh.normalIndices, normalRemap);
+
+        final long savedFloats = 3L * (vertexCount - uniqueVertices)
+                + 2L * (textureVertexCount - uniqueTextureVertices) + 3L * (normalCount - uniqueNormals);
+        return new WeldReport(vertexCount, uniqueVertices, textureVertexCount, uniqueTextureVertices,
+                normalCount, uniqueNormals, savedFloats * Float.BYTES);
+    }
+
+    private static void remap(ArrayList<Integer> indices, int[] remap) {
+        for (int i = 0; i < indices.size(); i++) {
+            final int index = indices.get(i);
+            if (index >= 0 && index < remap.length) {
+                indices.set(i, remap[index]);
+            }
+        }
+    }
+
+    private static void remap(int[] indices, int[] remap) {
+        for (int i = 0; i < indices.length; i++) {
+            final int index = indices[i];
+            if (index >= 0 && index < remap.length) {
+                indices[i] = remap[index];
+            }
+        }
+    }
+
+    // Уникальные элементы идут в порядке первого появления, поэтому элемент i остается,
+    // если его новый номер равен числу уже оставленных
+    private static <T> ArrayList<T> keepUnique(ArrayList<T> elements, int[] remap, int uniqueCount) {
+        if (uniqueCount == elements.size()) {
+            return elements;
+        }
+        ArrayList<T> result = new ArrayList<>(uniqueCount);
+        for (int i = 0; i < elements.size(); i++) {
+            if (remap[i] == result.size()) {
+                result.add(elements.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static float[] toArray3(ArrayList<Vector3f> vectors) {
+        float[] result = new float[3 * vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            Vector3f vector = vectors.get(i);
+            result[3 * i] = vector.x;
+            result[3 * i + 1] = vector.y;
+            result[3 * i + 2] = vector.z;
+        }
+        return result;
+    }
+
+    private static float[] toArray2(ArrayList<Vector2f> vectors) {
+        float[] result = new float[2 * vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            Vector2f vector = vectors.get(i);
+            result[2 * i] = vector.x;
+            result[2 * i + 1] = vector.y;
+        }
+        return result;
+    }
+}
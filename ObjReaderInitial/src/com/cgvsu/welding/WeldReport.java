@@ -0,0 +1,68 @@
+package com.cgvsu.welding;
+
+// Итог слияния: сколько вершин, текстурных вершин и нормалей было и осталось и сколько памяти это освободило
+public class WeldReport {
+
+    private final int vertexCountBefore;
+    private final int vertexCountAfter;
+    private final int textureVertexCountBefore;
+    private final int textureVertexCountAfter;
+    private final int normalCountBefore;
+    private final int normalCountAfter;
+    private final long savedBytes;
+
+    WeldReport(int vertexCountBefore, int vertexCountAfter,
+               int textureVertexCountBefore, int textureVertexCountAfter,
+               int normalCountBefore, int normalCountAfter, long savedBytes) {
+        this.vertexCountBefore = vertexCountBefore;
+        this.vertexCountAfter = vertexCountAfter;
+        this.textureVertexCountBefore = textureVertexCountBefore;
+        this.textureVertexCountAfter = textureVertexCountAfter;
+        this.normalCountBefore = normalCountBefore;
+        this.normalCountAfter = normalCountAfter;
+        this.savedBytes = savedBytes;
+    }
+
+    public int getVertexCountBefore() {
+        return vertexCountBefore;
+    }
+
+    public int getVertexCountAfter() {
+        return vertexCountAfter;
+    }
+
+    public int getTextureVertexCountBefore() {
+        return textureVertexCountBefore;
+    }
+
+    public int getTextureVertexCountAfter() {
+        return textureVertexCountAfter;
+    }
+
+    public int getNormalCountBefore() {
+        return normalCountBefore;
+    }
+
+    public int getNormalCountAfter() {
+        return normalCountAfter;
+    }
+
+    public int getRemovedCount() {
+        return vertexCountBefore - vertexCountAfter
+                + textureVertexCountBefore - textureVertexCountAfter
+                + normalCountBefore - normalCountAfter;
+    }
+
+    // Оценка освобожденной памяти под сами вершины, без массивов индексов
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Vertices: %,d -> %,d, texture vertices: %,d -> %,d, normals: %,d -> %,d, saved ~%,d bytes",
+                vertexCountBefore, vertexCountAfter, textureVertexCountBefore, textureVertexCountAfter,
+                normalCountBefore, normalCountAfter, savedBytes);
+    }
+}
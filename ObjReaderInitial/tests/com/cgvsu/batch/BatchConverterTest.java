@@ -0,0 +1,199 @@
+package com.cgvsu.batch;
+
+import com.cgvsu.pipeline.StreamingConverter;
+import com.cgvsu.triangulation.TriangulationMode;
+import com.cgvsu.triangulation.TriangulationStatistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+class BatchConverterTest {
+
+    private static final String QUAD = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            f 1 2 3 4
+            """;
+
+    private static BatchConverter converter(Path output) {
+        return new BatchConverter(output, TriangulationMode.EAR_CLIPPING, 3, 256 << 20, false);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testConvertsDirectoryAndReportsFailures() throws IOException {
+        Path root = Files.createTempDirectory("batch");
+        try {
+            Path input = root.resolve("in");
+            Path output = root.resolve("out");
+            Files.createDirectories(input.resolve("nested"));
+            Files.writeString(input.resolve("a.obj"), QUAD);
+            Files.writeString(input.resolve("nested/b.obj"), QUAD + "f 1 3 4\n");
+            Files.writeString(input.resolve("broken.obj"), QUAD + "v 1 2\n");
+            Files.writeString(input.resolve("notes.txt"), "not a model");
+
+            BatchReport report = converter(output).convert(List.of(input.toString()));
+
+            Assertions.assertEquals(3, report.getResults().size());
+            Assertions.assertEquals(2, report.getCount(BatchReport.Status.CONVERTED));
+            Assertions.assertEquals(1, report.getCount(BatchReport.Status.FAILED));
+            BatchReport.FileResult failure = report.getFailures().get(0);
+            Assertions.assertEquals(input.resolve("broken.obj"), failure.getInput());
+            Assertions.assertTrue(failure.getError().contains("line: 6"), failure.getError());
+            Assertions.assertFalse(Files.exists(output.resolve("broken.obj")));
+
+            Path expected = root.resolve("expected.obj");
+            StreamingConverter.convert(input.resolve("nested/b.obj"), expected, TriangulationMode.EAR_CLIPPING,
+                    new TriangulationStatistics());
+            Assertions.assertEquals(Files.readString(expected), Files.readString(output.resolve("nested/b.obj")));
+            Assertions.assertEquals(Files.size(input.resolve("a.obj")) + Files.size(input.resolve("nested/b.obj")),
+                    report.getInputBytes());
+        } finally {
+            deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testOutOfRangeIndicesFailTheFile() throws IOException {
+        Path root = Files.createTempDirectory("batch");
+        try {
+            Path input = root.resolve("in");
+            Path output = root.resolve("out");
+            Files.createDirectories(input);
+            // веер индексы не разыменовывает, поэтому без проверки такие грани ушли бы в результат как есть
+            Files.writeString(input.resolve("forward.obj"), QUAD + "f 1 2 7\n");
+            Files.writeString(input.resolve("zero.obj"), QUAD + "f 0 1 2\n");
+            Files.writeString(input.resolve("good.obj"), QUAD + "f -1 -2 -3\n");
+
+            BatchReport report = new BatchConverter(output, TriangulationMode.FAN, 2, 256 << 20, false)
+                    .convert(List.of(input.toString()));
+            Assertions.assertEquals(1, report.getCount(BatchReport.Status.CONVERTED));
+            Assertions.assertEquals(2, report.getCount(BatchReport.Status.FAILED));
+            Assertions.assertEquals(input.resolve("forward.obj"), report.getFailures().get(0).getInput());
+            Assertions.assertTrue(report.getFailures().get(0).getError().contains("line 6"),
+                    report.getFailures().get(0).getError());
+            Assertions.assertFalse(Files.exists(output.resolve("forward.obj")));
+            Assertions.assertFalse(Files.exists(output.resolve("zero.obj")));
+            Assertions.assertFalse(Files.exists(BatchConverter.hashPath(output.resolve("zero.obj"))));
+            Assertions.assertTrue(Files.exists(output.resolve("good.obj")));
+
+            // ошибочный файл не считается обработанным и при следующем запуске проверяется снова
+            BatchReport second = new BatchConverter(output, TriangulationMode.FAN, 2, 256 << 20, false)
+                    .convert(List.of(input.toString()));
+            Assertions.assertEquals(2, second.getCount(BatchReport.Status.FAILED));
+        } finally {
+            deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testCompressedFilesStayCompressed() throws IOException {
+        Path root = Files.createTempDirectory("batch");
+        try {
+            Path input = root.resolve("in");
+            Path output = root.resolve("out");
+            Files.createDirectories(input);
+            try (OutputStream stream = new GZIPOutputStream(Files.newOutputStream(input.resolve("a.obj.gz")))) {
+                stream.write(QUAD.getBytes(StandardCharsets.UTF_8));
+            }
+            Files.writeString(input.resolve("b.obj"), QUAD);
+            Files.writeString(input.resolve("notes.gz"), "not a model");
+
+            BatchReport report = converter(output).convert(List.of(input.toString()));
+            Assertions.assertEquals(2, report.getResults().size());
+            Assertions.assertEquals(2, report.getCount(BatchReport.Status.CONVERTED));
+            Assertions.assertEquals(output.resolve("a.obj.gz"), report.getResults().get(0).getOutput());
+            try (InputStream stream = new GZIPInputStream(Files.newInputStream(output.resolve("a.obj.gz")))) {
+                Assertions.assertEquals(Files.readString(output.resolve("b.obj")),
+                        new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            Assertions.assertEquals(2, converter(output).convert(List.of(input.toString()))
+                    .getCount(BatchReport.Status.SKIPPED));
+        } finally {
+            deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testUnchangedFilesAreSkipped() throws IOException {
+        Path root = Files.createTempDirectory("batch");
+        try {
+            Path input = root.resolve("in");
+            Path output = input.resolve("out");
+            Files.createDirectories(input);
+            Files.writeString(input.resolve("a.obj"), QUAD);
+            Files.writeString(input.resolve("b.obj"), QUAD);
+
+            Assertions.assertEquals(2, converter(output).convert(List.of(input.toString()))
+                    .getCount(BatchReport.Status.CONVERTED));
+
+            // выходной каталог внутри входного не становится источником новых файлов
+            BatchReport second = converter(output).convert(List.of(input.toString()));
+            Assertions.assertEquals(2, second.getResults().size());
+            Assertions.assertEquals(2, second.getCount(BatchReport.Status.SKIPPED));
+
+            // изменилось содержимое, а не только время изменения; удаленный результат создается заново
+            Files.writeString(input.resolve("a.obj"), QUAD.replace("v 0 1 0", "v 0 2 0"));
+            Files.delete(output.resolve("b.obj"));
+            BatchReport third = converter(output).convert(List.of(input.toString()));
+            Assertions.assertEquals(2, third.getCount(BatchReport.Status.CONVERTED));
+            Assertions.assertTrue(Files.readString(output.resolve("a.obj")).contains("v 0.000000 2.000000 0.000000"));
+
+            // другой режим триангуляции - другой результат
+            BatchReport fan = new BatchConverter(output, TriangulationMode.FAN, 1, 256 << 20, false)
+                    .convert(List.of(input.toString()));
+            Assertions.assertEquals(2, fan.getCount(BatchReport.Status.CONVERTED));
+        } finally {
+            deleteRecursively(root);
+        }
+    }
+
+    @Test
+    public void testGlobsAndMissingInputs() throws IOException {
+        Path root = Files.createTempDirectory("batch");
+        try {
+            Path output = root.resolve("out");
+            Files.createDirectories(root.resolve("assets/cars"));
+            Files.createDirectories(root.resolve("assets/trees"));
+            Files.writeString(root.resolve("assets/cars/car.obj"), QUAD);
+            Files.writeString(root.resolve("assets/trees/oak.obj"), QUAD);
+            Files.writeString(root.resolve("assets/trees/oak.mtl"), "newmtl bark\n");
+
+            BatchReport report = converter(output).convert(List.of(
+                    root.resolve("assets") + "/*/*.obj",
+                    root.resolve("assets/cars/car.obj").toString(),
+                    root.resolve("missing").toString()));
+
+            Assertions.assertEquals(BatchReport.Status.CONVERTED, report.getResults().get(0).getStatus());
+            Assertions.assertEquals(output.resolve("cars/car.obj"), report.getResults().get(0).getOutput());
+            Assertions.assertEquals(output.resolve("trees/oak.obj"), report.getResults().get(1).getOutput());
+            // файл, заданный сам по себе, пишется в корень выходного каталога
+            Assertions.assertEquals(output.resolve("car.obj"), report.getResults().get(2).getOutput());
+            Assertions.assertEquals(BatchReport.Status.FAILED, report.getResults().get(3).getStatus());
+            Assertions.assertEquals(3, report.getCount(BatchReport.Status.CONVERTED));
+            Assertions.assertEquals(1, report.getCount(BatchReport.Status.FAILED));
+        } finally {
+            deleteRecursively(root);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.cgvsu.bvh;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.triangulation.ModelTriangulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+class BvhTest {
+
+    private static MeshData triangles(float[] positions, int[] vertexIndices) {
+        return new MeshData(positions, new float[0], new float[0],
+                MeshData.triangleFaceOffsets(vertexIndices.length / 3), vertexIndices, new int[0], new int[0]);
+    }
+
+    // плоскость z = 0 из size x size единичных квадратов, по два треугольника в каждом
+    private static MeshData grid(int size) {
+        final float[] positions = new float[3 * (size + 1) * (size + 1)];
+        for (int i = 0; i <= size; i++) {
+            for (int j = 0; j <= size; j++) {
+                positions[3 * (i * (size + 1) + j)] = i;
+                positions[3 * (i * (size + 1) + j) + 1] = j;
+            }
+        }
+        final int[] vertexIndices = new int[6 * size * size];
+        int corner = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                final int vertex = i * (size + 1) + j;
+                vertexIndices[corner++] = vertex;
+                vertexIndices[corner++] = vertex + size + 1;
+                vertexIndices[corner++] = vertex + 1;
+                vertexIndices[corner++] = vertex + 1;
+                vertexIndices[corner++] = vertex + size + 1;
+                vertexIndices[corner++] = vertex + size + 2;
+            }
+        }
+        return triangles(positions, vertexIndices);
+    }
+
+    @Test
+    public void testGridQueriesFromManyThreads() {
+        final int size = 100;
+        MeshData mesh = grid(size);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Bvh bvh = BvhBuilder.build(mesh, pool);
+            Assertions.assertEquals(2 * size * size, bvh.getTriangleCount());
+
+            final AtomicInteger failures = new AtomicInteger();
+            final ThreadLocal<BvhQuery> queries = ThreadLocal.withInitial(BvhQuery::new);
+            pool.submit(() -> IntStream.range(0, 10_000).parallel().forEach(i -> {
+                final BvhQuery query = queries.get();
+                final float x = (i % size) + 0.25f;
+                final float y = (i / size) + 0.5f;
+                // луч сверху попадает в квадрат (x, y) в треугольник над точкой
+                if (!bvh.intersectRay(x, y, 10, 0, 0, -1, query) || query.getDistance() != 10
+                        || query.getTriangle() / 2 != (i % size) * size + i / size || query.getZ() != 0) {
+                    failures.incrementAndGet();
+                }
+                if (!bvh.closestPoint(x, y, 5, query) || Math.abs(query.getDistance() - 5) > 1e-5f
+                        || Math.abs(query.getX() - x) > 1e-5f || Math.abs(query.getY() - y) > 1e-5f) {
+                    failures.incrementAndGet();
+                }
+            })).join();
+            Assertions.assertEquals(0, failures.get());
+
+            BvhQuery query = new BvhQuery();
+            // снаружи сетки ближайшая точка - на ее краю
+            Assertions.assertTrue(bvh.closestPoint(-3, 50.5f, 0, query));
+            Assertions.assertEquals(3f, query.getDistance());
+            Assertions.assertEquals(0f, query.getX());
+            Assertions.assertEquals(50.5f, query.getY());
+            Assertions.assertFalse(bvh.closestPoint(-3, 50.5f, 0, 2.5f, query));
+            Assertions.assertEquals(-1, query.getTriangle());
+            // луч вдоль плоскости и луч вверх не попадают никуда
+            Assertions.assertFalse(bvh.intersectRay(-1, 5, 1, 1, 0, 0, query));
+            Assertions.assertFalse(bvh.intersectRay(5, 5, 1, 0, 0, 1, query));
+            Assertions.assertFalse(bvh.intersectRay(5.5f, 5.5f, 10, 0, 0, -1, 9, query));
+
+            // бокс внутри одного квадрата пересекает оба его треугольника (диагональ проходит через бокс)
+            Assertions.assertEquals(2, bvh.overlapBox(10.2f, 20.2f, -1, 10.8f, 20.8f, 1, query, null));
+            Assertions.assertEquals(0, bvh.overlapBox(10.2f, 20.2f, 0.5f, 10.8f, 20.8f, 1, query, null));
+            // угол бокса у самой вершины квадрата не достает до треугольника за диагональю
+            Assertions.assertEquals(1, bvh.overlapBox(10.05f, 20.05f, -1, 10.2f, 20.2f, 1, query, null));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMatchesBruteForceOnRandomTriangles() {
+        final Random random = new Random(7);
+        final int triangleCount = 2000;
+        final float[] positions = new float[9 * triangleCount];
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            final float x = random.nextFloat() * 20;
+            final float y = random.nextFloat() * 20;
+            final float z = random.nextFloat() * 20;
+            for (int k = 0; k < 9; k += 3) {
+                positions[9 * triangle + k] = x + random.nextFloat() * 2;
+                positions[9 * triangle + k + 1] = y + random.nextFloat() * 2;
+                positions[9 * triangle + k + 2] = z + random.nextFloat() * 2;
+            }
+        }
+        final int[] vertexIndices = IntStream.range(0, 3 * triangleCount).toArray();
+        Bvh bvh = BvhBuilder.build(triangles(positions, vertexIndices), null);
+        // перебор: индекс из одного треугольника на каждый треугольник
+        final Bvh[] single = new Bvh[triangleCount];
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            float[] triangleVertices = new float[9];
+            System.arraycopy(positions, 9 * triangle, triangleVertices, 0, 9);
+            single[triangle] = BvhBuilder.build(triangles(triangleVertices, new int[]{0, 1, 2}), null);
+        }
+
+        BvhQuery query = new BvhQuery();
+        BvhQuery bruteQuery = new BvhQuery();
+        for (int i = 0; i < 300; i++) {
+            final float ox = random.nextFloat() * 30 - 5;
+            final float oy = random.nextFloat() * 30 - 5;
+            final float oz = random.nextFloat() * 30 - 5;
+            final float dx = random.nextFloat() - 0.5f;
+            final float dy = random.nextFloat() - 0.5f;
+            final float dz = random.nextFloat() - 0.5f;
+
+            float bestRay = Float.POSITIVE_INFINITY;
+            float bestPoint = Float.POSITIVE_INFINITY;
+            int overlaps = 0;
+            for (Bvh triangle : single) {
+                if (triangle.intersectRay(ox, oy, oz, dx, dy, dz, bruteQuery)) {
+                    bestRay = Math.min(bestRay, bruteQuery.getDistance());
+                }
+                triangle.closestPoint(ox, oy, oz, bruteQuery);
+                bestPoint = Math.min(bestPoint, bruteQuery.getDistance());
+                overlaps += triangle.overlapBox(ox, oy, oz, ox + 3, oy + 3, oz + 3, bruteQuery, null);
+            }
+
+            Assertions.assertEquals(bestRay != Float.POSITIVE_INFINITY,
+                    bvh.intersectRay(ox, oy, oz, dx, dy, dz, query));
+            Assertions.assertEquals(bestRay, query.getDistance());
+            Assertions.assertTrue(bvh.closestPoint(ox, oy, oz, query));
+            Assertions.assertEquals(bestPoint, query.getDistance());
+            final int[] visited = new int[1];
+            Assertions.assertEquals(overlaps, bvh.overlapBox(ox, oy, oz, ox + 3, oy + 3, oz + 3, query,
+                    triangle -> visited[0]++));
+            Assertions.assertEquals(overlaps, visited[0]);
+        }
+    }
+
+    @Test
+    public void testParallelBuildMatchesSequential() {
+        MeshData mesh = grid(120);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Bvh sequential = BvhBuilder.build(mesh, null);
+            Bvh parallel = BvhBuilder.build(mesh, pool);
+
+            Assertions.assertEquals(sequential.getNodeCount(), parallel.getNodeCount());
+            Assertions.assertEquals(sequential.getDepth(), parallel.getDepth());
+            Assertions.assertTrue(sequential.getNodeCount() < 2 * sequential.getTriangleCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testModelPolygonIndices() {
+        Model model = ModelTriangulator.triangulate(ObjReader.read("""
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0
+                v 0 1 0
+                v 0 0 1
+                f 1 2 3 4
+                f 1 2 5
+                """));
+
+        Bvh bvh = BvhBuilder.build(model);
+        BvhQuery query = new BvhQuery();
+
+        Assertions.assertTrue(bvh.intersectRay(0.5f, -1, 0.25f, 0, 1, 0, query));
+        Assertions.assertEquals(2, query.getTriangle());
+        Assertions.assertEquals(1f, query.getDistance());
+        Assertions.assertEquals(0.25f, query.getV(), 1e-6f);
+        Assertions.assertTrue(bvh.intersectRay(0.25f, 0.75f, 1, 0, 0, -2, query));
+        Assertions.assertEquals(1, query.getTriangle());
+        Assertions.assertEquals(0.5f, query.getDistance());
+
+        Bvh empty = BvhBuilder.build(new Model());
+        Assertions.assertEquals(0, empty.getNodeCount());
+        Assertions.assertFalse(empty.intersectRay(0, 0, 0, 1, 0, 0, query));
+        Assertions.assertFalse(empty.closestPoint(0, 0, 0, query));
+        Assertions.assertEquals(0, empty.overlapBox(0, 0, 0, 1, 1, 1, query, null));
+    }
+}
@@ -0,0 +1,157 @@
+package com.cgvsu.compression;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objreader.ParallelObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.objwriter.ParallelObjWriter;
+import com.cgvsu.pipeline.StreamingConverter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+class ParallelGzipOutputChannelTest {
+
+    private static byte[] compress(byte[] data, ForkJoinPool pool, int level, int blockSize, int pieceSize)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ParallelGzipOutputChannel channel =
+                     new ParallelGzipOutputChannel(Channels.newChannel(bytes), pool, level, blockSize)) {
+            for (int from = 0; from < data.length; from += pieceSize) {
+                channel.write(ByteBuffer.wrap(data, from, Math.min(pieceSize, data.length - from)));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return input.readAllBytes();
+        }
+    }
+
+    // Текст со словами из небольшого словаря (сжимается как OBJ) и вставками случайных байт
+    private static byte[] sample(int size) {
+        Random random = new Random(7);
+        final String[] words = {"v ", "vt ", "f ", "0.125000", "-1.500000", "17/3/9", "\n", " "};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while (bytes.size() < size) {
+            if (random.nextInt(50) == 0) {
+                byte[] noise = new byte[random.nextInt(300)];
+                random.nextBytes(noise);
+                bytes.writeBytes(noise);
+            } else {
+                bytes.writeBytes(words[random.nextInt(words.length)].getBytes());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String grid(int size) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i <= size; i++) {
+            for (int j = 0; j <= size; j++) {
+                content.append("v ").append(i * 0.5).append(' ').append(j).append(" 0\n");
+                content.append("vt ").append(i).append(' ').append(j * 0.25).append('\n');
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                final int a = i * (size + 1) + j + 1;
+                content.append("f ").append(a).append('/').append(a).append(' ')
+                        .append(a + size + 1).append('/').append(a + size + 1).append(' ')
+                        .append(a + size + 2).append('/').append(a + size + 2).append('\n');
+            }
+        }
+        return content.toString();
+    }
+
+    private static void assertSameMesh(MeshData expected, MeshData result) {
+        Assertions.assertArrayEquals(expected.positions, result.positions);
+        Assertions.assertArrayEquals(expected.textureVertices, result.textureVertices);
+        Assertions.assertArrayEquals(expected.faceOffsets, result.faceOffsets);
+        Assertions.assertArrayEquals(expected.vertexIndices, result.vertexIndices);
+        Assertions.assertArrayEquals(expected.textureVertexIndices, result.textureVertexIndices);
+    }
+
+    @Test
+    public void testBlocksFormOneGzipStream() throws IOException {
+        final byte[] data = sample(600_000);
+        for (ForkJoinPool pool : new ForkJoinPool[]{null, ForkJoinPool.commonPool()}) {
+            for (int level : new int[]{Deflater.DEFAULT_COMPRESSION, Deflater.BEST_SPEED, Deflater.NO_COMPRESSION}) {
+                // размер записи не кратен блоку: блоки собираются из нескольких записей и делят запись
+                byte[] compressed = compress(data, pool, level, 1 << 15, 10_007);
+                Assertions.assertArrayEquals(data, decompress(compressed));
+            }
+        }
+
+        // со словарем из предыдущего блока сжатие почти не хуже, чем одним потоком
+        final byte[] whole = compress(data, null, Deflater.DEFAULT_COMPRESSION, 1 << 20, data.length);
+        final byte[] blocks = compress(data, ForkJoinPool.commonPool(), Deflater.DEFAULT_COMPRESSION, 1 << 15,
+                data.length);
+        Assertions.assertTrue(blocks.length < whole.length * 21 / 20);
+
+        // пустые данные - корректный gzip без содержимого
+        Assertions.assertEquals(0, decompress(compress(new byte[0], null, Deflater.DEFAULT_COMPRESSION,
+                1 << 15, 1)).length);
+
+        ParallelGzipOutputChannel channel = new ParallelGzipOutputChannel(
+                Channels.newChannel(new ByteArrayOutputStream()), null);
+        channel.close();
+        Assertions.assertFalse(channel.isOpen());
+        Assertions.assertThrows(ClosedChannelException.class, () -> channel.write(ByteBuffer.allocate(1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ParallelGzipOutputChannel(
+                Channels.newChannel(new ByteArrayOutputStream()), null, Deflater.DEFAULT_COMPRESSION, 1 << 10));
+    }
+
+    @Test
+    public void testCompressedObjRoundTrip() throws IOException {
+        Path directory = Files.createTempDirectory("gzip");
+        try {
+            final String content = grid(120);
+            Path plain = directory.resolve("grid.obj");
+            Files.writeString(plain, content);
+            MeshData expected = ObjReader.readMesh(plain);
+
+            Path sequential = directory.resolve("sequential.obj.gz");
+            Path parallel = directory.resolve("parallel.OBJ.GZ");
+            ObjWriter.write(expected, sequential);
+            ParallelObjWriter.write(expected, parallel, ForkJoinPool.commonPool());
+            for (Path file : new Path[]{sequential, parallel}) {
+                Assertions.assertTrue(GzipFiles.isCompressed(file));
+                final byte[] bytes = Files.readAllBytes(file);
+                Assertions.assertEquals(0x1f, bytes[0]);
+                Assertions.assertEquals((byte) 0x8b, bytes[1]);
+                assertSameMesh(expected, ObjReader.readMesh(file));
+                assertSameMesh(expected, ParallelObjReader.readMesh(file));
+                Assertions.assertEquals(expected.getFaceCount(), ObjReader.read(file).polygons.size());
+            }
+
+            // из сжатого файла в сжатый: грани уже треугольные, поэтому модель та же
+            Path converted = directory.resolve("converted.obj.gz");
+            StreamingConverter.convert(sequential, converted);
+            assertSameMesh(expected, ObjReader.readMesh(converted));
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.cgvsu.meshcache;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.triangulation.ModelTriangulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+class MeshCacheTest {
+
+    private static final String CONTENT = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            v 0.5 1.5 0.25
+            vt 0 0
+            vt 1 0
+            vt 1 1
+            vn 0 0 1
+            f 1 2 3 4
+            f 1/1 2/2 3/3
+            f 1//1 3//1 4//1
+            f 4 3 5 1
+            """;
+
+    private static void assertSameMesh(MeshData expected, MeshData actual) {
+        Assertions.assertArrayEquals(expected.positions, actual.positions);
+        Assertions.assertArrayEquals(expected.textureVertices, actual.textureVertices);
+        Assertions.assertArrayEquals(expected.normals, actual.normals);
+        Assertions.assertArrayEquals(expected.faceOffsets, actual.faceOffsets);
+        Assertions.assertArrayEquals(expected.vertexIndices, actual.vertexIndices);
+        Assertions.assertArrayEquals(expected.textureVertexIndices, actual.textureVertexIndices);
+        Assertions.assertArrayEquals(expected.normalIndices, actual.normalIndices);
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testRoundTripWithTriangulatedMesh() throws IOException {
+        Path directory = Files.createTempDirectory("meshcache");
+        try {
+            Path file = directory.resolve("model.obj");
+            Files.writeString(file, CONTENT);
+            MeshData mesh = ObjReader.readMesh(file);
+            MeshData triangulated = ModelTriangulator.triangulate(mesh);
+
+            MeshCache.save(file, mesh, triangulated);
+            MeshCache cache = MeshCache.load(file);
+
+            Assertions.assertNotNull(cache);
+            assertSameMesh(mesh, cache.getMesh());
+            assertSameMesh(triangulated, cache.getTriangulatedMesh());
+            Assertions.assertSame(cache.getMesh().positions, cache.getTriangulatedMesh().positions);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testReadMeshCachedCreatesCache() throws IOException {
+        Path directory = Files.createTempDirectory("meshcache");
+        try {
+            Path file = directory.resolve("model.obj");
+            Files.writeString(file, CONTENT);
+
+            MeshData parsed = ObjReader.readMeshCached(file);
+            Assertions.assertTrue(Files.exists(MeshCache.cachePath(file)));
+            MeshCache cache = MeshCache.load(file);
+            Assertions.assertNotNull(cache);
+            Assertions.assertNull(cache.getTriangulatedMesh());
+            assertSameMesh(parsed, cache.getMesh());
+            assertSameMesh(ObjReader.readMesh(file), ObjReader.readMeshCached(file));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testReadMeshUsesCacheWhenEnabled() throws IOException {
+        Path directory = Files.createTempDirectory("meshcache");
+        try {
+            Path file = directory.resolve("model.obj");
+            Files.writeString(file, CONTENT);
+            MeshData expected = ObjReader.readMesh(file);
+            Assertions.assertFalse(Files.exists(MeshCache.cachePath(file)));
+
+            ObjReader.setMeshCacheEnabled(true);
+            assertSameMesh(expected, ObjReader.readMesh(file));
+            Assertions.assertTrue(Files.exists(MeshCache.cachePath(file)));
+
+            // второй раз модель берется из кеша: его содержимое подменено, а исходный файл тот же
+            MeshData cached = MeshCache.load(file).getMesh();
+            cached.positions[0] = 42;
+            MeshCache.save(file, cached, null);
+            Assertions.assertEquals(42.0f, ObjReader.readMesh(file).positions[0]);
+
+            ObjReader.setMeshCacheEnabled(false);
+            assertSameMesh(expected, ObjReader.readMesh(file));
+        } finally {
+            ObjReader.setMeshCacheEnabled(false);
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testChangedSourceInvalidatesCache() throws IOException {
+        Path directory = Files.createTempDirectory("meshcache");
+        try {
+            Path file = directory.resolve("model.obj");
+            Files.writeString(file, CONTENT);
+            MeshCache.save(file, ObjReader.readMesh(file), null);
+            Assertions.assertNotNull(MeshCache.load(file));
+
+            // тот же размер и то же время изменения: отличие находит только хеш
+            FileTime modified = Files.getLastModifiedTime(file);
+            Files.writeString(file, CONTENT.replace("v 0.5 1.5 0.25", "v 0.5 1.5 0.75"));
+            Files.setLastModifiedTime(file, modified);
+            Assertions.assertNull(MeshCache.load(file));
+
+            Files.writeString(file, CONTENT);
+            Files.setLastModifiedTime(file, modified);
+            Assertions.assertNotNull(MeshCache.load(file));
+
+            Files.writeString(file, CONTENT + "v 2 2 2\n");
+            Assertions.assertNull(MeshCache.load(file));
+
+            Assertions.assertEquals(6, ObjReader.readMeshCached(file).getVertexCount());
+            Assertions.assertEquals(6, MeshCache.load(file).getMesh().getVertexCount());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testDamagedCacheIsIgnored() throws IOException {
+        Path directory = Files.createTempDirectory("meshcache");
+        try {
+            Path file = directory.resolve("model.obj");
+            Files.writeString(file, CONTENT);
+            Assertions.assertNull(MeshCache.load(file));
+
+            MeshCache.save(file, ObjReader.readMesh(file), null);
+            try (FileChannel channel = FileChannel.open(MeshCache.cachePath(file), StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 4);
+            }
+            Assertions.assertNull(MeshCache.load(file));
+
+            Files.writeString(MeshCache.cachePath(file), "not a cache");
+            Assertions.assertNull(MeshCache.load(file));
+            assertSameMesh(ObjReader.readMesh(file), ObjReader.readMeshCached(file));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testWrittenCacheMatchesParsedText() throws IOException {
+        Path directory = Files.createTempDirectory("meshcache");
+        try {
+            Path file = directory.resolve("written.obj");
+            // координаты, которые при записи округляются до шести знаков
+            MeshData mesh = new MeshData(
+                    new float[]{1 / 3f, -1e-7f, 12345.678f, 2 / 3f, 0.1f, -7.0000005f, 0, 1, 1e9f + 64, 5, 6, 7},
+                    new float[0], new float[]{0.5773503f, -0.5773503f, 0.5773503f},
+                    new int[]{0, 4}, new int[]{0, 1, 2, 3}, new int[0], new int[]{0, 0, 0, 0});
+            MeshData triangulated = ModelTriangulator.triangulate(mesh);
+
+            ObjWriter.writeCached(mesh, triangulated, file);
+            MeshCache cache = MeshCache.load(file);
+
+            Assertions.assertNotNull(cache);
+            MeshData parsed = ObjReader.readMesh(file);
+            assertSameMesh(parsed, cache.getMesh());
+            assertSameMesh(ModelTriangulator.triangulate(parsed), cache.getTriangulatedMesh());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.cgvsu.meshcache;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.TriangulatedModel;
+import com.cgvsu.objreader.ObjReaderException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+class ModelCacheTest {
+
+    // сетка из size x size квадратов
+    private static String grid(int size) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i <= size; i++) {
+            for (int j = 0; j <= size; j++) {
+                content.append("v ").append(i).append(' ').append(j).append(" 0\n");
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                final int a = i * (size + 1) + j + 1;
+                content.append("f ").append(a).append(' ').append(a + size + 1).append(' ')
+                        .append(a + size + 2).append(' ').append(a + 1).append('\n');
+            }
+        }
+        return content.toString();
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneLoad() throws Exception {
+        Path directory = Files.createTempDirectory("modelcache");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Path file = directory.resolve("grid.obj");
+            Files.writeString(file, grid(100));
+            ModelCache cache = new ModelCache(1L << 30);
+
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<TriangulatedModel>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.getTriangulatedModel(file);
+                }));
+            }
+            start.countDown();
+            final TriangulatedModel first = results.get(0).get();
+            for (Future<TriangulatedModel> result : results) {
+                Assertions.assertSame(first, result.get());
+            }
+            Assertions.assertEquals(2 * 100 * 100, first.polygons.size());
+
+            // одна загрузка модели и одна триангуляция, остальные запросы ждали их или попали в готовое
+            ModelCacheStatistics statistics = cache.getStatistics();
+            Assertions.assertEquals(2, statistics.getMissCount());
+            Assertions.assertEquals(7, statistics.getHitCount() + statistics.getCoalescedCount());
+            Assertions.assertEquals(2, statistics.getEntryCount());
+            Assertions.assertEquals(0, statistics.getEvictionCount());
+            // один и тот же файл под другим путем - тот же ключ
+            Path samePath = directory.resolve("..").resolve(directory.getFileName()).resolve("grid.obj");
+            Assertions.assertSame(cache.getModel(file), cache.getModel(samePath));
+        } finally {
+            executor.shutdown();
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testEvictionByPolicyWithinBudget() throws IOException {
+        Path directory = Files.createTempDirectory("modelcache");
+        try {
+            final Path[] files = new Path[3];
+            for (int i = 0; i < files.length; i++) {
+                files[i] = directory.resolve("grid" + i + ".obj");
+                Files.writeString(files[i], grid(40));
+            }
+            ModelCache measure = new ModelCache(Long.MAX_VALUE);
+            measure.getMesh(files[0]);
+            final long weight = measure.getStatistics().getWeightBytes();
+
+            // в бюджет помещаются две сетки
+            ModelCache lru = new ModelCache(weight * 5 / 2, ModelCache.Policy.LRU, null);
+            MeshData mesh0 = lru.getMesh(files[0]);
+            lru.getMesh(files[1]);
+            Assertions.assertSame(mesh0, lru.getMesh(files[0]));
+            lru.getMesh(files[2]);
+            ModelCacheStatistics statistics = lru.getStatistics();
+            Assertions.assertEquals(1, statistics.getEvictionCount());
+            Assertions.assertEquals(weight, statistics.getEvictedBytes());
+            Assertions.assertEquals(2 * weight, statistics.getWeightBytes());
+            // вытеснена grid1, к которой дольше всех не обращались
+            Assertions.assertSame(mesh0, lru.getMesh(files[0]));
+            lru.getMesh(files[1]);
+            Assertions.assertEquals(4, lru.getStatistics().getMissCount());
+
+            ModelCache lfu = new ModelCache(weight * 5 / 2, ModelCache.Policy.LFU, null);
+            lfu.getMesh(files[0]);
+            lfu.getMesh(files[0]);
+            lfu.getMesh(files[1]);
+            lfu.getMesh(files[1]);
+            lfu.getMesh(files[0]);
+            // у grid1 меньше обращений, чем у grid0, хотя обращались к ней позже
+            lfu.getMesh(files[2]);
+            lfu.getMesh(files[2]);
+            lfu.getMesh(files[0]);
+            Assertions.assertEquals(3, lfu.getStatistics().getMissCount());
+            lfu.getMesh(files[1]);
+            Assertions.assertEquals(4, lfu.getStatistics().getMissCount());
+
+            // модель больше бюджета возвращается, но не вытесняет остальные
+            ModelCache small = new ModelCache(weight / 2);
+            small.getMesh(files[0]);
+            Assertions.assertEquals(0, small.getStatistics().getEntryCount());
+            Assertions.assertEquals(1, small.getStatistics().getEvictionCount());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testTriangulatedModelLeavesWithItsSource() throws IOException {
+        Path directory = Files.createTempDirectory("modelcache");
+        try {
+            Path first = directory.resolve("first.obj");
+            Path second = directory.resolve("second.obj");
+            Files.writeString(first, grid(40));
+            Files.writeString(second, grid(40));
+            ModelCache measure = new ModelCache(Long.MAX_VALUE);
+            final TriangulatedModel triangulated = measure.getTriangulatedModel(first);
+            final long modelWeight = ModelCache.estimateBytes(measure.getModel(first), true);
+            final long triangulatedWeight = ModelCache.estimateBytes(triangulated, false);
+            Assertions.assertEquals(modelWeight + triangulatedWeight, measure.getStatistics().getWeightBytes());
+            final long meshWeight = ModelCache.estimateBytes(measure.getMesh(second), true);
+
+            // обе записи first и сетка second вместе в бюджет не помещаются
+            final long budget = modelWeight + triangulatedWeight + meshWeight / 2;
+            ModelCache cache = new ModelCache(budget);
+            cache.getTriangulatedModel(first);
+            // к триангулированной модели обращались позже, чем к исходной, поэтому вытесняется исходная
+            cache.getTriangulatedModel(first);
+            cache.getMesh(second);
+
+            // триангулированная модель держит те же вершины, поэтому уходит вместе с исходной
+            ModelCacheStatistics statistics = cache.getStatistics();
+            Assertions.assertEquals(1, statistics.getEntryCount());
+            Assertions.assertEquals(meshWeight, statistics.getWeightBytes());
+            Assertions.assertEquals(2, statistics.getEvictionCount());
+            Assertions.assertEquals(modelWeight + triangulatedWeight, statistics.getEvictedBytes());
+            Assertions.assertTrue(statistics.getWeightBytes() <= budget);
+
+            // источник не вытесняется ради своей же триангуляции, даже при LFU
+            ModelCache lfu = new ModelCache(modelWeight + triangulatedWeight, ModelCache.Policy.LFU, null);
+            lfu.getTriangulatedModel(first);
+            Assertions.assertEquals(2, lfu.getStatistics().getEntryCount());
+            Assertions.assertEquals(modelWeight + triangulatedWeight, lfu.getStatistics().getWeightBytes());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testChangedFilesAndFailedLoads() throws IOException {
+        Path directory = Files.createTempDirectory("modelcache");
+        try {
+            Path file = directory.resolve("model.obj");
+            Files.writeString(file, grid(2));
+            ModelCache cache = new ModelCache(1L << 30);
+            Model original = cache.getModel(file);
+            Assertions.assertEquals(9, original.vertices.size());
+
+            // другое содержимое - другой ключ, а запись для прежнего содержимого уходит из кеша
+            Files.writeString(file, grid(3));
+            Model changed = cache.getModel(file);
+            Assertions.assertEquals(16, changed.vertices.size());
+            Assertions.assertEquals(1, cache.getStatistics().getEntryCount());
+
+            cache.invalidate(file);
+            Assertions.assertEquals(0, cache.getStatistics().getEntryCount());
+            Assertions.assertEquals(0, cache.getStatistics().getWeightBytes());
+            Assertions.assertFalse(changed == cache.getModel(file));
+
+            // ошибка разбора доходит до вызывающего и не кешируется
+            Path broken = directory.resolve("broken.obj");
+            Files.writeString(broken, "v 1 2\n");
+            Assertions.assertThrows(ObjReaderException.class, () -> cache.getModel(broken));
+            Assertions.assertThrows(ObjReaderException.class, () -> cache.getModel(broken));
+            Assertions.assertEquals(2, cache.getStatistics().getLoadFailureCount());
+            Assertions.assertThrows(NoSuchFileException.class, () -> cache.getModel(directory.resolve("none.obj")));
+
+            cache.clear();
+            Assertions.assertEquals(0, cache.getStatistics().getWeightBytes());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.cgvsu.metrics;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.TriangulatedModel;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+class PipelineMetricsTest {
+
+    private static final String QUADS = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            v 2 0 0
+            v 2 1 0
+            f 1 2 3 4
+            f 2 5 6 3
+            """;
+
+    @Test
+    public void testStagesAccumulate() {
+        PipelineMetrics metrics = new PipelineMetrics("model");
+        metrics.begin(PipelineMetrics.Stage.PARSE);
+        metrics.end(PipelineMetrics.Stage.PARSE, 1000, 10);
+        metrics.begin(PipelineMetrics.Stage.PARSE);
+        metrics.end(PipelineMetrics.Stage.PARSE, 500, 5);
+
+        Assertions.assertEquals(2, metrics.getCount(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(1500, metrics.getBytes(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(15, metrics.getElements(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(0, metrics.getCount(PipelineMetrics.Stage.WRITE));
+        Assertions.assertEquals(0.0, metrics.getBytesPerSecond(PipelineMetrics.Stage.WRITE));
+        Assertions.assertTrue(metrics.getNanos(PipelineMetrics.Stage.PARSE) > 0);
+        Assertions.assertTrue(metrics.getPeakHeapBytes() > 0);
+
+        metrics.clear();
+        Assertions.assertEquals(0, metrics.getCount(PipelineMetrics.Stage.PARSE));
+        Assertions.assertEquals(0, metrics.getTotalNanos());
+    }
+
+    @Test
+    public void testStageWithoutPoolCountsCallerOnly() {
+        PipelineMetrics metrics = new PipelineMetrics("model");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            metrics.begin(PipelineMetrics.Stage.VALIDATE, null);
+            final long[] local = new long[1 << 20];
+            // память другого потока в стадию без пула не попадает
+            final int length = pool.submit(() -> new long[1 << 23].length).join();
+            metrics.end(PipelineMetrics.Stage.VALIDATE, 0, local.length + length);
+        } finally {
+            pool.shutdown();
+        }
+        final long allocated = metrics.getAllocatedBytes(PipelineMetrics.Stage.VALIDATE);
+        if (allocated != -1) {
+            Assertions.assertTrue(allocated >= 8L << 20);
+            Assertions.assertTrue(allocated < 32L << 20);
+        }
+    }
+
+    @Test
+    public void testAllocationOnPoolThreadsIsCounted() {
+        PipelineMetrics metrics = new PipelineMetrics("model");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            metrics.begin(PipelineMetrics.Stage.TRIANGULATE);
+            final int length = pool.submit(() -> new long[1 << 20].length).join();
+            metrics.end(PipelineMetrics.Stage.TRIANGULATE, 0, length);
+        } finally {
+            pool.shutdown();
+        }
+        final long allocated = metrics.getAllocatedBytes(PipelineMetrics.Stage.TRIANGULATE);
+        // -1 - JVM без счетчика выделенной памяти потоков
+        if (allocated != -1) {
+            Assertions.assertTrue(allocated >= 8L << 20);
+        }
+    }
+
+    @Test
+    public void testMeasuredPipelineRecordsEveryStage() throws IOException {
+        Path input = Files.createTempFile("metrics", ".obj");
+        Path output = Files.createTempFile("metrics", ".obj");
+        try {
+            Files.writeString(input, QUADS);
+            PipelineMetrics metrics = new PipelineMetrics("quads");
+
+            Model model = MeasuredPipeline.read(input, metrics);
+            TriangulatedModel triangulated = MeasuredPipeline.triangulate(model, metrics);
+            Assertions.assertTrue(MeasuredPipeline.validate(triangulated, metrics).isValid());
+            MeasuredPipeline.write(triangulated, output, metrics);
+
+            Assertions.assertEquals(Files.size(input), metrics.getBytes(PipelineMetrics.Stage.PARSE));
+            Assertions.assertEquals(2, metrics.getElements(PipelineMetrics.Stage.PARSE));
+            Assertions.assertEquals(2, metrics.getElements(PipelineMetrics.Stage.TRIANGULATE));
+            Assertions.assertEquals(4, metrics.getElements(PipelineMetrics.Stage.VALIDATE));
+            Assertions.assertEquals(Files.size(output), metrics.getBytes(PipelineMetrics.Stage.WRITE));
+            for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+                Assertions.assertEquals(1, metrics.getCount(stage));
+            }
+            Assertions.assertTrue(metrics.toString().contains("parse"));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    public void testJfrEventsAreEmittedWhenEnabled() throws IOException {
+        Path dump = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.cgvsu.ObjStage");
+            recording.start();
+            PipelineMetrics metrics = new PipelineMetrics("events", true);
+            metrics.begin(PipelineMetrics.Stage.TRIANGULATE);
+            metrics.end(PipelineMetrics.Stage.TRIANGULATE, 0, 42);
+            // без jfrEvents событие не пишется
+            PipelineMetrics silent = new PipelineMetrics("silent");
+            silent.begin(PipelineMetrics.Stage.WRITE);
+            silent.end(PipelineMetrics.Stage.WRITE, 1, 1);
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+                if (event.getEventType().getName().equals("com.cgvsu.ObjStage")) {
+                    events.add(event);
+                }
+            }
+            Assertions.assertEquals(1, events.size());
+            Assertions.assertEquals("events", events.get(0).getString("model"));
+            Assertions.assertEquals("TRIANGULATE", events.get(0).getString("stage"));
+            Assertions.assertEquals(42, events.get(0).getLong("elements"));
+        } finally {
+            Files.delete(dump);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.cgvsu.model;
+
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.offheap.OffHeapStorage;
+import com.cgvsu.triangulation.ModelTriangulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class MeshDataTest {
+
+    private static final String CONTENT = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            vt 0 0
+            vt 1 0
+            vt 1 1
+            vn 0 0 1
+            f 1 2 3 4
+            f 1/1 2/2 3/3
+            f 1//1 3//1 4//1
+            """;
+
+    private static MeshData readMesh(String content) throws IOException {
+        return ObjReader.readMesh(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testReadMeshMatchesModel() throws IOException {
+        MeshData mesh = readMesh(CONTENT);
+        Model model = ObjReader.read(CONTENT);
+
+        Assertions.assertEquals(4, mesh.getVertexCount());
+        Assertions.assertEquals(3, mesh.getFaceCount());
+        Assertions.assertArrayEquals(new int[]{0, 4, 7, 10}, mesh.faceOffsets);
+        Assertions.assertFalse(mesh.hasTextureCoordinates(0));
+        Assertions.assertTrue(mesh.hasTextureCoordinates(1));
+        Assertions.assertTrue(mesh.hasNormals(2));
+
+        Model converted = mesh.toModel();
+        for (int i = 0; i < model.polygons.size(); i++) {
+            Polygon expected = model.polygons.get(i);
+            Polygon result = converted.polygons.get(i);
+            Assertions.assertEquals(expected.getVertexIndices(), result.getVertexIndices());
+            Assertions.assertEquals(expected.getTextureVertexIndices(), result.getTextureVertexIndices());
+            Assertions.assertEquals(expected.getNormalIndices(), result.getNormalIndices());
+        }
+    }
+
+    @Test
+    public void testFromModelRoundTrip() throws IOException {
+        MeshData mesh = MeshData.fromModel(ObjReader.read(CONTENT));
+        MeshData expected = readMesh(CONTENT);
+
+        Assertions.assertArrayEquals(expected.positions, mesh.positions);
+        Assertions.assertArrayEquals(expected.faceOffsets, mesh.faceOffsets);
+        Assertions.assertArrayEquals(expected.vertexIndices, mesh.vertexIndices);
+        Assertions.assertArrayEquals(expected.textureVertexIndices, mesh.textureVertexIndices);
+        Assertions.assertArrayEquals(expected.normalIndices, mesh.normalIndices);
+    }
+
+    @Test
+    public void testTriangulateMesh() throws IOException {
+        MeshData triangulated = ModelTriangulator.triangulate(readMesh(CONTENT));
+
+        Assertions.assertEquals(4, triangulated.getFaceCount());
+        Assertions.assertTrue(triangulated.allFacesAreTriangles());
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3, 0, 1, 2, 0, 2, 3}, triangulated.vertexIndices);
+        Assertions.assertEquals(MeshData.NO_INDEX, triangulated.textureVertexIndices[0]);
+        Assertions.assertEquals(2, triangulated.textureVertexIndices[8]);
+    }
+
+    @Test
+    public void testOffHeapMeshMatchesMeshData() throws IOException {
+        MeshData expected = ModelTriangulator.triangulate(readMesh(CONTENT));
+        Path file = Files.createTempFile("offheap", ".obj");
+        try (OffHeapStorage storage = OffHeapStorage.fileBacked(file.getParent())) {
+            Files.writeString(file, CONTENT);
+            OffHeapMesh result = ModelTriangulator.triangulate(ObjReader.readOffHeap(file, storage), storage);
+
+            Assertions.assertEquals(expected.getVertexCount(), result.getVertexCount());
+            Assertions.assertEquals(expected.getFaceCount(), result.getFaceCount());
+            for (int corner = 0; corner < expected.vertexIndices.length; corner++) {
+                Assertions.assertEquals(expected.getVertexIndex(corner), result.getVertexIndex(corner));
+                Assertions.assertEquals(expected.getTextureVertexIndex(corner), result.getTextureVertexIndex(corner));
+                Assertions.assertEquals(expected.getNormalIndex(corner), result.getNormalIndex(corner));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.cgvsu.normals;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.triangulation.ModelTriangulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+class NormalGeneratorTest {
+
+    // единичный куб, грани смотрят наружу
+    private static final String CUBE = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            v 0 0 1
+            v 1 0 1
+            v 1 1 1
+            v 0 1 1
+            f 1 4 3 2
+            f 5 6 7 8
+            f 1 2 6 5
+            f 3 4 8 7
+            f 1 5 8 4
+            f 2 3 7 6
+            """;
+
+    private static MeshData cube() {
+        return ModelTriangulator.triangulate(MeshData.fromModel(ObjReader.read(CUBE)));
+    }
+
+    @Test
+    public void testSmoothCubeNormalsPointAlongDiagonals() {
+        MeshData mesh = cube();
+
+        NormalGenerator.generate(mesh);
+
+        // вес по углу не зависит от разбиения граней: у каждой вершины своя диагональная нормаль
+        Assertions.assertEquals(8, mesh.getNormalCount());
+        final float expected = (float) (1 / Math.sqrt(3));
+        for (int corner = 0; corner < mesh.vertexIndices.length; corner++) {
+            final int vertex = mesh.vertexIndices[corner];
+            final int normal = mesh.normalIndices[corner];
+            for (int axis = 0; axis < 3; axis++) {
+                final float direction = mesh.positions[3 * vertex + axis] == 0 ? -expected : expected;
+                Assertions.assertEquals(direction, mesh.normals[3 * normal + axis], 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    public void testAreaWeightingDependsOnTriangulation() {
+        MeshData mesh = cube();
+
+        NormalGenerator.generate(mesh, NormalGenerator.Weighting.AREA, NormalGenerator.SMOOTH_ALL, null);
+
+        // вершина 2 - начало веера правой грани: вес правой грани вдвое больше, чем нижней и передней
+        int corner = 0;
+        while (mesh.vertexIndices[corner] != 1) {
+            corner++;
+        }
+        final int normal = mesh.normalIndices[corner];
+        Assertions.assertEquals(-2 * mesh.normals[3 * normal + 1], mesh.normals[3 * normal], 1e-6f);
+        Assertions.assertEquals(mesh.normals[3 * normal + 1], mesh.normals[3 * normal + 2], 1e-6f);
+    }
+
+    @Test
+    public void testCreaseAngleSplitsHardEdges() {
+        MeshData mesh = cube();
+
+        NormalGenerator.generate(mesh, NormalGenerator.Weighting.ANGLE, 60, null);
+
+        // по три нормали у каждой вершины, и у каждого угла - нормаль его грани
+        Assertions.assertEquals(24, mesh.getNormalCount());
+        for (int triangle = 0; triangle < mesh.getFaceCount(); triangle++) {
+            for (int corner = 3 * triangle; corner < 3 * triangle + 3; corner++) {
+                final int normal = mesh.normalIndices[corner];
+                float length = 0;
+                for (int axis = 0; axis < 3; axis++) {
+                    final float component = mesh.normals[3 * normal + axis];
+                    Assertions.assertEquals(mesh.normals[3 * mesh.normalIndices[3 * triangle] + axis], component);
+                    Assertions.assertEquals(Math.abs(component), Math.round(Math.abs(component)), 1e-6f);
+                    length += Math.abs(component);
+                }
+                Assertions.assertEquals(1f, length, 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelResultMatchesSequential() {
+        // сетка из нескольких блоков вершин с волнистой поверхностью
+        final int size = 200;
+        final float[] positions = new float[3 * size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                final int vertex = i * size + j;
+                positions[3 * vertex] = i;
+                positions[3 * vertex + 1] = j;
+                positions[3 * vertex + 2] = (float) (Math.sin(i * 0.7) * Math.cos(j * 1.3));
+            }
+        }
+        final int triangleCount = 2 * (size - 1) * (size - 1);
+        final int[] vertexIndices = new int[3 * triangleCount];
+        int corner = 0;
+        for (int i = 0; i < size - 1; i++) {
+            for (int j = 0; j < size - 1; j++) {
+                final int vertex = i * size + j;
+                vertexIndices[corner++] = vertex;
+                vertexIndices[corner++] = vertex + size;
+                vertexIndices[corner++] = vertex + 1;
+                vertexIndices[corner++] = vertex + 1;
+                vertexIndices[corner++] = vertex + size;
+                vertexIndices[corner++] = vertex + size + 1;
+            }
+        }
+        MeshData sequential = new MeshData(positions, new float[0], new float[0],
+                MeshData.triangleFaceOffsets(triangleCount), vertexIndices, new int[0], new int[0]);
+        MeshData parallel = new MeshData(positions, new float[0], new float[0],
+                MeshData.triangleFaceOffsets(triangleCount), vertexIndices, new int[0], new int[0]);
+
+        NormalGenerator.generate(sequential, NormalGenerator.Weighting.AREA, 30, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NormalGenerator.generate(parallel, NormalGenerator.Weighting.AREA, 30, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        Assertions.assertTrue(sequential.getNormalCount() > size * size);
+        Assertions.assertArrayEquals(sequential.normals, parallel.normals);
+        Assertions.assertArrayEquals(sequential.normalIndices, parallel.normalIndices);
+    }
+
+    @Test
+    public void testModelMatchesMeshDataAndKeepsOriginalPolygons() {
+        Model original = ObjReader.read(CUBE);
+        Model model = ModelTriangulator.triangulate(original);
+        MeshData mesh = cube();
+
+        NormalGenerator.generate(model, NormalGenerator.Weighting.ANGLE, 60, null);
+        NormalGenerator.generate(mesh, NormalGenerator.Weighting.ANGLE, 60, null);
+
+        Assertions.assertEquals(mesh.getNormalCount(), model.normals.size());
+        for (int triangle = 0; triangle < model.polygons.size(); triangle++) {
+            ArrayList<Integer> normalIndices = model.polygons.get(triangle).getNormalIndices();
+            for (int k = 0; k < 3; k++) {
+                Assertions.assertEquals(mesh.normalIndices[3 * triangle + k], (int) normalIndices.get(k));
+                Vector3f normal = model.normals.get(normalIndices.get(k));
+                Assertions.assertEquals(mesh.normals[3 * normalIndices.get(k)], normal.x);
+            }
+        }
+        for (Polygon polygon : original.polygons) {
+            Assertions.assertFalse(polygon.hasNormals());
+        }
+    }
+
+    @Test
+    public void testRejectsPolygons() {
+        MeshData mesh = MeshData.fromModel(ObjReader.read(CUBE));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> NormalGenerator.generate(mesh));
+    }
+}
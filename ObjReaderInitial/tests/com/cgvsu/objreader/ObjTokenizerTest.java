@@ -0,0 +1,123 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+class ObjTokenizerTest {
+
+    private static ObjTokenizer tokenizer(String content) {
+        return new ObjTokenizer(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testFloatsMatchFloatParseFloat() throws IOException {
+        String[] words = {
+                "0", "-0", "1", "-3.701685", "0.93954897", "1.", ".5", "+2.25", "1e5", "1.5E-3",
+                "123456789.123456789", "0.000000000000000000001", "3.4028235e38", "1.4e-45",
+                "16777217", "0.1", "1.0f", "NaN", "-Infinity", "0x1p3"
+        };
+        String line = "v " + String.join(" ", words);
+        ObjTokenizer tokenizer = tokenizer(line);
+        Assertions.assertTrue(tokenizer.nextLine());
+        Assertions.assertEquals(ObjTokenizer.Keyword.VERTEX, tokenizer.nextKeyword());
+        for (String word : words) {
+            float expected = Float.parseFloat(word);
+            Assertions.assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(tokenizer.nextFloat("")), word);
+        }
+        Assertions.assertFalse(tokenizer.hasNextWord());
+    }
+
+    @Test
+    public void testRandomFloatsMatchFloatParseFloat() throws IOException {
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder();
+        String[] words = new String[10000];
+        for (int i = 0; i < words.length; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 6);
+            words[i] = switch (i % 3) {
+                case 0 -> Float.toString((float) value);
+                case 1 -> String.format(java.util.Locale.US, "%.6f", value);
+                default -> Double.toString(value);
+            };
+            content.append("vn ").append(words[i]).append(" 0 0\n");
+        }
+
+        ObjTokenizer tokenizer = tokenizer(content.toString());
+        for (String word : words) {
+            Assertions.assertTrue(tokenizer.nextLine());
+            Assertions.assertEquals(ObjTokenizer.Keyword.NORMAL, tokenizer.nextKeyword());
+            Assertions.assertEquals(Float.parseFloat(word), tokenizer.nextFloat(""), 0.0f);
+        }
+        Assertions.assertFalse(tokenizer.nextLine());
+    }
+
+    @Test
+    public void testFaceWords() throws IOException {
+        ObjTokenizer tokenizer = tokenizer("f 1 2/3 4//5 6/7/8 9/10/");
+        FaceIndices face = new FaceIndices();
+        tokenizer.nextLine();
+        Assertions.assertEquals(ObjTokenizer.Keyword.FACE, tokenizer.nextKeyword());
+        while (tokenizer.hasNextWord()) {
+            tokenizer.nextFaceWord(face);
+        }
+        Assertions.assertArrayEquals(new int[]{1, 2, 4, 6, 9}, Arrays.copyOf(face.vertexIndices, face.vertexCount));
+        Assertions.assertArrayEquals(new int[]{3, 7, 10}, Arrays.copyOf(face.textureVertexIndices, face.textureVertexCount));
+        Assertions.assertArrayEquals(new int[]{5, 8}, Arrays.copyOf(face.normalIndices, face.normalCount));
+    }
+
+    @Test
+    public void testInvalidFaceWordReportsLine() throws IOException {
+        ObjTokenizer tokenizer = tokenizer("v 1 2 3\r\n\r\nf 1/2/3/4");
+        FaceIndices face = new FaceIndices();
+        tokenizer.nextLine();
+        tokenizer.nextLine();
+        tokenizer.nextLine();
+        tokenizer.nextKeyword();
+        try {
+            tokenizer.nextFaceWord(face);
+            Assertions.fail();
+
+        } catch (ObjReaderException exception) {
+            String expectedError = "Error parsing OBJ file on line: 3. Invalid element size.";
+            Assertions.assertEquals(expectedError, exception.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidIntReportsLine() {
+        try {
+            ObjReader.read("v 1 2 3\nv 1 2 3\nf 1 2 x\n");
+            Assertions.fail();
+
+        } catch (ObjReaderException exception) {
+            String expectedError = "Error parsing OBJ file on line: 3. Failed to parse int value.";
+            Assertions.assertEquals(expectedError, exception.getMessage());
+        }
+    }
+
+    @Test
+    public void testLongLinesAcrossBufferBoundary() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            content.append("v 0 0 0\n");
+        }
+        content.append("f");
+        for (int i = 0; i < 40000; i++) {
+            content.append(' ').append(i % 4 + 1);
+        }
+        content.append("\n# comment\n");
+
+        Model model = ObjReader.read(content.toString());
+        Assertions.assertEquals(4, model.vertices.size());
+        Assertions.assertEquals(1, model.polygons.size());
+        Assertions.assertEquals(40000, model.polygons.get(0).getVertexIndices().size());
+        Assertions.assertEquals(3, (int) model.polygons.get(0).getVertexIndices().get(39999));
+    }
+}
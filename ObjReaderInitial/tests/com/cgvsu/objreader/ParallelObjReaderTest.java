@@ -0,0 +1,201 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.objwriter.ObjWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+class ParallelObjReaderTest {
+
+    private static Model readInChunks(String content, long chunkSize) throws IOException {
+        Path file = Files.createTempFile("parallel", ".obj");
+        try {
+            Files.writeString(file, content);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return ParallelObjReader.read(channel, ForkJoinPool.commonPool(), chunkSize);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static MeshData readMeshInChunks(String content, long chunkSize) throws IOException {
+        Path file = Files.createTempFile("parallel", ".obj");
+        try {
+            Files.writeString(file, content);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return ParallelObjReader.readMesh(channel, ForkJoinPool.commonPool(), chunkSize);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static String gridWithRelativeIndices(int size) {
+        StringBuilder content = new StringBuilder("# grid\n");
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                content.append("v ").append(i).append(' ').append(j).append(" 0\r\n");
+                content.append("vt ").append(i).append(' ').append(j).append('\n');
+            }
+            if (i > 0) {
+                for (int j = 1; j < size; j++) {
+                    // отрицательные индексы ссылаются на вершины предыдущих строк, в том числе из других кусков
+                    int a = -(size - j + 1) - size;
+                    content.append("f");
+                    for (int corner : new int[]{a, a + 1, a + size + 1, a + size}) {
+                        content.append(' ').append(corner).append('/').append(corner);
+                    }
+                    content.append('\n');
+                }
+            }
+            content.append("vn 0 0 1\n");
+        }
+        return content.toString();
+    }
+
+    @Test
+    public void testChunksMatchSequentialRead() throws IOException {
+        String content = gridWithRelativeIndices(20);
+        Model expected = ObjReader.read(content);
+        Assertions.assertTrue(ObjWriter.validateModelIndices(expected));
+
+        for (long chunkSize : new long[]{1, 7, 64, 1000, 1 << 20}) {
+            Model result = readInChunks(content, chunkSize);
+            Assertions.assertEquals(expected.vertices.size(), result.vertices.size());
+            Assertions.assertEquals(expected.textureVertices.size(), result.textureVertices.size());
+            Assertions.assertEquals(expected.normals.size(), result.normals.size());
+            Assertions.assertEquals(expected.polygons.size(), result.polygons.size());
+            for (int i = 0; i < expected.vertices.size(); i++) {
+                Assertions.assertTrue(expected.vertices.get(i).equals(result.vertices.get(i)));
+            }
+            for (int i = 0; i < expected.polygons.size(); i++) {
+                Assertions.assertEquals(expected.polygons.get(i).getVertexIndices(),
+                        result.polygons.get(i).getVertexIndices());
+                Assertions.assertEquals(expected.polygons.get(i).getTextureVertexIndices(),
+                        result.polygons.get(i).getTextureVertexIndices());
+            }
+        }
+    }
+
+    @Test
+    public void testMeshChunksMatchSequentialRead() throws IOException {
+        String content = gridWithRelativeIndices(20);
+        MeshData expected = ObjReader.readMesh(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+        for (long chunkSize : new long[]{1, 64, 1 << 20}) {
+            MeshData result = readMeshInChunks(content, chunkSize);
+            Assertions.assertArrayEquals(expected.positions, result.positions);
+            Assertions.assertArrayEquals(expected.textureVertices, result.textureVertices);
+            Assertions.assertArrayEquals(expected.faceOffsets, result.faceOffsets);
+            Assertions.assertArrayEquals(expected.vertexIndices, result.vertexIndices);
+            Assertions.assertArrayEquals(expected.textureVertexIndices, result.textureVertexIndices);
+            Assertions.assertArrayEquals(expected.normalIndices, result.normalIndices);
+        }
+    }
+
+    @Test
+    public void testErrorLineIsCountedFromFileStart() throws IOException {
+        String content = gridWithRelativeIndices(10) + "v 1 2\n";
+        int lineCount = content.split("\n").length;
+        try {
+            readInChunks(content, 50);
+            Assertions.fail();
+
+        } catch (ObjReaderException exception) {
+            String expectedError = "Error parsing OBJ file on line: " + lineCount + ". Too few vertex arguments.";
+            Assertions.assertEquals(expectedError, exception.getMessage());
+        }
+    }
+
+    private static InputStream compressed(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream output = new GZIPOutputStream(bytes)) {
+            output.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testCompressedChunksMatchSequentialRead() throws IOException {
+        String content = gridWithRelativeIndices(20);
+        MeshData expected = ObjReader.readMesh(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        Model expectedModel = ObjReader.read(content);
+
+        // строки граней длиннее 16 байт, поэтому самый маленький буфер приходится увеличивать
+        for (int chunkSize : new int[]{16, 100, 1 << 20}) {
+            MeshData result = ParallelObjReader.mergeMesh(
+                    ParallelObjReader.parseChunks(compressed(content), ForkJoinPool.commonPool(), chunkSize),
+                    ForkJoinPool.commonPool());
+            Assertions.assertArrayEquals(expected.positions, result.positions);
+            Assertions.assertArrayEquals(expected.textureVertices, result.textureVertices);
+            Assertions.assertArrayEquals(expected.faceOffsets, result.faceOffsets);
+            Assertions.assertArrayEquals(expected.vertexIndices, result.vertexIndices);
+            Assertions.assertArrayEquals(expected.textureVertexIndices, result.textureVertexIndices);
+
+            Model model = ParallelObjReader.merge(
+                    ParallelObjReader.parseChunks(compressed(content), ForkJoinPool.commonPool(), chunkSize),
+                    ForkJoinPool.commonPool());
+            Assertions.assertEquals(expectedModel.polygons.size(), model.polygons.size());
+            Assertions.assertEquals(expectedModel.normals.size(), model.normals.size());
+        }
+
+        // файл без перевода строки в конце
+        String error = content + "v 1 2";
+        int lineCount = error.split("\n").length;
+        try {
+            ParallelObjReader.merge(ParallelObjReader.parseChunks(compressed(error), ForkJoinPool.commonPool(), 100),
+                    ForkJoinPool.commonPool());
+            Assertions.fail();
+
+        } catch (ObjReaderException exception) {
+            String expectedError = "Error parsing OBJ file on line: " + lineCount + ". Too few vertex arguments.";
+            Assertions.assertEquals(expectedError, exception.getMessage());
+        }
+    }
+
+    @Test
+    public void testCompressedChunksSplitAtCarriageReturns() throws IOException {
+        String content = gridWithRelativeIndices(20).replace("\r\n", "\n");
+        MeshData expected = ObjReader.readMesh(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        final int lineCount = content.split("\n").length + 1;
+
+        for (String lineEnd : new String[]{"\r", "\r\n"}) {
+            String text = content.replace("\n", lineEnd);
+            // в конце ошибка: по ее номеру строки видно, что "\r\n" на границе кусков не стал двумя концами строк
+            String error = text + "v 1 2";
+            // при разных размерах буфер заканчивается и на '\r', и на '\n'
+            for (int chunkSize = 40; chunkSize < 60; chunkSize++) {
+                List<ObjChunk> chunks = ParallelObjReader.parseChunks(compressed(text), ForkJoinPool.commonPool(),
+                        chunkSize);
+                // текст не собирается в один буфер
+                Assertions.assertTrue(chunks.size() > 100);
+                Assertions.assertArrayEquals(expected.vertexIndices,
+                        ParallelObjReader.mergeMesh(chunks, ForkJoinPool.commonPool()).vertexIndices);
+                try {
+                    ParallelObjReader.merge(ParallelObjReader.parseChunks(compressed(error),
+                            ForkJoinPool.commonPool(), chunkSize), ForkJoinPool.commonPool());
+                    Assertions.fail();
+                } catch (ObjReaderException exception) {
+                    Assertions.assertEquals("Error parsing OBJ file on line: " + lineCount
+                            + ". Too few vertex arguments.", exception.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.objreader.ObjIndex.Kind;
+import com.cgvsu.util.FloatArrayList;
+import com.cgvsu.util.IntArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+class SelectiveObjReaderTest {
+
+    private static final int SIZE = 30;
+    private static final int PART_COUNT = 4;
+
+    // Для каждой грани сцены - объект, группа и материал, которым она принадлежит
+    private static final List<String> FACE_OBJECTS = new ArrayList<>();
+    private static final List<String> FACE_GROUPS = new ArrayList<>();
+    private static final List<String> FACE_MATERIALS = new ArrayList<>();
+
+    // Несколько сеток SIZE x SIZE, у каждой свои вершины (вместе больше ELEMENTS_PER_CHECKPOINT).
+    // У четных объектов индексы отрицательные, у нечетных - абсолютные. Посреди part2 меняется материал,
+    // а последняя грань part3 ссылается на вершины part0 из другого конца файла.
+    private static String scene() {
+        FACE_OBJECTS.clear();
+        FACE_GROUPS.clear();
+        FACE_MATERIALS.clear();
+        StringBuilder content = new StringBuilder("# scene\nmtllib scene.mtl\n");
+        String material = "stone";
+        content.append("usemtl stone\n");
+        for (int part = 0; part < PART_COUNT; part++) {
+            final String object = "part" + part;
+            final String group = part % 2 == 0 ? "even" : "odd";
+            content.append("o ").append(object).append("\r\n");
+            final int base = part * SIZE * SIZE;
+            for (int i = 0; i < SIZE; i++) {
+                for (int j = 0; j < SIZE; j++) {
+                    content.append("v ").append(i).append(' ').append(j).append(' ').append(part).append('\n');
+                    content.append("vt ").append(i / (float) SIZE).append(' ').append(j / (float) SIZE).append('\n');
+                }
+            }
+            content.append("g ").append(group).append(" all\n");
+            for (int i = 0; i < SIZE - 1; i++) {
+                if (part == 2 && i == SIZE / 2) {
+                    material = "metal";
+                    content.append("usemtl metal\n");
+                }
+                for (int j = 0; j < SIZE - 1; j++) {
+                    final int a = base + i * SIZE + j + 1;
+                    content.append('f');
+                    for (int corner : new int[]{a, a + SIZE, a + SIZE + 1, a + 1}) {
+                        final int index = part % 2 == 0 ? corner - (base + SIZE * SIZE) - 1 : corner;
+                        content.append(' ').append(index).append('/').append(index);
+                    }
+                    content.append('\n');
+                    FACE_OBJECTS.add(object);
+                    FACE_GROUPS.add(group);
+                    FACE_MATERIALS.add(material);
+                }
+            }
+            if (part == PART_COUNT - 1) {
+                content.append("f 1/1 2/2 ").append(SIZE + 1).append('/').append(SIZE + 1).append('\n');
+                FACE_OBJECTS.add(object);
+                FACE_GROUPS.add(group);
+                FACE_MATERIALS.add(material);
+            }
+        }
+        return content.toString();
+    }
+
+    // Ожидаемый результат: выбранные грани полного чтения с элементами, перенумерованными по порядку в файле
+    private static MeshData expected(MeshData full, List<String> faceNames, Set<String> names) {
+        final TreeMap<Integer, Integer> vertices = new TreeMap<>();
+        final TreeMap<Integer, Integer> textureVertices = new TreeMap<>();
+        for (int face = 0; face < full.getFaceCount(); face++) {
+            if (names.contains(faceNames.get(face))) {
+                for (int corner = full.faceOffsets[face]; corner < full.faceOffsets[face + 1]; corner++) {
+                    vertices.put(full.vertexIndices[corner], 0);
+                    textureVertices.put(full.textureVertexIndices[corner], 0);
+                }
+            }
+        }
+        final FloatArrayList positions = new FloatArrayList();
+        for (int vertex : vertices.keySet()) {
+            vertices.put(vertex, positions.size() / 3);
+            for (int k = 0; k < 3; k++) {
+                positions.add(full.positions[3 * vertex + k]);
+            }
+        }
+        final FloatArrayList uvs = new FloatArrayList();
+        for (int textureVertex : textureVertices.keySet()) {
+            textureVertices.put(textureVertex, uvs.size() / 2);
+            for (int k = 0; k < 2; k++) {
+                uvs.add(full.textureVertices[2 * textureVertex + k]);
+            }
+        }
+        final IntArrayList faceOffsets = new IntArrayList();
+        final IntArrayList vertexIndices = new IntArrayList();
+        final IntArrayList textureVertexIndices = new IntArrayList();
+        faceOffsets.add(0);
+        for (int face = 0; face < full.getFaceCount(); face++) {
+            if (names.contains(faceNames.get(face))) {
+                for (int corner = full.faceOffsets[face]; corner < full.faceOffsets[face + 1]; corner++) {
+                    vertexIndices.add(vertices.get(full.vertexIndices[corner]));
+                    textureVertexIndices.add(textureVertices.get(full.textureVertexIndices[corner]));
+                }
+                faceOffsets.add(vertexIndices.size());
+            }
+        }
+        return new MeshData(positions.toArray(), uvs.toArray(), new float[0], faceOffsets.toArray(),
+                vertexIndices.toArray(), textureVertexIndices.toArray(), new int[0]);
+    }
+
+    private static void assertSameMesh(MeshData expected, MeshData actual) {
+        Assertions.assertArrayEquals(expected.positions, actual.positions);
+        Assertions.assertArrayEquals(expected.textureVertices, actual.textureVertices);
+        Assertions.assertArrayEquals(expected.normals, actual.normals);
+        Assertions.assertArrayEquals(expected.faceOffsets, actual.faceOffsets);
+        Assertions.assertArrayEquals(expected.vertexIndices, actual.vertexIndices);
+        Assertions.assertArrayEquals(expected.textureVertexIndices, actual.textureVertexIndices);
+        Assertions.assertArrayEquals(expected.normalIndices, actual.normalIndices);
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testSelectedNamesMatchFullRead() throws IOException {
+        Path directory = Files.createTempDirectory("objindex");
+        try {
+            Path file = directory.resolve("scene.obj");
+            Files.writeString(file, scene());
+            MeshData full = ObjReader.readMesh(file);
+            ObjIndex index = ObjIndex.scan(file);
+
+            Assertions.assertEquals(full.getVertexCount(), index.getVertexCount());
+            Assertions.assertEquals(full.getTextureVertexCount(), index.getTextureVertexCount());
+            Assertions.assertEquals(full.getFaceCount(), index.getFaceCount());
+            // part0..3, even, all, odd, stone, metal
+            Assertions.assertEquals(9, index.getEntries().size());
+            Assertions.assertEquals((SIZE - 1) * (SIZE - 1), index.getEntry(Kind.OBJECT, "part1").getFaceCount());
+            Assertions.assertEquals(full.getFaceCount(), index.getEntry(Kind.GROUP, "all").getFaceCount());
+
+            assertSameMesh(expected(full, FACE_OBJECTS, Set.of("part1")),
+                    SelectiveObjReader.readMesh(file, index, Kind.OBJECT, "part1"));
+            assertSameMesh(expected(full, FACE_OBJECTS, Set.of("part0", "part3")),
+                    SelectiveObjReader.readMesh(file, index, Kind.OBJECT, "part3", "part0"));
+            assertSameMesh(expected(full, FACE_GROUPS, Set.of("even")),
+                    SelectiveObjReader.readMesh(file, index, Kind.GROUP, "even"));
+            assertSameMesh(expected(full, FACE_MATERIALS, Set.of("metal")),
+                    SelectiveObjReader.readMesh(file, index, Kind.MATERIAL, "metal"));
+            // объект и группа с общими гранями: каждая грань читается один раз
+            List<ObjIndex.Entry> entries = List.of(index.getEntry(Kind.OBJECT, "part2"),
+                    index.getEntry(Kind.GROUP, "even"));
+            assertSameMesh(expected(full, FACE_GROUPS, Set.of("even")),
+                    SelectiveObjReader.readMesh(file, index, entries));
+
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> SelectiveObjReader.readMesh(file, index, Kind.OBJECT, "part4"));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testIndexIsSavedNextToFileAndInvalidated() throws IOException {
+        Path directory = Files.createTempDirectory("objindex");
+        try {
+            Path file = directory.resolve("scene.obj");
+            Files.writeString(file, scene());
+            Assertions.assertNull(ObjIndex.load(file));
+
+            ObjIndex scanned = ObjIndex.open(file);
+            Assertions.assertTrue(Files.exists(ObjIndex.indexPath(file)));
+            ObjIndex loaded = ObjIndex.load(file);
+            Assertions.assertNotNull(loaded);
+            Assertions.assertEquals(scanned.getEntries().size(), loaded.getEntries().size());
+            for (ObjIndex.Entry entry : scanned.getEntries()) {
+                ObjIndex.Entry loadedEntry = loaded.getEntry(entry.getKind(), entry.getName());
+                Assertions.assertEquals(entry.getFaceCount(), loadedEntry.getFaceCount());
+                Assertions.assertArrayEquals(entry.segments, loadedEntry.segments);
+            }
+            assertSameMesh(SelectiveObjReader.readMesh(file, scanned, Kind.OBJECT, "part3"),
+                    SelectiveObjReader.readMesh(file, loaded, Kind.OBJECT, "part3"));
+
+            Files.writeString(file, "o single\nv 0 0 0\nv 1 0 0\nv 0 1 0\nf 1 2 3\n");
+            Assertions.assertNull(ObjIndex.load(file));
+            ObjIndex reopened = ObjIndex.open(file);
+            Assertions.assertEquals(1, reopened.getEntries().size());
+            Assertions.assertNotNull(ObjIndex.load(file));
+
+            Files.writeString(ObjIndex.indexPath(file), "not an index");
+            Assertions.assertNull(ObjIndex.load(file));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testUnnamedFacesAndErrors() throws IOException {
+        Path directory = Files.createTempDirectory("objindex");
+        try {
+            Path file = directory.resolve("errors.obj");
+            Files.writeString(file, """
+                    v 0 0 0
+                    v 1 0 0
+                    v 0 1 0
+                    f 1 2 3
+                    g
+                    f 3 2 1
+                    o broken
+                    g broken
+                    f 1 2 4
+                    """);
+            ObjIndex index = ObjIndex.scan(file);
+
+            // грань до первого o и g ни к чему не относится, g без имени - группа default
+            Assertions.assertEquals(3, index.getEntries().size());
+            Assertions.assertEquals(3, index.getFaceCount());
+            MeshData group = SelectiveObjReader.readMesh(file, index, Kind.GROUP, "default");
+            Assertions.assertEquals(1, group.getFaceCount());
+            Assertions.assertArrayEquals(new int[]{2, 1, 0}, group.vertexIndices);
+
+            ObjReaderException exception = Assertions.assertThrows(ObjReaderException.class,
+                    () -> SelectiveObjReader.readMesh(file, index, Kind.OBJECT, "broken"));
+            Assertions.assertEquals(9, exception.getLineInd());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+}
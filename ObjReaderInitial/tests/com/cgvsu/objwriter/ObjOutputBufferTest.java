@@ -0,0 +1,64 @@
+package com.cgvsu.objwriter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+class ObjOutputBufferTest {
+
+    private static String format(float value) throws IOException {
+        ObjOutputBuffer buffer = new ObjOutputBuffer(16);
+        buffer.putFloat(value);
+        return new String(buffer.array(), 0, buffer.size(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testSpecialFloatsMatchStringFormat() throws IOException {
+        float[] values = {
+                0.0f, -0.0f, -1e-9f, 5e-7f, 1.5e-6f, 2.5e-6f, 0.1f, -3.701685f, 123456.789f,
+                0.9999996f, 1e12f, 3.4e38f, Float.MIN_VALUE, Float.NaN, Float.NEGATIVE_INFINITY
+        };
+        for (float value : values) {
+            Assertions.assertEquals(String.format(Locale.US, "%.6f", value), format(value));
+        }
+    }
+
+    @Test
+    public void testRandomFloatsMatchStringFormat() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            float value = i % 2 == 0
+                    ? Float.intBitsToFloat(random.nextInt())
+                    : (float) ((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(14) - 6));
+            Assertions.assertEquals(String.format(Locale.US, "%.6f", value), format(value));
+        }
+    }
+
+    @Test
+    public void testParsedValueMatchesParsingFormattedText() {
+        Random random = new Random(13);
+        for (int i = 0; i < 100000; i++) {
+            float value = i % 2 == 0
+                    ? Float.intBitsToFloat(random.nextInt())
+                    : (float) ((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(14) - 6));
+            float expected = Float.parseFloat(String.format(Locale.US, "%.6f", value));
+            Assertions.assertEquals(Float.floatToRawIntBits(expected), Float.floatToRawIntBits(
+                    ObjOutputBuffer.parsedValue(value)));
+        }
+    }
+
+    @Test
+    public void testInts() throws IOException {
+        ObjOutputBuffer buffer = new ObjOutputBuffer(4);
+        for (int value : new int[]{0, 7, -1, 1234567890, Integer.MIN_VALUE}) {
+            buffer.clear();
+            buffer.putInt(value);
+            Assertions.assertEquals(Integer.toString(value),
+                    new String(buffer.array(), 0, buffer.size(), StandardCharsets.US_ASCII));
+        }
+    }
+}
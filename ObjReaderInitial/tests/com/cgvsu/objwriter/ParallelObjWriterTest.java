@@ -0,0 +1,120 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class ParallelObjWriterTest {
+
+    private static Model randomModel(int vertexCount, int textureVertexCount, int normalCount, int faceCount) {
+        Random random = new Random(11);
+        Model model = new Model();
+        for (int i = 0; i < vertexCount; i++) {
+            model.vertices.add(new Vector3f(random.nextFloat() * 100 - 50, random.nextFloat(), -random.nextFloat()));
+        }
+        for (int i = 0; i < textureVertexCount; i++) {
+            model.textureVertices.add(new Vector2f(random.nextFloat(), random.nextFloat()));
+        }
+        for (int i = 0; i < normalCount; i++) {
+            model.normals.add(new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat()));
+        }
+        for (int i = 0; i < faceCount; i++) {
+            final int size = 3 + random.nextInt(4);
+            Polygon polygon = new Polygon();
+            polygon.setVertexIndices(randomIndices(random, size, vertexCount));
+            if (textureVertexCount != 0 && random.nextBoolean()) {
+                polygon.setTextureVertexIndices(randomIndices(random, size, textureVertexCount));
+            }
+            if (normalCount != 0 && random.nextBoolean()) {
+                polygon.setNormalIndices(randomIndices(random, size, normalCount));
+            }
+            model.polygons.add(polygon);
+        }
+        return model;
+    }
+
+    private static ArrayList<Integer> randomIndices(Random random, int size, int elementCount) {
+        ArrayList<Integer> indices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            indices.add(random.nextInt(elementCount));
+        }
+        return indices;
+    }
+
+    private static byte[] writeSequentially(Model model) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ObjWriter.write(model, Channels.newChannel(output));
+        return output.toByteArray();
+    }
+
+    private static byte[] writeSequentially(MeshData mesh) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ObjWriter.write(mesh, Channels.newChannel(output));
+        return output.toByteArray();
+    }
+
+    @Test
+    public void testModelBlocksAreWrittenInOrder() throws IOException {
+        Model model = randomModel(500, 300, 0, 700);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int blockSize : new int[]{1, 7, 64, 10000}) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                ParallelObjWriter.write(model, Channels.newChannel(output), pool, blockSize);
+                Assertions.assertArrayEquals(writeSequentially(model), output.toByteArray());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMeshToFileChannelMatchesSequentialWriter() throws IOException {
+        MeshData mesh = MeshData.fromModel(randomModel(400, 0, 200, 900));
+        Path file = Files.createTempFile("parallel", ".obj");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            try (FileChannel channel = ObjWriter.openForWriting(file)) {
+                ParallelObjWriter.write(mesh, channel, pool, 13);
+            }
+            Assertions.assertArrayEquals(writeSequentially(mesh), Files.readAllBytes(file));
+        } finally {
+            pool.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testEmptyModel() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ParallelObjWriter.write(new Model(), Channels.newChannel(output), ForkJoinPool.commonPool(), 8);
+        Assertions.assertEquals(0, output.size());
+    }
+
+    @Test
+    public void testSmallModelGoesThroughSequentialWriter() throws IOException {
+        Model model = randomModel(20, 10, 10, 30);
+        Path file = Files.createTempFile("parallel", ".obj");
+        try {
+            ParallelObjWriter.write(model, file);
+            Assertions.assertTrue(Arrays.equals(writeSequentially(model), Files.readAllBytes(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
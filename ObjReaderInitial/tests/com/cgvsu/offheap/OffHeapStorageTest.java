@@ -0,0 +1,107 @@
+package com.cgvsu.offheap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+class OffHeapStorageTest {
+
+    private static long fileCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void testDirectArraysCrossPages() throws IOException {
+        try (OffHeapStorage storage = OffHeapStorage.direct()) {
+            OffHeapFloatArray floats = storage.newFloatArray();
+            OffHeapIntArray ints = storage.newIntArray();
+            OffHeapLongArray longs = storage.newLongArray();
+            // на два элемента больше страницы: последние лежат во второй странице
+            final int count = OffHeapArray.PAGE_SIZE + 2;
+            for (int i = 0; i < count; i++) {
+                floats.add(i * 0.5f);
+                ints.add(-i);
+                longs.add((long) i << 32);
+            }
+            Assertions.assertEquals((long) count, floats.size());
+            Assertions.assertEquals((long) count, ints.size());
+            Assertions.assertEquals((long) count, longs.size());
+            for (int i : new int[]{0, 1, OffHeapArray.PAGE_SIZE - 1, OffHeapArray.PAGE_SIZE, count - 1}) {
+                Assertions.assertEquals(i * 0.5f, floats.get(i));
+                Assertions.assertEquals(-i, ints.get(i));
+                Assertions.assertEquals((long) i << 32, longs.get(i));
+            }
+            Assertions.assertThrows(IndexOutOfBoundsException.class, () -> ints.get(count));
+            Assertions.assertThrows(IndexOutOfBoundsException.class, () -> ints.get(-1));
+        }
+    }
+
+    @Test
+    public void testResizeAndSet() throws IOException {
+        Path directory = Files.createTempDirectory("offheap");
+        try {
+            for (OffHeapStorage storage : new OffHeapStorage[]{OffHeapStorage.direct(),
+                    OffHeapStorage.fileBacked(directory)}) {
+                try (storage) {
+                    OffHeapIntArray array = storage.newIntArray();
+                    array.add(7);
+                    // новые элементы равны нулю, в том числе в добавленных страницах
+                    final long size = 2L * OffHeapArray.PAGE_SIZE + 5;
+                    array.resize(size);
+                    Assertions.assertEquals(size, array.size());
+                    Assertions.assertEquals(7, array.get(0));
+                    Assertions.assertEquals(0, array.get(OffHeapArray.PAGE_SIZE));
+                    Assertions.assertEquals(0, array.get(size - 1));
+
+                    array.set(OffHeapArray.PAGE_SIZE - 1, 11);
+                    array.set(OffHeapArray.PAGE_SIZE, 12);
+                    array.set(size - 1, 13);
+                    Assertions.assertEquals(11, array.get(OffHeapArray.PAGE_SIZE - 1));
+                    Assertions.assertEquals(12, array.get(OffHeapArray.PAGE_SIZE));
+                    Assertions.assertEquals(13, array.get(size - 1));
+                    Assertions.assertThrows(IndexOutOfBoundsException.class, () -> array.set(size, 1));
+
+                    // add после resize дописывает в конец
+                    array.add(14);
+                    Assertions.assertEquals(size + 1, array.size());
+                    Assertions.assertEquals(14, array.get(size));
+                }
+            }
+            // файлы хранилища удаляются при закрытии
+            Assertions.assertEquals(0L, fileCount(directory));
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testClosedStorageRejectsAllocation() throws IOException {
+        Path directory = Files.createTempDirectory("offheap");
+        try {
+            for (OffHeapStorage storage : new OffHeapStorage[]{OffHeapStorage.direct(),
+                    OffHeapStorage.fileBacked(directory)}) {
+                OffHeapFloatArray array = storage.newFloatArray();
+                array.add(1);
+                storage.close();
+                // повторное закрытие ничего не делает
+                storage.close();
+
+                // места в текущей странице хватает, а новую страницу закрытое хранилище не выделяет
+                array.resize(OffHeapArray.PAGE_SIZE);
+                Assertions.assertThrows(IllegalStateException.class, () -> array.add(2));
+                Assertions.assertThrows(IllegalStateException.class, () -> array.resize(OffHeapArray.PAGE_SIZE + 1));
+                Assertions.assertThrows(IllegalStateException.class, () -> storage.newIntArray().add(3));
+                Assertions.assertThrows(IllegalStateException.class, storage::newLongArray);
+            }
+            Assertions.assertEquals(0L, fileCount(directory));
+        } finally {
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.cgvsu.pipeline;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objreader.ObjReaderException;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.triangulation.ModelTriangulator;
+import com.cgvsu.triangulation.TriangulationMode;
+import com.cgvsu.triangulation.TriangulationStatistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+class StreamingConverterTest {
+
+    // Секции в обычном порядке (v, vt, vn, f); у части граней есть текстурные координаты и нормали
+    private static String randomObj(int faceCount) {
+        Random random = new Random(17);
+        StringBuilder content = new StringBuilder("# comment\n");
+        for (int i = 0; i < 100; i++) {
+            content.append("v ").append(random.nextFloat()).append(' ').append(i).append(" 1\n");
+        }
+        for (int i = 0; i < 100; i++) {
+            content.append("vt 0.5 ").append(random.nextFloat()).append('\n');
+        }
+        for (int i = 0; i < 100; i++) {
+            content.append("vn 0 0 ").append(i).append('\n');
+        }
+        for (int face = 0; face < faceCount; face++) {
+            final int size = 3 + random.nextInt(6);
+            final int kind = random.nextInt(3);
+            content.append('f');
+            for (int i = 0; i < size; i++) {
+                final int index = 1 + random.nextInt(100);
+                content.append(' ').append(index);
+                if (kind == 1) {
+                    content.append('/').append(index);
+                } else if (kind == 2) {
+                    content.append("//").append(-index);
+                }
+            }
+            content.append('\n');
+        }
+        return content.toString();
+    }
+
+    private static String convert(String content, TriangulationMode mode, TriangulationStatistics statistics,
+                                  int batchSize) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StreamingConverter.convert(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                Channels.newChannel(output), mode, statistics, batchSize);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String write(Model model) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ObjWriter.write(model, Channels.newChannel(output));
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testFanOutputMatchesTriangulatedModel() throws IOException {
+        final String content = randomObj(5000);
+        final String expected = write(ModelTriangulator.triangulate(ObjReader.read(content)));
+
+        // батчи разного размера, в том числе меньше одной секции и больше всего файла
+        for (int batchSize : new int[]{1, 7, 1000, 1 << 20}) {
+            Assertions.assertEquals(expected, convert(content, TriangulationMode.FAN, new TriangulationStatistics(),
+                    batchSize));
+        }
+    }
+
+    @Test
+    public void testEarClippingMatchesModelTriangulator() throws IOException {
+        final String content = randomObj(3000);
+        TriangulationStatistics expectedStatistics = new TriangulationStatistics();
+        final String expected = write(ModelTriangulator.triangulate(ObjReader.read(content),
+                TriangulationMode.EAR_CLIPPING::newStrategy, expectedStatistics));
+        TriangulationStatistics statistics = new TriangulationStatistics();
+
+        Assertions.assertEquals(expected, convert(content, TriangulationMode.EAR_CLIPPING, statistics, 100));
+        Assertions.assertEquals(expectedStatistics.getMethods(), statistics.getMethods());
+        for (String method : statistics.getMethods()) {
+            Assertions.assertEquals(expectedStatistics.getPolygonCount(method), statistics.getPolygonCount(method));
+        }
+    }
+
+    @Test
+    public void testInterleavedElementsKeepTheirOrder() throws IOException {
+        final String content = """
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0
+                v 0 1 0
+                f -4 -3 -2 -1
+                vt 0.5 0.5
+                v 2 0 0
+                f 2 5 3
+                """;
+
+        Assertions.assertEquals("""
+                v 0.000000 0.000000 0.000000
+                v 1.000000 0.000000 0.000000
+                v 1.000000 1.000000 0.000000
+                v 0.000000 1.000000 0.000000
+
+                f 1 2 3
+                f 1 3 4
+                vt 0.500000 0.500000
+
+                v 2.000000 0.000000 0.000000
+
+                f 2 5 3
+                """, convert(content, TriangulationMode.FAN, new TriangulationStatistics(), 3));
+    }
+
+    @Test
+    public void testParseErrorStopsPipeline() {
+        final String content = randomObj(2000) + "v 1 2\n" + randomObj(10);
+        final int lineCount = 1 + 300 + 2000 + 1;
+
+        ObjReaderException exception = Assertions.assertThrows(ObjReaderException.class,
+                () -> convert(content, TriangulationMode.FAN, new TriangulationStatistics(), 16));
+        Assertions.assertEquals("Error parsing OBJ file on line: " + lineCount + ". Too few vertex arguments.",
+                exception.getMessage());
+    }
+
+    @Test
+    public void testTriangulationErrorStopsReading() {
+        // грань ссылается на вершину, которая описана позже
+        final String content = "v 0 0 0\nv 1 0 0\nv 1 1 0\nf 1 2 3 4\nv 0 1 0\n" + randomObj(2000);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> convert(content, TriangulationMode.EAR_CLIPPING, new TriangulationStatistics(), 4));
+    }
+}
@@ -0,0 +1,156 @@
+package com.cgvsu.render;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.triangulation.ModelTriangulator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class VertexBufferBuilderTest {
+
+    // два квадрата с общей стороной, у которой в разных квадратах разные текстурные координаты и нормали
+    private static final String CONTENT = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            v 1 0 1
+            v 1 1 1
+            vt 0 0
+            vt 1 0
+            vt 1 1
+            vt 0 1
+            vn 0 0 -1
+            vn 1 0 0
+            f 1/1/1 2/2/1 3/3/1 4/4/1
+            f 2/1/2 5/2/2 6/3/2 3/4/2
+            """;
+
+    @Test
+    public void testSharedCornersAreSplitByAttributes() {
+        Model model = ObjReader.read(CONTENT);
+
+        IndexedVertexBuffer buffer = VertexBufferBuilder.build(model);
+
+        // у вершин 2 и 3 разные (vt, vn) в двух гранях, поэтому уникальных троек 8, а не 6
+        Assertions.assertEquals(8, buffer.getVertexCount());
+        Assertions.assertEquals(4, buffer.getTriangleCount());
+        Assertions.assertEquals(8, buffer.stride);
+        Assertions.assertEquals(3, buffer.textureOffset);
+        Assertions.assertEquals(5, buffer.normalOffset);
+        Assertions.assertNotNull(buffer.shortIndices);
+        Assertions.assertNull(buffer.indices);
+        Assertions.assertEquals(0, buffer.getIndex(0));
+        Assertions.assertEquals(2, buffer.getIndex(2));
+        Assertions.assertEquals(0, buffer.getIndex(3));
+    }
+
+    @Test
+    public void testBufferReproducesCorners() {
+        MeshData mesh = ModelTriangulator.triangulate(MeshData.fromModel(ObjReader.read(CONTENT)));
+
+        IndexedVertexBuffer buffer = VertexBufferBuilder.build(mesh);
+
+        assertReproduces(mesh, buffer);
+    }
+
+    @Test
+    public void testMissingAttributesAreZeros() {
+        Model model = ObjReader.read("""
+                v 0 0 0
+                v 1 0 0
+                v 0 1 0
+                v 1 1 0
+                vn 0 0 1
+                f 1//1 2//1 3//1
+                f 2 4 3
+                """);
+
+        IndexedVertexBuffer buffer = VertexBufferBuilder.build(model);
+
+        Assertions.assertEquals(6, buffer.stride);
+        Assertions.assertFalse(buffer.hasTextureCoordinates());
+        Assertions.assertEquals(3, buffer.normalOffset);
+        // углы второго треугольника без нормали не совпадают с углами первого
+        Assertions.assertEquals(6, buffer.getVertexCount());
+        Assertions.assertEquals(1.0f, buffer.vertices[5]);
+        Assertions.assertEquals(0.0f, buffer.vertices[3 * 6 + 5]);
+    }
+
+    @Test
+    public void testParallelBuildMatchesSequential() {
+        MeshData mesh = randomTriangles(200_000, 20_000);
+
+        IndexedVertexBuffer sequential = VertexBufferBuilder.build(mesh);
+        IndexedVertexBuffer parallel = VertexBufferBuilder.build(mesh, new ForkJoinPool(4));
+
+        Assertions.assertTrue(sequential.getVertexCount() > IndexedVertexBuffer.MAX_SHORT_INDEXED_VERTICES);
+        Assertions.assertNotNull(sequential.indices);
+        Assertions.assertArrayEquals(sequential.indices, parallel.indices);
+        Assertions.assertArrayEquals(sequential.vertices, parallel.vertices);
+        assertReproduces(mesh, parallel);
+    }
+
+    @Test
+    public void testPolygonsAreRejected() {
+        MeshData mesh = MeshData.fromModel(ObjReader.read(CONTENT));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> VertexBufferBuilder.build(mesh));
+    }
+
+    @Test
+    public void testIndexOutOfRangeIsRejected() {
+        MeshData mesh = ModelTriangulator.triangulate(MeshData.fromModel(ObjReader.read(CONTENT)));
+        mesh.normalIndices[4] = 2;
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> VertexBufferBuilder.build(mesh));
+    }
+
+    private static void assertReproduces(MeshData mesh, IndexedVertexBuffer buffer) {
+        for (int corner = 0; corner < mesh.vertexIndices.length; corner++) {
+            final int base = buffer.getIndex(corner) * buffer.stride;
+            final int vertexIndex = mesh.vertexIndices[corner];
+            for (int k = 0; k < 3; k++) {
+                Assertions.assertEquals(mesh.positions[3 * vertexIndex + k], buffer.vertices[base + k]);
+            }
+            final int textureVertexIndex = mesh.textureVertexIndices[corner];
+            for (int k = 0; k < 2; k++) {
+                Assertions.assertEquals(mesh.textureVertices[2 * textureVertexIndex + k],
+                        buffer.vertices[base + buffer.textureOffset + k]);
+            }
+            final int normalIndex = mesh.normalIndices[corner];
+            for (int k = 0; k < 3; k++) {
+                Assertions.assertEquals(mesh.normals[3 * normalIndex + k],
+                        buffer.vertices[base + buffer.normalOffset + k]);
+            }
+        }
+    }
+
+    private static MeshData randomTriangles(int triangleCount, int attributeCount) {
+        Random random = new Random(14);
+        float[] positions = new float[3 * attributeCount];
+        float[] textureVertices = new float[2 * attributeCount];
+        float[] normals = new float[3 * attributeCount];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = random.nextFloat();
+            normals[i] = random.nextFloat();
+        }
+        for (int i = 0; i < textureVertices.length; i++) {
+            textureVertices[i] = random.nextFloat();
+        }
+        int[] vertexIndices = new int[3 * triangleCount];
+        int[] textureVertexIndices = new int[3 * triangleCount];
+        int[] normalIndices = new int[3 * triangleCount];
+        for (int i = 0; i < vertexIndices.length; i++) {
+            vertexIndices[i] = random.nextInt(attributeCount);
+            textureVertexIndices[i] = Math.min(vertexIndices[i] + random.nextInt(2), attributeCount - 1);
+            normalIndices[i] = random.nextInt(4);
+        }
+        return new MeshData(positions, textureVertices, normals, MeshData.triangleFaceOffsets(triangleCount),
+                vertexIndices, textureVertexIndices, normalIndices);
+    }
+}
@@ -0,0 +1,134 @@
+package com.cgvsu.render;
+
+import com.cgvsu.model.MeshData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+class VertexCacheOptimizerTest {
+
+    @Test
+    public void testShuffledGridIsReordered() {
+        IndexedVertexBuffer buffer = VertexBufferBuilder.build(shuffledGrid(150));
+        VertexCacheReport report = new VertexCacheReport();
+
+        IndexedVertexBuffer optimized = VertexCacheOptimizer.optimize(buffer, 32, report);
+
+        Assertions.assertEquals(report.getAcmrBefore(), VertexCacheOptimizer.computeAcmr(buffer, 32), 1e-9);
+        Assertions.assertEquals(report.getAcmrAfter(), VertexCacheOptimizer.computeAcmr(optimized, 32), 1e-9);
+        // у перемешанной сетки почти каждый угол - промах, после перестановки промахов около одного на треугольник
+        Assertions.assertTrue(report.getAcmrBefore() > 2.5, report.toString());
+        Assertions.assertTrue(report.getAcmrAfter() < 0.8, report.toString());
+        Assertions.assertEquals(0, report.getRemovedVertexCount());
+        Assertions.assertEquals(triangles(buffer), triangles(optimized));
+    }
+
+    @Test
+    public void testVerticesAreCompactedInFirstUseOrder() {
+        float[] positions = {0, 0, 0, 1, 0, 0, 5, 5, 5, 0, 1, 0, 1, 1, 0};
+        MeshData mesh = new MeshData(positions, new float[0], new float[0], MeshData.triangleFaceOffsets(2),
+                new int[]{1, 4, 3, 0, 1, 3}, new int[0], new int[0]);
+        IndexedVertexBuffer buffer = VertexBufferBuilder.build(mesh);
+        // вершина 2 не используется ни одним треугольником
+        IndexedVertexBuffer withUnused = new IndexedVertexBuffer(positions, 3, -1, -1, null,
+                new short[]{1, 4, 3, 0, 1, 3});
+        VertexCacheReport report = new VertexCacheReport();
+
+        IndexedVertexBuffer optimized = VertexCacheOptimizer.optimize(withUnused, 16, report);
+
+        Assertions.assertEquals(1, report.getRemovedVertexCount());
+        Assertions.assertEquals(4, optimized.getVertexCount());
+        int next = 0;
+        for (int i = 0; i < optimized.getIndexCount(); i++) {
+            Assertions.assertTrue(optimized.getIndex(i) <= next);
+            next = Math.max(next, optimized.getIndex(i) + 1);
+        }
+        Assertions.assertEquals(triangles(buffer), triangles(optimized));
+    }
+
+    @Test
+    public void testOverdrawOrderKeepsCacheEfficiency() {
+        IndexedVertexBuffer optimized = VertexCacheOptimizer.optimize(VertexBufferBuilder.build(shuffledGrid(100)));
+
+        IndexedVertexBuffer sorted = VertexCacheOptimizer.optimizeOverdraw(optimized, 32);
+
+        Assertions.assertEquals(triangles(optimized), triangles(sorted));
+        Assertions.assertTrue(VertexCacheOptimizer.computeAcmr(sorted, 32)
+                < 1.1 * VertexCacheOptimizer.computeAcmr(optimized, 32));
+    }
+
+    @Test
+    public void testOutwardFacingClusterGoesFirst() {
+        // оба треугольника смотрят в сторону -z, но наружу от центра смотрит только нижний
+        float[] positions = {0, 0, 1, 0, 1, 1, 1, 0, 1, 0, 0, -1, 0, 1, -1, 1, 0, -1};
+        IndexedVertexBuffer buffer = new IndexedVertexBuffer(positions, 3, -1, -1, null,
+                new short[]{0, 1, 2, 3, 4, 5});
+
+        IndexedVertexBuffer sorted = VertexCacheOptimizer.optimizeOverdraw(buffer, 16);
+
+        Assertions.assertEquals(-1.0f, sorted.vertices[3 * sorted.getIndex(0) + 2]);
+        Assertions.assertEquals(1.0f, sorted.vertices[3 * sorted.getIndex(3) + 2]);
+    }
+
+    @Test
+    public void testAcmrOfSeparateTriangles() {
+        IndexedVertexBuffer buffer = new IndexedVertexBuffer(new float[18], 3, -1, -1, null,
+                new short[]{0, 1, 2, 3, 4, 5});
+
+        Assertions.assertEquals(3.0, VertexCacheOptimizer.computeAcmr(buffer, 16));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> VertexCacheOptimizer.optimize(buffer, 3, null));
+    }
+
+    // Треугольники как отсортированные списки координат углов, начиная с наименьшего угла
+    private static List<String> triangles(IndexedVertexBuffer buffer) {
+        List<String> result = new ArrayList<>();
+        for (int triangle = 0; triangle < buffer.getTriangleCount(); triangle++) {
+            String[] corners = new String[3];
+            for (int k = 0; k < 3; k++) {
+                final int base = buffer.getIndex(3 * triangle + k) * buffer.stride;
+                corners[k] = Arrays.toString(Arrays.copyOfRange(buffer.vertices, base, base + buffer.stride));
+            }
+            int first = 0;
+            for (int k = 1; k < 3; k++) {
+                if (corners[k].compareTo(corners[first]) < 0) {
+                    first = k;
+                }
+            }
+            result.add(corners[first] + corners[(first + 1) % 3] + corners[(first + 2) % 3]);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static MeshData shuffledGrid(int size) {
+        final int side = size + 1;
+        float[] positions = new float[3 * side * side];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                positions[3 * (y * side + x)] = x;
+                positions[3 * (y * side + x) + 1] = y;
+            }
+        }
+        List<int[]> triangles = new ArrayList<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                final int corner = y * side + x;
+                triangles.add(new int[]{corner, corner + 1, corner + side + 1});
+                triangles.add(new int[]{corner, corner + side + 1, corner + side});
+            }
+        }
+        Collections.shuffle(triangles, new Random(15));
+        int[] vertexIndices = new int[3 * triangles.size()];
+        for (int i = 0; i < triangles.size(); i++) {
+            System.arraycopy(triangles.get(i), 0, vertexIndices, 3 * i, 3);
+        }
+        return new MeshData(positions, new float[0], new float[0], MeshData.triangleFaceOffsets(triangles.size()),
+                vertexIndices, new int[0], new int[0]);
+    }
+}
@@ -0,0 +1,170 @@
+package com.cgvsu.simplification;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+class MeshSimplifierTest {
+
+    @Test
+    public void testFlatGridKeepsShapeAndOrientation() {
+        MeshData grid = grid(40, -1);
+
+        MeshData simplified = MeshSimplifier.simplify(grid, 400);
+
+        Assertions.assertTrue(simplified.getFaceCount() <= 400, simplified.toString());
+        Assertions.assertTrue(simplified.getFaceCount() > 0);
+        Assertions.assertSame(grid.positions, simplified.positions);
+        // край заперт, а треугольники не переворачиваются, поэтому площадь плоской сетки не меняется
+        double area = 0;
+        for (int face = 0; face < simplified.getFaceCount(); face++) {
+            final double signedArea = signedArea(simplified, face);
+            Assertions.assertTrue(signedArea > 0);
+            area += signedArea;
+        }
+        Assertions.assertEquals(40 * 40, area, 1e-3);
+
+        // внутренняя перенумерация не видна снаружи: без стягиваний модель та же
+        MeshData unchanged = MeshSimplifier.simplify(grid, grid.getFaceCount());
+        Assertions.assertArrayEquals(grid.vertexIndices, unchanged.vertexIndices);
+        Assertions.assertArrayEquals(grid.textureVertexIndices, unchanged.textureVertexIndices);
+    }
+
+    @Test
+    public void testTextureSeamIsPreserved() {
+        MeshData grid = grid(30, 15);
+
+        MeshData simplified = MeshSimplifier.simplify(grid, 0);
+
+        Assertions.assertTrue(simplified.getFaceCount() < grid.getFaceCount() / 4);
+        // вершины шва стягиваются только вдоль шва: шов остается прямой x = 15, но вершин на нем меньше
+        Set<Long> seam = seamCorners(simplified);
+        Assertions.assertTrue(seamCorners(grid).containsAll(seam));
+        Assertions.assertTrue(seam.size() < seamCorners(grid).size() / 2);
+        for (int face = 0; face < simplified.getFaceCount(); face++) {
+            float minX = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY;
+            for (int corner = 3 * face; corner < 3 * face + 3; corner++) {
+                minX = Math.min(minX, simplified.positions[3 * simplified.vertexIndices[corner]]);
+                maxX = Math.max(maxX, simplified.positions[3 * simplified.vertexIndices[corner]]);
+            }
+            Assertions.assertTrue(maxX <= 15 || minX >= 15);
+            // треугольник справа от шва берет текстуры из второго набора, слева - из первого
+            for (int corner = 3 * face; corner < 3 * face + 3; corner++) {
+                Assertions.assertEquals(minX >= 15, simplified.textureVertexIndices[corner] >= 31 * 31);
+            }
+        }
+        // каждый угол по-прежнему берет текстурную вершину своей вершины из своего набора
+        for (int corner = 0; corner < simplified.vertexIndices.length; corner++) {
+            Assertions.assertEquals(simplified.vertexIndices[corner],
+                    simplified.textureVertexIndices[corner] % (31 * 31));
+        }
+    }
+
+    @Test
+    public void testErrorLimitStopsSimplification() {
+        MeshData curved = grid(30, -1);
+        for (int vertex = 0; vertex < curved.getVertexCount(); vertex++) {
+            curved.positions[3 * vertex + 2] = (float) (Math.sin(curved.positions[3 * vertex] * 0.5)
+                    * Math.cos(curved.positions[3 * vertex + 1] * 0.5));
+        }
+
+        MeshData coarse = MeshSimplifier.simplify(curved, 0, 0.05f);
+        MeshData fine = MeshSimplifier.simplify(curved, 0, 0.01f);
+
+        Assertions.assertTrue(coarse.getFaceCount() < fine.getFaceCount());
+        Assertions.assertTrue(fine.getFaceCount() < curved.getFaceCount());
+    }
+
+    @Test
+    public void testLevelsOfDetail() {
+        MeshData grid = grid(40, -1);
+
+        MeshData[] levels = MeshSimplifier.buildLevelsOfDetail(grid, 3);
+
+        Assertions.assertSame(grid, levels[0]);
+        Assertions.assertTrue(levels[1].getFaceCount() <= grid.getFaceCount() / 2);
+        Assertions.assertTrue(levels[2].getFaceCount() <= levels[1].getFaceCount() / 2);
+    }
+
+    @Test
+    public void testModelWithQuads() {
+        Model model = ObjReader.read("""
+                v 0 0 0
+                v 1 0 0
+                v 2 0 0
+                v 0 1 0
+                v 1 1 0
+                v 2 1 0
+                f 1 2 5 4
+                f 2 3 6 5
+                """);
+
+        Model simplified = MeshSimplifier.simplify(model, 0);
+
+        // все вершины на краю, поэтому стягивать нечего
+        Assertions.assertEquals(4, simplified.polygons.size());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> MeshSimplifier.simplify(MeshData.fromModel(model), 1));
+    }
+
+    // Сетка size x size квадратов в плоскости z = 0. Текстурные координаты совпадают с x и y;
+    // если seamColumn не меньше нуля, квадраты правее этого столбца берут текстуры из второго набора (шов)
+    private static MeshData grid(int size, int seamColumn) {
+        final int side = size + 1;
+        float[] positions = new float[3 * side * side];
+        float[] textureVertices = new float[2 * 2 * side * side];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                final int vertex = y * side + x;
+                positions[3 * vertex] = x;
+                positions[3 * vertex + 1] = y;
+                textureVertices[2 * vertex] = x;
+                textureVertices[2 * vertex + 1] = y;
+                textureVertices[2 * (side * side + vertex)] = x + 100;
+                textureVertices[2 * (side * side + vertex) + 1] = y;
+            }
+        }
+        int[] vertexIndices = new int[6 * size * size];
+        int[] textureVertexIndices = new int[6 * size * size];
+        int corner = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                final int base = y * side + x;
+                final int textureShift = seamColumn >= 0 && x >= seamColumn ? side * side : 0;
+                for (int vertex : new int[]{base, base + 1, base + side + 1, base, base + side + 1, base + side}) {
+                    vertexIndices[corner] = vertex;
+                    textureVertexIndices[corner++] = vertex + textureShift;
+                }
+            }
+        }
+        return new MeshData(positions, textureVertices, new float[0], MeshData.triangleFaceOffsets(2 * size * size),
+                vertexIndices, textureVertexIndices, new int[0]);
+    }
+
+    private static double signedArea(MeshData mesh, int face) {
+        final int a = mesh.vertexIndices[3 * face];
+        final int b = mesh.vertexIndices[3 * face + 1];
+        final int c = mesh.vertexIndices[3 * face + 2];
+        final float[] p = mesh.positions;
+        return ((p[3 * b] - p[3 * a]) * (p[3 * c + 1] - p[3 * a + 1])
+                - (p[3 * b + 1] - p[3 * a + 1]) * (p[3 * c] - p[3 * a])) / 2.0;
+    }
+
+    // Пары (вершина, текстурная вершина) у углов, лежащих на шве x = 15
+    private static Set<Long> seamCorners(MeshData mesh) {
+        Set<Long> result = new HashSet<>();
+        for (int corner = 0; corner < mesh.vertexIndices.length; corner++) {
+            final int vertex = mesh.vertexIndices[corner];
+            if (mesh.positions[3 * vertex] == 15) {
+                result.add(((long) vertex << 32) | mesh.textureVertexIndices[corner]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+package com.cgvsu.triangulation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveTriangulationTest {
+
+    private static float[] toCoordinates(double[][] points) {
+        float[] coordinates = new float[points.length * 3];
+        for (int i = 0; i < points.length; i++) {
+            coordinates[3 * i] = (float) points[i][0];
+            coordinates[3 * i + 1] = (float) points[i][1];
+            coordinates[3 * i + 2] = points[i].length > 2 ? (float) points[i][2] : 0;
+        }
+        return coordinates;
+    }
+
+    private static int[] triangulate(double[][] points, TriangulationStatistics statistics) {
+        int[] triangles = new int[3 * (points.length - 2)];
+        new AdaptiveTriangulation(new EarClippingTriangulator())
+                .triangulate(toCoordinates(points), points.length, triangles, statistics);
+        return triangles;
+    }
+
+    @Test
+    public void testConvexQuadUsesShorterDiagonal() {
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        // ромб: диагональ 1-3 вдвое короче диагонали 0-2
+        int[] triangles = triangulate(new double[][]{{0, 0}, {2, -1}, {4, 0}, {2, 1}}, statistics);
+
+        Assertions.assertArrayEquals(new int[]{1, 2, 3, 1, 3, 0}, triangles);
+        Assertions.assertEquals(1, statistics.getPolygonCount(TriangulationStatistics.QUAD));
+    }
+
+    @Test
+    public void testConcaveQuadUsesOnlyValidDiagonal() {
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        // вершина 3 вогнутая: диагональ 0-2 короче, но проходит снаружи
+        int[] triangles = triangulate(new double[][]{{0, 0}, {10, 1}, {0, 2}, {1, 1}}, statistics);
+
+        Assertions.assertArrayEquals(new int[]{1, 2, 3, 1, 3, 0}, triangles);
+        Assertions.assertEquals(1, statistics.getPolygonCount(TriangulationStatistics.QUAD));
+    }
+
+    @Test
+    public void testNonPlanarQuadIsSplit() {
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        int[] triangles = triangulate(new double[][]{{0, 0, 0}, {1, 0, 0.2}, {1, 1, 0}, {0, 1, 0.2}}, statistics);
+
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3}, triangles);
+        Assertions.assertEquals(1, statistics.getPolygonCount(TriangulationStatistics.QUAD));
+    }
+
+    @Test
+    public void testSelfIntersectingQuadTakesConcavePath() {
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        triangulate(new double[][]{{0, 0}, {1, 1}, {1, 0}, {0, 1}}, statistics);
+
+        Assertions.assertEquals(0, statistics.getPolygonCount(TriangulationStatistics.QUAD));
+        Assertions.assertEquals(1, statistics.getPolygonCount(TriangulationStatistics.EAR_CLIPPING));
+    }
+
+    @Test
+    public void testConvexPolygonIsFanned() {
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        double[][] hexagon = new double[6][];
+        for (int i = 0; i < 6; i++) {
+            hexagon[i] = new double[]{Math.cos(i * Math.PI / 3), Math.sin(i * Math.PI / 3)};
+        }
+        int[] triangles = triangulate(hexagon, statistics);
+
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3, 0, 3, 4, 0, 4, 5}, triangles);
+        Assertions.assertEquals(1, statistics.getPolygonCount(TriangulationStatistics.CONVEX_FAN));
+        Assertions.assertEquals(4, statistics.getTriangleCount(TriangulationStatistics.CONVEX_FAN));
+    }
+
+    @Test
+    public void testConcaveAndSelfOverlappingPolygonsTakeConcavePath() {
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        // вогнутый пятиугольник
+        triangulate(new double[][]{{0, 0}, {4, 0}, {4, 4}, {2, 1}, {0, 4}}, statistics);
+        // пентаграмма: все повороты в одну сторону, но граница обходит центр дважды
+        double[][] pentagram = new double[5][];
+        for (int i = 0; i < 5; i++) {
+            pentagram[i] = new double[]{Math.cos(i * 4 * Math.PI / 5), Math.sin(i * 4 * Math.PI / 5)};
+        }
+        triangulate(pentagram, statistics);
+        // прямой угол 180 градусов: веер дал бы треугольник нулевой площади
+        triangulate(new double[][]{{0, 0}, {1, 0}, {2, 0}, {2, 2}, {0, 2}}, statistics);
+
+        Assertions.assertEquals(0, statistics.getPolygonCount(TriangulationStatistics.CONVEX_FAN));
+        Assertions.assertEquals(3, statistics.getPolygonCount(TriangulationStatistics.EAR_CLIPPING));
+        Assertions.assertEquals(9, statistics.getTriangleCount(TriangulationStatistics.EAR_CLIPPING));
+    }
+
+    @Test
+    public void testStatisticsAreMerged() {
+        TriangulationStatistics first = new TriangulationStatistics();
+        first.add(TriangulationStatistics.QUAD, 2, 0);
+        first.add(TriangulationStatistics.EAR_CLIPPING, 5, 100);
+        TriangulationStatistics second = new TriangulationStatistics();
+        second.add(TriangulationStatistics.EAR_CLIPPING, 3, 50);
+        second.add("custom", 1, 0);
+
+        first.add(second);
+        Assertions.assertEquals(2, first.getPolygonCount(TriangulationStatistics.EAR_CLIPPING));
+        Assertions.assertEquals(8, first.getTriangleCount(TriangulationStatistics.EAR_CLIPPING));
+        Assertions.assertEquals(150, first.getNanos(TriangulationStatistics.EAR_CLIPPING));
+        Assertions.assertEquals(1, first.getPolygonCount("custom"));
+        Assertions.assertEquals(3, first.getMethods().size());
+    }
+}
@@ -0,0 +1,134 @@
+package com.cgvsu.triangulation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class ConstrainedDelaunayTriangulatorTest {
+
+    private static double signedArea(float[] c, int a, int b, int d) {
+        final double abX = (double) c[3 * b] - c[3 * a];
+        final double abY = (double) c[3 * b + 1] - c[3 * a + 1];
+        final double adX = (double) c[3 * d] - c[3 * a];
+        final double adY = (double) c[3 * d + 1] - c[3 * a + 1];
+        return (abX * adY - abY * adX) / 2;
+    }
+
+    // Треугольники против часовой стрелки в плоскости xy, без перекрытий, и для каждой диагонали
+    // противоположная вершина соседнего треугольника не лежит внутри описанной окружности
+    private static void assertDelaunay(float[] c, int n, int[] triangles) {
+        double area = 0;
+        for (int t = 0; t < n - 2; t++) {
+            final double triangleArea = signedArea(c, triangles[3 * t], triangles[3 * t + 1], triangles[3 * t + 2]);
+            Assertions.assertTrue(triangleArea >= 0, "Triangle " + t + " is flipped");
+            area += triangleArea;
+        }
+        double polygonArea = 0;
+        for (int i = 1; i < n - 1; i++) {
+            polygonArea += signedArea(c, 0, i, i + 1);
+        }
+        Assertions.assertEquals(polygonArea, area, polygonArea * 1e-9);
+
+        for (int t = 0; t < n - 2; t++) {
+            for (int e = 0; e < 3; e++) {
+                final int a = triangles[3 * t + e];
+                final int b = triangles[3 * t + (e + 1) % 3];
+                final int d = triangles[3 * t + (e + 2) % 3];
+                for (int u = 0; u < n - 2; u++) {
+                    for (int f = 0; f < 3; f++) {
+                        if (triangles[3 * u + f] == b && triangles[3 * u + (f + 1) % 3] == a) {
+                            final int p = triangles[3 * u + (f + 2) % 3];
+                            Assertions.assertFalse(strictlyInCircle(c, a, b, d, p), "Edge " + a + "-" + b);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean strictlyInCircle(float[] c, int a, int b, int d, int p) {
+        final double adX = c[3 * a] - c[3 * p];
+        final double adY = c[3 * a + 1] - c[3 * p + 1];
+        final double bdX = c[3 * b] - c[3 * p];
+        final double bdY = c[3 * b + 1] - c[3 * p + 1];
+        final double cdX = c[3 * d] - c[3 * p];
+        final double cdY = c[3 * d + 1] - c[3 * p + 1];
+        final double determinant = (adX * adX + adY * adY) * (bdX * cdY - cdX * bdY)
+                + (bdX * bdX + bdY * bdY) * (cdX * adY - adX * cdY)
+                + (cdX * cdX + cdY * cdY) * (adX * bdY - bdX * adY);
+        return determinant > 1e-6;
+    }
+
+    @Test
+    public void testRandomStarPolygons() {
+        Random random = new Random(11);
+        ConstrainedDelaunayTriangulator triangulator = new ConstrainedDelaunayTriangulator();
+        for (int n : new int[]{4, 5, 12, 40, 100}) {
+            for (int attempt = 0; attempt < 20; attempt++) {
+                float[] coordinates = new float[3 * n];
+                for (int i = 0; i < n; i++) {
+                    final double angle = 2 * Math.PI * i / n;
+                    final double radius = 1 + 9 * random.nextDouble();
+                    coordinates[3 * i] = (float) (radius * Math.cos(angle));
+                    coordinates[3 * i + 1] = (float) (radius * Math.sin(angle));
+                }
+                int[] triangles = new int[3 * (n - 2)];
+                triangulator.triangulate(coordinates, n, triangles);
+                assertDelaunay(coordinates, n, triangles);
+            }
+        }
+    }
+
+    @Test
+    public void testThinConvexPolygonAvoidsFanSlivers() {
+        // вытянутый эллипс: веер из вершины 0 дает длинные узкие треугольники
+        final int n = 60;
+        float[] coordinates = new float[3 * n];
+        for (int i = 0; i < n; i++) {
+            coordinates[3 * i] = (float) (10 * Math.cos(2 * Math.PI * i / n));
+            coordinates[3 * i + 1] = (float) Math.sin(2 * Math.PI * i / n);
+        }
+        int[] triangles = new int[3 * (n - 2)];
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        new ConstrainedDelaunayTriangulator().triangulate(coordinates, n, triangles, statistics);
+
+        assertDelaunay(coordinates, n, triangles);
+        Assertions.assertEquals(1, statistics.getPolygonCount(TriangulationStatistics.CONSTRAINED_DELAUNAY));
+        Assertions.assertEquals(n - 2, statistics.getTriangleCount(TriangulationStatistics.CONSTRAINED_DELAUNAY));
+    }
+
+    @Test
+    public void testLongCombStaysValid() {
+        // гребенка с длинной прямой стороной: переворотов нужно порядка n^2, их число ограничено
+        final int n = 20000;
+        float[] coordinates = new float[3 * n];
+        int k = 0;
+        for (int i = 0; i < n / 4; i++) {
+            coordinates[3 * k++] = 2 * i;
+            coordinates[3 * k++] = 2 * i + 1;
+        }
+        for (int i = n / 4 - 1; i >= 0; i--) {
+            final float height = i % 2 == 0 ? 10 : 1;
+            coordinates[3 * k] = 2 * i + 1;
+            coordinates[3 * k++ + 1] = height;
+            coordinates[3 * k] = 2 * i;
+            coordinates[3 * k++ + 1] = height;
+        }
+        int[] triangles = new int[3 * (n - 2)];
+        new ConstrainedDelaunayTriangulator().triangulate(coordinates, n, triangles);
+
+        double area = 0;
+        for (int t = 0; t < n - 2; t++) {
+            final double triangleArea = signedArea(coordinates, triangles[3 * t], triangles[3 * t + 1],
+                    triangles[3 * t + 2]);
+            Assertions.assertTrue(triangleArea >= 0);
+            area += triangleArea;
+        }
+        double polygonArea = 0;
+        for (int i = 1; i < n - 1; i++) {
+            polygonArea += signedArea(coordinates, 0, i, i + 1);
+        }
+        Assertions.assertEquals(polygonArea, area, polygonArea * 1e-9);
+    }
+}
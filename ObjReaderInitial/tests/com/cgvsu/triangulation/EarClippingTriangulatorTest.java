@@ -0,0 +1,188 @@
+package com.cgvsu.triangulation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class EarClippingTriangulatorTest {
+
+    private static float[] toCoordinates(double[][] points) {
+        float[] coordinates = new float[points.length * 3];
+        for (int i = 0; i < points.length; i++) {
+            coordinates[3 * i] = (float) points[i][0];
+            coordinates[3 * i + 1] = (float) points[i][1];
+            coordinates[3 * i + 2] = points[i].length > 2 ? (float) points[i][2] : 0;
+        }
+        return coordinates;
+    }
+
+    private static double signedArea(float[] c, int a, int b, int d) {
+        final double abX = (double) c[3 * b] - c[3 * a];
+        final double abY = (double) c[3 * b + 1] - c[3 * a + 1];
+        final double adX = (double) c[3 * d] - c[3 * a];
+        final double adY = (double) c[3 * d + 1] - c[3 * a + 1];
+        return (abX * adY - abY * adX) / 2;
+    }
+
+    private static double polygonArea(float[] c, int n) {
+        double area = 0;
+        for (int i = 1; i < n - 1; i++) {
+            area += signedArea(c, 0, i, i + 1);
+        }
+        return area;
+    }
+
+    // Для простого многоугольника в плоскости xy, обходимого против часовой стрелки:
+    // n-2 треугольника, все с той же ориентацией, и их площади в сумме дают площадь многоугольника,
+    // то есть треугольники не перекрываются
+    private static void assertValidTriangulation(float[] coordinates, int n, int[] triangles) {
+        double area = 0;
+        for (int t = 0; t < n - 2; t++) {
+            final int a = triangles[3 * t];
+            final int b = triangles[3 * t + 1];
+            final int c = triangles[3 * t + 2];
+            Assertions.assertTrue(a >= 0 && a < n && b >= 0 && b < n && c >= 0 && c < n);
+            Assertions.assertTrue(a != b && b != c && a != c);
+            final double triangleArea = signedArea(coordinates, a, b, c);
+            Assertions.assertTrue(triangleArea >= -1e-9, "Triangle " + t + " is flipped");
+            area += triangleArea;
+        }
+        final double expected = polygonArea(coordinates, n);
+        Assertions.assertEquals(expected, area, Math.abs(expected) * 1e-9);
+    }
+
+    private static float[] randomStar(Random random, int n) {
+        double[][] points = new double[n][];
+        for (int i = 0; i < n; i++) {
+            final double angle = 2 * Math.PI * i / n;
+            final double radius = 1 + 9 * random.nextDouble();
+            points[i] = new double[]{radius * Math.cos(angle), radius * Math.sin(angle)};
+        }
+        return toCoordinates(points);
+    }
+
+    @Test
+    public void testConcavePolygon() {
+        // стрелка: веер из вершины 0 дает треугольник снаружи
+        float[] coordinates = toCoordinates(new double[][]{
+                {0, 0}, {4, 2}, {0, 4}, {1, 2}
+        });
+        int[] triangles = new int[6];
+        new EarClippingTriangulator().triangulate(coordinates, 4, triangles);
+        assertValidTriangulation(coordinates, 4, triangles);
+        Assertions.assertTrue(contains(triangles, 3), "Reflex vertex must be used");
+    }
+
+    private static boolean contains(int[] triangles, int vertex) {
+        for (int index : triangles) {
+            if (index == vertex) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testRandomStarPolygons() {
+        Random random = new Random(5);
+        EarClippingTriangulator triangulator = new EarClippingTriangulator();
+        for (int n : new int[]{5, 12, 40, 63, 64, 200, 1000}) {
+            for (int attempt = 0; attempt < 20; attempt++) {
+                float[] coordinates = randomStar(random, n);
+                int[] triangles = new int[3 * (n - 2)];
+                triangulator.triangulate(coordinates, n, triangles);
+                assertValidTriangulation(coordinates, n, triangles);
+            }
+        }
+    }
+
+    @Test
+    public void testLargePolygon() {
+        final int n = 100000;
+        float[] coordinates = randomStar(new Random(8), n);
+        int[] triangles = new int[3 * (n - 2)];
+        new EarClippingTriangulator().triangulate(coordinates, n, triangles);
+        assertValidTriangulation(coordinates, n, triangles);
+    }
+
+    @Test
+    public void testClockwisePolygonKeepsOrientation() {
+        float[] coordinates = toCoordinates(new double[][]{
+                {1, 2}, {0, 4}, {4, 2}, {0, 0}
+        });
+        int[] triangles = new int[6];
+        new EarClippingTriangulator().triangulate(coordinates, 4, triangles);
+        for (int t = 0; t < 2; t++) {
+            Assertions.assertTrue(signedArea(coordinates, triangles[3 * t], triangles[3 * t + 1], triangles[3 * t + 2]) < 0);
+        }
+    }
+
+    @Test
+    public void testTiltedNonPlanarPolygon() {
+        // та же стрелка, повернутая в пространстве, с небольшим отклонением от плоскости
+        double[][] flat = {{0, 0}, {4, 2}, {0, 4}, {1, 2}, {0.5, 1}};
+        double[][] points = new double[flat.length][];
+        for (int i = 0; i < flat.length; i++) {
+            final double u = flat[i][0];
+            final double v = flat[i][1];
+            points[i] = new double[]{u * 0.6, v, u * 0.8 + (i % 2) * 0.01};
+        }
+        float[] coordinates = toCoordinates(points);
+        int[] triangles = new int[9];
+        new EarClippingTriangulator().triangulate(coordinates, 5, triangles);
+
+        // проверка в исходных координатах плоскости
+        assertValidTriangulation(toCoordinates(flat), 5, triangles);
+    }
+
+    @Test
+    public void testDegeneratePolygonsGiveAllTriangles() {
+        float[][] polygons = {
+                // все вершины на одной прямой
+                toCoordinates(new double[][]{{0, 0}, {1, 1}, {2, 2}, {3, 3}, {4, 4}}),
+                // совпадающие вершины
+                toCoordinates(new double[][]{{0, 0}, {1, 0}, {1, 0}, {1, 1}, {0, 1}, {0, 0}}),
+                // самопересекающаяся "восьмерка"
+                toCoordinates(new double[][]{{0, 0}, {2, 2}, {2, 0}, {0, 2}, {-1, 1}, {-1, 3}})
+        };
+        EarClippingTriangulator triangulator = new EarClippingTriangulator();
+        for (float[] coordinates : polygons) {
+            final int n = coordinates.length / 3;
+            int[] triangles = new int[3 * (n - 2)];
+            triangulator.triangulate(coordinates, n, triangles);
+            boolean[] used = new boolean[n];
+            for (int index : triangles) {
+                Assertions.assertTrue(index >= 0 && index < n);
+                used[index] = true;
+            }
+            for (boolean vertexUsed : used) {
+                Assertions.assertTrue(vertexUsed);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeSelfIntersectingPolygon() {
+        // случайные точки: почти все уши вынужденные, поиск такого уха не должен обходить все кольцо
+        final int n = 50_000;
+        Random random = new Random(3);
+        double[][] points = new double[n][];
+        for (int i = 0; i < n; i++) {
+            points[i] = new double[]{random.nextDouble(), random.nextDouble()};
+        }
+        int[] triangles = new int[3 * (n - 2)];
+        final long start = System.nanoTime();
+        new EarClippingTriangulator().triangulate(toCoordinates(points), n, triangles);
+        Assertions.assertTrue(System.nanoTime() - start < 2_000_000_000L);
+
+        boolean[] used = new boolean[n];
+        for (int index : triangles) {
+            Assertions.assertTrue(index >= 0 && index < n);
+            used[index] = true;
+        }
+        for (boolean vertexUsed : used) {
+            Assertions.assertTrue(vertexUsed);
+        }
+    }
+}
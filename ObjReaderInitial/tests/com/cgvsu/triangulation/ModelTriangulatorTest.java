@@ -0,0 +1,217 @@
+package com.cgvsu.triangulation;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.OffHeapMesh;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.model.TriangulatedModel;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.offheap.OffHeapStorage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class ModelTriangulatorTest {
+
+    // полигоны от 3 до 8 вершин; у части граней есть текстурные координаты и нормали
+    private static String randomObj(int faceCount) {
+        Random random = new Random(3);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("v ").append(i).append(" 0 1\n");
+            content.append("vt 0.5 ").append(i).append('\n');
+            content.append("vn 0 0 ").append(i).append('\n');
+        }
+        for (int face = 0; face < faceCount; face++) {
+            final int size = 3 + random.nextInt(6);
+            final int kind = random.nextInt(3);
+            content.append('f');
+            for (int i = 0; i < size; i++) {
+                final int index = 1 + random.nextInt(100);
+                content.append(' ').append(index);
+                if (kind == 1) {
+                    content.append('/').append(index);
+                } else if (kind == 2) {
+                    content.append('/').append(index).append('/').append(index);
+                }
+            }
+            content.append('\n');
+        }
+        return content.toString();
+    }
+
+    @Test
+    public void testParallelModelMatchesSequential() {
+        Model model = ObjReader.read(randomObj(50000));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TriangulatedModel expected = ModelTriangulator.triangulate(model);
+            TriangulatedModel result = ModelTriangulator.triangulate(model, pool);
+
+            Assertions.assertEquals(ModelTriangulator.countTrianglesAfterTriangulation(model), result.polygons.size());
+            Assertions.assertEquals(expected.polygons.size(), result.polygons.size());
+            for (int i = 0; i < expected.polygons.size(); i++) {
+                Polygon expectedPolygon = expected.polygons.get(i);
+                Polygon polygon = result.polygons.get(i);
+                Assertions.assertEquals(expectedPolygon.getVertexIndices(), polygon.getVertexIndices());
+                Assertions.assertEquals(expectedPolygon.getTextureVertexIndices(), polygon.getTextureVertexIndices());
+                Assertions.assertEquals(expectedPolygon.getNormalIndices(), polygon.getNormalIndices());
+            }
+            Assertions.assertTrue(result.allPolygonsAreTriangles());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelMeshMatchesSequential() {
+        MeshData mesh = MeshData.fromModel(ObjReader.read(randomObj(50000)));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MeshData expected = ModelTriangulator.triangulate(mesh);
+            MeshData result = ModelTriangulator.triangulate(mesh, pool);
+
+            Assertions.assertArrayEquals(expected.faceOffsets, result.faceOffsets);
+            Assertions.assertArrayEquals(expected.vertexIndices, result.vertexIndices);
+            Assertions.assertArrayEquals(expected.textureVertexIndices, result.textureVertexIndices);
+            Assertions.assertArrayEquals(expected.normalIndices, result.normalIndices);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelOffHeapMatchesMeshData() throws IOException {
+        Path file = Files.createTempFile("triangulation", ".obj");
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try (OffHeapStorage storage = OffHeapStorage.direct()) {
+            Files.writeString(file, randomObj(20000));
+            MeshData expected = ModelTriangulator.triangulate(ObjReader.readMesh(file));
+            OffHeapMesh result = ModelTriangulator.triangulate(ObjReader.readOffHeap(file, storage), storage, pool);
+
+            Assertions.assertEquals(expected.getFaceCount(), result.getFaceCount());
+            for (int corner = 0; corner < expected.vertexIndices.length; corner++) {
+                Assertions.assertEquals(expected.getVertexIndex(corner), result.getVertexIndex(corner));
+                Assertions.assertEquals(expected.getTextureVertexIndex(corner), result.getTextureVertexIndex(corner));
+                Assertions.assertEquals(expected.getNormalIndex(corner), result.getNormalIndex(corner));
+            }
+        } finally {
+            pool.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testParallelRejectsDegenerateFace() {
+        Model model = new Model();
+        Polygon polygon = new Polygon();
+        polygon.getVertexIndices().add(0);
+        polygon.getVertexIndices().add(1);
+        model.polygons = new ArrayList<>();
+        model.polygons.add(polygon);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ModelTriangulator.triangulate(model, ForkJoinPool.commonPool()));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ModelTriangulator.triangulate(MeshData.fromModel(model), ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    public void testStrategyStatisticsCountPaths() {
+        // треугольник, квадрат, выпуклый шестиугольник и вогнутая стрелка
+        Model model = ObjReader.read("""
+                v 0 0 0
+                v 4 0 0
+                v 4 4 0
+                v 0 4 0
+                v 2 1 0
+                v 5 2 0
+                v 3 5 0
+                f 1 2 3
+                f 1 2 3 4
+                f 1 2 6 3 7 4
+                f 1 2 3 5
+                """);
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        TriangulatedModel result = ModelTriangulator.triangulate(model,
+                TriangulationMode.EAR_CLIPPING::newStrategy, statistics);
+
+        Assertions.assertEquals(9, result.polygons.size());
+        Assertions.assertSame(model.polygons.get(0), result.polygons.get(0));
+        Assertions.assertEquals(1, statistics.getPolygonCount(TriangulationStatistics.TRIANGLE));
+        Assertions.assertEquals(2, statistics.getPolygonCount(TriangulationStatistics.QUAD));
+        Assertions.assertEquals(1, statistics.getPolygonCount(TriangulationStatistics.CONVEX_FAN));
+        Assertions.assertEquals(4, statistics.getTriangleCount(TriangulationStatistics.CONVEX_FAN));
+        Assertions.assertEquals(0, statistics.getPolygonCount(TriangulationStatistics.EAR_CLIPPING));
+    }
+
+    @Test
+    public void testOutOfRangeIndicesFallBackToFan() {
+        // индексы проверяет IndexValidator после триангуляции, поэтому триангуляция на них не падает
+        Model model = ObjReader.read("""
+                v 0 0 0
+                v 4 0 0
+                v 4 4 0
+                v 0 4 0
+                f 1 2 3 4
+                f 1 2 9 4 3
+                f 0 1 2 3
+                """);
+        TriangulationStatistics statistics = new TriangulationStatistics();
+        TriangulatedModel result = ModelTriangulator.triangulate(model,
+                TriangulationMode.EAR_CLIPPING::newStrategy, statistics);
+        Assertions.assertEquals(7, result.polygons.size());
+        Assertions.assertEquals(2, statistics.getPolygonCount(TriangulationStatistics.INVALID_INDICES));
+        Assertions.assertEquals(5, statistics.getTriangleCount(TriangulationStatistics.INVALID_INDICES));
+        ArrayList<Integer> expected = new ArrayList<>();
+        expected.add(0);
+        expected.add(1);
+        expected.add(8);
+        Assertions.assertEquals(expected, result.polygons.get(2).getVertexIndices());
+
+        MeshData mesh = new MeshData(new float[]{0, 0, 0, 4, 0, 0, 4, 4, 0, 0, 4, 0}, new float[0], new float[0],
+                new int[]{0, 4, 9}, new int[]{0, 1, 2, 3, 0, 1, 7, 3, 2}, new int[0], new int[0]);
+        TriangulationStatistics meshStatistics = new TriangulationStatistics();
+        MeshData triangles = ModelTriangulator.triangulate(mesh, TriangulationMode.CONSTRAINED_DELAUNAY::newStrategy,
+                meshStatistics, ForkJoinPool.commonPool());
+        Assertions.assertEquals(5, triangles.getFaceCount());
+        Assertions.assertEquals(1, meshStatistics.getPolygonCount(TriangulationStatistics.INVALID_INDICES));
+        Assertions.assertArrayEquals(new int[]{0, 1, 7, 0, 7, 3, 0, 3, 2},
+                Arrays.copyOfRange(triangles.vertexIndices, 6, 15));
+    }
+
+    @Test
+    public void testParallelStrategyMatchesSequential() {
+        MeshData mesh = MeshData.fromModel(ObjReader.read(randomObj(50000)));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TriangulationStatistics expectedStatistics = new TriangulationStatistics();
+            TriangulationStatistics statistics = new TriangulationStatistics();
+            MeshData expected = ModelTriangulator.triangulate(mesh,
+                    TriangulationMode.CONSTRAINED_DELAUNAY::newStrategy, expectedStatistics);
+            MeshData result = ModelTriangulator.triangulate(mesh,
+                    TriangulationMode.CONSTRAINED_DELAUNAY::newStrategy, statistics, pool);
+
+            Assertions.assertArrayEquals(expected.vertexIndices, result.vertexIndices);
+            Assertions.assertArrayEquals(expected.textureVertexIndices, result.textureVertexIndices);
+            Assertions.assertArrayEquals(expected.normalIndices, result.normalIndices);
+            for (String method : expectedStatistics.getMethods()) {
+                Assertions.assertEquals(expectedStatistics.getPolygonCount(method), statistics.getPolygonCount(method));
+                Assertions.assertEquals(expectedStatistics.getTriangleCount(method),
+                        statistics.getTriangleCount(method));
+            }
+            Assertions.assertEquals(mesh.getFaceCount(),
+                    statistics.getPolygonCount(TriangulationStatistics.TRIANGLE)
+                            + statistics.getPolygonCount(TriangulationStatistics.CONSTRAINED_DELAUNAY));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.cgvsu.validation;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+class IndexValidatorTest {
+
+    private static final int NO = MeshData.NO_INDEX;
+
+    // 4 вершины, 2 текстурные вершины, нормалей нет
+    private static MeshData mesh(int[] faceOffsets, int[] vertexIndices, int[] textureVertexIndices) {
+        return new MeshData(new float[12], new float[4], new float[0], faceOffsets, vertexIndices,
+                textureVertexIndices, new int[0]);
+    }
+
+    private static MeshData readMesh(String content, ParseValidator validator) throws IOException {
+        return ObjReader.readMesh(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), validator);
+    }
+
+    @Test
+    public void testValidMesh() {
+        MeshData mesh = mesh(new int[]{0, 3, 7}, new int[]{0, 1, 2, 0, 1, 2, 3}, new int[]{0, 1, 0, NO, NO, NO, NO});
+
+        ValidationReport report = IndexValidator.validate(mesh);
+
+        Assertions.assertTrue(report.isValid());
+        Assertions.assertEquals(0, report.getViolationCount());
+        Assertions.assertTrue(report.getViolations().isEmpty());
+    }
+
+    @Test
+    public void testCollectsEveryKindInFaceOrder() {
+        MeshData mesh = mesh(new int[]{0, 3, 5, 8, 11},
+                new int[]{0, 4, 2, 0, 1, 1, 2, 3, 3, 3, 1},
+                new int[]{0, 1, 0, NO, NO, 0, NO, 1, 5, 0, 1});
+
+        ValidationReport report = IndexValidator.validate(mesh, 100, null);
+
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.VERTEX_INDEX_OUT_OF_RANGE));
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.TOO_FEW_VERTICES));
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.TEXTURE_COUNT_MISMATCH));
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.TEXTURE_INDEX_OUT_OF_RANGE));
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.REPEATED_VERTEX));
+        Assertions.assertEquals(5, report.getViolationCount());
+
+        List<IndexViolation> violations = report.getViolations();
+        Assertions.assertEquals(5, violations.size());
+        Assertions.assertEquals(IndexViolation.Kind.VERTEX_INDEX_OUT_OF_RANGE, violations.get(0).getKind());
+        Assertions.assertEquals(0, violations.get(0).getFace());
+        Assertions.assertEquals(1, violations.get(0).getCorner());
+        Assertions.assertEquals(4, violations.get(0).getIndex());
+        Assertions.assertEquals(IndexViolation.Kind.TOO_FEW_VERTICES, violations.get(1).getKind());
+        Assertions.assertEquals(1, violations.get(1).getFace());
+        Assertions.assertEquals(IndexViolation.Kind.TEXTURE_COUNT_MISMATCH, violations.get(2).getKind());
+        Assertions.assertEquals(2, violations.get(2).getFace());
+        Assertions.assertEquals(2, violations.get(2).getIndex());
+        // повтор отмечается на втором из двух одинаковых углов
+        Assertions.assertEquals(IndexViolation.Kind.REPEATED_VERTEX, violations.get(3).getKind());
+        Assertions.assertEquals(3, violations.get(3).getFace());
+        Assertions.assertEquals(1, violations.get(3).getCorner());
+        Assertions.assertEquals(IndexViolation.Kind.TEXTURE_INDEX_OUT_OF_RANGE, violations.get(4).getKind());
+        Assertions.assertEquals(5, violations.get(4).getIndex());
+    }
+
+    @Test
+    public void testCapKeepsFirstViolationsAndExactCounts() {
+        // много блоков параллельной проверки, ошибка в каждой сотой грани
+        final int faceCount = 100_000;
+        int[] offsets = MeshData.triangleFaceOffsets(faceCount);
+        int[] vertexIndices = new int[3 * faceCount];
+        for (int face = 0; face < faceCount; face++) {
+            vertexIndices[3 * face] = face % 100 == 0 ? 7 : 0;
+            vertexIndices[3 * face + 1] = 1;
+            vertexIndices[3 * face + 2] = 2;
+        }
+        MeshData mesh = mesh(offsets, vertexIndices, new int[0]);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ValidationReport report = IndexValidator.validate(mesh, 25, pool);
+            Assertions.assertEquals(1000, report.getViolationCount());
+            Assertions.assertEquals(25, report.getViolations().size());
+            Assertions.assertTrue(report.isTruncated());
+            for (int i = 0; i < 25; i++) {
+                Assertions.assertEquals(100 * i, report.getViolations().get(i).getFace());
+            }
+            Assertions.assertEquals(report.toString(), IndexValidator.validate(mesh, 25, null).toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testModelMatchesMeshData() {
+        Model model = new Model();
+        for (int i = 0; i < 4; i++) {
+            model.vertices.add(null);
+        }
+        Polygon valid = new Polygon();
+        valid.setVertexIndices(0, 1, 2);
+        Polygon broken = new Polygon();
+        broken.setVertexIndices(0, 2, 2, 9);
+        broken.setNormalIndices(0, 0, 0);
+        model.polygons.addAll(Arrays.asList(valid, broken));
+
+        ValidationReport report = IndexValidator.validate(model);
+
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.VERTEX_INDEX_OUT_OF_RANGE));
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.REPEATED_VERTEX));
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.NORMAL_COUNT_MISMATCH));
+        Assertions.assertEquals(3, report.getCount(IndexViolation.Kind.NORMAL_INDEX_OUT_OF_RANGE));
+        Assertions.assertTrue(report.getViolations().stream().allMatch(violation -> violation.getFace() == 1));
+    }
+
+    @Test
+    public void testParseValidatorReportsLinesAndForwardIndices() throws IOException {
+        final String content = """
+                v 0 0 0
+                v 1 0 0
+                f 1 2 3
+                v 1 1 0
+                f 3 2 1
+                vt 0 0
+                f 1/1 2/1 3/1 -4
+                f 1 2 3 0
+                f 1 1 2
+                """;
+        ParseValidator validator = new ParseValidator();
+
+        MeshData mesh = readMesh(content, validator);
+        ValidationReport report = validator.getReport();
+
+        Assertions.assertEquals(mesh.getFaceCount(), ObjReader.readMesh(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))).getFaceCount());
+        // f 1 2 3 ссылается на вершину, описанную ниже: это не ошибка
+        Assertions.assertEquals(List.of(
+                "face 2 (line 7), corner 3: vertex index out of range -1",
+                "face 2 (line 7): texture count mismatch 3",
+                "face 3 (line 8), corner 3: vertex index out of range -1",
+                "face 4 (line 9), corner 1: repeated vertex 0"),
+                report.getViolations().stream().map(IndexViolation::toString).toList());
+    }
+
+    @Test
+    public void testParseValidatorForwardIndexThatNeverAppears() throws IOException {
+        ParseValidator validator = new ParseValidator(1);
+
+        readMesh("v 0 0 0\nv 1 0 0\nf 1 2 5\nf 1 2 0\nv 0 1 0\n", validator);
+        ValidationReport report = validator.getReport();
+
+        Assertions.assertEquals(2, report.getViolationCount());
+        Assertions.assertEquals(1, report.getViolations().size());
+        Assertions.assertEquals(0, report.getViolations().get(0).getFace());
+        Assertions.assertEquals(4, report.getViolations().get(0).getIndex());
+        Assertions.assertEquals(3, report.getViolations().get(0).getLine());
+    }
+
+    @Test
+    public void testParseValidatorFacesBeforeVertices() throws IOException {
+        // все грани перед вершинами: индексов вперед больше, чем сохраняет проверка
+        final int vertexCount = 200;
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i + 2 <= vertexCount; i++) {
+            content.append("f ").append(i).append(' ').append(i + 1).append(' ').append(i + 2).append('\n');
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            content.append("v ").append(i).append(" 0 0\n");
+        }
+        ParseValidator validator = new ParseValidator(3);
+        readMesh(content.toString(), validator);
+        Assertions.assertTrue(validator.getReport().isValid());
+
+        // ошибочный индекс - не среди первых сохраненных; в отчет попадает наибольший
+        content.append("f 1 ").append(vertexCount + 7).append(" 2\nvn 0 0 1\nf 1//1 2//1 3//5\n");
+        validator = new ParseValidator(3);
+        readMesh(content.toString(), validator);
+        ValidationReport report = validator.getReport();
+
+        Assertions.assertFalse(report.isValid());
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.VERTEX_INDEX_OUT_OF_RANGE));
+        Assertions.assertEquals(1, report.getCount(IndexViolation.Kind.NORMAL_INDEX_OUT_OF_RANGE));
+        List<IndexViolation> violations = report.getViolations();
+        Assertions.assertEquals(2, violations.size());
+        Assertions.assertEquals(vertexCount + 6, violations.get(0).getIndex());
+        Assertions.assertEquals(2 * vertexCount - 1, violations.get(0).getLine());
+        Assertions.assertEquals(IndexViolation.Kind.NORMAL_INDEX_OUT_OF_RANGE, violations.get(1).getKind());
+    }
+}
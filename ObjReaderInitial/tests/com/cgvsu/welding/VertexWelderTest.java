@@ -0,0 +1,154 @@
+package com.cgvsu.welding;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+class VertexWelderTest {
+
+    // два квадрата с общей стороной, записанные без общих вершин, как это делают сканеры
+    private static final String CONTENT = """
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            v 1 0 0
+            v 2 0 0
+            v 2 1 0
+            v 1.00000005 1 0
+            vt 0 0
+            vt 1 1
+            vt 0 0
+            vn 0 0 1
+            vn 0 0 1
+            f 1/1/1 2/2/1 3/1/1 4/2/1
+            f 5/3/2 6/3/2 7/3/2 8/3/2
+            """;
+
+    @Test
+    public void testWeldModel() {
+        Model model = ObjReader.read(CONTENT);
+
+        WeldReport report = VertexWelder.weld(model);
+
+        Assertions.assertEquals(8, report.getVertexCountBefore());
+        Assertions.assertEquals(6, report.getVertexCountAfter());
+        Assertions.assertEquals(2, report.getTextureVertexCountAfter());
+        Assertions.assertEquals(1, report.getNormalCountAfter());
+        Assertions.assertEquals(4, report.getRemovedCount());
+        Assertions.assertTrue(report.getSavedBytes() > 0);
+
+        Assertions.assertEquals(6, model.vertices.size());
+        Assertions.assertEquals(Arrays.asList(0, 1, 2, 3), model.polygons.get(0).getVertexIndices());
+        Assertions.assertEquals(Arrays.asList(1, 4, 5, 2), model.polygons.get(1).getVertexIndices());
+        Assertions.assertEquals(Arrays.asList(0, 0, 0, 0), model.polygons.get(1).getTextureVertexIndices());
+        Assertions.assertEquals(Arrays.asList(0, 0, 0, 0), model.polygons.get(1).getNormalIndices());
+    }
+
+    @Test
+    public void testWeldMeshMatchesModel() throws IOException {
+        MeshData mesh = ObjReader.readMesh(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)));
+        float[] original = mesh.positions;
+
+        WeldReport report = VertexWelder.weld(mesh);
+
+        Assertions.assertEquals(6, mesh.getVertexCount());
+        Assertions.assertEquals(2 * 12 + 8 + 12, report.getSavedBytes());
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3, 1, 4, 5, 2}, mesh.vertexIndices);
+        Assertions.assertArrayEquals(new int[]{0, 0, 0, 0, 0, 0, 0, 0}, mesh.normalIndices);
+        // исходный массив мог быть общим с другой моделью, поэтому он не меняется
+        Assertions.assertEquals(24, original.length);
+        Assertions.assertEquals(1.0f, original[12]);
+    }
+
+    @Test
+    public void testToleranceMatchesVectorEquals() {
+        Model model = new Model();
+        model.vertices.add(new Vector3f(0, 0, 0));
+        model.vertices.add(new Vector3f(0.9e-7f, 0, 0));
+        model.vertices.add(new Vector3f(0, 1.1e-7f, 0));
+        model.vertices.add(new Vector3f(-0.5e-7f, 0.5e-7f, -0.5e-7f));
+
+        WeldReport report = VertexWelder.weld(model);
+
+        Assertions.assertEquals(2, report.getVertexCountAfter());
+        Assertions.assertEquals(0, model.vertices.get(0).y);
+        Assertions.assertEquals(1.1e-7f, model.vertices.get(1).y);
+    }
+
+    @Test
+    public void testInvalidIndicesAreKept() {
+        Model model = ObjReader.read("""
+                v 0 0 0
+                v 0 0 0
+                v 1 0 0
+                f 1 2 3 7
+                """);
+
+        VertexWelder.weld(model);
+
+        Assertions.assertEquals(Arrays.asList(0, 0, 1, 6), model.polygons.get(0).getVertexIndices());
+    }
+
+    // Набор уникальных точек не зависит от того, с какой из близких точек сливается каждая,
+    // поэтому он должен совпасть с попарным сравнением через equals
+    @Test
+    public void testMatchesPairwiseComparison() {
+        Random random = new Random(5);
+        final float epsilon = 1e-3f;
+        Model model = new Model();
+        for (int i = 0; i < 3000; i++) {
+            if (i > 0 && random.nextInt(3) == 0) {
+                Vector3f base = model.vertices.get(random.nextInt(i));
+                model.vertices.add(new Vector3f(base.x + (random.nextFloat() - 0.5f) * 3 * epsilon,
+                        base.y + (random.nextFloat() - 0.5f) * 3 * epsilon, base.z));
+            } else {
+                model.vertices.add(new Vector3f(random.nextInt(20) * 0.01f, random.nextInt(20) * 0.01f,
+                        random.nextInt(3) * 0.01f));
+            }
+        }
+        ArrayList<Vector3f> original = new ArrayList<>(model.vertices);
+
+        ArrayList<Vector3f> expected = new ArrayList<>();
+        for (Vector3f vertex : original) {
+            boolean found = false;
+            for (Vector3f unique : expected) {
+                found |= near(vertex, unique, epsilon);
+            }
+            if (!found) {
+                expected.add(vertex);
+            }
+        }
+
+        for (int i = 0; i + 2 < original.size(); i += 3) {
+            model.polygons.add(new Polygon(i, i + 1, i + 2));
+        }
+        VertexWelder.weld(model, epsilon, epsilon, epsilon);
+
+        Assertions.assertEquals(expected.size(), model.vertices.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertSame(expected.get(i), model.vertices.get(i));
+        }
+        for (int i = 0; i + 2 < original.size(); i += 3) {
+            for (int k = 0; k < 3; k++) {
+                Vector3f vertex = model.vertices.get(model.polygons.get(i / 3).getVertexIndices().get(k));
+                Assertions.assertTrue(near(original.get(i + k), vertex, epsilon));
+            }
+        }
+    }
+
+    private static boolean near(Vector3f a, Vector3f b, float epsilon) {
+        return Math.abs(a.x - b.x) < epsilon && Math.abs(a.y - b.y) < epsilon && Math.abs(a.z - b.z) < epsilon;
+    }
+}
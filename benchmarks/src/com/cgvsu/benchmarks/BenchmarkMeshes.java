@@ -0,0 +1,184 @@
+package com.cgvsu.benchmarks;
+
+import com.cgvsu.objwriter.ObjOutputBuffer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+// Модели для бенчмарков: keytruck.obj из корня проекта и сгенерированные сетки.
+// Сгенерированные файлы кладутся во временный каталог и переиспользуются между запусками и форками JMH,
+// потому что генерация 10M граней занимает больше, чем сам бенчмарк.
+public final class BenchmarkMeshes {
+
+    // модель из репозитория
+    public static final String KEYTRUCK = "keytruck";
+    // сетка четырехугольников, каждая 16-я клетка разбита на два треугольника; с vt и vn
+    public static final String QUADS_1M = "quads-1M";
+    // та же сетка на 10M граней, только с позициями вершин (иначе файл занимал бы около 2 ГБ)
+    public static final String QUADS_10M = "quads-10M";
+    // многоугольники из 2-6 соседних клеток (6-14 вершин) на неровной сетке, часть из них вогнутые
+    public static final String NGONS_1M = "ngons-1M";
+
+    private static final Path CACHE_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"), "objreader-benchmarks");
+
+    private BenchmarkMeshes() {
+    }
+
+    public static Path path(String name) throws IOException {
+        return switch (name) {
+            case KEYTRUCK -> findKeytruck();
+            case QUADS_1M -> generated(name, 1000, 1000, false, true);
+            case QUADS_10M -> generated(name, 3100, 3100, false, false);
+            case NGONS_1M -> generated(name, 4000, 1000, true, true);
+            default -> throw new IllegalArgumentException("Unknown benchmark mesh: " + name);
+        };
+    }
+
+    // Путь можно задать свойством objreader.keytruck, иначе файл ищется в текущем каталоге и выше
+    private static Path findKeytruck() {
+        final String property = System.getProperty("objreader.keytruck");
+        if (property != null) {
+            return Path.of(property);
+        }
+        for (Path directory = Path.of("").toAbsolutePath(); directory != null; directory = directory.getParent()) {
+            final Path candidate = directory.resolve("keytruck.obj");
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("keytruck.obj not found, set -Dobjreader.keytruck=<path>");
+    }
+
+    private static Path generated(String name, int columns, int rows, boolean polygons, boolean attributes)
+            throws IOException {
+        final Path path = CACHE_DIRECTORY.resolve(name + ".obj");
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+        Files.createDirectories(CACHE_DIRECTORY);
+        // пишем во временный файл и переименовываем, чтобы прерванная генерация не оставила обрезанный файл
+        final Path temporary = Files.createTempFile(CACHE_DIRECTORY, name, ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ObjOutputBuffer out = new ObjOutputBuffer(channel);
+            if (polygons) {
+                writePolygonGrid(columns, rows, out);
+            } else {
+                writeQuadGrid(columns, rows, attributes, out);
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return path;
+    }
+
+    // Клетки columns x rows; с attributes у вершин есть текстурные координаты и нормали, грани v/vt/vn
+    private static void writeQuadGrid(int columns, int rows, boolean attributes, ObjOutputBuffer out)
+            throws IOException {
+        writeGridVertices(columns, rows, null, attributes, out);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                final int a = row * (columns + 1) + column + 1;
+                final int b = a + 1;
+                final int c = b + columns + 1;
+                final int d = a + columns + 1;
+                if ((row * columns + column) % 16 == 0) {
+                    writeFace(out, attributes, a, b, c);
+                    writeFace(out, attributes, a, c, d);
+                } else {
+                    writeFace(out, attributes, a, b, c, d);
+                }
+            }
+        }
+    }
+
+    // В каждой строке клетки объединяются в многоугольники по 2-6 штук. Узлы сетки случайно сдвинуты
+    // по высоте, поэтому часть многоугольников вогнутая.
+    private static void writePolygonGrid(int columns, int rows, ObjOutputBuffer out) throws IOException {
+        Random random = new Random(17);
+        float[] offsets = new float[(columns + 1) * (rows + 1)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = (random.nextFloat() - 0.5f) * 0.6f;
+        }
+        writeGridVertices(columns, rows, offsets, true, out);
+
+        for (int row = 0; row < rows; row++) {
+            int column = 0;
+            while (column < columns) {
+                final int width = Math.min(columns - column, 2 + random.nextInt(5));
+                out.putAscii("f");
+                // нижняя сторона слева направо, верхняя справа налево
+                for (int i = 0; i <= width; i++) {
+                    writeCorner(out, true, row * (columns + 1) + column + i + 1);
+                }
+                for (int i = width; i >= 0; i--) {
+                    writeCorner(out, true, (row + 1) * (columns + 1) + column + i + 1);
+                }
+                out.putByte('\n');
+                column += width;
+            }
+        }
+    }
+
+    private static void writeGridVertices(int columns, int rows, float[] offsets, boolean attributes,
+                                          ObjOutputBuffer out) throws IOException {
+        for (int row = 0; row <= rows; row++) {
+            for (int column = 0; column <= columns; column++) {
+                final float offset = offsets == null ? 0 : offsets[row * (columns + 1) + column];
+                out.putAscii("v ");
+                out.putFloat(column);
+                out.putByte(' ');
+                out.putFloat(row + offset);
+                out.putByte(' ');
+                out.putFloat(0.01f * ((row * 7 + column * 3) % 11));
+                out.putByte('\n');
+            }
+        }
+        if (!attributes) {
+            return;
+        }
+        for (int row = 0; row <= rows; row++) {
+            for (int column = 0; column <= columns; column++) {
+                out.putAscii("vt ");
+                out.putFloat((float) column / columns);
+                out.putByte(' ');
+                out.putFloat((float) row / rows);
+                out.putByte('\n');
+            }
+        }
+        for (int row = 0; row <= rows; row++) {
+            for (int column = 0; column <= columns; column++) {
+                out.putAscii("vn 0.000000 0.000000 1.000000\n");
+            }
+        }
+    }
+
+    private static void writeFace(ObjOutputBuffer out, boolean attributes, int... vertices) throws IOException {
+        out.putAscii("f");
+        for (int vertex : vertices) {
+            writeCorner(out, attributes, vertex);
+        }
+        out.putByte('\n');
+    }
+
+    // у каждой вершины сетки свои vt и vn с тем же номером
+    private static void writeCorner(ObjOutputBuffer out, boolean attributes, int index) throws IOException {
+        out.putByte(' ');
+        out.putInt(index);
+        if (!attributes) {
+            return;
+        }
+        out.putByte('/');
+        out.putInt(index);
+        out.putByte('/');
+        out.putInt(index);
+    }
+}
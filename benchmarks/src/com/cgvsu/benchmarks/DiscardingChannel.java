@@ -0,0 +1,27 @@
+package com.cgvsu.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Канал, который только считает байты: запись в него измеряет форматирование без диска
+final class DiscardingChannel implements WritableByteChannel {
+
+    long written;
+
+    @Override
+    public int write(ByteBuffer source) {
+        final int count = source.remaining();
+        source.position(source.limit());
+        written += count;
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
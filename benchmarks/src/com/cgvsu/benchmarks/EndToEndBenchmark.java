@@ -0,0 +1,62 @@
+package com.cgvsu.benchmarks;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.TriangulatedModel;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.triangulation.ModelTriangulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Весь путь из Main: чтение, триангуляция, проверка индексов и запись результата
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EndToEndBenchmark {
+
+    @Param({BenchmarkMeshes.KEYTRUCK, BenchmarkMeshes.QUADS_1M, BenchmarkMeshes.NGONS_1M})
+    public String mesh;
+
+    private Path input;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        input = BenchmarkMeshes.path(mesh);
+        output = Files.createTempFile("objreader-benchmark", ".obj");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public boolean readTriangulateWrite(FaceCounter counter) throws IOException {
+        Model model = ObjReader.read(input);
+        TriangulatedModel triangulated = ModelTriangulator.triangulate(model);
+        final boolean valid = ObjWriter.validateModelIndices(triangulated);
+        ObjWriter.write(triangulated, output);
+        counter.faces += model.polygons.size();
+        return valid;
+    }
+}
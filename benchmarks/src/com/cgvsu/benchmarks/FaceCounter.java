@@ -0,0 +1,21 @@
+package com.cgvsu.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Число обработанных граней. JMH выводит его рядом с основным результатом как скорость "faces" (граней в секунду),
+// так что модели разного размера можно сравнивать между собой.
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class FaceCounter {
+
+    public long faces;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        faces = 0;
+    }
+}
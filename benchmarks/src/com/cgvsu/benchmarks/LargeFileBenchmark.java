@@ -0,0 +1,69 @@
+package com.cgvsu.benchmarks;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objreader.ParallelObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.objwriter.ParallelObjWriter;
+import com.cgvsu.triangulation.ModelTriangulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Файл на 10M граней целиком: чтение в MeshData, триангуляция и запись. Один прогон занимает секунды,
+// поэтому каждая итерация - один вызов.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class LargeFileBenchmark {
+
+    @Param({BenchmarkMeshes.QUADS_10M})
+    public String mesh;
+
+    private Path input;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        input = BenchmarkMeshes.path(mesh);
+        output = Files.createTempFile("objreader-benchmark", ".obj");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public void sequential(FaceCounter counter) throws IOException {
+        MeshData mesh = ObjReader.readMesh(input);
+        ObjWriter.write(ModelTriangulator.triangulate(mesh), output);
+        counter.faces += mesh.getFaceCount();
+    }
+
+    @Benchmark
+    public void parallel(FaceCounter counter) throws IOException {
+        MeshData mesh = ParallelObjReader.readMesh(input);
+        ParallelObjWriter.write(ModelTriangulator.triangulate(mesh, ForkJoinPool.commonPool()), output);
+        counter.faces += mesh.getFaceCount();
+    }
+}
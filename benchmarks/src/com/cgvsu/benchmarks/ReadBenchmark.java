@@ -0,0 +1,70 @@
+package com.cgvsu.benchmarks;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objreader.ParallelObjReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Чтение OBJ-файла в Model и в MeshData, в одном потоке и параллельно
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReadBenchmark {
+
+    @Param({BenchmarkMeshes.KEYTRUCK, BenchmarkMeshes.QUADS_1M, BenchmarkMeshes.NGONS_1M})
+    public String mesh;
+
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = BenchmarkMeshes.path(mesh);
+    }
+
+    @Benchmark
+    public Model readModel(FaceCounter counter) throws IOException {
+        Model model = ObjReader.read(path);
+        counter.faces += model.polygons.size();
+        return model;
+    }
+
+    @Benchmark
+    public MeshData readMesh(FaceCounter counter) throws IOException {
+        MeshData result = ObjReader.readMesh(path);
+        counter.faces += result.getFaceCount();
+        return result;
+    }
+
+    @Benchmark
+    public Model readModelParallel(FaceCounter counter) throws IOException {
+        Model model = ParallelObjReader.read(path);
+        counter.faces += model.polygons.size();
+        return model;
+    }
+
+    @Benchmark
+    public MeshData readMeshParallel(FaceCounter counter) throws IOException {
+        MeshData result = ParallelObjReader.readMesh(path);
+        counter.faces += result.getFaceCount();
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package com.cgvsu.benchmarks;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.TriangulatedModel;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.triangulation.ModelTriangulator;
+import com.cgvsu.triangulation.TriangulationMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Триангуляция уже прочитанной модели разными способами
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TriangulationBenchmark {
+
+    @Param({BenchmarkMeshes.KEYTRUCK, BenchmarkMeshes.QUADS_1M, BenchmarkMeshes.NGONS_1M})
+    public String mesh;
+
+    private Model model;
+    private MeshData meshData;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        model = ObjReader.read(BenchmarkMeshes.path(mesh));
+        meshData = MeshData.fromModel(model);
+    }
+
+    @Benchmark
+    public TriangulatedModel fan(FaceCounter counter) {
+        counter.faces += model.polygons.size();
+        return new TriangulatedModel(model);
+    }
+
+    @Benchmark
+    public TriangulatedModel fanParallel(FaceCounter counter) {
+        counter.faces += model.polygons.size();
+        return ModelTriangulator.triangulate(model, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public TriangulatedModel earClipping(FaceCounter counter) {
+        counter.faces += model.polygons.size();
+        return ModelTriangulator.triangulate(model, TriangulationMode.EAR_CLIPPING);
+    }
+
+    @Benchmark
+    public TriangulatedModel constrainedDelaunay(FaceCounter counter) {
+        counter.faces += model.polygons.size();
+        return ModelTriangulator.triangulate(model, TriangulationMode.CONSTRAINED_DELAUNAY);
+    }
+
+    @Benchmark
+    public MeshData meshFan(FaceCounter counter) {
+        counter.faces += meshData.getFaceCount();
+        return ModelTriangulator.triangulate(meshData);
+    }
+
+    @Benchmark
+    public MeshData meshEarClipping(FaceCounter counter) {
+        counter.faces += meshData.getFaceCount();
+        return ModelTriangulator.triangulate(meshData, TriangulationMode.EAR_CLIPPING);
+    }
+}
@@ -0,0 +1,46 @@
+package com.cgvsu.benchmarks;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Проверка индексов перед записью
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ValidationBenchmark {
+
+    @Param({BenchmarkMeshes.KEYTRUCK, BenchmarkMeshes.QUADS_1M, BenchmarkMeshes.NGONS_1M})
+    public String mesh;
+
+    private Model model;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        model = ObjReader.read(BenchmarkMeshes.path(mesh));
+    }
+
+    @Benchmark
+    public boolean validateModelIndices(FaceCounter counter) {
+        counter.faces += model.polygons.size();
+        return ObjWriter.validateModelIndices(model);
+    }
+}
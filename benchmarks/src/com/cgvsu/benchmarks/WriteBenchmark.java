@@ -0,0 +1,82 @@
+package com.cgvsu.benchmarks;
+
+import com.cgvsu.model.MeshData;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.objwriter.ParallelObjWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Запись модели: форматирование в канал без диска и запись файла целиком
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class WriteBenchmark {
+
+    @Param({BenchmarkMeshes.KEYTRUCK, BenchmarkMeshes.QUADS_1M, BenchmarkMeshes.NGONS_1M})
+    public String mesh;
+
+    private Model model;
+    private MeshData meshData;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        model = ObjReader.read(BenchmarkMeshes.path(mesh));
+        meshData = MeshData.fromModel(model);
+        output = Files.createTempFile("objreader-benchmark", ".obj");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public long formatModel(FaceCounter counter) throws IOException {
+        DiscardingChannel channel = new DiscardingChannel();
+        ObjWriter.write(model, channel);
+        counter.faces += model.polygons.size();
+        return channel.written;
+    }
+
+    @Benchmark
+    public long formatMesh(FaceCounter counter) throws IOException {
+        DiscardingChannel channel = new DiscardingChannel();
+        ObjWriter.write(meshData, channel);
+        counter.faces += meshData.getFaceCount();
+        return channel.written;
+    }
+
+    @Benchmark
+    public void writeModelFile(FaceCounter counter) throws IOException {
+        ObjWriter.write(model, output);
+        counter.faces += model.polygons.size();
+    }
+
+    @Benchmark
+    public void writeModelFileParallel(FaceCounter counter) throws IOException {
+        ParallelObjWriter.write(model, output);
+        counter.faces += model.polygons.size();
+    }
+}